@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.util.Vector;
+
+import probcog.bayesnets.core.BeliefNetworkEx;
+import probcog.bayesnets.core.EvidenceAbsorption;
+import probcog.bayesnets.inference.Algorithm;
+import probcog.bayesnets.inference.SampledDistribution;
+import probcog.bayesnets.inference.Sampler;
+import probcog.srl.directed.bln.AbstractGroundBLN;
+
+/**
+ * Checks that evidence absorption (see {@link EvidenceAbsorption}) does not change the results of exact inference:
+ * For each of the bundled example networks, the marginals of the query nodes are computed with and without absorption
+ * and are required to agree. For algorithms whose normalization constant is the probability of the evidence,
+ * the normalization constants are required to agree as well.
+ * Exits with a non-zero status if any of the checks fails.
+ * @author agent
+ */
+public class AbsorptionCheck {
+
+	protected static final double TOLERANCE = 1e-9;
+	protected int numFailures = 0;
+
+	/**
+	 * runs inference on a network with and without absorbing the evidence and compares the results
+	 * @param name the name of the network (for output)
+	 * @param gbln the instantiated ground network
+	 * @param algo an exact inference algorithm
+	 * @param compareZ whether to compare the normalization constants (which is meaningful only if the algorithm computes the probability of the evidence)
+	 * @param queryPredicates the names of the functions whose ground nodes are to be queried; if none are given, all nodes are queried
+	 * @throws Exception
+	 */
+	public void check(String name, AbstractGroundBLN gbln, Algorithm algo, boolean compareZ, String... queryPredicates) throws Exception {
+		BeliefNetworkEx bn = gbln.getGroundNetwork();
+		int[] evidenceDomainIndices = gbln.getFullEvidence(gbln.getDatabase().getEntriesAsArray());
+		Vector<Integer> queryVars = new Vector<Integer>();
+		for(int i = 0; i < evidenceDomainIndices.length; i++) {
+			boolean isQuery = queryPredicates.length == 0;
+			for(String pred : queryPredicates)
+				if(bn.getNode(i).getName().startsWith(pred + "("))
+					isQuery = true;
+			if(isQuery)
+				queryVars.add(i);
+		}
+
+		// inference on the full network
+		Sampler sampler = algo.createSampler(bn);
+		sampler.setVerbose(false);
+		sampler.setEvidence(evidenceDomainIndices);
+		sampler.setQueryVars(queryVars);
+		SampledDistribution dist = sampler.infer();
+
+		// inference on the reduced network
+		EvidenceAbsorption absorption = bn.absorbEvidence(evidenceDomainIndices);
+		Sampler reducedSampler = algo.createSampler(absorption.getReducedNetwork());
+		reducedSampler.setVerbose(false);
+		reducedSampler.setEvidence(absorption.getReducedEvidence());
+		reducedSampler.setQueryVars(absorption.getReducedNodeIndices(queryVars));
+		SampledDistribution absorbedDist = reducedSampler.infer().expandAbsorbedEvidence(absorption);
+
+		// compare
+		double maxDiff = 0;
+		String maxDiffVar = null;
+		for(int i : queryVars) {
+			double[] p = dist.getDistribution(i), q = absorbedDist.getDistribution(i);
+			for(int j = 0; j < p.length; j++) {
+				double diff = Math.abs(p[j] - q[j]);
+				if(!(diff <= maxDiff)) {
+					maxDiff = diff;
+					maxDiffVar = dist.getVariableName(i);
+				}
+			}
+		}
+		boolean ok = maxDiff <= TOLERANCE;
+		String zInfo = "";
+		if(compareZ) {
+			double relDiff = Math.abs(dist.Z - absorbedDist.Z) / dist.Z;
+			ok = ok && relDiff <= TOLERANCE;
+			zInfo = String.format(", Z %s vs. %s", dist.Z, absorbedDist.Z);
+		}
+		System.out.printf("%s %s/%s: %s; max. deviation %s%s%s\n", ok ? "OK  " : "FAIL", name, algo, absorption, maxDiff,
+				maxDiffVar != null && maxDiff > 0 ? " (" + maxDiffVar + ")" : "", zInfo);
+		if(!ok)
+			numFailures++;
+	}
+
+	public int getNumFailures() {
+		return numFailures;
+	}
+
+	public static void main(String[] args) throws Exception {
+		AbsorptionCheck check = new AbsorptionCheck();
+		check.check("alarm", BenchmarkModels.getGroundAlarmBLN(), Algorithm.EnumerationAsk, true);
+		check.check("alarm", BenchmarkModels.getGroundAlarmBLN(), Algorithm.Pearl, false);
+		check.check("alarm", BenchmarkModels.getGroundAlarmBLN(), Algorithm.VarElim, false);
+		check.check("grades", BenchmarkModels.getGroundGradesBLN(), Algorithm.VarElim, false);
+		if(check.getNumFailures() > 0) {
+			System.out.printf("%d check(s) failed\n", check.getNumFailures());
+			System.exit(1);
+		}
+	}
+}
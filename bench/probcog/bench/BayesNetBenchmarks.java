@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.util.Random;
+import java.util.Vector;
+
+import probcog.bayesnets.core.BeliefNetworkEx;
+import probcog.bayesnets.inference.GibbsSampling;
+import probcog.bayesnets.inference.LikelihoodWeighting;
+import probcog.bayesnets.inference.VariableElimination;
+import probcog.bayesnets.inference.WeightedSample;
+import probcog.srl.directed.bln.AbstractGroundBLN;
+
+/**
+ * Benchmarks of Bayesian network inference on the ground networks of the bundled examples.
+ * @author agent
+ */
+public class BayesNetBenchmarks {
+
+	/**
+	 * base class for benchmarks on the ground network, which is instantiated along with the evidence
+	 */
+	public static abstract class GroundNetworkBenchmark extends Benchmark {
+		protected BeliefNetworkEx bn;
+		protected int[] evidenceDomainIndices;
+		protected int[] nodeOrder;
+
+		@Override
+		public void setup() throws Exception {
+			AbstractGroundBLN gbln = getGroundBLN();
+			bn = gbln.getGroundNetwork();
+			evidenceDomainIndices = gbln.getFullEvidence(gbln.getDatabase().getEntriesAsArray());
+			nodeOrder = bn.getTopologicalOrder();
+		}
+
+		protected AbstractGroundBLN getGroundBLN() throws Exception {
+			return BenchmarkModels.getGroundGradesBLN();
+		}
+	}
+
+	/**
+	 * forward sampling of a single node given its parents (Sampler.sampleForward); an operation is a sampled node
+	 */
+	public static class SampleForward extends GroundNetworkBenchmark {
+		protected ForwardSampler sampler;
+		protected int[] nodeDomainIndices;
+
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			sampler = new ForwardSampler(bn);
+			nodeDomainIndices = new int[nodeOrder.length];
+		}
+
+		@Override
+		public long run() throws Exception {
+			return sampler.sampleAll(nodeOrder, nodeDomainIndices);
+		}
+
+		protected static class ForwardSampler extends LikelihoodWeighting {
+			public ForwardSampler(BeliefNetworkEx bn) throws Exception {
+				super(bn);
+			}
+
+			public int sampleAll(int[] nodeOrder, int[] nodeDomainIndices) {
+				for(int nodeIdx : nodeOrder)
+					nodeDomainIndices[nodeIdx] = sampleForward(nodes[nodeIdx], nodeDomainIndices);
+				return nodeOrder.length;
+			}
+		}
+	}
+
+	/**
+	 * a single likelihood weighting step, i.e. the generation of one weighted sample
+	 */
+	public static class LikelihoodWeightingStep extends GroundNetworkBenchmark {
+		protected LikelihoodWeighting lw;
+		protected WeightedSample s;
+
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			lw = new LikelihoodWeighting(bn);
+			lw.setVerbose(false);
+			lw.setEvidence(evidenceDomainIndices);
+			s = new WeightedSample(bn);
+		}
+
+		@Override
+		public long run() throws Exception {
+			lw.getWeightedSample(s, nodeOrder, evidenceDomainIndices);
+			return 1;
+		}
+	}
+
+	/**
+	 * a single Gibbs sampling step, i.e. the resampling of all non-evidence nodes
+	 */
+	public static class GibbsStep extends GroundNetworkBenchmark {
+		protected GibbsSampling gibbs;
+		protected WeightedSample s;
+
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			gibbs = new GibbsSampling(bn);
+			gibbs.setVerbose(false);
+			gibbs.setEvidence(evidenceDomainIndices);
+			s = bn.getWeightedSample(nodeOrder, evidenceDomainIndices, new Random());
+		}
+
+		@Override
+		public long run() throws Exception {
+			gibbs.gibbsStep(evidenceDomainIndices, s);
+			return 1;
+		}
+	}
+
+	/**
+	 * exact inference with variable elimination, computing the marginals of all non-evidence nodes
+	 * (of the alarm example, since the grades network is too large for exact inference)
+	 */
+	public static class VariableEliminationInference extends GroundNetworkBenchmark {
+		protected VariableElimination ve;
+
+		@Override
+		protected AbstractGroundBLN getGroundBLN() throws Exception {
+			return BenchmarkModels.getGroundAlarmBLN();
+		}
+
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			ve = new VariableElimination(bn);
+			ve.setVerbose(false);
+			ve.setEvidence(evidenceDomainIndices);
+			Vector<Integer> queryVars = new Vector<Integer>();
+			for(int i = 0; i < evidenceDomainIndices.length; i++)
+				if(evidenceDomainIndices[i] == -1)
+					queryVars.add(i);
+			ve.setQueryVars(queryVars);
+		}
+
+		@Override
+		public long run() throws Exception {
+			ve.infer();
+			return 1;
+		}
+	}
+}
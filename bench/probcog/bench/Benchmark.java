@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+/**
+ * A micro-benchmark of a single hot path. The runner calls {@link #setup()} once and then
+ * calls {@link #run()} repeatedly, measuring the throughput in operations per second.
+ * @author agent
+ */
+public abstract class Benchmark {
+
+	/**
+	 * prepares the benchmark (loads models, etc.); the time taken is not measured
+	 * @throws Exception
+	 */
+	public void setup() throws Exception {
+	}
+
+	/**
+	 * performs a single invocation of the benchmarked code
+	 * @return the number of operations that were performed (e.g. 1 for a single sampling step or the number of flips of a SAT solver run)
+	 * @throws Exception
+	 */
+	public abstract long run() throws Exception;
+
+	/**
+	 * @return the name of the benchmark, which is derived from the class name
+	 */
+	public String getName() {
+		String name = getClass().getName();
+		if(name.startsWith("probcog.bench."))
+			name = name.substring("probcog.bench.".length());
+		return name.replace('$', '.');
+	}
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.io.File;
+
+import probcog.srl.Database;
+import probcog.srl.directed.bln.AbstractGroundBLN;
+import probcog.srl.directed.bln.BayesianLogicNetwork;
+import probcog.srl.mln.MarkovLogicNetwork;
+import probcog.srl.mln.MarkovRandomField;
+
+/**
+ * Loads the models that are bundled with ProbCog for use in benchmarks.
+ * Paths are relative to the ProbCog home directory, which is given by the system property "probcog.home" 
+ * (the current directory by default).
+ * @author agent
+ */
+public class BenchmarkModels {
+
+	public static String getPath(String relativePath) {
+		return new File(System.getProperty("probcog.home", "."), relativePath).getPath();
+	}
+
+	/**
+	 * @return the BLN of the grades example
+	 * @throws Exception
+	 */
+	public static BayesianLogicNetwork getGradesBLN() throws Exception {
+		return new BayesianLogicNetwork(getPath("examples/grades/grades.blog"), getPath("examples/grades/grades.xml"), getPath("examples/grades/grades.blnl"));
+	}
+
+	/**
+	 * reads the evidence database of the grades example
+	 * @param bln
+	 * @return
+	 * @throws Exception
+	 */
+	public static Database getGradesDatabase(BayesianLogicNetwork bln) throws Exception {
+		Database db = new Database(bln);
+		db.readBLOGDB(getPath("examples/grades/grades.blogdb"));
+		for(String predName : new String[]{"teaches", "advises", "takes"})
+			db.setClosedWorldPred(predName);
+		return db;
+	}
+
+	/**
+	 * @return the ground network of the grades example (instantiated for its evidence database)
+	 * @throws Exception
+	 */
+	public static AbstractGroundBLN getGroundGradesBLN() throws Exception {
+		BayesianLogicNetwork bln = getGradesBLN();
+		AbstractGroundBLN gbln = bln.ground(getGradesDatabase(bln));
+		gbln.instantiateGroundNetwork();
+		return gbln;
+	}
+
+	/**
+	 * @return the ground network of the alarm example (instantiated for the first of its queries), 
+	 * which is small enough for exact inference
+	 * @throws Exception
+	 */
+	public static AbstractGroundBLN getGroundAlarmBLN() throws Exception {
+		BayesianLogicNetwork bln = new BayesianLogicNetwork(getPath("examples/alarm/alarm.blnd"), getPath("examples/alarm/alarm.pmml"), getPath("examples/alarm/alarm.blnl"));
+		Database db = new Database(bln);
+		db.readBLOGDB(getPath("examples/alarm/query1.blogdb"));
+		AbstractGroundBLN gbln = bln.ground(db);
+		gbln.instantiateGroundNetwork();
+		return gbln;
+	}
+
+	/**
+	 * @return the MLN of the smokers test model
+	 * @throws Exception
+	 */
+	public static MarkovLogicNetwork getSmokersMLN() throws Exception {
+		return new MarkovLogicNetwork(getPath("test/models/smokers/wts.pybpll.smoking-train-smoking.mln"));
+	}
+
+	/**
+	 * reads the evidence database of the smokers test model
+	 * @param mln
+	 * @return
+	 * @throws Exception
+	 */
+	public static Database getSmokersDatabase(MarkovLogicNetwork mln) throws Exception {
+		Database db = new Database(mln);
+		db.readMLNDB(getPath("test/models/smokers/smoking-test.db"));
+		return db;
+	}
+
+	/**
+	 * @return the ground MRF of the smokers test model
+	 * @throws Exception
+	 */
+	public static MarkovRandomField getSmokersMRF() throws Exception {
+		MarkovLogicNetwork mln = getSmokersMLN();
+		return mln.ground(getSmokersDatabase(mln));
+	}
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Vector;
+import java.util.regex.Pattern;
+
+import umontreal.iro.lecuyer.probdist.StudentDist;
+
+/**
+ * Runs the benchmarks of the inference and grounding hot paths and writes the results in JSON
+ * (using the result format of the Java Microbenchmark Harness, such that existing tools for the
+ * comparison of results can be used).
+ * Each benchmark is run for a number of warmup iterations, whose results are discarded, 
+ * followed by a number of measurement iterations, each of which runs the benchmark for a fixed amount of time.
+ * @author agent
+ */
+public class BenchmarkRunner {
+
+	protected int warmupIterations = 3;
+	protected int measurementIterations = 5;
+	/**
+	 * the duration of an iteration in seconds
+	 */
+	protected double iterationTime = 1.0;
+	/**
+	 * the confidence level of the score error
+	 */
+	protected double confidenceLevel = 0.999;
+	protected Vector<Result> results = new Vector<Result>();
+
+	/**
+	 * @return all available benchmarks
+	 */
+	public static Vector<Benchmark> getBenchmarks() {
+		Vector<Benchmark> ret = new Vector<Benchmark>();
+		ret.add(new BayesNetBenchmarks.SampleForward());
+		ret.add(new BayesNetBenchmarks.LikelihoodWeightingStep());
+		ret.add(new BayesNetBenchmarks.GibbsStep());
+		ret.add(new BayesNetBenchmarks.VariableEliminationInference());
+		ret.add(new SATBenchmarks.SampleSATFlips());
+		ret.add(new SATBenchmarks.MCSATStep());
+		ret.add(new GroundingBenchmarks.GenerateGroundings());
+		ret.add(new GroundingBenchmarks.ReadBLOGDB());
+		return ret;
+	}
+
+	public void setWarmupIterations(int n) {
+		warmupIterations = n;
+	}
+
+	public void setMeasurementIterations(int n) {
+		measurementIterations = n;
+	}
+
+	public void setIterationTime(double seconds) {
+		iterationTime = seconds;
+	}
+
+	/**
+	 * runs a benchmark, adding its result to the results of this runner
+	 * @param b
+	 * @return the result
+	 * @throws Exception
+	 */
+	public Result run(Benchmark b) throws Exception {
+		System.out.println("# Benchmark: " + b.getName());
+		b.setup();
+		for(int i = 1; i <= warmupIterations; i++)
+			System.out.printf(Locale.US, "# Warmup Iteration %d: %.3f ops/s\n", i, runIteration(b));
+		double[] scores = new double[measurementIterations];
+		for(int i = 0; i < measurementIterations; i++) {
+			scores[i] = runIteration(b);
+			System.out.printf(Locale.US, "Iteration %d: %.3f ops/s\n", i + 1, scores[i]);
+		}
+		Result r = new Result(b.getName(), scores);
+		System.out.printf(Locale.US, "Result: %.3f +- %.3f ops/s\n\n", r.score, r.error);
+		results.add(r);
+		return r;
+	}
+
+	/**
+	 * runs the benchmark for one iteration
+	 * @param b
+	 * @return the throughput in operations per second
+	 * @throws Exception
+	 */
+	protected double runIteration(Benchmark b) throws Exception {
+		long duration = (long)(iterationTime * 1e9);
+		long ops = 0;
+		long startTime = System.nanoTime(), elapsed;
+		do {
+			ops += b.run();
+			elapsed = System.nanoTime() - startTime;
+		} while(elapsed < duration);
+		return ops / (elapsed / 1e9);
+	}
+
+	/**
+	 * writes the results of all benchmarks that were run as a JSON array
+	 * @param out
+	 */
+	public void writeJSON(PrintWriter out) {
+		out.println("[");
+		for(int i = 0; i < results.size(); i++) {
+			Result r = results.get(i);
+			out.println("    {");
+			out.printf("        \"benchmark\" : \"%s\",\n", r.name);
+			out.println("        \"mode\" : \"thrpt\",");
+			out.printf("        \"warmupIterations\" : %d,\n", warmupIterations);
+			out.printf(Locale.US, "        \"warmupTime\" : \"%s s\",\n", iterationTime);
+			out.printf("        \"measurementIterations\" : %d,\n", measurementIterations);
+			out.printf(Locale.US, "        \"measurementTime\" : \"%s s\",\n", iterationTime);
+			out.println("        \"primaryMetric\" : {");
+			out.printf(Locale.US, "            \"score\" : %s,\n", r.score);
+			out.printf(Locale.US, "            \"scoreError\" : %s,\n", r.error);
+			out.printf(Locale.US, "            \"scoreConfidence\" : [ %s, %s ],\n", r.score - r.error, r.score + r.error);
+			out.println("            \"scoreUnit\" : \"ops/s\",");
+			out.print("            \"rawData\" : [ [ ");
+			for(int j = 0; j < r.scores.length; j++) {
+				if(j > 0)
+					out.print(", ");
+				out.print(String.valueOf(r.scores[j]));
+			}
+			out.println(" ] ]");
+			out.println("        }");
+			out.println(i < results.size() - 1 ? "    }," : "    }");
+		}
+		out.println("]");
+	}
+
+	/**
+	 * the result of a benchmark
+	 */
+	public class Result {
+		public String name;
+		public double[] scores;
+		public double score;
+		/**
+		 * half the width of the confidence interval around the score
+		 */
+		public double error = Double.NaN;
+
+		public Result(String name, double[] scores) {
+			this.name = name;
+			this.scores = scores;
+			double sum = 0;
+			for(double s : scores)
+				sum += s;
+			score = sum / scores.length;
+			if(scores.length > 1) {
+				double sumSq = 0;
+				for(double s : scores)
+					sumSq += (s - score) * (s - score);
+				double stdDev = Math.sqrt(sumSq / (scores.length - 1));
+				error = StudentDist.inverseF(scores.length - 1, 1 - (1 - confidenceLevel) / 2) * stdDev / Math.sqrt(scores.length);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		try {
+			BenchmarkRunner runner = new BenchmarkRunner();
+			String outFile = null;
+			Pattern filter = null;
+			boolean list = false;
+			for(int i = 0; i < args.length; i++) {
+				if(args[i].equals("-wi"))
+					runner.setWarmupIterations(Integer.parseInt(args[++i]));
+				else if(args[i].equals("-i"))
+					runner.setMeasurementIterations(Integer.parseInt(args[++i]));
+				else if(args[i].equals("-r"))
+					runner.setIterationTime(Double.parseDouble(args[++i]));
+				else if(args[i].equals("-o"))
+					outFile = args[++i];
+				else if(args[i].equals("-l"))
+					list = true;
+				else if(args[i].startsWith("-")) {
+					System.out.println("usage: BenchmarkRunner [options] [regex]");
+					System.out.println("  -wi <n>      number of warmup iterations (default: 3)");
+					System.out.println("  -i <n>       number of measurement iterations (default: 5)");
+					System.out.println("  -r <secs>    duration of an iteration (default: 1)");
+					System.out.println("  -o <file>    write the results to the given JSON file");
+					System.out.println("  -l           list the available benchmarks");
+					System.out.println("  regex        run only the benchmarks whose name contains a match of the given regular expression");
+					return;
+				}
+				else
+					filter = Pattern.compile(args[i]);
+			}
+			for(Benchmark b : getBenchmarks()) {
+				if(filter != null && !filter.matcher(b.getName()).find())
+					continue;
+				if(list)
+					System.out.println(b.getName());
+				else
+					runner.run(b);
+			}
+			if(list)
+				return;
+			PrintWriter out = outFile == null ? new PrintWriter(System.out) : new PrintWriter(new FileWriter(outFile));
+			runner.writeJSON(out);
+			out.close();
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
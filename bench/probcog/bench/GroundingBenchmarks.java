@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import probcog.logic.Formula.FormulaSimplification;
+import probcog.logic.WorldVariables;
+import probcog.logic.sat.weighted.WeightedFormula;
+import probcog.srl.Database;
+import probcog.srl.directed.bln.BayesianLogicNetwork;
+import probcog.srl.mln.MarkovLogicNetwork;
+import probcog.srl.mln.MarkovRandomField;
+
+/**
+ * Benchmarks of grounding and of reading evidence databases.
+ * @author agent
+ */
+public class GroundingBenchmarks {
+
+	/**
+	 * the generation of all groundings of the formulas of the smokers test model (Formula.generateGroundings); 
+	 * an operation is a ground formula
+	 */
+	public static class GenerateGroundings extends Benchmark {
+		protected MarkovLogicNetwork mln;
+		protected Database db;
+		protected WorldVariables vars;
+
+		@Override
+		public void setup() throws Exception {
+			MarkovRandomField mrf = BenchmarkModels.getSmokersMRF();
+			mln = mrf.mln;
+			db = mrf.getDb();
+			vars = mrf.getWorldVariables();
+		}
+
+		@Override
+		public long run() throws Exception {
+			long n = 0;
+			for(WeightedFormula wf : mln.getFormulas())
+				n += wf.formula.getAllGroundings(db, vars, FormulaSimplification.On).size();
+			return n;
+		}
+	}
+
+	/**
+	 * reading the evidence database of the grades example (GenericDatabase.readBLOGDB)
+	 */
+	public static class ReadBLOGDB extends Benchmark {
+		protected BayesianLogicNetwork bln;
+		protected String filename;
+
+		@Override
+		public void setup() throws Exception {
+			bln = BenchmarkModels.getGradesBLN();
+			filename = BenchmarkModels.getPath("examples/grades/grades.blogdb");
+		}
+
+		@Override
+		public long run() throws Exception {
+			new Database(bln).readBLOGDB(filename);
+			return 1;
+		}
+	}
+}
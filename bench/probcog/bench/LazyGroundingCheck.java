@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import probcog.srl.Database;
+import probcog.srl.Variable;
+import probcog.srl.mln.LazyMarkovRandomField;
+import probcog.srl.mln.MarkovLogicNetwork;
+import probcog.srl.mln.MarkovRandomField;
+import probcog.srl.mln.inference.MCSAT;
+
+/**
+ * Checks that lazy MC-SAT remains lazy on a sparse instance of the smokers model (many persons, few friendships):
+ * After sampling, the number of active ground formulas is required to be far below the number of ground formulas
+ * of the full grounding.
+ * Exits with a non-zero status if the check fails.
+ * @author agent
+ */
+public class LazyGroundingCheck {
+
+	/**
+	 * the maximum admissible ratio of active ground formulas to the ground formulas of the full grounding
+	 */
+	protected static final double MAX_ACTIVE_RATIO = 0.1;
+
+	/**
+	 * creates a sparse evidence database for the smokers model, where each person has (at most) two friends
+	 * and the smoking habits of some persons are known
+	 * @param mln
+	 * @param numPersons
+	 * @param seed
+	 * @return
+	 * @throws Exception
+	 */
+	public static Database getSparseSmokersDatabase(MarkovLogicNetwork mln, int numPersons, long seed) throws Exception {
+		Random rand = new Random(seed);
+		Database db = new Database(mln);
+		String[] persons = new String[numPersons];
+		for(int i = 0; i < numPersons; i++)
+			persons[i] = "P" + i;
+		for(int i = 0; i < numPersons; i++)
+			for(int j = 0; j < 2; j++) {
+				int k = rand.nextInt(numPersons);
+				if(k != i)
+					db.addVariable(new Variable("Friends", new String[]{persons[i], persons[k]}, "True", mln));
+			}
+		for(int i = 0; i < numPersons / 10; i++)
+			db.addVariable(new Variable("Smokes", new String[]{persons[rand.nextInt(numPersons)]}, i % 3 == 0 ? "False" : "True", mln));
+		return db;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int numPersons = 150, maxSteps = 1000;
+		Iterable<String> queries = Arrays.asList("Smokes", "Cancer");
+		MarkovLogicNetwork mln = BenchmarkModels.getSmokersMLN();
+
+		// lazy inference
+		LazyMarkovRandomField lmrf = mln.groundLazily(getSparseSmokersDatabase(mln, numPersons, 1), queries);
+		MCSAT mcsat = new MCSAT(lmrf);
+		mcsat.setVerbose(false);
+		mcsat.setMaxSteps(maxSteps);
+		mcsat.infer(queries);
+		int numActive = lmrf.getNumActiveGroundings();
+
+		// full grounding
+		MarkovRandomField mrf = mln.ground(getSparseSmokersDatabase(mln, numPersons, 1));
+		int numFull = mrf.getNumFormulas();
+
+		boolean ok = numActive <= MAX_ACTIVE_RATIO * numFull;
+		System.out.printf("%s smokers/%d persons/%d steps: %d ground formulas active (%d groundings considered, %d ground atoms) vs. %d ground formulas in full grounding\n",
+				ok ? "OK  " : "FAIL", numPersons, maxSteps, numActive, lmrf.getNumGroundingsConsidered(), lmrf.getWorldVariables().size(), numFull);
+		if(!ok)
+			System.exit(1);
+	}
+}
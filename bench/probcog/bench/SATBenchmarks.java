@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.util.Map.Entry;
+import java.util.Vector;
+
+import probcog.logic.PossibleWorld;
+import probcog.logic.sat.SampleSAT;
+import probcog.logic.sat.weighted.MCSAT;
+import probcog.logic.sat.weighted.WeightedClausalKB;
+import probcog.logic.sat.weighted.WeightedClause;
+import probcog.logic.sat.weighted.WeightedFormula;
+import probcog.srl.mln.MarkovRandomField;
+
+/**
+ * Benchmarks of the satisfiability-based inference methods on the ground MRF of the smokers test model.
+ * @author agent
+ */
+public class SATBenchmarks {
+
+	/**
+	 * SampleSAT runs on a set of constraints as it would arise in an MC-SAT step; an operation is a flip
+	 */
+	public static class SampleSATFlips extends Benchmark {
+		protected SampleSAT sat;
+		protected Vector<WeightedClause> constraints;
+
+		@Override
+		public void setup() throws Exception {
+			MarkovRandomField mrf = BenchmarkModels.getSmokersMRF();
+			WeightedClausalKB kb = new WeightedClausalKB(mrf, true);
+			sat = new SampleSAT(new PossibleWorld(mrf.getWorldVariables()), mrf.getWorldVariables(), mrf.getDb().getEntries());
+			// obtain a random state that respects the evidence and use the clauses of all formulas that are true in it 
+			// as constraints (as in an MC-SAT step), such that the problem is guaranteed to be satisfiable
+			sat.initConstraints(new Vector<WeightedClause>());
+			sat.run();
+			constraints = new Vector<WeightedClause>();
+			for(Entry<WeightedFormula, Vector<WeightedClause>> e : kb.getFormulasAndClauses())
+				if(e.getKey().formula.isTrue(sat.getState()))
+					constraints.addAll(e.getValue());
+		}
+
+		@Override
+		public long run() throws Exception {
+			long flips = sat.getNumFlips();
+			sat.initConstraints(constraints);
+			sat.run();
+			return sat.getNumFlips() - flips;
+		}
+	}
+
+	/**
+	 * MC-SAT sampling; an operation is an MC-SAT step
+	 */
+	public static class MCSATStep extends Benchmark {
+		/**
+		 * the number of steps per invocation (each invocation additionally involves the search for an initial state)
+		 */
+		public static final int STEPS = 10;
+		protected MCSAT mcsat;
+
+		@Override
+		public void setup() throws Exception {
+			MarkovRandomField mrf = BenchmarkModels.getSmokersMRF();
+			mcsat = new MCSAT(new WeightedClausalKB(mrf, true), mrf.getWorldVariables(), mrf.getDb());
+		}
+
+		@Override
+		public long run() throws Exception {
+			mcsat.run(STEPS);
+			return STEPS;
+		}
+	}
+}
@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Vector;
+
+import probcog.bench.WorkloadGenerator.Workload;
+import probcog.inference.GeneralSampledDistribution;
+import probcog.srl.Database;
+import probcog.srl.directed.bln.BayesianLogicNetwork;
+import probcog.srl.directed.inference.BLNinfer;
+import probcog.srl.mln.MarkovLogicNetwork;
+import probcog.srl.mln.MarkovRandomField;
+import probcog.srl.mln.inference.InferenceAlgorithm;
+import probcog.srl.mln.inference.LiftedBeliefPropagation;
+import probcog.srl.mln.inference.MCSAT;
+import probcog.srl.mln.inference.MaxWalkSAT;
+import edu.tum.cs.util.Stopwatch;
+
+/**
+ * Macro-benchmark that runs BLN or MLN inference on synthetic workloads of increasing size 
+ * (see {@link WorkloadGenerator}) with several inference algorithms and reports, for each size and algorithm,
+ * the grounding time, the inference time, the peak heap usage and the accuracy relative to a reference distribution,
+ * yielding scaling curves (one CSV row per data point).
+ * <p>
+ * Workloads are written to a directory and reused in subsequent runs. The reference distribution for a workload
+ * is read from &lt;workload&gt;.ref (as written by GeneralSampledDistribution.write, e.g. using BLNinfer -od); 
+ * if there is no such file and a reference algorithm is given, the reference is computed with that algorithm and saved.
+ * @author agent
+ */
+public class ScalingBenchmark {
+
+	protected BayesianLogicNetwork bln = null;
+	protected MarkovLogicNetwork mln = null;
+	protected String modelName;
+	protected int maxSteps = 1000;
+	protected PrintWriter csv;
+
+	public ScalingBenchmark(BayesianLogicNetwork bln, String modelName) {
+		this.bln = bln;
+		this.modelName = modelName;
+	}
+
+	public ScalingBenchmark(MarkovLogicNetwork mln, String modelName) {
+		this.mln = mln;
+		this.modelName = modelName;
+	}
+
+	public void setMaxSteps(int steps) {
+		maxSteps = steps;
+	}
+
+	/**
+	 * sets the writer to which CSV rows are written (in addition to standard output)
+	 * @param csv
+	 */
+	public void setOutput(PrintWriter csv) {
+		this.csv = csv;
+	}
+
+	/**
+	 * the marginal distribution of a query variable as computed by an inference algorithm
+	 */
+	public static class Marginal {
+		public String varName;
+		public String[] domain;
+		public double[] probabilities;
+
+		public Marginal(String varName, String[] domain, double[] probabilities) {
+			this.varName = varName;
+			this.domain = domain;
+			this.probabilities = probabilities;
+		}
+	}
+
+	/**
+	 * the measurements of a single inference run
+	 */
+	public static class Run {
+		public double groundingTime, inferenceTime;
+		public long peakHeap;
+		public Vector<Marginal> marginals = new Vector<Marginal>();
+	}
+
+	/**
+	 * runs inference on a workload
+	 * @param algorithm the name of the inference algorithm
+	 * @param dbFile the evidence database
+	 * @param queries
+	 * @param steps the maximum number of steps
+	 * @return
+	 * @throws Exception
+	 */
+	public Run run(String algorithm, String dbFile, Vector<String> queries, int steps) throws Exception {
+		resetPeakHeap();
+		Run r = bln != null ? runBLN(algorithm, dbFile, queries, steps) : runMLN(algorithm, dbFile, queries, steps);
+		r.peakHeap = getPeakHeap();
+		return r;
+	}
+
+	protected Run runBLN(String algorithm, String dbFile, Vector<String> queries, int steps) throws Exception {
+		Run r = new Run();
+		HashMap<String, Object> params = new HashMap<String, Object>();
+		params.put("inferenceMethod", algorithm);
+		params.put("numSamples", String.valueOf(steps));
+		params.put("verbose", "false");
+		BLNinfer inf = new BLNinfer(params);
+		inf.setMaxSteps(steps);
+		inf.setBLN(bln);
+		Database db = new Database(bln);
+		db.readBLOGDB(dbFile);
+		inf.setDatabase(db);
+		inf.setQueries(queries);
+		Collection<probcog.srl.directed.inference.InferenceResult> results = inf.run();
+		r.groundingTime = inf.getGroundingTime();
+		r.inferenceTime = inf.getTotalInferenceTime();
+		for(probcog.srl.directed.inference.InferenceResult res : results)
+			r.marginals.add(new Marginal(res.varName, res.domainElements, res.probabilities));
+		return r;
+	}
+
+	protected Run runMLN(String algorithm, String dbFile, Vector<String> queries, int steps) throws Exception {
+		Run r = new Run();
+		Stopwatch sw = new Stopwatch();
+		sw.start();
+		Database db = new Database(mln);
+		db.readMLNDB(dbFile);
+		MarkovRandomField mrf = mln.ground(db);
+		r.groundingTime = sw.getElapsedTimeSecs();
+		sw = new Stopwatch();
+		sw.start();
+		InferenceAlgorithm infer;
+		if(algorithm.equals("MCSAT"))
+			infer = new MCSAT(mrf);
+		else if(algorithm.equals("LiftedBP"))
+			infer = new LiftedBeliefPropagation(mrf);
+		else if(algorithm.equals("MaxWalkSAT"))
+			infer = new MaxWalkSAT(mrf);
+		else
+			throw new IllegalArgumentException("Unsupported MLN inference algorithm '" + algorithm + "'; supported are MCSAT, LiftedBP and MaxWalkSAT");
+		infer.setVerbose(false);
+		infer.setMaxSteps(steps);
+		for(probcog.srl.mln.inference.InferenceResult res : infer.infer(queries))
+			r.marginals.add(new Marginal(res.ga.toString(), new String[]{"True", "False"}, new double[]{res.value, 1 - res.value}));
+		r.inferenceTime = sw.getElapsedTimeSecs();
+		return r;
+	}
+
+	/**
+	 * computes the accuracy of a set of marginals relative to a reference distribution
+	 * @param marginals
+	 * @param reference
+	 * @return the mean squared error and the maximum absolute error over all entries of the marginals
+	 * that are contained in the reference distribution (NaN if there are none)
+	 */
+	public static double[] getErrors(Collection<Marginal> marginals, GeneralSampledDistribution reference) {
+		HashMap<String, Integer> varIndices = new HashMap<String, Integer>();
+		for(int i = 0; i < reference.values.length; i++)
+			varIndices.put(reference.getVariableName(i), i);
+		double sumSq = 0, maxError = 0;
+		int n = 0;
+		for(Marginal m : marginals) {
+			Integer varIdx = varIndices.get(m.varName);
+			if(varIdx == null)
+				continue;
+			String[] refDomain = reference.getDomain(varIdx);
+			for(int i = 0; i < m.domain.length; i++)
+				for(int j = 0; j < refDomain.length; j++)
+					if(refDomain[j].equals(m.domain[i])) {
+						double error = Math.abs(m.probabilities[i] - reference.getProbability(varIdx, j));
+						sumSq += error * error;
+						maxError = Math.max(maxError, error);
+						n++;
+					}
+		}
+		if(n == 0)
+			return new double[]{Double.NaN, Double.NaN};
+		return new double[]{sumSq / n, maxError};
+	}
+
+	/**
+	 * converts a set of marginals to a distribution that can be saved as a reference
+	 * @param marginals
+	 * @return
+	 * @throws Exception
+	 */
+	public static GeneralSampledDistribution toDistribution(Collection<Marginal> marginals) throws Exception {
+		double[][] values = new double[marginals.size()][];
+		String[] varNames = new String[values.length];
+		String[][] domains = new String[values.length][];
+		int i = 0;
+		for(Marginal m : marginals) {
+			values[i] = m.probabilities;
+			varNames[i] = m.varName;
+			domains[i] = m.domain;
+			i++;
+		}
+		return new GeneralSampledDistribution(values, 1.0, varNames, domains);
+	}
+
+	/**
+	 * resets the peak usage of the heap's memory pools (after collecting garbage)
+	 */
+	protected static void resetPeakHeap() {
+		System.gc();
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if(pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+	}
+
+	/**
+	 * @return the peak heap usage in bytes since the last call to {@link #resetPeakHeap()} (sum of the peaks of the heap's memory pools)
+	 */
+	protected static long getPeakHeap() {
+		long ret = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if(pool.getType() == MemoryType.HEAP)
+				ret += pool.getPeakUsage().getUsed();
+		return ret;
+	}
+
+	/**
+	 * runs the benchmark
+	 * @param gen the generator with which to generate workloads (whose domain size is set to each of the given sizes)
+	 * @param sizes the domain sizes
+	 * @param algorithms the inference algorithms to compare
+	 * @param referenceAlgorithm the algorithm with which to compute missing reference distributions (null to use existing references only)
+	 * @param referenceSteps the number of steps for the reference algorithm
+	 * @param workloadDir the directory in which workloads are stored
+	 * @throws Exception
+	 */
+	public void run(WorkloadGenerator gen, int[] sizes, String[] algorithms, String referenceAlgorithm, int referenceSteps, File workloadDir) throws Exception {
+		workloadDir.mkdirs();
+		report("model,size,evidence,queries,algorithm,groundingTime,inferenceTime,peakHeapMB,mse,maxError");
+		for(int size : sizes) {
+			// get the workload
+			String baseName = new File(workloadDir, modelName + "-" + size).getPath();
+			String dbFile = baseName + (bln != null ? ".blogdb" : ".db");
+			if(!new File(dbFile).exists()) {
+				gen.setDomainSize(size);
+				Workload w = bln != null ? gen.generate(bln) : gen.generate(mln);
+				w.write(baseName);
+			}
+			Vector<String> queries = Workload.readQueries(Workload.getQueriesFile(baseName));
+			int numEvidence = 0;
+			for(String line : Workload.readQueries(dbFile)) // (skipping domain declarations)
+				if(!line.endsWith("}"))
+					numEvidence++;
+			// get the reference distribution
+			File refFile = new File(baseName + ".ref");
+			if(!refFile.exists() && referenceAlgorithm != null) {
+				System.err.printf("computing reference for %s with %s...\n", baseName, referenceAlgorithm);
+				try {
+					toDistribution(run(referenceAlgorithm, dbFile, queries, referenceSteps).marginals).write(refFile);
+				}
+				catch(Exception e) {
+					System.err.println("reference could not be computed: " + e);
+				}
+			}
+			GeneralSampledDistribution reference = refFile.exists() ? GeneralSampledDistribution.fromFile(refFile) : null;
+			// run the algorithms (an algorithm that fails on a workload yields a row of NaNs)
+			for(String algorithm : algorithms) {
+				Run r;
+				try {
+					r = run(algorithm, dbFile, queries, maxSteps);
+				}
+				catch(Exception e) {
+					System.err.printf("%s failed on %s: %s\n", algorithm, baseName, e);
+					report(String.format(Locale.US, "%s,%d,%d,%d,%s,NaN,NaN,NaN,NaN,NaN", modelName, size, numEvidence, queries.size(), algorithm));
+					continue;
+				}
+				double[] errors = reference != null ? getErrors(r.marginals, reference) : new double[]{Double.NaN, Double.NaN};
+				report(String.format(Locale.US, "%s,%d,%d,%d,%s,%.4f,%.4f,%.1f,%g,%g", modelName, size, numEvidence, queries.size(), algorithm, 
+						r.groundingTime, r.inferenceTime, r.peakHeap / 1048576.0, errors[0], errors[1]));
+			}
+		}
+	}
+
+	protected void report(String row) {
+		System.out.println(row);
+		if(csv != null) {
+			csv.println(row);
+			csv.flush();
+		}
+	}
+
+	public static void main(String[] args) {
+		try {
+			String[] blnFiles = null;
+			String mlnFile = null, outFile = null, referenceAlgorithm = null;
+			String workloadDir = "workloads";
+			int[] sizes = {5, 10, 20};
+			String[] algorithms = null;
+			int maxSteps = 1000, referenceSteps = 100000;
+			long seed = 0;
+			HashMap<String, String> options = new HashMap<String, String>();
+			Vector<String> domainScales = new Vector<String>();
+			for(int i = 0; i < args.length; i++) {
+				if(args[i].equals("-bln"))
+					blnFiles = new String[]{args[++i], args[++i], args[++i]};
+				else if(args[i].equals("-mln"))
+					mlnFile = args[++i];
+				else if(args[i].equals("-sizes")) {
+					String[] s = args[++i].split(",");
+					sizes = new int[s.length];
+					for(int j = 0; j < s.length; j++)
+						sizes[j] = Integer.parseInt(s[j]);
+				}
+				else if(args[i].equals("-ia"))
+					algorithms = args[++i].split(",");
+				else if(args[i].equals("-maxSteps"))
+					maxSteps = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-ref"))
+					referenceAlgorithm = args[++i];
+				else if(args[i].equals("-refSteps"))
+					referenceSteps = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-dir"))
+					workloadDir = args[++i];
+				else if(args[i].equals("-o"))
+					outFile = args[++i];
+				else if(args[i].equals("-seed"))
+					seed = Long.parseLong(args[++i]);
+				else if(args[i].equals("-dom"))
+					domainScales.add(args[++i]);
+				else if(args[i].equals("-evidence") || args[i].equals("-query") || args[i].equals("-burnIn"))
+					options.put(args[i], args[++i]);
+				else {
+					System.err.println("unknown option: " + args[i]);
+					return;
+				}
+			}
+			if((blnFiles == null) == (mlnFile == null) || algorithms == null) {
+				System.out.println("usage: ScalingBenchmark <-bln <decls> <network> <logic> | -mln <mln file>> -ia <algorithms> [options]");
+				System.out.println("  -ia <a1,a2,...>  the inference algorithms to compare (BLNs: as in BLNinfer; MLNs: MCSAT, LiftedBP, MaxWalkSAT)");
+				System.out.println("  -sizes <n1,...>  the numbers of constants per entity domain (default: 5,10,20)");
+				System.out.println("  -maxSteps <n>    the maximum number of steps (default: 1000)");
+				System.out.println("  -ref <a>         compute missing reference distributions with algorithm a (e.g. EnumerationAsk for BLNs)");
+				System.out.println("  -refSteps <n>    the maximum number of steps of the reference algorithm (default: 100000)");
+				System.out.println("  -dir <dir>       the directory in which workloads and references are stored (default: workloads)");
+				System.out.println("  -o <file>        also write the results to the given CSV file");
+				System.out.println("  -dom, -evidence, -query, -burnIn, -seed   workload generation options (see WorkloadGenerator)");
+				return;
+			}
+			ScalingBenchmark bench;
+			if(blnFiles != null)
+				bench = new ScalingBenchmark(new BayesianLogicNetwork(blnFiles[0], blnFiles[1], blnFiles[2]), new File(blnFiles[0]).getName().replaceAll("\\.[^.]*$", ""));
+			else
+				bench = new ScalingBenchmark(new MarkovLogicNetwork(mlnFile), new File(mlnFile).getName().replaceAll("\\.[^.]*$", ""));
+			bench.setMaxSteps(maxSteps);
+			if(outFile != null)
+				bench.setOutput(new PrintWriter(new FileWriter(outFile)));
+			bench.run(WorkloadGenerator.create(seed, options, domainScales), sizes, algorithms, referenceAlgorithm, referenceSteps, new File(workloadDir));
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import probcog.MLNinfer;
+import probcog.srl.directed.inference.BLNinfer;
+import probcog.srl.directed.inference.InferenceResult;
+
+/**
+ * Checks that snapshots of ground models are not reused for inputs they were not created from:
+ * After a snapshot was written for one evidence database, inference is run for another database
+ * whose file is older than the snapshot, which must not be answered from the snapshot's evidence.
+ * Exits with a non-zero status if any of the checks fails.
+ * @author agent
+ */
+public class SnapshotCheck {
+
+	protected static final double TOLERANCE = 1e-9;
+	protected File dir;
+	protected int numFailures = 0;
+
+	public SnapshotCheck() throws Exception {
+		dir = File.createTempFile("snapshotcheck", "");
+		dir.delete();
+		dir.mkdir();
+	}
+
+	/**
+	 * copies a file into the temporary directory, setting the copy's modification time
+	 * @return the path of the copy
+	 */
+	protected String copy(String filename, String name, long lastModified) throws Exception {
+		File f = new File(dir, name);
+		InputStream is = new FileInputStream(filename);
+		OutputStream os = new FileOutputStream(f);
+		try {
+			byte[] buf = new byte[1 << 16];
+			int n;
+			while((n = is.read(buf)) != -1)
+				os.write(buf, 0, n);
+		}
+		finally {
+			is.close();
+			os.close();
+		}
+		f.setLastModified(lastModified);
+		return f.getPath();
+	}
+
+	protected void report(boolean ok, String name, String info) {
+		System.out.printf("%s %s: %s\n", ok ? "OK  " : "FAIL", name, info);
+		if(!ok)
+			numFailures++;
+	}
+
+	/**
+	 * runs MLNinfer and returns its standard output
+	 */
+	protected static String runMLNinfer(String... args) throws Exception {
+		PrintStream stdout = System.out;
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(buf, true));
+		try {
+			MLNinfer.main(args);
+		}
+		finally {
+			System.setOut(stdout);
+		}
+		return buf.toString();
+	}
+
+	public void checkMLN() throws Exception {
+		long now = System.currentTimeMillis();
+		String mln = copy(BenchmarkModels.getPath("test/models/smokers/wts.pybpll.smoking-train-smoking.mln"), "smokers.mln", now - 3600000);
+		String db = copy(BenchmarkModels.getPath("test/models/smokers/smoking-test.db"), "smokers.db", now - 3600000);
+		String olderDb = copy(BenchmarkModels.getPath("test/models/smokers/smoking-train.db"), "smokers-older.db", now - 7200000);
+		String snapshot = new File(dir, "smokers.mrf.snapshot").getPath();
+
+		String out = runMLNinfer("-i", mln, "-e", db, "-q", "Cancer", "-maxSteps", "10", "-snapshot", snapshot);
+		report(out.contains("writing snapshot"), "mln/initial run", "snapshot written");
+		out = runMLNinfer("-i", mln, "-e", db, "-q", "Cancer", "-maxSteps", "10", "-snapshot", snapshot);
+		report(out.contains("reading ground MRF from snapshot"), "mln/same inputs", "snapshot reused");
+		out = runMLNinfer("-i", mln, "-e", olderDb, "-q", "Cancer", "-maxSteps", "10", "-snapshot", snapshot);
+		report(!out.contains("reading ground MRF from snapshot") && out.contains("creating ground MRF"), "mln/older database", "model grounded anew");
+		out = runMLNinfer("-i", mln, "-e", olderDb, "-q", "Cancer", "-maxSteps", "10", "-cw", "Friends", "-snapshot", snapshot);
+		report(!out.contains("reading ground MRF from snapshot") && out.contains("creating ground MRF"), "mln/other closed-world predicates", "model grounded anew");
+	}
+
+	protected Collection<InferenceResult> runBLNinfer(String... args) throws Exception {
+		BLNinfer infer = new BLNinfer();
+		infer.readArgs(args);
+		return infer.run();
+	}
+
+	public void checkBLN() throws Exception {
+		long now = System.currentTimeMillis();
+		String decls = copy(BenchmarkModels.getPath("examples/alarm/alarm.blnd"), "alarm.blnd", now - 3600000);
+		String network = copy(BenchmarkModels.getPath("examples/alarm/alarm.pmml"), "alarm.pmml", now - 3600000);
+		String logic = copy(BenchmarkModels.getPath("examples/alarm/alarm.blnl"), "alarm.blnl", now - 3600000);
+		String db = copy(BenchmarkModels.getPath("examples/alarm/query1.blogdb"), "query1.blogdb", now - 3600000);
+		String olderDb = copy(BenchmarkModels.getPath("examples/alarm/query2.blogdb"), "query2.blogdb", now - 7200000);
+		String snapshot = new File(dir, "alarm.gbln.snapshot").getPath();
+
+		runBLNinfer("-b", decls, "-x", network, "-l", logic, "-e", db, "-q", "alarm,burglary", "-ia", "EnumerationAsk", "-snapshot", snapshot);
+		PrintStream stdout = System.out;
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(buf, true));
+		Collection<InferenceResult> results;
+		try {
+			results = runBLNinfer("-b", decls, "-x", network, "-l", logic, "-e", olderDb, "-q", "alarm,burglary", "-ia", "EnumerationAsk", "-snapshot", snapshot);
+		}
+		finally {
+			System.setOut(stdout);
+		}
+		report(buf.toString().contains("updating ground model for the current evidence"), "bln/older database", "ground model updated for the evidence");
+		Collection<InferenceResult> expected = runBLNinfer("-b", decls, "-x", network, "-l", logic, "-e", olderDb, "-q", "alarm,burglary", "-ia", "EnumerationAsk");
+		double maxDiff = compare(new ArrayList<InferenceResult>(expected), new ArrayList<InferenceResult>(results));
+		report(maxDiff <= TOLERANCE, "bln/older database", "max. deviation from inference without snapshot " + maxDiff);
+	}
+
+	protected static double compare(ArrayList<InferenceResult> a, ArrayList<InferenceResult> b) {
+		if(a.size() != b.size())
+			return Double.POSITIVE_INFINITY;
+		double maxDiff = 0;
+		for(int i = 0; i < a.size(); i++) {
+			if(!a.get(i).varName.equals(b.get(i).varName))
+				return Double.POSITIVE_INFINITY;
+			for(int j = 0; j < a.get(i).probabilities.length; j++)
+				maxDiff = Math.max(maxDiff, Math.abs(a.get(i).probabilities[j] - b.get(i).probabilities[j]));
+		}
+		return maxDiff;
+	}
+
+	public int getNumFailures() {
+		return numFailures;
+	}
+
+	/**
+	 * removes the temporary directory and the files in it
+	 */
+	public void cleanUp() {
+		for(File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	public static void main(String[] args) throws Exception {
+		SnapshotCheck check = new SnapshotCheck();
+		check.checkMLN();
+		check.checkBLN();
+		check.cleanUp();
+		if(check.getNumFailures() > 0) {
+			System.out.printf("%d check(s) failed\n", check.getNumFailures());
+			System.exit(1);
+		}
+	}
+}
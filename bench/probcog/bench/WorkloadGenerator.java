@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import probcog.bayesnets.core.BeliefNetworkEx;
+import probcog.bayesnets.inference.SampleSearch;
+import probcog.bayesnets.inference.WeightedSample;
+import probcog.logic.GroundAtom;
+import probcog.logic.PossibleWorld;
+import probcog.logic.WorldVariables;
+import probcog.logic.WorldVariables.Block;
+import probcog.logic.sat.weighted.MCSAT;
+import probcog.logic.sat.weighted.WeightedClausalKB;
+import probcog.srl.Database;
+import probcog.srl.RelationalModel;
+import probcog.srl.Signature;
+import probcog.srl.directed.bln.AbstractGroundBLN;
+import probcog.srl.directed.bln.BayesianLogicNetwork;
+import probcog.srl.mln.MarkovLogicNetwork;
+import probcog.srl.mln.MarkovRandomField;
+import edu.ksu.cis.bnj.ver3.core.BeliefNode;
+import edu.tum.cs.util.datastruct.Pair;
+
+/**
+ * Generates synthetic workloads (evidence databases and queries) of controlled size for an existing BLN or MLN.
+ * The entity domains of the model (i.e. the domains that appear as argument types but have no guaranteed elements) 
+ * are filled with the given number of constants, a world is sampled from the model instantiated for these domains,
+ * and a random subset of the variables is observed (with the values they have in the sampled world),
+ * such that the evidence is guaranteed to be consistent. A random subset of the remaining variables is queried.
+ * @author agent
+ */
+public class WorkloadGenerator {
+
+	/**
+	 * the default number of constants per entity domain
+	 */
+	protected int domainSize = 10;
+	/**
+	 * factors by which the size of particular domains is scaled relative to the default size
+	 */
+	protected HashMap<String, Double> domainScales = new HashMap<String, Double>();
+	/**
+	 * the fraction of the variables that is observed
+	 */
+	protected double evidenceDensity = 0.5;
+	/**
+	 * the fraction of the unobserved variables that is queried
+	 */
+	protected double queryFraction = 0.1;
+	/**
+	 * the number of MC-SAT steps after which the world that is used for MLNs is taken
+	 */
+	protected int burnInSteps = 100;
+	protected Random rand;
+
+	public WorkloadGenerator(long seed) {
+		rand = new Random(seed);
+	}
+
+	public void setDomainSize(int size) {
+		domainSize = size;
+	}
+
+	public void setDomainScale(String domain, double factor) {
+		domainScales.put(domain, factor);
+	}
+
+	public void setEvidenceDensity(double p) {
+		evidenceDensity = p;
+	}
+
+	public void setQueryFraction(double p) {
+		queryFraction = p;
+	}
+
+	public void setBurnInSteps(int steps) {
+		burnInSteps = steps;
+	}
+
+	/**
+	 * @param domain
+	 * @return the number of constants to generate for the given entity domain
+	 */
+	public int getDomainSize(String domain) {
+		Double scale = domainScales.get(domain);
+		if(scale == null)
+			return domainSize;
+		return Math.max(1, (int)Math.round(scale * domainSize));
+	}
+
+	/**
+	 * @param model
+	 * @return the names of the domains of the model whose elements are not determined by the model itself
+	 */
+	public static Collection<String> getEntityDomains(RelationalModel model) {
+		TreeSet<String> ret = new TreeSet<String>();
+		HashSet<String> valueDomains = new HashSet<String>();
+		for(Signature sig : model.getSignatures()) {
+			valueDomains.add(sig.returnType);
+			for(String argType : sig.argTypes)
+				ret.add(argType);
+		}
+		ret.removeAll(valueDomains);
+		ret.removeAll(model.getGuaranteedDomainElements().keySet());
+		return ret;
+	}
+
+	/**
+	 * @param domain
+	 * @param i
+	 * @return the name of the i-th constant of the given domain (capitalized, such that it is a valid constant in all model languages)
+	 */
+	public static String getConstant(String domain, int i) {
+		return Character.toUpperCase(domain.charAt(0)) + domain.substring(1) + i;
+	}
+
+	/**
+	 * creates the workload's domains and adds them to the given database
+	 * @param model
+	 * @param db
+	 * @param w
+	 * @throws Exception
+	 */
+	protected void fillDomains(RelationalModel model, Database db, Workload w) throws Exception {
+		for(String domain : getEntityDomains(model)) {
+			Vector<String> constants = new Vector<String>();
+			for(int i = 1; i <= getDomainSize(domain); i++) {
+				String c = getConstant(domain, i);
+				constants.add(c);
+				db.fillDomain(domain, c);
+			}
+			w.domains.put(domain, constants);
+		}
+	}
+
+	/**
+	 * adds a variable to the evidence or the queries of a workload (or to neither) at random
+	 * @param w
+	 * @param evidence the evidence entry for the variable
+	 * @param queries the queries for the variable
+	 */
+	protected void select(Workload w, String evidence, String... queries) {
+		if(rand.nextDouble() < evidenceDensity)
+			w.evidence.add(evidence);
+		else if(rand.nextDouble() < queryFraction) {
+			for(String q : queries)
+				w.queries.add(q);
+		}
+	}
+
+	/**
+	 * generates a workload for a BLN, sampling the world with SampleSearch (such that the logical constraints are respected)
+	 * @param bln
+	 * @return
+	 * @throws Exception
+	 */
+	public Workload generate(BayesianLogicNetwork bln) throws Exception {
+		Workload w = new Workload(".blogdb");
+		Database db = new Database(bln);
+		fillDomains(bln, db, w);
+		AbstractGroundBLN gbln = bln.ground(db);
+		gbln.instantiateGroundNetwork();
+		BeliefNetworkEx bn = gbln.getGroundNetwork();
+		int[] evidenceDomainIndices = gbln.getFullEvidence(db.getEntriesAsArray());
+		// sample a world
+		SampleSearch sampler = new SampleSearch(bn);
+		sampler.setVerbose(false);
+		sampler.setRandomSeed(rand.nextInt());
+		sampler.setEvidence(evidenceDomainIndices);
+		sampler.initialize();
+		WeightedSample s = sampler.getWeightedSample(new WeightedSample(bn), bn.getTopologicalOrder(), evidenceDomainIndices);
+		if(s == null)
+			throw new Exception("Could not sample a world that is consistent with the model's constraints");
+		// select evidence and queries among the nodes that correspond to variables of the model (skipping auxiliary nodes)
+		BeliefNode[] nodes = bn.bn.getNodes();
+		for(int i = 0; i < nodes.length; i++) {
+			Pair<String, String[]> var = Signature.parseVarName(nodes[i].getName());
+			if(bln.getSignature(var != null ? var.first : nodes[i].getName()) == null)
+				continue;
+			select(w, nodes[i].getName() + " = " + nodes[i].getDomain().getName(s.nodeDomainIndices[i]), nodes[i].getName());
+		}
+		return w;
+	}
+
+	/**
+	 * generates a workload for an MLN, using the state of MC-SAT after a number of burn-in steps as the world
+	 * @param mln
+	 * @return
+	 * @throws Exception
+	 */
+	public Workload generate(MarkovLogicNetwork mln) throws Exception {
+		Workload w = new Workload(".db");
+		Database db = new Database(mln);
+		fillDomains(mln, db, w);
+		MarkovRandomField mrf = mln.ground(db);
+		MCSAT sampler = new MCSAT(new WeightedClausalKB(mrf, true), mrf.getWorldVariables(), mrf.getDb());
+		sampler.setVerbose(false);
+		sampler.run(burnInSteps);
+		PossibleWorld world = sampler.getState();
+		// select evidence and queries, treating the atoms of a block (i.e. of a non-Boolean function) as a single variable
+		WorldVariables vars = mrf.getWorldVariables();
+		HashSet<Block> handledBlocks = new HashSet<Block>();
+		for(GroundAtom ga : vars) {
+			Block block = vars.getBlock(ga.index);
+			if(block == null)
+				select(w, (world.isTrue(ga) ? "" : "!") + ga.toString(), ga.toString());
+			else if(handledBlocks.add(block)) {
+				String[] queries = new String[block.size()];
+				for(int i = 0; i < queries.length; i++)
+					queries[i] = block.get(i).toString();
+				select(w, block.getTrueOne(world).toString(), queries);
+			}
+		}
+		return w;
+	}
+
+	/**
+	 * a generated workload, consisting of domains, evidence and queries
+	 */
+	public static class Workload {
+		public LinkedHashMap<String, Vector<String>> domains = new LinkedHashMap<String, Vector<String>>();
+		public Vector<String> evidence = new Vector<String>();
+		public Vector<String> queries = new Vector<String>();
+		/**
+		 * the extension of the database file (depending on the type of model)
+		 */
+		public String dbExtension;
+
+		public Workload(String dbExtension) {
+			this.dbExtension = dbExtension;
+		}
+
+		/**
+		 * writes the evidence database (including domain declarations) and the queries (one per line) 
+		 * @param baseName the name of the files without extension
+		 * @return the name of the database file
+		 * @throws Exception
+		 */
+		public String write(String baseName) throws Exception {
+			String dbFile = baseName + dbExtension;
+			PrintStream out = new PrintStream(new File(dbFile));
+			for(Map.Entry<String, Vector<String>> e : domains.entrySet()) {
+				out.print(e.getKey() + " = {");
+				for(int i = 0; i < e.getValue().size(); i++)
+					out.print((i > 0 ? ", " : "") + e.getValue().get(i));
+				out.println("}");
+			}
+			for(String entry : evidence)
+				out.println(entry);
+			out.close();
+			out = new PrintStream(new File(getQueriesFile(baseName)));
+			for(String q : queries)
+				out.println(q);
+			out.close();
+			return dbFile;
+		}
+
+		public static String getQueriesFile(String baseName) {
+			return baseName + ".queries";
+		}
+
+		/**
+		 * reads queries that were written with {@link #write(String)}
+		 * @param filename
+		 * @return
+		 * @throws Exception
+		 */
+		public static Vector<String> readQueries(String filename) throws Exception {
+			Vector<String> ret = new Vector<String>();
+			BufferedReader r = new BufferedReader(new FileReader(filename));
+			String line;
+			while((line = r.readLine()) != null)
+				if(line.trim().length() > 0)
+					ret.add(line.trim());
+			r.close();
+			return ret;
+		}
+	}
+
+	public static void main(String[] args) {
+		try {
+			String[] blnFiles = null;
+			String mlnFile = null, baseName = null;
+			long seed = 0;
+			HashMap<String, String> options = new HashMap<String, String>();
+			Vector<String> domainScales = new Vector<String>();
+			for(int i = 0; i < args.length; i++) {
+				if(args[i].equals("-bln"))
+					blnFiles = new String[]{args[++i], args[++i], args[++i]};
+				else if(args[i].equals("-mln"))
+					mlnFile = args[++i];
+				else if(args[i].equals("-o"))
+					baseName = args[++i];
+				else if(args[i].equals("-seed"))
+					seed = Long.parseLong(args[++i]);
+				else if(args[i].equals("-dom"))
+					domainScales.add(args[++i]);
+				else if(args[i].equals("-size") || args[i].equals("-evidence") || args[i].equals("-query") || args[i].equals("-burnIn"))
+					options.put(args[i], args[++i]);
+				else {
+					System.err.println("unknown option: " + args[i]);
+					return;
+				}
+			}
+			if(baseName == null || (blnFiles == null) == (mlnFile == null)) {
+				System.out.println("usage: WorkloadGenerator <-bln <decls> <network> <logic> | -mln <mln file>> -o <base name> [options]");
+				System.out.println("  -size <n>        number of constants per entity domain (default: 10)");
+				System.out.println("  -dom <d>=<f>     scale the size of domain d by factor f");
+				System.out.println("  -evidence <p>    fraction of the variables that is observed (default: 0.5)");
+				System.out.println("  -query <p>       fraction of the unobserved variables that is queried (default: 0.1)");
+				System.out.println("  -burnIn <n>      number of MC-SAT steps before the world is taken (MLNs only, default: 100)");
+				System.out.println("  -seed <n>        random seed (default: 0)");
+				System.out.println("\nwrites <base name>.blogdb (BLNs) or <base name>.db (MLNs) and <base name>.queries");
+				return;
+			}
+			WorkloadGenerator gen = create(seed, options, domainScales);
+			Workload w = blnFiles != null ? gen.generate(new BayesianLogicNetwork(blnFiles[0], blnFiles[1], blnFiles[2])) : gen.generate(new MarkovLogicNetwork(mlnFile));
+			String dbFile = w.write(baseName);
+			System.out.printf("wrote %s (%d evidence entries) and %s (%d queries)\n", dbFile, w.evidence.size(), Workload.getQueriesFile(baseName), w.queries.size());
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * creates a generator from command-line options
+	 * @param seed
+	 * @param options maps the options -size, -evidence, -query and -burnIn to their values (each optional)
+	 * @param domainScales the values of -dom options (domain=factor)
+	 * @return
+	 */
+	public static WorkloadGenerator create(long seed, Map<String, String> options, Collection<String> domainScales) {
+		WorkloadGenerator gen = new WorkloadGenerator(seed);
+		if(options.containsKey("-size"))
+			gen.setDomainSize(Integer.parseInt(options.get("-size")));
+		if(options.containsKey("-evidence"))
+			gen.setEvidenceDensity(Double.parseDouble(options.get("-evidence")));
+		if(options.containsKey("-query"))
+			gen.setQueryFraction(Double.parseDouble(options.get("-query")));
+		if(options.containsKey("-burnIn"))
+			gen.setBurnInSteps(Integer.parseInt(options.get("-burnIn")));
+		for(String s : domainScales) {
+			String[] pair = s.split("=");
+			gen.setDomainScale(pair[0], Double.parseDouble(pair[1]));
+		}
+		return gen;
+	}
+}
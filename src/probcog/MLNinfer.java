@@ -18,6 +18,7 @@
  ******************************************************************************/
 package probcog;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Collections;
 import java.util.HashMap;
@@ -27,10 +28,13 @@ import java.util.regex.Pattern;
 
 import probcog.logic.sat.weighted.WeightedFormula;
 import probcog.srl.Database;
+import probcog.srl.SnapshotInfo;
+import probcog.srl.SnapshotWriter;
 import probcog.srl.mln.MarkovLogicNetwork;
 import probcog.srl.mln.MarkovRandomField;
 import probcog.srl.mln.inference.InferenceAlgorithm;
 import probcog.srl.mln.inference.InferenceResult;
+import probcog.srl.mln.inference.LiftedBeliefPropagation;
 import probcog.srl.mln.inference.MAPInferenceAlgorithm;
 import probcog.srl.mln.inference.MCSAT;
 import probcog.srl.mln.inference.MaxWalkSAT;
@@ -44,7 +48,7 @@ import edu.tum.cs.util.StringTool;
  */
 public class MLNinfer {
 
-	enum Algorithm {MaxWalkSAT, MCSAT, Toulbar2, MaxWalkSATRooms};
+	enum Algorithm {MaxWalkSAT, MCSAT, Toulbar2, MaxWalkSATRooms, LiftedBP};
 	
 	/**
 	 * @param args
@@ -59,6 +63,9 @@ public class MLNinfer {
 			Algorithm algo = Algorithm.MCSAT;
 			String[] cwPreds = null;
 			boolean debug = false;
+			boolean lazy = false;
+			boolean fullGrounding = false;
+			String snapshotFile = null;
 			HashMap<String,Object> params = new HashMap<String,Object>();
 			
 			// read arguments
@@ -83,6 +90,14 @@ public class MLNinfer {
 					algo = Algorithm.MCSAT;
 				else if(args[i].equals("-t2"))
 					algo = Algorithm.Toulbar2;
+				else if(args[i].equals("-lbp"))
+					algo = Algorithm.LiftedBP;
+				else if(args[i].equals("-lazy"))
+					lazy = true;
+				else if(args[i].equals("-full"))
+					fullGrounding = true;
+				else if(args[i].equals("-snapshot"))
+					snapshotFile = args[++i];
 				else if(args[i].equals("-debug"))
 					debug = true;
 				else if(args[i].startsWith("-p") || args[i].startsWith("--")) { // algorithm-specific parameter
@@ -101,6 +116,10 @@ public class MLNinfer {
 									 "    -mws             algorithm: MaxWalkSAT (MAP inference)\n" +
 									 "    -mcsat           algorithm: MC-SAT (default)\n" +
 									 "    -t2              algorithm: Toulbar2 branch & bound\n" +									 
+									 "    -lbp             algorithm: lifted belief propagation\n" +
+									 "    -lazy            ground the model lazily (LazySAT/lazy MC-SAT; MC-SAT and MaxWalkSAT only)\n" +
+									 "    -full            ground the full model (by default, only the part that is relevant to the queries is grounded)\n" +
+									 "    -snapshot <file> reload the ground MRF and evidence from a binary snapshot (written if missing or outdated)\n" +
 							         "    -debug           debug mode with additional outputs\n" +
 							         "    -cw <predNames>  set predicates as closed-world (comma-separated list of names)\n" +
 							         "    --<key>=<value>  set algorithm-specific parameter\n" 
@@ -132,16 +151,42 @@ public class MLNinfer {
 			MarkovLogicNetwork mln = new MarkovLogicNetwork(mlnFiles);
 			
 			// instantiate ground model
-			System.out.printf("reading database %s...\n", dbFile);
-			Database db = new Database(mln);
-			db.readMLNDB(dbFile);
-			if(cwPreds != null) {
-				for(String predName : cwPreds)
-					db.setClosedWorldPred(predName);
+			MarkovRandomField mrf;
+			if(snapshotFile != null && lazy)
+				throw new IllegalArgumentException("Snapshots cannot be used with lazy grounding");
+			SnapshotInfo snapshotInfo = null;
+			if(snapshotFile != null)
+				snapshotInfo = getSnapshotInfo(mlnFiles, dbFile, cwPreds, queries);
+			if(snapshotFile != null && isUpToDate(snapshotFile, snapshotInfo)) {
+				System.out.printf("reading ground MRF from snapshot %s...\n", snapshotFile);
+				mrf = MarkovRandomField.readSnapshot(mln, snapshotFile);
+			}
+			else {
+				System.out.printf("reading database %s...\n", dbFile);
+				Database db = new Database(mln);
+				db.readMLNDB(dbFile);
+				if(cwPreds != null) {
+					for(String predName : cwPreds)
+						db.setClosedWorldPred(predName);
+				}
+				
+				if(lazy) {
+					System.out.printf("creating lazy ground MRF...\n");
+					mrf = mln.groundLazily(db, queries);
+				}
+				else if(fullGrounding || snapshotFile != null) { // snapshots must not depend on the queries
+					System.out.printf("creating ground MRF...\n");
+					mrf = mln.ground(db);
+				}
+				else {
+					System.out.printf("creating ground MRF for the queries...\n");
+					mrf = mln.ground(db, queries);
+				}
+				if(snapshotFile != null) {
+					System.out.printf("writing snapshot %s...\n", snapshotFile);
+					mrf.writeSnapshot(snapshotFile, snapshotInfo);
+				}
 			}
-			
-			System.out.printf("creating ground MRF...\n");
-			MarkovRandomField mrf = mln.ground(db);
 			if(debug) {
 				System.out.println("MRF:");
 				for(WeightedFormula wf : mrf)
@@ -164,6 +209,9 @@ public class MLNinfer {
 			case Toulbar2:
 				infer = new Toulbar2MAPInference(mrf);
 				break;
+			case LiftedBP:
+				infer = new LiftedBeliefPropagation(mrf);
+				break;
 			}			
 			infer.setDebugMode(debug);
 			if(maxSteps != null)
@@ -198,6 +246,34 @@ public class MLNinfer {
 		}
 	}
 
+	/**
+	 * @return a description of the inputs a ground MRF is created from (model and evidence files, closed-world predicates and queries)
+	 * @throws IOException
+	 */
+	protected static SnapshotInfo getSnapshotInfo(String[] mlnFiles, String dbFile, String[] cwPreds, Vector<String> queries) throws IOException {
+		SnapshotInfo info = new SnapshotInfo();
+		for(String mlnFile : mlnFiles)
+			info.addModelFile(mlnFile);
+		info.addEvidenceFile(dbFile);
+		info.addEvidenceOption("cw", cwPreds != null ? cwPreds : new String[0]);
+		info.addEvidenceOption("queries", queries.toArray(new String[queries.size()]));
+		return info;
+	}
+
+	/**
+	 * @return true if the given snapshot file exists and was created from the given inputs
+	 */
+	protected static boolean isUpToDate(String filename, SnapshotInfo info) {
+		SnapshotInfo snapshotInfo = SnapshotInfo.read(filename, SnapshotWriter.KIND_MRF);
+		if(snapshotInfo == null)
+			return false;
+		if(!snapshotInfo.matches(info)) {
+			System.out.printf("snapshot %s is outdated\n", filename);
+			return false;
+		}
+		return true;
+	}
+
 	public static boolean balancedParentheses(String s) {
 		int n = 0;
 		for(int i = 0; i < s.length(); i++) {
@@ -18,18 +18,15 @@
  ******************************************************************************/
 package probcog.bayesnets.core;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.PrintStream;
-import java.io.StringReader;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+
+import probcog.srl.StatementReader;
 
 import edu.ksu.cis.bnj.ver3.core.BeliefNode;
-import edu.tum.cs.util.FileUtil;
 
 /**
  * represents an evidence database for Bayesian networks
@@ -76,24 +73,24 @@ public class BNDatabase {
 	 * reads a .bndb file
 	 */
 	public void read(File f) throws Exception {
-		// read file content
-		String dbContent = FileUtil.readTextFile(f);				
-		// remove comments
-		Pattern comments = Pattern.compile("//.*?$|/\\*.*?\\*/", Pattern.MULTILINE | Pattern.DOTALL);
-		Matcher matcher = comments.matcher(dbContent);
-		dbContent = matcher.replaceAll("");
-		// read entries
-		BufferedReader br = new BufferedReader(new StringReader(dbContent));
-		String line;
-		while((line = br.readLine()) != null) {
-			line = line.trim();			
-			if(line.length() > 0) {
-				String[] entry = line.split("\\s*=\\s*");
-				if(entry.length != 2)
-					throw new Exception("Incorrectly formatted evidence entry: " + line);
-				add(entry[0], entry[1]);
+		StatementReader reader = new StatementReader(f);
+		try {
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.length() > 0) {
+					int iEq = line.indexOf('=');
+					if(iEq == -1 || line.indexOf('=', iEq+1) != -1)
+						throw new Exception("Incorrectly formatted evidence entry: " + line);
+					String varName = line.substring(0, iEq).trim(), value = line.substring(iEq+1).trim();
+					if(varName.length() == 0 || value.length() == 0)
+						throw new Exception("Incorrectly formatted evidence entry: " + line);
+					add(varName, value);
+				}
 			}
 		}
+		finally {
+			reader.close();
+		}
 	}
 	
 	public Set<Entry<String,String>> getEntries() {
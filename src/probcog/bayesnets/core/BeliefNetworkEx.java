@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -107,6 +108,18 @@ public class BeliefNetworkEx {
 	 */
 	protected Map<String, Set<String>> attributeToNodeNameMapping = new HashMap<String, Set<String>>();
 	
+	/**
+	 * maps node names to indices into the network's array of nodes; built lazily and kept up to date by
+	 * the methods that add/remove nodes (null if it needs to be rebuilt); volatile, because an index that is
+	 * rebuilt during a lookup is published to threads that look up nodes concurrently
+	 */
+	protected volatile HashMap<String, Integer> nodeNameIndex = null;
+	/**
+	 * the number of nodes the name index was built for; if the network was modified directly (via {@link #bn}), 
+	 * the number will differ and the index is rebuilt
+	 */
+	protected int numIndexedNodes = 0;
+	
 	/**
 	 * constructs a BeliefNetworkEx object from a BNJ BeliefNetwork object
 	 * @param bn	the BNJ BeliefNetwork object
@@ -187,6 +200,7 @@ public class BeliefNetworkEx {
 	 */
 	public void addNode(BeliefNode node) {
 		bn.addBeliefNode(node);
+		indexNode(node);
 		addAttributeMapping(node.getName(), node.getName());
 	}
 	
@@ -198,6 +212,7 @@ public class BeliefNetworkEx {
 		BeliefNode node = new BeliefNode(name, new Discrete(new String[]{"True", "False"}));
 		node.setType(BeliefNode.NODE_DECISION);
 		bn.addBeliefNode(node);
+		indexNode(node);
 		return node;
 	}
 	
@@ -255,6 +270,7 @@ public class BeliefNetworkEx {
 		BeliefNode node = new BeliefNode(name, domain);
 		node.setType(type);
 		bn.addBeliefNode(node);
+		indexNode(node);
 		addAttributeMapping(name, attributeName);
 		//logger.debug("Added node "+name+" with attributeName "+attributeName);
 		return node;
@@ -315,6 +331,124 @@ public class BeliefNetworkEx {
 		connect(parent, child, true);
 	}
 	
+	/**
+	 * removes the edge between two nodes (only the graph is altered, the CPF of the child must be adjusted manually)
+	 * @param parent
+	 * @param child
+	 */
+	public void disconnect(BeliefNode parent, BeliefNode child) {
+		bn.getGraph().removeEdge(parent.getOwner(), child.getOwner());
+	}
+	
+	/**
+	 * removes a node (and all its incident edges) from the network.
+	 * Note that this decrements the indices of all nodes that follow the removed node. 
+	 * @param node	the node to remove
+	 */
+	public void removeNode(BeliefNode node) {
+		int idx = getNodeIndex(node);
+		if(idx == -1)
+			return;
+		bn.deleteBeliefNode(node);
+		// the graph shifts all subsequent vertices, so the name index is outdated unless the last node was removed
+		if(nodeNameIndex != null && idx == numIndexedNodes - 1 && nodeNameIndex.get(node.getName()) == idx) {
+			nodeNameIndex.remove(node.getName());
+			numIndexedNodes--;
+		}
+		else
+			nodeNameIndex = null;
+	}
+	
+	/**
+	 * absorbs evidence into the network, yielding a reduced network on which inference can be run in place of this network
+	 * (see {@link EvidenceAbsorption})
+	 * @param evidenceDomainIndices for each node, the domain index of the observed value or -1 if the node is unobserved
+	 * @return the absorption, which provides the reduced network and the mapping of its nodes to the nodes of this network
+	 */
+	public EvidenceAbsorption absorbEvidence(int[] evidenceDomainIndices) {
+		return new EvidenceAbsorption(this, evidenceDomainIndices);
+	}
+	
+	/**
+	 * removes a set of nodes (and all their incident edges) from the network, retaining the order of the remaining nodes.
+	 * Only the graph is altered, i.e. the CPFs of any remaining children must be adjusted manually.
+	 * This is much faster than removing the nodes one by one, since the subsequent vertices are shifted only once.
+	 * @param nodes	the nodes to remove
+	 */
+	public void removeNodes(Collection<BeliefNode> nodes) {
+		Graph graph = bn.getGraph();
+		int numNodes = graph.getNumberOfVertices();
+		boolean[] remove = new boolean[numNodes];
+		int numRemoved = 0;
+		for(BeliefNode node : nodes) {
+			int idx = getNodeIndex(node);
+			if(idx != -1 && !remove[idx]) {
+				remove[idx] = true;
+				numRemoved++;
+			}
+		}
+		if(numRemoved == 0)
+			return;
+		// move the nodes to the end, such that removing them does not require the other vertices to be shifted
+		int[] order = new int[numNodes];
+		int nextKept = 0, nextRemoved = numNodes - numRemoved;
+		for(int i = 0; i < numNodes; i++)
+			order[i] = remove[i] ? nextRemoved++ : nextKept++;
+		bn.applyOrder(order);
+		for(int i = numNodes - 1; i >= numNodes - numRemoved; i--)
+			graph.removeVertex(graph.get(i));
+		nodeNameIndex = null;
+	}
+	
+	/**
+	 * adds a node that was just appended to the network to the name index
+	 * @param node
+	 */
+	protected void indexNode(BeliefNode node) {
+		if(nodeNameIndex == null)
+			return;
+		if(numIndexedNodes + 1 != bn.getGraph().getNumberOfVertices()) {
+			nodeNameIndex = null;
+			return;
+		}
+		if(!nodeNameIndex.containsKey(node.getName()))
+			nodeNameIndex.put(node.getName(), numIndexedNodes);
+		numIndexedNodes++;
+	}
+	
+	/**
+	 * invalidates the index of node names, which is necessary if nodes are renamed
+	 */
+	public void invalidateNodeIndex() {
+		nodeNameIndex = null;
+	}
+	
+	/**
+	 * makes sure that the index of node names is up to date, such that subsequent lookups of nodes by name
+	 * do not modify this object (as long as the network is not modified); this allows concurrent lookups
+	 */
+	public void updateNodeIndex() {
+		getNodeNameIndex();
+	}
+	
+	protected HashMap<String, Integer> getNodeNameIndex() {
+		Graph graph = bn.getGraph();
+		int numNodes = graph.getNumberOfVertices();
+		HashMap<String, Integer> index = nodeNameIndex;
+		if(index == null || numIndexedNodes != numNodes) {
+			// build the index completely before publishing it, such that concurrent readers never see a partial index
+			index = new HashMap<String, Integer>(numNodes * 2);
+			for(int i = 0; i < numNodes; i++) {
+				String name = ((BeliefNode)graph.get(i).getObject()).getName();
+				if(!index.containsKey(name))
+					index.put(name, i);
+			}
+			numIndexedNodes = numNodes;
+			nodeNameIndex = index;
+		}
+		return index;
+	}
+	
 	/**
 	 * retrieves the node with the given name 
 	 * @param name		the name of the node
@@ -324,11 +458,11 @@ public class BeliefNetworkEx {
 		int idx = getNodeIndex(name);
 		if(idx == -1)
 			return null;
-		return bn.getNodes()[idx];
+		return getNode(idx);
 	}
 	
 	public BeliefNode getNode(int idx) {
-		return bn.getNodes()[idx];
+		return (BeliefNode)bn.getGraph().get(idx).getObject();
 	}
 	
 	/**
@@ -337,11 +471,15 @@ public class BeliefNetworkEx {
 	 * @return		the index of the node (or -1 if there is no node with the given name)
 	 */
 	public int getNodeIndex(String name) {
-		BeliefNode[] nodes = bn.getNodes();
-		for(int i = 0; i < nodes.length; i++)
-			if(nodes[i].getName().equals(name))
-				return i;
-		return -1;		
+		Integer idx = getNodeNameIndex().get(name);
+		if(idx == null)
+			return -1;
+		if(getNode(idx).getName().equals(name))
+			return idx;
+		// the index is outdated, because nodes were renamed
+		nodeNameIndex = null;
+		idx = getNodeNameIndex().get(name);
+		return idx == null ? -1 : idx;
 	}
 	
 	/**
@@ -353,7 +491,7 @@ public class BeliefNetworkEx {
 		BeliefNode[] nodes = node.getCPF().getDomainProduct();
 		int[] nodeIndices = new int[nodes.length];
 		for(int i = 0; i < nodes.length; i++)
-			nodeIndices[i] = this.getNodeIndex(nodes[i].getName());
+			nodeIndices[i] = this.getNodeIndex(nodes[i]);
 		return nodeIndices;
 	}
 	
@@ -394,10 +532,23 @@ public class BeliefNetworkEx {
 		return nodeDomainIndices;
 	}
 	
+	/**
+	 * get the index (into the BeliefNetwork's array of nodes) of the given node
+	 * @param node	the node
+	 * @return		the index of the node (or -1 if the node is not part of the network)
+	 */
 	public int getNodeIndex(BeliefNode node) {
-		BeliefNode[] nodes = bn.getNodes();
-		for(int i = 0; i < nodes.length; i++)
-			if(nodes[i] == node)
+		// the vertex of a node knows its position in the graph
+		Vertex v = node.getOwner();
+		Graph graph = bn.getGraph();
+		if(v != null) {
+			int idx = v.loc();
+			if(idx >= 0 && idx < graph.getNumberOfVertices() && graph.get(idx) == v)
+				return idx;
+		}
+		// the node may have been added to another network after it was added to this one 
+		for(int i = 0; i < graph.getNumberOfVertices(); i++)
+			if(graph.get(i).getObject() == node)
 				return i;
 		return -1;
 	}
@@ -441,6 +592,7 @@ public class BeliefNetworkEx {
 					setEvidence(evidences[i][0], evidences[i][1]);				
 				}
 			// run inference
+			materializeImplicitCPTs();
 			Pearl inf = new Pearl();		
 			inf.run(this.bn);
 			// return result
@@ -875,8 +1027,19 @@ public class BeliefNetworkEx {
 		for (int i=0; i<address.length; i++) {
 			address[i]=nodeDomainIndices[domainProduct[i]];
 		}
-		int realAddress = cpf.addr2realaddr(address);
-		return cpf.getDouble(realAddress);
+		return cpf.getDouble(address);
+	}
+	
+	/**
+	 * materializes the tables of all CPFs in the network whose entries are computed on demand (see {@link ImplicitCPT}), 
+	 * which is necessary before running BNJ's inference algorithms, as these operate on the value arrays directly
+	 */
+	public void materializeImplicitCPTs() {
+		for(BeliefNode node : bn.getNodes()) {
+			CPF cpf = node.getCPF();
+			if(cpf instanceof ImplicitCPT)
+				((ImplicitCPT)cpf).materialize();
+		}
 	}
 	
 	/**
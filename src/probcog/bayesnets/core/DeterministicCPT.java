@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bayesnets.core;
+
+import edu.ksu.cis.bnj.ver3.core.BeliefNode;
+
+/**
+ * A conditional probability table of a node whose value is a deterministic function of the values of its parents.
+ * Entries are computed on demand from the function rather than stored (see {@link ImplicitCPT}).
+ * @author agent
+ */
+public abstract class DeterministicCPT extends ImplicitCPT {
+	
+	/**
+	 * @param domProd the domain product, where the first node is the node the table belongs to
+	 */
+	public DeterministicCPT(BeliefNode[] domProd) {
+		super(domProd);
+	}
+	
+	/**
+	 * computes the value of the node for a setting of its parents
+	 * @param addr an address in the domain product (the first entry, i.e. the node's own value, is ignored)
+	 * @return the domain index of the node's value
+	 */
+	public abstract int getValueIndex(int[] addr);
+	
+	@Override
+	protected double computeDouble(int[] addr) {
+		return addr[0] == getValueIndex(addr) ? 1.0 : 0.0;
+	}
+}
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bayesnets.core;
+
+import java.util.Collection;
+import java.util.Vector;
+
+import edu.ksu.cis.bnj.ver3.core.BeliefNode;
+import edu.ksu.cis.bnj.ver3.core.CPF;
+import edu.ksu.cis.bnj.ver3.core.Discrete;
+import edu.ksu.cis.bnj.ver3.core.Domain;
+
+/**
+ * Absorbs evidence into a Bayesian network, yielding a reduced network on which any inference algorithm 
+ * can be run in place of the original network:
+ * The CPFs of unobserved nodes are sliced according to the observed values of their parents, i.e. observed nodes 
+ * are removed from the domain products.
+ * An observed node that depends on unobserved nodes is replaced by a binary likelihood node (whose values are
+ * the observed value and its negation), which is observed and retains the likelihood of the observation given the unobserved parents.
+ * All other observed nodes are removed entirely; the product of their probabilities is a constant factor.
+ * @author agent
+ */
+public class EvidenceAbsorption {
+	protected BeliefNetworkEx bn, reducedBN;
+	protected int[] evidenceDomainIndices;
+	/**
+	 * for each node of the original network, the index of the corresponding node in the reduced network (or -1 if it was removed)
+	 */
+	protected int[] reducedNodeIndices;
+	/**
+	 * for each node of the reduced network, the index of the corresponding node in the original network
+	 */
+	protected int[] originalNodeIndices;
+	/**
+	 * the evidence for the reduced network (which consists of the observations of the likelihood nodes)
+	 */
+	protected int[] reducedEvidenceDomainIndices;
+	protected int numLikelihoodNodes = 0;
+	/**
+	 * the product of the probabilities of the observations that were removed entirely
+	 */
+	protected double absorbedProbability = 1.0;
+	
+	/**
+	 * @param bn the network to absorb the evidence into (which is not modified)
+	 * @param evidenceDomainIndices for each node of the network, the domain index of the observed value or -1 if the node is unobserved
+	 */
+	public EvidenceAbsorption(BeliefNetworkEx bn, int[] evidenceDomainIndices) {
+		this.bn = bn;
+		this.evidenceDomainIndices = evidenceDomainIndices;
+		BeliefNode[] nodes = bn.bn.getNodes();
+		reducedBN = new BeliefNetworkEx();
+		reducedNodeIndices = new int[nodes.length];
+		Vector<Integer> originalIndices = new Vector<Integer>();
+		
+		// create the nodes that are retained
+		BeliefNode[] reducedNodes = new BeliefNode[nodes.length];
+		for(int i = 0; i < nodes.length; i++) {
+			BeliefNode node = nodes[i];
+			int value = evidenceDomainIndices[i];
+			if(value >= 0 && !hasUnobservedParent(node)) {
+				absorbedProbability *= node.getCPF().getDouble(getObservedAddress(node.getCPF().getDomainProduct()));
+				reducedNodeIndices[i] = -1;
+				continue;
+			}
+			Domain domain = node.getDomain();
+			if(value >= 0) {
+				String observed = domain.getName(value);
+				domain = new Discrete(new String[]{observed, "!" + observed});
+				numLikelihoodNodes++;
+			}
+			reducedNodes[i] = reducedBN.addNode(node.getName(), domain);
+			reducedNodeIndices[i] = originalIndices.size();
+			originalIndices.add(i);
+		}
+		originalNodeIndices = new int[originalIndices.size()];
+		reducedEvidenceDomainIndices = new int[originalIndices.size()];
+		for(int i = 0; i < originalNodeIndices.length; i++) {
+			originalNodeIndices[i] = originalIndices.get(i);
+			reducedEvidenceDomainIndices[i] = evidenceDomainIndices[originalNodeIndices[i]] >= 0 ? 0 : -1;
+		}
+		
+		// connect the retained nodes to their unobserved parents and slice their CPFs
+		for(int i = 0; i < nodes.length; i++) {
+			BeliefNode reducedNode = reducedNodes[i];
+			if(reducedNode == null)
+				continue;
+			CPF cpf = nodes[i].getCPF();
+			BeliefNode[] domProd = cpf.getDomainProduct();
+			Vector<BeliefNode> reducedDomProd = new Vector<BeliefNode>();
+			Vector<Integer> positions = new Vector<Integer>();
+			reducedDomProd.add(reducedNode);
+			positions.add(0);
+			for(int j = 1; j < domProd.length; j++) {
+				int parentIdx = bn.getNodeIndex(domProd[j]);
+				if(evidenceDomainIndices[parentIdx] >= 0)
+					continue;
+				BeliefNode reducedParent = reducedNodes[parentIdx];
+				reducedBN.connect(reducedParent, reducedNode, false);
+				reducedDomProd.add(reducedParent);
+				positions.add(j);
+			}
+			int[] pos = new int[positions.size()];
+			for(int j = 0; j < pos.length; j++)
+				pos[j] = positions.get(j);
+			SlicedCPT slice = new SlicedCPT(reducedDomProd.toArray(new BeliefNode[reducedDomProd.size()]), cpf, pos, getObservedAddress(domProd), evidenceDomainIndices[i]);
+			// tables that are stored explicitly in the original network are stored explicitly in the reduced network
+			if(slice.isAddressable() && !(cpf instanceof ImplicitCPT && !((ImplicitCPT)cpf).isMaterialized()))
+				slice.materialize();
+			reducedNode.setCPF(slice);
+		}
+	}
+	
+	protected boolean hasUnobservedParent(BeliefNode node) {
+		BeliefNode[] domProd = node.getCPF().getDomainProduct();
+		for(int j = 1; j < domProd.length; j++)
+			if(evidenceDomainIndices[bn.getNodeIndex(domProd[j])] < 0)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * @param domProd
+	 * @return an address in the domain product in which the observed nodes are set to their observed values (and all other entries are 0)
+	 */
+	protected int[] getObservedAddress(BeliefNode[] domProd) {
+		int[] addr = new int[domProd.length];
+		for(int j = 0; j < domProd.length; j++)
+			addr[j] = Math.max(0, evidenceDomainIndices[bn.getNodeIndex(domProd[j])]);
+		return addr;
+	}
+	
+	/**
+	 * @return the original network
+	 */
+	public BeliefNetworkEx getNetwork() {
+		return bn;
+	}
+	
+	/**
+	 * @return the reduced network, in which only the likelihood nodes are observed
+	 */
+	public BeliefNetworkEx getReducedNetwork() {
+		return reducedBN;
+	}
+	
+	/**
+	 * @return the evidence for the original network
+	 */
+	public int[] getEvidence() {
+		return evidenceDomainIndices;
+	}
+	
+	/**
+	 * @return the evidence for the reduced network (to be used in place of the original evidence)
+	 */
+	public int[] getReducedEvidence() {
+		return reducedEvidenceDomainIndices;
+	}
+	
+	/**
+	 * @param nodeIndex the index of a node in the original network
+	 * @return the index of the corresponding node in the reduced network or -1 if the node was removed
+	 */
+	public int getReducedNodeIndex(int nodeIndex) {
+		return reducedNodeIndices[nodeIndex];
+	}
+	
+	/**
+	 * @param reducedNodeIndex the index of a node in the reduced network
+	 * @return the index of the corresponding node in the original network
+	 */
+	public int getOriginalNodeIndex(int reducedNodeIndex) {
+		return originalNodeIndices[reducedNodeIndex];
+	}
+	
+	/**
+	 * maps a set of (query) variables of the original network to the reduced network, omitting observed variables
+	 * @param nodeIndices indices of nodes in the original network (may be null)
+	 * @return the indices of the corresponding unobserved nodes in the reduced network (null if nodeIndices is null)
+	 */
+	public Vector<Integer> getReducedNodeIndices(Collection<Integer> nodeIndices) {
+		if(nodeIndices == null)
+			return null;
+		Vector<Integer> ret = new Vector<Integer>();
+		for(Integer i : nodeIndices)
+			if(evidenceDomainIndices[i] < 0)
+				ret.add(reducedNodeIndices[i]);
+		return ret;
+	}
+	
+	/**
+	 * @return the number of observed nodes that were replaced by likelihood nodes
+	 */
+	public int getNumLikelihoodNodes() {
+		return numLikelihoodNodes;
+	}
+	
+	/**
+	 * @return the product of the probabilities of the observations that were removed entirely (a constant factor of the probability of the evidence)
+	 */
+	public double getAbsorbedProbability() {
+		return absorbedProbability;
+	}
+	
+	public String toString() {
+		return String.format("EvidenceAbsorption[%d -> %d nodes, %d likelihood nodes]", reducedNodeIndices.length, originalNodeIndices.length, numLikelihoodNodes);
+	}
+	
+	/**
+	 * A CPT of the reduced network whose entries are obtained from the CPF of the original node, 
+	 * with the observed parents set to their observed values
+	 */
+	protected static class SlicedCPT extends ImplicitCPT {
+		protected CPF cpf;
+		/**
+		 * for each element of the reduced domain product, the corresponding position in the original domain product
+		 */
+		protected int[] positions;
+		/**
+		 * an address in the original domain product in which the observed nodes are set
+		 */
+		protected int[] observedAddr;
+		/**
+		 * the observed value of the node itself (if it is a likelihood node) or -1
+		 */
+		protected int observedValue;
+		
+		public SlicedCPT(BeliefNode[] domProd, CPF cpf, int[] positions, int[] observedAddr, int observedValue) {
+			super(domProd);
+			this.cpf = cpf;
+			this.positions = positions;
+			this.observedAddr = observedAddr;
+			this.observedValue = observedValue;
+		}
+		
+		@Override
+		protected double computeDouble(int[] addr) {
+			int[] a = observedAddr.clone();
+			for(int i = observedValue >= 0 ? 1 : 0; i < positions.length; i++)
+				a[positions[i]] = addr[i];
+			double p = cpf.getDouble(a);
+			if(observedValue < 0)
+				return p;
+			return addr[0] == 0 ? p : 1.0 - p;
+		}
+		
+		@Override
+		public void materialize() {
+			super.materialize();
+			cpf = null; // the original CPF is no longer needed
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bayesnets.core;
+
+import edu.ksu.cis.bnj.ver3.core.BeliefNode;
+import edu.ksu.cis.bnj.ver3.core.CPF;
+import edu.ksu.cis.bnj.ver3.core.CPT;
+import edu.ksu.cis.bnj.ver3.core.Value;
+import edu.ksu.cis.bnj.ver3.core.values.ValueDouble;
+
+/**
+ * A conditional probability table whose entries are computed on demand (from a compact representation) rather than stored.
+ * The full table is only materialized when it is explicitly requested, e.g. by exact inference algorithms 
+ * that operate on the value arrays directly (see {@link #materialize()}).
+ * Because no table is stored, the domain product may be larger than any table that could be stored; 
+ * entries of such CPTs can only be accessed via addresses (i.e. {@link #getDouble(int[])}), however.
+ * All inherited operations that work on the stored table (including the static CPT.multiply, which writes to its first
+ * argument via put) materialize the table first.
+ * @author agent
+ */
+public abstract class ImplicitCPT extends CPT {
+	
+	/**
+	 * @param domProd the domain product, where the first node is the node the table belongs to
+	 */
+	public ImplicitCPT(BeliefNode[] domProd) {
+		_DomainProduct = domProd;
+		_SizeBuffer = new int[domProd.length];
+		long size = 1;
+		for(int i = 0; i < domProd.length; i++) {
+			_SizeBuffer[i] = domProd[i].getDomain().getOrder();
+			if(size != -1) {
+				size *= _SizeBuffer[i];
+				if(size > Integer.MAX_VALUE)
+					size = -1;
+			}
+		}
+		totalSize = (int)size;
+	}
+	
+	/**
+	 * computes an entry of the table
+	 * @param addr an address in the domain product
+	 * @return the probability value
+	 */
+	protected abstract double computeDouble(int[] addr);
+	
+	/**
+	 * @return true if the table has been materialized, i.e. all entries are stored explicitly
+	 */
+	public boolean isMaterialized() {
+		return _Values != null;
+	}
+	
+	/**
+	 * @return true if the number of entries in the table can be represented as an integer, i.e. the table could be materialized
+	 */
+	public boolean isAddressable() {
+		return totalSize != -1;
+	}
+	
+	/**
+	 * computes and stores all entries of the table, such that it can be used like a regular CPT 
+	 */
+	public void materialize() {
+		if(_Values != null)
+			return;
+		Value[] values = new Value[size()];
+		for(int i = 0; i < values.length; i++)
+			values[i] = new ValueDouble(getDouble(i));
+		_Values = values;
+	}
+	
+	@Override
+	public double getDouble(int[] addr) {
+		if(_Values != null)
+			return super.getDouble(addr);
+		return computeDouble(addr);
+	}
+	
+	@Override
+	public double getDouble(int realaddr) {
+		if(_Values != null)
+			return super.getDouble(realaddr);
+		return computeDouble(realaddr2addr(realaddr));
+	}
+	
+	@Override
+	public Value get(int[] addr) {
+		if(_Values != null)
+			return super.get(addr);
+		return new ValueDouble(computeDouble(addr));
+	}
+	
+	@Override
+	public Value get(int realaddr) {
+		if(_Values != null)
+			return super.get(realaddr);
+		return new ValueDouble(getDouble(realaddr));
+	}
+	
+	@Override
+	public int size() {
+		if(totalSize == -1)
+			throw new IllegalStateException("The table of " + _DomainProduct[0].getName() + " is too large to be addressed");
+		return totalSize;
+	}
+	
+	@Override
+	public int getColumnValueAddressOffset() {
+		return size() / _SizeBuffer[0];
+	}
+	
+	@Override
+	public int getRowLength() {
+		return size() / _SizeBuffer[0];
+	}
+	
+	@Override
+	public void put(int[] addr, Value v) {
+		materialize();
+		super.put(addr, v);
+	}
+	
+	@Override
+	public void put(int realaddr, Value v) {
+		materialize();
+		super.put(realaddr, v);
+	}
+	
+	@Override
+	public Value[] getValues() {
+		materialize();
+		return super.getValues();
+	}
+	
+	@Override
+	public CPF copy() {
+		materialize();
+		return super.copy();
+	}
+	
+	@Override
+	public CPT hardcopy() {
+		materialize();
+		return super.hardcopy();
+	}
+	
+	@Override
+	public CPT expand(BeliefNode[] domProd) {
+		materialize();
+		return super.expand(domProd);
+	}
+	
+	@Override
+	public CPT extract(BeliefNode[] domProd) {
+		materialize();
+		return super.extract(domProd);
+	}
+	
+	@Override
+	public void normalize() {
+		materialize();
+		super.normalize();
+	}
+	
+	@Override
+	public void normalizeByDomain(boolean uniformDefault) {
+		materialize();
+		super.normalizeByDomain(uniformDefault);
+	}
+	
+	@Override
+	public void normalizeByDomain() {
+		materialize();
+		super.normalizeByDomain();
+	}
+	
+	@Override
+	public void convertDouble2Rational() {
+		materialize();
+		super.convertDouble2Rational();
+	}
+	
+	@Override
+	public void convertDouble2Float() {
+		materialize();
+		super.convertDouble2Float();
+	}
+	
+	@Override
+	public void zeroExceptForNodeEvidence(BeliefNode[] nodes) {
+		materialize();
+		super.zeroExceptForNodeEvidence(nodes);
+	}
+	
+	/**
+	 * replaces the entries of the table, such that they are no longer computed
+	 */
+	@Override
+	public void setValues(Value[] values) {
+		if(values != null && values.length != size())
+			throw new IllegalArgumentException("Expected " + size() + " values for the table of " + _DomainProduct[0].getName() + ", got " + values.length);
+		super.setValues(values);
+	}
+}
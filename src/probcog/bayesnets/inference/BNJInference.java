@@ -33,6 +33,7 @@ public class BNJInference extends Sampler {
 	public BNJInference(BeliefNetworkEx bn, Class<? extends edu.ksu.cis.bnj.ver3.inference.Inference> algoClass) throws Exception {
 		super(bn);
 		this.algorithmClass = algoClass;
+		bn.materializeImplicitCPTs();
 	}
 
 	@Override
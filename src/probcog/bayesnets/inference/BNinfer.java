@@ -25,6 +25,7 @@ import java.util.regex.Pattern;
 
 import probcog.bayesnets.core.BNDatabase;
 import probcog.bayesnets.core.BeliefNetworkEx;
+import probcog.bayesnets.core.EvidenceAbsorption;
 import probcog.inference.BasicSampledDistribution;
 import probcog.inference.GeneralSampledDistribution;
 
@@ -56,6 +57,7 @@ public class BNinfer {
 			boolean debug = false;
 			boolean skipFailedSteps = false;
 			boolean removeDeterministicCPTEntries = false;
+			boolean absorbEvidence = false;
 			double timeLimit = 10.0, infoIntervalTime = 1.0;
 			boolean timeLimitedInference = false;
 			boolean useMaxSteps = false;
@@ -71,6 +73,8 @@ public class BNinfer {
 					dbFile = args[++i];				
 				else if(args[i].equals("-nodetcpt"))
 					removeDeterministicCPTEntries = true;				
+				else if(args[i].equals("-absorb"))
+					absorbEvidence = true;
 				else if(args[i].equals("-skipFailedSteps"))
 					skipFailedSteps = true;				
 				else if(args[i].equals("-maxSteps")) {
@@ -124,7 +128,8 @@ public class BNinfer {
 							         "     -od <file>       save output distribution to file\n" +
 							         "     -cd <file>       compare results of inference to reference distribution in file\n" + 
 									 "     -debug           debug mode with additional outputs\n" + 
-							         "     -nodetcpt        remove deterministic CPT columns by replacing 0s with low prob. values\n");
+							         "     -nodetcpt        remove deterministic CPT columns by replacing 0s with low prob. values\n" +
+							         "     -absorb          absorb the evidence into a reduced network, on which inference is run instead\n");
 				
 				System.exit(1);
 			}			
@@ -195,11 +200,25 @@ public class BNinfer {
 			// run inference
 			Stopwatch sw = new Stopwatch();
 			sw.start();
+			// - (on request) absorb the evidence
+			EvidenceAbsorption absorption = null;
+			if(absorbEvidence) {
+				if(timeLimitedInference)
+					throw new Exception("Evidence absorption is not supported for time-limited inference");
+				absorption = bn.absorbEvidence(evidenceDomainIndices);
+				System.out.println(absorption);
+			}
 			// - create sampler 
-			Sampler sampler = algo.createSampler(bn);
+			Sampler sampler = algo.createSampler(absorption != null ? absorption.getReducedNetwork() : bn);
 			// - set evidence and options
-			sampler.setEvidence(evidenceDomainIndices);
-			sampler.setQueryVars(queryVars);
+			if(absorption != null) {
+				sampler.setEvidence(absorption.getReducedEvidence());
+				sampler.setQueryVars(absorption.getReducedNodeIndices(queryVars));
+			}
+			else {
+				sampler.setEvidence(evidenceDomainIndices);
+				sampler.setQueryVars(queryVars);
+			}
 			sampler.setDebugMode(debug);
 			sampler.setMaxTrials(maxTrials);
 			sampler.setSkipFailedSteps(skipFailedSteps);
@@ -220,8 +239,11 @@ public class BNinfer {
 				if(referenceDist != null)
 					System.out.println("MSEs: " + tli.getMSEs());				
 			}
-			else				
-				dist = sampler.infer();			
+			else {
+				dist = sampler.infer();
+				if(absorption != null)
+					dist = dist.expandAbsorbedEvidence(absorption);
+			}
 			sw.stop();
 			
 			// print results
@@ -93,13 +93,10 @@ public class BackwardSampleSearch extends BackwardSamplingWithPriors {
 		CPF cpf = node.getCPF();
 		BeliefNode[] domProd = cpf.getDomainProduct();
 		int[] addr = new int[domProd.length];
-		addr[0] = 0;
 		for(int i = 1; i < addr.length; i++)
 			addr[i] = s.nodeDomainIndices[this.nodeIndices.get(domProd[i])];
-		int realAddr = cpf.addr2realaddr(addr); // address of the first element in the distribution we sample from
-		int addrOffset = cpf.getColumnValueAddressOffset();
 		
-		// get probabilities for outcomes
+		// get probabilities for outcomes (the first element in the address is the index into the domain of the node we are sampling)
 		double[] cpt_entries = new double[domProd[0].getDomain().getOrder()];
 		double sum = 0;
 		double value;
@@ -108,12 +105,13 @@ public class BackwardSampleSearch extends BackwardSamplingWithPriors {
 				value = 0.0;
 				//System.out.println("forward exclusion");
 			}
-			else
-				value = cpf.getDouble(realAddr);
+			else {
+				addr[0] = i;
+				value = cpf.getDouble(addr);
+			}
 			if(debug) out.printf("      %d: %f\n", i, value);
 			cpt_entries[i] = value;
 			sum += value;
-			realAddr += addrOffset;
 		}
 		if(sum == 0)
 			return false;
@@ -296,6 +294,9 @@ public class BackwardSampleSearch extends BackwardSamplingWithPriors {
 				if(i < 0)
 					throw new Exception("Evidence seems to be contradictory");
 				s.trials++;
+				metricBacktracks++;
+				if(isCancelled()) // the sample is discarded by the sampling loop
+					return;
 			}				
 			else {
 				// go forward
@@ -489,6 +490,14 @@ public class BackwardSampleSearch extends BackwardSamplingWithPriors {
 				return dist;
 			}
 		}
-		
+
+		/**
+		 * @return the monitor of the distribution, unless unbiased weighting is used, where the weights of the samples
+		 * depend on all the samples, such that the distribution would have to be rebuilt in order to monitor convergence
+		 */
+		@Override
+		public ConvergenceMonitor getConvergenceMonitor() {
+			return useProperWeighting ? null : dist.getConvergenceMonitor();
+		}
 	}
 }
@@ -240,6 +240,8 @@ public class BackwardSampling extends Sampler {
 			if(verbose && currentStep % infoInterval == 0)
 				out.println("  step " + currentStep);
 			getSample(s);
+			if(isCancelled())
+				break;
 			this.addSample(s);
 			onAddedSample(s);
 			if(converged())
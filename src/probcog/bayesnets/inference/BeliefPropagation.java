@@ -310,6 +310,8 @@ public class BeliefPropagation extends Sampler {
 		
 		for (int step = 1; step <= this.numSamples; step++) {
 			
+			if(isCancelled())
+				break;
 			if(verbose && step % this.infoInterval == 0)
 				out.println("step " + step);
 			
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bayesnets.inference;
+
+import java.util.Collection;
+
+import umontreal.iro.lecuyer.probdist.NormalDist;
+
+/**
+ * Monitors the convergence of a sampled distribution for a set of query variables.
+ * For each value of each query variable, the weighted mean and variance of the value's indicator are
+ * maintained online (using West's weighted version of Welford's algorithm); the effective sample size
+ * (ESS) is computed from the sum of weights and the sum of squared weights, such that degenerate
+ * importance weights are taken into account when estimating the width of confidence intervals.
+ * <p>
+ * Stopping rules (maximum confidence interval width, minimum ESS) can be set; the monitor has converged
+ * when all of the rules that were set are satisfied.
+ * @author agent
+ */
+public class ConvergenceMonitor implements Cloneable {
+	/**
+	 * indices of the variables being monitored
+	 */
+	protected int[] vars;
+	/**
+	 * weighted means and sums of weighted squared deviations of the indicators of each value of each monitored variable
+	 */
+	protected double[][] mean, m2;
+	protected double sumWeights = 0.0, sumSquaredWeights = 0.0;
+	protected int numSamples = 0;
+	protected double confidenceLevel = 0.95;
+	protected Double maxConfidenceIntervalWidth = null;
+	protected Double minEffectiveSampleSize = null;
+	/**
+	 * the minimum number of samples before convergence can be reported
+	 */
+	protected int minSamples = 30;
+
+	/**
+	 * @param vars indices of the variables to monitor
+	 * @param domainSizes the domain sizes of all variables, indexed by variable index
+	 */
+	public ConvergenceMonitor(Collection<Integer> vars, int[] domainSizes) {
+		this.vars = new int[vars.size()];
+		mean = new double[this.vars.length][];
+		m2 = new double[this.vars.length][];
+		int i = 0;
+		for(Integer v : vars) {
+			this.vars[i] = v;
+			mean[i] = new double[domainSizes[v]];
+			m2[i] = new double[domainSizes[v]];
+			i++;
+		}
+	}
+	
+	public void addSample(WeightedSample s) {
+		double w = s.weight;
+		numSamples++;
+		if(w == 0.0) // the sample does not contribute to the estimates
+			return;
+		double newSumWeights = sumWeights + w;
+		for(int i = 0; i < vars.length; i++) {
+			int value = s.nodeDomainIndices[vars[i]];
+			double[] mean = this.mean[i], m2 = this.m2[i];
+			for(int j = 0; j < mean.length; j++) {
+				double delta = (j == value ? 1.0 : 0.0) - mean[j];
+				double r = delta * w / newSumWeights;
+				mean[j] += r;
+				m2[j] += sumWeights * delta * r;
+			}
+		}
+		sumWeights = newSumWeights;
+		sumSquaredWeights += w * w;
+	}
+	
+	/**
+	 * @return the effective sample size (sum of weights)^2 / (sum of squared weights)
+	 */
+	public double getEffectiveSampleSize() {
+		if(sumSquaredWeights == 0.0)
+			return 0.0;
+		return sumWeights * sumWeights / sumSquaredWeights;
+	}
+	
+	/**
+	 * @param i the index of the monitored variable (within the collection of variables passed to the constructor)
+	 * @param j the domain index
+	 * @return the weighted variance of the indicator of the j-th value of the i-th monitored variable
+	 */
+	public double getVariance(int i, int j) {
+		if(sumWeights == 0.0)
+			return 0.0;
+		return m2[i][j] / sumWeights;
+	}
+	
+	/**
+	 * @param i the index of the monitored variable (within the collection of variables passed to the constructor)
+	 * @param j the domain index
+	 * @return the estimated standard error of the probability estimate for the j-th value of the i-th monitored variable
+	 */
+	public double getStandardError(int i, int j) {
+		double ess = getEffectiveSampleSize();
+		if(ess == 0.0)
+			return Double.POSITIVE_INFINITY;
+		return Math.sqrt(getVariance(i, j) / ess);
+	}
+	
+	/**
+	 * @return the width of the largest (normal approximation) confidence interval across all values of all monitored variables
+	 */
+	public double getMaxConfidenceIntervalWidth() {
+		double maxSE = 0.0;
+		for(int i = 0; i < vars.length; i++)
+			for(int j = 0; j < mean[i].length; j++)
+				maxSE = Math.max(maxSE, getStandardError(i, j));
+		return 2 * NormalDist.inverseF01(1 - (1 - confidenceLevel) / 2) * maxSE;
+	}
+	
+	/**
+	 * @return true if all stopping rules are satisfied (false if no stopping rule was set)
+	 */
+	public boolean converged() {
+		if(maxConfidenceIntervalWidth == null && minEffectiveSampleSize == null)
+			return false;
+		if(numSamples < minSamples)
+			return false;
+		if(minEffectiveSampleSize != null && getEffectiveSampleSize() < minEffectiveSampleSize)
+			return false;
+		if(maxConfidenceIntervalWidth != null && !(getMaxConfidenceIntervalWidth() < maxConfidenceIntervalWidth))
+			return false;
+		return true;
+	}
+	
+	public void setConfidenceLevel(double confidenceLevel) {
+		this.confidenceLevel = confidenceLevel;
+	}
+	
+	/**
+	 * sets the stopping rule "the confidence intervals of all values of all monitored variables are narrower than epsilon"
+	 * @param epsilon the maximum width or null to remove the rule
+	 */
+	public void setMaxConfidenceIntervalWidth(Double epsilon) {
+		maxConfidenceIntervalWidth = epsilon;
+	}
+	
+	/**
+	 * sets the stopping rule "the effective sample size is at least n"
+	 * @param n the minimum effective sample size or null to remove the rule
+	 */
+	public void setMinEffectiveSampleSize(Double n) {
+		minEffectiveSampleSize = n;
+	}
+	
+	public void setMinSamples(int n) {
+		minSamples = n;
+	}
+	
+	public int getNumSamples() {
+		return numSamples;
+	}
+	
+	@Override
+	public ConvergenceMonitor clone() {
+		try {
+			ConvergenceMonitor ret = (ConvergenceMonitor)super.clone();
+			ret.mean = new double[mean.length][];
+			ret.m2 = new double[m2.length][];
+			for(int i = 0; i < mean.length; i++) {
+				ret.mean[i] = mean[i].clone();
+				ret.m2[i] = m2[i].clone();
+			}
+			return ret;
+		}
+		catch(CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	public String toString() {
+		return String.format("ESS = %.1f (%d samples), max. confidence interval width = %.4f", getEffectiveSampleSize(), numSamples, getMaxConfidenceIntervalWidth());
+	}
+}
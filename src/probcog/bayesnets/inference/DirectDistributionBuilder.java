@@ -39,4 +39,9 @@ public class DirectDistributionBuilder implements IDistributionBuilder {
 	public SampledDistribution getDistribution() {
 		return d;
 	}
+
+	@Override
+	public ConvergenceMonitor getConvergenceMonitor() {
+		return d.getConvergenceMonitor();
+	}
 }
@@ -58,6 +58,8 @@ public class EnumerationAsk extends Sampler {
 	
 	public void enumerateWorlds(WeightedSample s, int[] nodeOrder, int[] evidenceDomainIndices, int i, double combinationsHandled) throws Exception {
 		//out.printf("enum %s, domain size = %d\n", nodes[nodeOrder[i]].getName(), nodes[nodeOrder[i]].getDomain().getOrder());
+		if(isCancelled()) // the worlds enumerated so far make up the (partial) result
+			return;
 		// status messages
 		if(timer.getElapsedTimeSecs() > 1) {
 			double numDone = numWorldsCounted+numWorldsPruned;
@@ -59,10 +59,14 @@ public class GibbsSampling extends Sampler {
 		for(int i = 1; i <= numSamples; i++) {
 			if(i % infoInterval == 0)
 				out.println("  step " + i);
+			if(isCancelled())
+				break;
 			gibbsStep(evidenceDomainIndices, s);
 			s.trials = 1;
 			s.weight = 1;
 			addSample(s);
+			if(converged())
+				break;
 		}
 
 		sw.stop();
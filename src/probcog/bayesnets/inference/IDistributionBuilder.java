@@ -25,4 +25,10 @@ package probcog.bayesnets.inference;
 public interface IDistributionBuilder {
 	public void addSample(WeightedSample s) throws Exception;
 	public SampledDistribution getDistribution() throws Exception;
+	/**
+	 * @return the convergence monitor of the distribution being built, which must be obtainable without building the distribution;
+	 * null if there is no monitor or if the monitor cannot be kept up to date as samples are added (e.g. because the weights
+	 * of the samples depend on all the samples)
+	 */
+	public ConvergenceMonitor getConvergenceMonitor();
 }
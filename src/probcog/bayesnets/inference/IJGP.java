@@ -107,6 +107,8 @@ public class IJGP extends Sampler {
 		}
 		out.printf("running propagation (%d steps)...\n", this.numSamples);
 		for (int step = 1; step <= this.numSamples; step++) {
+			if(isCancelled())
+				break;
 			out.printf("step %d\n", step);
 			// for every node in JG in topological order and back:
 			int s = jgNodes.size();
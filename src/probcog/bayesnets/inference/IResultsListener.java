@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.bayesnets.inference;
+
+/**
+ * Interface for receivers of the intermediate results of time-limited inference.
+ * @author agent
+ */
+public interface IResultsListener {
+	/**
+	 * is called whenever intermediate results have been polled
+	 * @param dist a snapshot of the current distribution (which is not modified by the ongoing inference)
+	 * @param elapsedTime the number of seconds since inference was started
+	 * @throws Exception
+	 */
+	public void onResults(SampledDistribution dist, double elapsedTime) throws Exception;
+}
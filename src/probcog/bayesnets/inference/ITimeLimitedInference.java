@@ -26,4 +26,13 @@ public interface ITimeLimitedInference {
 	public void initialize() throws Exception;
 	public SampledDistribution infer() throws Exception;
 	public SampledDistribution pollResults() throws Exception;
+	/**
+	 * asks the inference method to terminate as soon as possible; infer then returns the results obtained so far
+	 */
+	public void cancel();
+	/**
+	 * sets a deadline after which inference terminates as if it had been cancelled
+	 * @param deadline the deadline in milliseconds (as returned by System.currentTimeMillis), or 0 for no deadline
+	 */
+	public void setDeadline(long deadline);
 }
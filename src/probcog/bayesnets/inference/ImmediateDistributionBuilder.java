@@ -43,4 +43,9 @@ public class ImmediateDistributionBuilder implements IDistributionBuilder {
 		return d;
 	}
 
+	@Override
+	public ConvergenceMonitor getConvergenceMonitor() {
+		return d == null ? null : d.getConvergenceMonitor();
+	}
+
 }
@@ -47,6 +47,8 @@ public class LikelihoodWeighting extends Sampler {
 			if(i % infoInterval == 0)
 				out.println("  step " + i);			
 			WeightedSample ret = getWeightedSample(s, nodeOrder, evidenceDomainIndices); 
+			if(isCancelled())
+				break;
 			if(ret != null) {
 				addSample(ret);
 				
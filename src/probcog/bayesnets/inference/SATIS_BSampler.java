@@ -126,6 +126,7 @@ public class SATIS_BSampler extends BackwardSampling {
 		}
 		// pass on parameters
 		sat.setDebugMode(this.debug);
+		sat.setCancellationFlag(cancellation);
 	}
 	
 	/**
@@ -115,6 +115,8 @@ public class SampleSearch extends Sampler {
 			if(i % infoInterval == 0)
 				info(i);			
 			WeightedSample ret = getWeightedSample(s, nodeOrder, evidenceDomainIndices); 
+			if(isCancelled())
+				break;
 			if(ret != null) {
 				addSample(ret);
 				/*
@@ -197,6 +199,9 @@ public class SampleSearch extends Sampler {
 			}
 			// if we get here, we need to backtrack to the last non-evidence node
 			s.trials++;
+			metricBacktracks++;
+			if(isCancelled()) // the sample would be discarded anyway
+				return null;
 			do {
 				// kill the current node's exclusions
 				domExclusions.remove(nodeIdx); 
@@ -235,22 +240,19 @@ public class SampleSearch extends Sampler {
 		// get the addresses of the first two relevant fields and the difference between them
 		for(int i = 1; i < addr.length; i++)
 			addr[i] = nodeDomainIndices[this.nodeIndices.get(domProd[i])];		
-		addr[0] = 0; // (the first element in the index into the domain of the node we are sampling)
-		int realAddr = cpf.addr2realaddr(addr);
-		addr[0] = 1;
-		int diff = cpf.addr2realaddr(addr) - realAddr; // diff is the address difference between two consecutive entries in the relevant column
-		// get probabilities for outcomes
+		// get probabilities for outcomes (the first element in the address is the index into the domain of the node we are sampling)
 		double[] cpt_entries = new double[domProd[0].getDomain().getOrder()];
 		double sum = 0;
 		for(int i = 0; i < cpt_entries.length; i++) {
 			double value;
 			if(excluded[i])
 				value = 0.0;
-			else
-				value = cpf.getDouble(realAddr); 
+			else {
+				addr[0] = i;
+				value = cpf.getDouble(addr); 
+			}
 			cpt_entries[i] = value;
 			sum += value;
-			realAddr += diff;
 		}
 		// if the column contains only zeros, it is an impossible case -> cannot sample
 		if(sum == 0)
@@ -269,23 +271,20 @@ public class SampleSearch extends Sampler {
 		// get the addresses of the first two relevant fields and the difference between them
 		for(int i = 1; i < addr.length; i++)
 			addr[i] = nodeDomainIndices[this.nodeIndices.get(domProd[i])];		
-		addr[0] = 0; // (the first element in the index into the domain of the node we are sampling)
-		int realAddr = cpf.addr2realaddr(addr);
-		addr[0] = 1;
-		int diff = cpf.addr2realaddr(addr) - realAddr; // diff is the address difference between two consecutive entries in the relevant column
-		// get probabilities for outcomes
+		// get probabilities for outcomes (the first element in the address is the index into the domain of the node we are sampling)
 		// If we are sampling in top. order, we always additionally filter
 		// values that are zero given the parents
 		double[] samplingDist = importanceDist.getDistribution(getNodeIndex(node));
 		double sum = 0;
 		for(int i = 0; i < samplingDist.length; i++) {
 			Double cptValue = null;
-			if(usingTopologicalOrdering)
-				cptValue = cpf.getDouble(realAddr);
+			if(usingTopologicalOrdering) {
+				addr[0] = i;
+				cptValue = cpf.getDouble(addr);
+			}
 			if(excluded[i] || (cptValue != null && cptValue.equals(0.0)))
 				samplingDist[i] = 0.0;
 			sum += samplingDist[i];
-			realAddr += diff;
 		}
 		// if the column contains only zeros, it is an impossible case -> cannot sample
 		if(sum == 0)
@@ -386,5 +385,14 @@ public class SampleSearch extends Sampler {
 			dirty = false;
 			return dist;
 		}
+
+		/**
+		 * @return null, because the weights of the samples depend on all the samples, such that the distribution
+		 * would have to be rebuilt in order to monitor convergence
+		 */
+		@Override
+		public ConvergenceMonitor getConvergenceMonitor() {
+			return null;
+		}
 	}
 }
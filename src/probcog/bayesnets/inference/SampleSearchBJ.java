@@ -173,6 +173,9 @@ public class SampleSearchBJ extends SampleSearch {
 			else {
 				if(orderIdx == 0) // can't backtrack further
 					throw new Exception("Backtracking past first level. Most likely, the evidence that was specified is contradictory");
+				if(isCancelled()) // the sample would be discarded anyway
+					return null;
+				metricBacktracks++;
 				
 				backtracking = true;
 				
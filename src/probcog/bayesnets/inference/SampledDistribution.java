@@ -21,6 +21,7 @@ package probcog.bayesnets.inference;
 import java.io.PrintStream;
 
 import probcog.bayesnets.core.BeliefNetworkEx;
+import probcog.bayesnets.core.EvidenceAbsorption;
 import probcog.inference.BasicSampledDistribution;
 
 import edu.ksu.cis.bnj.ver3.core.BeliefNode;
@@ -42,6 +43,11 @@ public class SampledDistribution extends BasicSampledDistribution implements Clo
 	 */
 	public int steps, trials, operations;
 	protected double maxWeight = 0.0;
+	/**
+	 * the sum of squared sample weights (for the computation of the effective sample size)
+	 */
+	protected double sumSquaredWeights = 0.0;
+	protected ConvergenceMonitor convergenceMonitor = null;
 	protected boolean debug = true;
 	protected BeliefNode[] nodes;
 	
@@ -61,6 +67,7 @@ public class SampledDistribution extends BasicSampledDistribution implements Clo
 		
 		// update normalization constant and maximum weight
 		Z += s.weight;		
+		sumSquaredWeights += s.weight * s.weight;
 		if(maxWeight < s.weight)
 			maxWeight = s.weight;
 		
@@ -84,6 +91,9 @@ public class SampledDistribution extends BasicSampledDistribution implements Clo
 			}
 		}
 		
+		if(convergenceMonitor != null)
+			convergenceMonitor.addSample(s);
+		
 		// update number of steps and trials
 		trials += s.trials;
 		operations += s.operations;
@@ -105,9 +115,74 @@ public class SampledDistribution extends BasicSampledDistribution implements Clo
 		return (double)trials/steps;
 	}
 	
+	/**
+	 * @return the effective sample size (sum of weights)^2 / (sum of squared weights), which, for importance samplers, 
+	 * indicates how many unweighted samples the weighted samples are worth
+	 */
+	public double getEffectiveSampleSize() {
+		if(sumSquaredWeights == 0.0)
+			return 0.0;
+		return Z * Z / sumSquaredWeights;
+	}
+	
+	/**
+	 * attaches a convergence monitor, which is updated with each sample that is subsequently added
+	 * @param m
+	 */
+	public void setConvergenceMonitor(ConvergenceMonitor m) {
+		convergenceMonitor = m;
+	}
+	
+	/**
+	 * @return the attached convergence monitor (or null)
+	 */
+	public ConvergenceMonitor getConvergenceMonitor() {
+		return convergenceMonitor;
+	}
+	
 	@Override
 	public synchronized SampledDistribution clone() throws CloneNotSupportedException {
-		return (SampledDistribution)super.clone();
+		SampledDistribution ret = (SampledDistribution)super.clone();
+		// copy the values, such that the clone is a snapshot that is unaffected by samples added later on
+		ret.values = new double[values.length][];
+		for(int i = 0; i < values.length; i++)
+			ret.values[i] = values[i].clone();
+		if(convergenceMonitor != null)
+			ret.convergenceMonitor = convergenceMonitor.clone();
+		return ret;
+	}
+
+	/**
+	 * maps a distribution that was computed for the reduced network of an evidence absorption back to the original network
+	 * @param absorption
+	 * @return the distribution over the nodes of the original network, in which observed nodes have their observed values;
+	 * all weights are scaled by the probability of the observations that were removed entirely, such that the normalization 
+	 * constant refers to the full evidence
+	 * @throws Exception
+	 */
+	public synchronized SampledDistribution expandAbsorbedEvidence(EvidenceAbsorption absorption) throws Exception {
+		SampledDistribution ret = new SampledDistribution(absorption.getNetwork());
+		double factor = absorption.getAbsorbedProbability();
+		ret.Z = Z * factor;
+		ret.steps = steps;
+		ret.trials = trials;
+		ret.operations = operations;
+		ret.maxWeight = maxWeight * factor;
+		ret.sumSquaredWeights = sumSquaredWeights * factor * factor;
+		ret.convergenceMonitor = convergenceMonitor;
+		ret.confidenceLevel = confidenceLevel;
+		ret.debug = debug;
+		int[] evidence = absorption.getEvidence();
+		for(int i = 0; i < ret.values.length; i++) {
+			if(evidence[i] >= 0)
+				ret.values[i][evidence[i]] = ret.Z;
+			else {
+				double[] v = values[absorption.getReducedNodeIndex(i)];
+				for(int j = 0; j < v.length; j++)
+					ret.values[i][j] = v[j] * factor;
+			}
+		}
+		return ret;
 	}
 
 	@Override
@@ -22,11 +22,13 @@ import java.io.PrintStream;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Random;
+import java.util.Vector;
 
 import probcog.bayesnets.core.BeliefNetworkEx;
+import probcog.inference.CancellationFlag;
 import probcog.inference.IParameterHandler;
+import probcog.inference.Metrics;
 import probcog.inference.ParameterHandler;
-import probcog.inference.BasicSampledDistribution.ConfidenceInterval;
 
 import edu.ksu.cis.bnj.ver3.core.BeliefNode;
 import edu.ksu.cis.bnj.ver3.core.CPF;
@@ -45,6 +47,10 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 	protected PrintStream out;
 	protected boolean initialized = false;
 	protected IDistributionBuilder distributionBuilder;
+	/**
+	 * the flag that is polled by the sampling loop in order to determine whether to terminate early
+	 */
+	protected CancellationFlag cancellation = new CancellationFlag();
 	
 	/**
 	 * general sampler setting: how many samples to pull from the distribution
@@ -54,7 +60,23 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 	protected int maxTrials = 5000;
 	protected boolean skipFailedSteps = false;
 	protected Double confidenceIntervalSizeThreshold = null; 
-	public double convergenceCheckInterval = 100;
+	protected Double minEffectiveSampleSize = null;
+	/**
+	 * the number of samples after which convergence is checked (if a stopping rule is set)
+	 */
+	public int convergenceCheckInterval = 100;
+	/**
+	 * the number of samples added so far and the number of samples at which convergence is to be checked next
+	 */
+	protected int numSamplesAdded = 0, nextConvergenceCheck = 0;
+	/**
+	 * metrics accumulated since they were last reported (see {@link #reportMetrics()})
+	 */
+	protected long metricSamples = 0, metricTrials = 0, metricBacktracks = 0, metricsReportTime;
+	/**
+	 * the number of samples after which accumulated metrics are reported
+	 */
+	protected static final int METRICS_REPORT_INTERVAL = 256;
 	protected double totalInferenceTime, initTime, inferenceTime;
 	
 	/**
@@ -75,6 +97,8 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 		setVerbose(true);
 		paramHandler = new ParameterHandler(this);
 		paramHandler.add("confidenceIntervalSizeThreshold", "setConfidenceIntervalSizeThreshold");
+		paramHandler.add("minEffectiveSampleSize", "setMinEffectiveSampleSize");
+		paramHandler.add("convergenceCheckInterval", "setConvergenceCheckInterval");
 		paramHandler.add("randomSeed", "setRandomSeed");
 		paramHandler.add("verbose", "setVerbose");
 	}
@@ -83,6 +107,15 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 		SampledDistribution dist = new SampledDistribution(bn);
 		dist.setDebugMode(debug);
 		paramHandler.addSubhandler(dist.getParameterHandler());
+		// monitor convergence if a stopping rule is set
+		if(confidenceIntervalSizeThreshold != null || minEffectiveSampleSize != null) {
+			ConvergenceMonitor m = new ConvergenceMonitor(getMonitoredVars(), getDomainSizes());
+			if(dist.confidenceLevel != null)
+				m.setConfidenceLevel(dist.confidenceLevel);
+			m.setMaxConfidenceIntervalWidth(confidenceIntervalSizeThreshold);
+			m.setMinEffectiveSampleSize(minEffectiveSampleSize);
+			dist.setConvergenceMonitor(m);
+		}
 		return dist;
 	}
 	
@@ -95,6 +128,44 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 		}
 		// add to distribution builder
 		distributionBuilder.addSample(s);
+		numSamplesAdded++;
+		metricTrials += s.trials;
+		if(++metricSamples >= METRICS_REPORT_INTERVAL)
+			reportMetrics();
+	}
+	
+	/**
+	 * reports the metrics accumulated since the last report to the metrics registry
+	 */
+	protected synchronized void reportMetrics() {
+		long now = System.nanoTime();
+		Metrics.add(Metrics.SAMPLES, metricSamples);
+		Metrics.add(Metrics.TRIALS, metricTrials);
+		Metrics.add(Metrics.SAMPLING_TIME, now - metricsReportTime);
+		if(metricBacktracks != 0)
+			Metrics.add(Metrics.BACKTRACKS, metricBacktracks);
+		metricSamples = metricTrials = metricBacktracks = 0;
+		metricsReportTime = now;
+	}
+	
+	/**
+	 * @return the variables whose convergence is monitored: the query variables or, if no query variables were set, all non-evidence variables
+	 */
+	protected Collection<Integer> getMonitoredVars() {
+		if(queryVars != null)
+			return queryVars;
+		Vector<Integer> vars = new Vector<Integer>();
+		for(int i = 0; i < nodes.length; i++)
+			if(evidenceDomainIndices == null || evidenceDomainIndices[i] < 0)
+				vars.add(i);
+		return vars;
+	}
+	
+	protected int[] getDomainSizes() {
+		int[] sizes = new int[nodes.length];
+		for(int i = 0; i < nodes.length; i++)
+			sizes[i] = nodes[i].getDomain().getOrder();
+		return sizes;
 	}
 	
 	public void setQueryVars(Collection<Integer> queryVars) {
@@ -102,33 +173,79 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 		initialized = false;
 	}
 	
+	/**
+	 * checks whether the stopping rules (if any) are satisfied by the distribution's convergence monitor;
+	 * the check is carried out only once every convergenceCheckInterval samples, so it is cheap to call after every step
+	 * @return true if sampling can stop
+	 * @throws Exception
+	 */
 	protected boolean converged() throws Exception {
-		if(!(this.distributionBuilder instanceof DirectDistributionBuilder))
+		if(confidenceIntervalSizeThreshold == null && minEffectiveSampleSize == null)
+			return false;
+		if(numSamplesAdded < nextConvergenceCheck)
+			return false;
+		nextConvergenceCheck = numSamplesAdded + convergenceCheckInterval;
+		ConvergenceMonitor m = distributionBuilder.getConvergenceMonitor();
+		if(m == null) {
+			// the distribution builder cannot monitor convergence, so the stopping rules are not applicable
+			if(verbose) System.out.println("Warning: convergence cannot be monitored for this distribution builder; stopping rules are ignored");
+			nextConvergenceCheck = Integer.MAX_VALUE;
 			return false;
-		SampledDistribution dist = distributionBuilder.getDistribution();
-		if(dist.getNumSamples() % this.convergenceCheckInterval != 0)
-			return false; // TODO assumes that all algorithms call this method after each step
-		// determine convergence based on confidence interval sizes
-		if(confidenceIntervalSizeThreshold != null) {
-			if(!dist.usesConfidenceComputation())
-				throw new Exception("Cannot determine convergence based on confidence interval size: No confidence level specified.");
-			double max = 0;
-			for(Integer i : queryVars) {
-				ConfidenceInterval interval = dist.getConfidenceInterval(i, 0);
-				max = Math.max(max, interval.getSize());
-			}
-			if(max <= confidenceIntervalSizeThreshold) {
-				if(verbose) System.out.printf("Convergence criterion reached: maximum confidence interval size = %f\n", max);
-				return true;
-			}
 		}
-		return false;
+		if(!m.converged())
+			return false;
+		if(verbose) System.out.printf("Convergence criterion reached: %s\n", m.toString());
+		return true;
+	}
+	
+	/**
+	 * asks the sampler to terminate; sampling stops after the current step and infer returns the distribution
+	 * obtained from the samples completed so far
+	 */
+	public void cancel() {
+		cancellation.raise();
+	}
+	
+	public void setDeadline(long deadline) {
+		cancellation.setDeadline(deadline);
+	}
+	
+	/**
+	 * sets the cancellation flag to use (e.g. in order to share it with an enclosing inference method)
+	 * @param flag
+	 */
+	public void setCancellationFlag(CancellationFlag flag) {
+		cancellation = flag;
 	}
 	
+	/**
+	 * @return true if the sampler was asked to terminate (or its deadline has passed)
+	 */
+	protected boolean isCancelled() {
+		return cancellation.isRaised();
+	}
+	
+	/**
+	 * sets a stopping rule: sampling stops once the (normal approximation) confidence intervals of all values of all query variables
+	 * are narrower than t; the confidence level is given by the parameter "confidenceLevel" (0.95 by default) 
+	 * @param t
+	 */
 	public void setConfidenceIntervalSizeThreshold(double t) {
 		confidenceIntervalSizeThreshold = t;
 	}
 	
+	/**
+	 * sets a stopping rule: sampling stops once the effective sample size of the weighted samples is at least n
+	 * @param n
+	 */
+	public void setMinEffectiveSampleSize(double n) {
+		minEffectiveSampleSize = n;
+	}
+	
+	public void setConvergenceCheckInterval(int n) {
+		convergenceCheckInterval = n;
+	}
+	
 	/**
 	 * polls the results during time-limited inference
 	 * @return
@@ -276,8 +393,10 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 		// run inference
 		Stopwatch sw = new Stopwatch();
 		sw.start();
+		metricsReportTime = System.nanoTime();
 		_infer();
 		inferenceTime = sw.getElapsedTimeSecs();
+		reportMetrics();
 		
 		report(String.format("total inference time: %fs (initialization: %fs; core %fs)\n", getTotalInferenceTime(), getInitTime(), getInferenceTime()));
 		if(verbose) out.print(report.toString());
@@ -322,17 +441,13 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 		// get the addresses of the first two relevant fields and the difference between them
 		for(int i = 1; i < addr.length; i++)
 			addr[i] = nodeDomainIndices[this.nodeIndices.get(domProd[i])];		
-		addr[0] = 0; // (the first element in the index into the domain of the node we are sampling)
-		int realAddr = cpf.addr2realaddr(addr);
-		addr[0] = 1;
-		int diff = cpf.addr2realaddr(addr) - realAddr; // diff is the address difference between two consecutive entries in the relevant column
-		// get probabilities for outcomes
+		// get probabilities for outcomes (the first element in the address is the index into the domain of the node we are sampling)
 		double[] cpt_entries = new double[domProd[0].getDomain().getOrder()];
 		double sum = 0;
 		for(int i = 0; i < cpt_entries.length; i++){
-			cpt_entries[i] = cpf.getDouble(realAddr);
+			addr[0] = i;
+			cpt_entries[i] = cpf.getDouble(addr);
 			sum += cpt_entries[i];
-			realAddr += diff;
 		}
 		// if the column contains only zeros, it is an impossible case -> cannot sample
 		if(sum == 0)
@@ -347,15 +462,11 @@ public abstract class Sampler implements ITimeLimitedInference, IParameterHandle
 		// get the addresses of the first two relevant fields and the difference between them
 		for(int i = 1; i < addr.length; i++)
 			addr[i] = nodeDomainIndices[this.nodeIndices.get(domProd[i])];		
-		addr[0] = 0; // (the first element in the index into the domain of the node we are sampling)
-		int realAddr = cpf.addr2realaddr(addr);
-		addr[0] = 1;
-		int diff = cpf.addr2realaddr(addr) - realAddr; // diff is the address difference between two consecutive entries in the relevant column
-		// get probabilities for outcomes
+		// get probabilities for outcomes (the first element in the address is the index into the domain of the node)
 		double[] cpt_entries = new double[domProd[0].getDomain().getOrder()];
 		for(int i = 0; i < cpt_entries.length; i++){
-			cpt_entries[i] = cpf.getDouble(realAddr);
-			realAddr += diff;
+			addr[0] = i;
+			cpt_entries[i] = cpf.getDouble(addr);
 		}
 		return cpt_entries;
 	}
@@ -33,6 +33,11 @@ public class TimeLimitedInference implements IParameterHandler {
 
 	protected ITimeLimitedInference inference;
 	protected double time, interval;
+	/**
+	 * the time (in seconds) after which results are polled for the first time
+	 */
+	protected double firstPollTime;
+	protected Vector<IResultsListener> listeners = new Vector<IResultsListener>();
 	protected InferenceThread thread;
 	protected BasicSampledDistribution referenceDistribution = null;
 	/**
@@ -48,6 +53,7 @@ public class TimeLimitedInference implements IParameterHandler {
 		this.inference = inference;
 		this.time = time;
 		this.interval = interval;
+		this.firstPollTime = interval;
 		comparisonClasses = new Vector<Class<? extends DistributionEntryComparison>>();
 		paramHandler = new ParameterHandler(this);
 		paramHandler.add("verbose", "setVerbose");
@@ -57,6 +63,23 @@ public class TimeLimitedInference implements IParameterHandler {
 		this.verbose = verbose;
 	}
 	
+	/**
+	 * sets the time after which intermediate results are polled for the first time (by default, the polling interval);
+	 * subsequent polls take place at regular intervals thereafter
+	 * @param seconds
+	 */
+	public void setFirstPollTime(double seconds) {
+		this.firstPollTime = seconds;
+	}
+	
+	/**
+	 * adds a listener that is notified whenever intermediate results are polled
+	 * @param l
+	 */
+	public void addResultsListener(IResultsListener l) {
+		listeners.add(l);
+	}
+	
 	public void setReferenceDistribution(BasicSampledDistribution dist) {
 		referenceDistribution = dist;		
 		comparisonClasses.add(BasicSampledDistribution.MeanSquaredError.class);
@@ -75,12 +98,20 @@ public class TimeLimitedInference implements IParameterHandler {
 		if(!useIntervals) 
 			Thread.sleep((int)(1000*time));
 		else {
-			int numSteps = (int)(time / interval);
-			for(int i = 1; i <= numSteps && thread.isAlive(); i++) {							
-				Thread.sleep((int)(1000*interval));
+			// poll at the first poll time and at regular intervals thereafter (returning early if inference completes)
+			double pollTime = firstPollTime;
+			for(int i = 1; pollTime <= time && thread.isAlive(); i++, pollTime += interval) {
+				long wait = (long)(1000*(pollTime - sw.getElapsedTimeSecs()));
+				if(wait > 0)
+					thread.join(wait);
+				if(!thread.isAlive())
+					break;
 				if(verbose) System.out.printf("polling results after %fs (interval %d)...\n", sw.getElapsedTimeSecs(), i);
 				SampledDistribution dist = pollResults(true);
 				if(verbose && dist != null) System.out.printf("%d samples taken\n", dist.steps);
+				if(dist != null)
+					for(IResultsListener l : listeners)
+						l.onResults(dist, sw.getElapsedTimeSecs());
 				if(referenceDistribution != null) {
 					double mse;
 					if(dist == null)
@@ -93,11 +124,12 @@ public class TimeLimitedInference implements IParameterHandler {
 				}
 			}
 		}
-		// get final results, terminating the inference thread if it is still running
-		SampledDistribution results = pollResults(false);
-		if(thread.isAlive())
-			thread.stop();
-		return results;
+		// ask the inference method to terminate (if it is still running) and wait for it to return the results obtained so far
+		inference.cancel();
+		thread.join();
+		if(thread.error != null)
+			throw thread.error;
+		return thread.results != null ? thread.results : pollResults(false);
 	}
 	
 	/**
@@ -139,12 +171,15 @@ public class TimeLimitedInference implements IParameterHandler {
 
 	protected class InferenceThread extends Thread {
 		
+		protected SampledDistribution results = null;
+		protected Exception error = null;
+		
 		public void run() {
 			try {
-				inference.infer();			
+				results = inference.infer();			
 			}
 			catch(Exception e) {
-				throw new RuntimeException(e);
+				error = e;
 			}			
 		}
 		
@@ -18,6 +18,8 @@
  ******************************************************************************/
 package probcog.bayesnets.inference;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Vector;
 
@@ -52,7 +54,7 @@ public class VariableElimination extends Sampler {
 			cpf = n.getCPF();
 			BeliefNode[] domprod = cpf.getDomainProduct();
 			for(int i = 0; i < domprod.length; i++) {
-				if(evidenceDomainIndices[getNodeIndex(domprod[i])] != 0) {
+				if(evidenceDomainIndices[getNodeIndex(domprod[i])] != -1) {
 					cpf = removeEvidence(cpf);
 					break;	
 				}
@@ -227,19 +229,95 @@ public class VariableElimination extends Sampler {
 		return newFacs;
 	}
 	
+	/**
+	 * determines an elimination order using the min-fill heuristic, i.e. the variable to eliminate next is always 
+	 * the one whose elimination adds the fewest edges to the interaction graph of the factors (ties are broken
+	 * in favour of the smaller joined factor)
+	 * @param factors
+	 * @param vars the variables to eliminate
+	 * @return the order in which to eliminate the variables
+	 */
+	protected Vector<BeliefNode> getEliminationOrder(Iterable<Factor> factors, Collection<BeliefNode> vars) {
+		// build the interaction graph
+		HashMap<BeliefNode, HashSet<BeliefNode>> neighbours = new HashMap<BeliefNode, HashSet<BeliefNode>>();
+		for(Factor f : factors) {
+			BeliefNode[] domProd = f.cpf.getDomainProduct();
+			for(BeliefNode n : domProd) {
+				HashSet<BeliefNode> nb = neighbours.get(n);
+				if(nb == null)
+					neighbours.put(n, nb = new HashSet<BeliefNode>());
+				for(BeliefNode m : domProd)
+					if(m != n)
+						nb.add(m);
+			}
+		}
+		// greedily eliminate variables from the graph
+		Vector<BeliefNode> order = new Vector<BeliefNode>();
+		HashSet<BeliefNode> remaining = new HashSet<BeliefNode>(vars);
+		while(!remaining.isEmpty()) {
+			BeliefNode best = null;
+			int bestFill = Integer.MAX_VALUE;
+			double bestSize = Double.POSITIVE_INFINITY;
+			for(BeliefNode n : remaining) {
+				HashSet<BeliefNode> nb = neighbours.get(n);
+				int fill = 0;
+				double size = n.getDomain().getOrder();
+				if(nb != null) {
+					for(BeliefNode m : nb) {
+						size *= m.getDomain().getOrder();
+						for(BeliefNode k : nb)
+							if(k != m && !neighbours.get(m).contains(k))
+								fill++;
+					}
+				}
+				if(fill < bestFill || (fill == bestFill && size < bestSize)) {
+					best = n;
+					bestFill = fill;
+					bestSize = size;
+				}
+			}
+			HashSet<BeliefNode> nb = neighbours.remove(best);
+			if(nb != null) {
+				for(BeliefNode m : nb) {
+					HashSet<BeliefNode> mnb = neighbours.get(m);
+					mnb.addAll(nb);
+					mnb.remove(m);
+					mnb.remove(best);
+				}
+			}
+			remaining.remove(best);
+			order.add(best);
+		}
+		return order;
+	}
+	
 	protected void computeMarginal(BeliefNode Q) {
+		// the distribution of an observed variable is given by the evidence (the factors no longer contain it)
+		int queryIdx = getNodeIndex(Q);
+		if(evidenceDomainIndices[queryIdx] != -1) {
+			double[] marginal = new double[Q.getDomain().getOrder()];
+			marginal[evidenceDomainIndices[queryIdx]] = 1.0;
+			dist.values[queryIdx] = marginal;
+			return;
+		}
 		Vector<Factor> factors = new Vector<Factor>();
+		Vector<BeliefNode> toEliminate = new Vector<BeliefNode>();
 		for(int i = nodeOrder.length-1; i >= 0; i--) {
-			if(!debug) out.printf("  %s  %d \r", Q.getName(), i);
 			int nodeIdx = nodeOrder[i];
 			BeliefNode node = nodes[nodeIdx];
-			if(debug) out.println("Current node: " + node);			
-			
 			factors.add(new Factor(node));
-			if(debug) out.println(factors);
-			
-			if(evidenceDomainIndices[nodeIdx] == -1 && node != Q)				
-				factors = sumout(factors, node);			
+			if(evidenceDomainIndices[nodeIdx] == -1 && node != Q)
+				toEliminate.add(node);
+		}
+		if(debug) out.println(factors);
+		// eliminate the variables in an order determined by the min-fill heuristic
+		// (a fixed topological order leads to intractably large factors even for moderately sized networks)
+		Vector<BeliefNode> order = getEliminationOrder(factors, toEliminate);
+		for(int i = 0; i < order.size(); i++) {
+			if(!debug) out.printf("  %s  %d \r", Q.getName(), order.size()-i);
+			BeliefNode node = order.get(i);
+			if(debug) out.println("Current node: " + node);
+			factors = sumout(factors, node);
 		}
 		if(!debug) out.println();
 		
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.inference;
+
+/**
+ * A flag via which a running inference method can be asked to terminate, and which is raised
+ * automatically once a deadline (if any) has passed.
+ * Inference methods poll the flag in their main loops and, once it is raised, stop as soon as possible,
+ * returning the results obtained so far (i.e. the samples that were completed before the flag was raised).
+ * Raising the flag is permanent.
+ * <p>
+ * Checking the flag is cheap: It reads a volatile variable and only every {@link #CHECK_INTERVAL} checks
+ * compares the current time against the deadline.
+ * @author agent
+ */
+public class CancellationFlag {
+	
+	/**
+	 * the number of checks after which the deadline is compared to the current time
+	 */
+	public static final int CHECK_INTERVAL = 64;
+
+	protected volatile boolean raised = false;
+	/**
+	 * the deadline in milliseconds (as returned by System.currentTimeMillis), or 0 if there is no deadline
+	 */
+	protected volatile long deadline = 0;
+	protected int numChecks = 0;
+	
+	/**
+	 * asks the inference method(s) using this flag to terminate
+	 */
+	public void raise() {
+		raised = true;
+	}
+	
+	/**
+	 * sets the point in time after which the flag is considered raised
+	 * @param deadline the deadline in milliseconds (as returned by System.currentTimeMillis), or 0 for no deadline
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+		numChecks = 0;
+	}
+	
+	/**
+	 * sets the deadline relative to the current time
+	 * @param seconds
+	 */
+	public void setTimeLimit(double seconds) {
+		setDeadline(System.currentTimeMillis() + (long)(1000 * seconds));
+	}
+	
+	public long getDeadline() {
+		return deadline;
+	}
+	
+	/**
+	 * checks whether the flag was raised (or the deadline has passed); to be called by inference methods in their main loops
+	 * @return true if the inference method is to terminate
+	 */
+	public boolean isRaised() {
+		if(raised)
+			return true;
+		if(deadline != 0 && ++numChecks % CHECK_INTERVAL == 0 && System.currentTimeMillis() >= deadline)
+			raised = true;
+		return raised;
+	}
+}
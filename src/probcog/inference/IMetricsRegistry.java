@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.inference;
+
+import java.util.Map;
+
+/**
+ * Interface for registries that collect the metrics reported by inference methods (see {@link Metrics}).
+ * Metrics are identified by name and are either counters (which are increased) or gauges (which are set).
+ * Implementations must be thread-safe, as they are shared by all inference methods that are run concurrently. 
+ * @author agent
+ */
+public interface IMetricsRegistry {
+	/**
+	 * increases a counter
+	 * @param name the name of the counter
+	 * @param delta the amount to add
+	 */
+	public void add(String name, long delta);
+	/**
+	 * sets a gauge
+	 * @param name the name of the gauge
+	 * @param value the current value
+	 */
+	public void set(String name, long value);
+	/**
+	 * @return a snapshot of the current values of all metrics
+	 */
+	public Map<String, Long> getValues();
+	/**
+	 * resets all metrics
+	 */
+	public void reset();
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.inference;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JMX view of the metrics in the current registry (see {@link Metrics}).
+ * @author agent
+ */
+public class InferenceMetrics implements InferenceMetricsMXBean {
+	
+	public static final String OBJECT_NAME = "probcog:type=InferenceMetrics";
+	
+	protected long get(Map<String, Long> values, String name) {
+		Long v = values.get(name);
+		return v == null ? 0 : v;
+	}
+	
+	protected long get(String name) {
+		return get(Metrics.getRegistry().getValues(), name);
+	}
+	
+	protected double ratio(String numerator, String denominator, double scale) {
+		Map<String, Long> values = Metrics.getRegistry().getValues();
+		long d = get(values, denominator);
+		if(d == 0)
+			return 0.0;
+		return scale * get(values, numerator) / d;
+	}
+	
+	public long getSamples() {
+		return get(Metrics.SAMPLES);
+	}
+
+	public double getSamplesPerSecond() {
+		return ratio(Metrics.SAMPLES, Metrics.SAMPLING_TIME, 1e9);
+	}
+
+	public double getTrialsPerSample() {
+		return ratio(Metrics.TRIALS, Metrics.SAMPLES, 1.0);
+	}
+
+	public double getRejectionRate() {
+		double trialsPerSample = getTrialsPerSample();
+		if(trialsPerSample == 0.0)
+			return 0.0;
+		return 1.0 - 1.0 / trialsPerSample;
+	}
+
+	public long getBacktracks() {
+		return get(Metrics.BACKTRACKS);
+	}
+
+	public double getSampleSATFlipsPerSecond() {
+		return ratio(Metrics.SAT_FLIPS, Metrics.SAT_TIME, 1e9);
+	}
+
+	public double getMCSATConstraintsPerStep() {
+		return ratio(Metrics.MCSAT_CONSTRAINTS, Metrics.MCSAT_STEPS, 1.0);
+	}
+
+	public double getGroundingTime() {
+		return get(Metrics.GROUNDING_TIME) / 1e9;
+	}
+
+	public Map<Integer, Double> getGroundingTimePerFormula() {
+		TreeMap<Integer, Double> ret = new TreeMap<Integer, Double>();
+		for(Map.Entry<String, Long> e : Metrics.getRegistry().getValues().entrySet())
+			if(e.getKey().startsWith(Metrics.FORMULA_GROUNDING_TIME))
+				ret.put(Integer.parseInt(e.getKey().substring(Metrics.FORMULA_GROUNDING_TIME.length())), e.getValue() / 1e9);
+		return ret;
+	}
+
+	public long getGroundNetworkNodes() {
+		return get(Metrics.GROUND_NETWORK_NODES);
+	}
+
+	public long getGroundNetworkEdges() {
+		return get(Metrics.GROUND_NETWORK_EDGES);
+	}
+
+	public long getGroundFormulas() {
+		return get(Metrics.GROUND_FORMULAS);
+	}
+
+	public Map<String, Long> getMetrics() {
+		return Metrics.getRegistry().getValues();
+	}
+
+	public void reset() {
+		Metrics.getRegistry().reset();
+	}
+}
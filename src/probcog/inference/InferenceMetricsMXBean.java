@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.inference;
+
+import java.util.Map;
+
+/**
+ * Management interface via which the metrics of inference methods are made available through JMX.
+ * Rates are relative to the time spent in the respective procedure (summed across threads).
+ * @author agent
+ */
+public interface InferenceMetricsMXBean {
+	public long getSamples();
+	public double getSamplesPerSecond();
+	public double getTrialsPerSample();
+	/**
+	 * @return the fraction of trials that did not result in a sample
+	 */
+	public double getRejectionRate();
+	public long getBacktracks();
+	public double getSampleSATFlipsPerSecond();
+	public double getMCSATConstraintsPerStep();
+	/**
+	 * @return the total time spent grounding models (in seconds)
+	 */
+	public double getGroundingTime();
+	/**
+	 * @return the total time spent grounding each formula (in seconds), indexed by the formula's position in the model
+	 */
+	public Map<Integer, Double> getGroundingTimePerFormula();
+	public long getGroundNetworkNodes();
+	public long getGroundNetworkEdges();
+	public long getGroundFormulas();
+	/**
+	 * @return the raw values of all metrics
+	 */
+	public Map<String, Long> getMetrics();
+	public void reset();
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.inference;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Central access point for the metrics that are reported by inference methods and grounding procedures.
+ * Metrics are reported to a pluggable registry (by default, an in-memory {@link MetricsRegistry}), which
+ * can be made available via JMX (see {@link #registerMBean()}).
+ * <p>
+ * To keep the overhead low enough to leave collection enabled, inference methods do not report each individual
+ * event but accumulate counts locally and report them in batches. 
+ * @author agent
+ */
+public class Metrics {
+	
+	// counters
+	/**
+	 * the number of samples added to sampled distributions
+	 */
+	public static final String SAMPLES = "sampler.samples";
+	/**
+	 * the number of trials needed to obtain the samples (including the successful ones)
+	 */
+	public static final String TRIALS = "sampler.trials";
+	/**
+	 * the time spent sampling (in nanoseconds)
+	 */
+	public static final String SAMPLING_TIME = "sampler.nanos";
+	/**
+	 * the number of backtracking steps (or backjumps) in SampleSearch variants
+	 */
+	public static final String BACKTRACKS = "sampleSearch.backtracks";
+	public static final String SAT_FLIPS = "sampleSAT.flips";
+	public static final String SAT_TIME = "sampleSAT.nanos";
+	public static final String MCSAT_STEPS = "mcsat.steps";
+	/**
+	 * the total number of constraints that MC-SAT required to be satisfied (summed over all steps)
+	 */
+	public static final String MCSAT_CONSTRAINTS = "mcsat.constraints";
+	/**
+	 * the time spent grounding models (in nanoseconds)
+	 */
+	public static final String GROUNDING_TIME = "grounding.nanos";
+	/**
+	 * prefix of the counters for the time spent grounding individual formulas (in nanoseconds); the prefix is followed by the index
+	 * of the formula in the model (i.e. in the knowledge base of a BLN or in the list of formulas of an MLN)
+	 */
+	public static final String FORMULA_GROUNDING_TIME = "grounding.formula.nanos:";
+	// gauges
+	/**
+	 * the number of nodes in the most recently instantiated ground network
+	 */
+	public static final String GROUND_NETWORK_NODES = "groundNetwork.nodes";
+	/**
+	 * the number of edges in the most recently instantiated ground network
+	 */
+	public static final String GROUND_NETWORK_EDGES = "groundNetwork.edges";
+	/**
+	 * the number of ground formulas in the most recently instantiated ground model
+	 */
+	public static final String GROUND_FORMULAS = "groundModel.formulas";
+
+	protected static volatile IMetricsRegistry registry = new MetricsRegistry();
+	
+	public static IMetricsRegistry getRegistry() {
+		return registry;
+	}
+	
+	/**
+	 * replaces the registry to which metrics are reported
+	 * @param r
+	 */
+	public static void setRegistry(IMetricsRegistry r) {
+		registry = r;
+	}
+	
+	public static void add(String name, long delta) {
+		registry.add(name, delta);
+	}
+	
+	public static void set(String name, long value) {
+		registry.set(name, value);
+	}
+	
+	/**
+	 * registers an {@link InferenceMetricsMXBean} with the platform MBean server (unless it is already registered)
+	 * @return the name under which the bean is registered
+	 * @throws Exception
+	 */
+	public static synchronized ObjectName registerMBean() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(InferenceMetrics.OBJECT_NAME);
+		if(!server.isRegistered(name))
+			server.registerMBean(new InferenceMetrics(), name);
+		return name;
+	}
+}
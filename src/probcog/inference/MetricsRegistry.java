@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.inference;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default metrics registry, which keeps the values of all metrics in memory.
+ * @author agent
+ */
+public class MetricsRegistry implements IMetricsRegistry {
+
+	protected ConcurrentMap<String, AtomicLong> values = new ConcurrentHashMap<String, AtomicLong>();
+	
+	protected AtomicLong get(String name) {
+		AtomicLong v = values.get(name);
+		if(v == null) {
+			AtomicLong newValue = new AtomicLong();
+			v = values.putIfAbsent(name, newValue);
+			if(v == null)
+				v = newValue;
+		}
+		return v;
+	}
+	
+	public void add(String name, long delta) {
+		get(name).addAndGet(delta);
+	}
+
+	public void set(String name, long value) {
+		get(name).set(value);
+	}
+
+	/**
+	 * @param name
+	 * @return the current value of the metric with the given name (0 if the metric was never reported)
+	 */
+	public long getValue(String name) {
+		AtomicLong v = values.get(name);
+		return v == null ? 0 : v.get();
+	}
+	
+	public Map<String, Long> getValues() {
+		TreeMap<String, Long> ret = new TreeMap<String, Long>();
+		for(Map.Entry<String, AtomicLong> e : values.entrySet())
+			ret.put(e.getKey(), e.getValue().get());
+		return ret;
+	}
+
+	public void reset() {
+		values.clear();
+	}
+}
@@ -85,6 +85,19 @@ public class ParameterHandler {
 		addSubhandler(h.getParameterHandler());
 	}
 	
+	/**
+	 * detaches a subhandler, such that it no longer receives parameters from this handler (and no longer references it)
+	 * @param h
+	 */
+	public void removeSubhandler(ParameterHandler h) {
+		subhandlers.remove(h);
+		h.parenthandlers.remove(this);
+	}
+	
+	public void removeSubhandler(IParameterHandler h) {
+		removeSubhandler(h.getParameterHandler());
+	}
+	
 	/**
 	 * handles all of the parameters given in a parameter mapping
 	 * @param paramMapping a mapping from parameter names to values
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.logic;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of world variables that extends a given set of world variables with any ground atom that is requested 
+ * but not contained in it, such that formulas can be grounded even if only some of the ground atoms are known.
+ * The ground atoms that are added have indices beyond the ones of the given set; only they are contained in this
+ * set itself (e.g. as far as {@link #size()} and iteration are concerned).
+ * @author agent
+ */
+public class ExtensibleWorldVariables extends WorldVariables {
+	protected WorldVariables base;
+	
+	/**
+	 * @param base the world variables to extend (which are not modified)
+	 */
+	public ExtensibleWorldVariables(WorldVariables base) {
+		this.base = base;
+	}
+	
+	@Override
+	public GroundAtom get(String gndAtom) {
+		GroundAtom ga = base.get(gndAtom);
+		if(ga != null)
+			return ga;
+		ga = vars.get(gndAtom);
+		if(ga == null) {
+			ga = new GroundAtom(gndAtom);
+			ga.setIndex(base.size() + vars.size());
+			vars.put(gndAtom, ga);
+			varsByIndex.put(ga.index, ga);
+		}
+		return ga;
+	}
+	
+	@Override
+	public GroundAtom get(Integer index) {
+		if(index < base.size())
+			return base.get(index);
+		return varsByIndex.get(index);
+	}
+	
+	@Override
+	public Block getBlock(Integer idxGA) {
+		if(idxGA < base.size())
+			return base.getBlock(idxGA);
+		return var2block.get(idxGA);
+	}
+	
+	/**
+	 * @param ga
+	 * @return true if the ground atom is not part of the extended set of world variables (i.e. it was added by this set)
+	 */
+	public boolean isExtension(GroundAtom ga) {
+		return ga.index >= base.size();
+	}
+	
+	/**
+	 * @param f a ground formula
+	 * @return true if the formula refers to any ground atom that is not part of the extended set of world variables 
+	 */
+	public boolean refersToExtension(Formula f) {
+		Set<GroundAtom> gas = new HashSet<GroundAtom>();
+		f.getGroundAtoms(gas);
+		for(GroundAtom ga : gas)
+			if(isExtension(ga))
+				return true;
+		return false;
+	}
+}
@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import probcog.srl.EvidenceIndex;
 import probcog.srl.GenericDatabase;
 
 import edu.tum.cs.util.StringTool;
@@ -105,6 +106,18 @@ public class GroundAtom extends GroundedFormula {
         try {
             // check whether evidence contains this ground atom and return instance of TrueFalse
         	if(evidence != null) {
+        		// use the evidence index (if the database has been finalized)
+        		EvidenceIndex evidenceIndex = evidence.getEvidenceIndex();
+        		if(evidenceIndex != null) {
+        			switch(evidenceIndex.getTruthValue(predicate, args)) {
+        			case EvidenceIndex.TRUE:
+        				return TrueFalse.TRUE;
+        			case EvidenceIndex.FALSE:
+        				return TrueFalse.FALSE;
+        			case EvidenceIndex.UNKNOWN:
+        				return this;
+        			}
+        		}
 	        	String value = evidence.getSingleVariableValue(this.toString(), false);
 	            if(value != null) {            	 
 	                if(value.equals("True"))
@@ -21,12 +21,13 @@ package probcog.logic;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Vector;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import probcog.inference.Metrics;
 import probcog.logic.Formula.FormulaSimplification;
 import probcog.logic.parser.FormulaParser;
 import probcog.logic.parser.ParseException;
@@ -42,12 +43,13 @@ public class KnowledgeBase implements Iterable<Formula> {
 	protected Vector<Formula> formulas;
 	/**
 	 * stores, for ground KBs, the index of the original formula from which the formula was instantiated
+	 * (by identity, since ground atoms are hashed by their index, which may change)
 	 */
-	protected HashMap<Formula, Integer> templateIDs;
+	protected IdentityHashMap<Formula, Integer> templateIDs;
 	
 	public KnowledgeBase() {
 		formulas = new Vector<Formula>();
-		templateIDs = new HashMap<Formula, Integer>();
+		templateIDs = new IdentityHashMap<Formula, Integer>();
 	}
 	
 	/**
@@ -89,6 +91,16 @@ public class KnowledgeBase implements Iterable<Formula> {
 		this.formulas.add(f);
 	}
 	
+	/**
+	 * adds a ground formula to this (ground) knowledge base
+	 * @param f the ground formula
+	 * @param templateID the index of the formula from which the formula was instantiated
+	 */
+	public void addFormula(Formula f, Integer templateID) {
+		this.formulas.add(f);
+		templateIDs.put(f, templateID);
+	}
+	
 	public Vector<Formula> getFormulas() {
 		return formulas;
 	}
@@ -106,7 +118,9 @@ public class KnowledgeBase implements Iterable<Formula> {
 		Integer formulaID = 0;
 		for(Formula f : formulas) {
 			int i = ret.formulas.size();
+			long startTime = System.nanoTime();
 			f.addAllGroundingsTo(ret.formulas, db, worldVars, simplify);
+			Metrics.add(Metrics.FORMULA_GROUNDING_TIME + formulaID, System.nanoTime() - startTime);
 			for(; i < ret.formulas.size(); i++) {
 				ret.templateIDs.put(ret.formulas.get(i), formulaID);
 			}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.logic;
+
+/**
+ * A possible world for a set of world variables that may grow while the world is in use
+ * (as is the case for lazy inference, where ground atoms are only added once they become relevant).
+ * Ground atoms that were not yet considered when the world was last changed (including atoms
+ * that were not yet added to the set of world variables) are false.
+ * @author agent
+ */
+public class LazyPossibleWorld extends PossibleWorld {
+
+	public LazyPossibleWorld(WorldVariables worldVars) {
+		super(worldVars);
+	}
+
+	protected LazyPossibleWorld(WorldVariables worldVars, boolean[] state) {
+		super(worldVars);
+		this.state = state;
+	}
+
+	/**
+	 * makes sure that the state array can hold the truth value of the ground atom with the given index
+	 * @param idxGndAtom
+	 */
+	protected void ensureCapacity(int idxGndAtom) {
+		if(idxGndAtom < state.length)
+			return;
+		boolean[] newState = new boolean[Math.max(idxGndAtom+1, Math.max(worldVars.size(), state.length*2))];
+		System.arraycopy(state, 0, newState, 0, state.length);
+		state = newState;
+	}
+
+	@Override
+	public boolean isTrue(GroundAtom ga) {
+		return get(ga.index);
+	}
+
+	@Override
+	public boolean get(int idxGndAtom) {
+		return idxGndAtom >= 0 && idxGndAtom < state.length && state[idxGndAtom];
+	}
+
+	@Override
+	public void set(GroundAtom gndAtom, boolean value) {
+		set(gndAtom.index, value);
+	}
+
+	@Override
+	public void set(String gndAtom, boolean value) {
+		set(worldVars.get(gndAtom).index, value);
+	}
+
+	@Override
+	public void set(int idxGndAtom, boolean value) {
+		ensureCapacity(idxGndAtom);
+		state[idxGndAtom] = value;
+	}
+
+	@Override
+	public boolean[] getState() {
+		ensureCapacity(worldVars.size()-1);
+		return state;
+	}
+
+	@Override
+	public void setState(boolean[] state) {
+		this.state = state;
+	}
+
+	@Override
+	public LazyPossibleWorld clone() {
+		return new LazyPossibleWorld(worldVars, state.clone());
+	}
+}
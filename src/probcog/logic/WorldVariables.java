@@ -18,6 +18,7 @@
  ******************************************************************************/
 package probcog.logic;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Set;
@@ -74,6 +75,35 @@ public class WorldVariables implements Iterable<GroundAtom> {
 		return b;
 	}
 
+	/**
+	 * removes the given variables (ground atoms), reassigning the indices of the remaining ones such that they are
+	 * again consecutive (retaining their order); blocks must be removed as a whole
+	 * @param gndAtoms
+	 */
+	public void removeAll(Collection<GroundAtom> gndAtoms) {
+		int oldSize = vars.size();
+		for(GroundAtom ga : gndAtoms)
+			vars.remove(ga.toString());
+		if(vars.size() == oldSize)
+			return;
+		HashMap<Integer, GroundAtom> oldVarsByIndex = varsByIndex;
+		HashMap<Integer, Block> oldVar2Block = var2block;
+		varsByIndex = new HashMap<Integer, GroundAtom>();
+		var2block = new HashMap<Integer, Block>();
+		int newIndex = 0;
+		for(int i = 0; i < oldSize; i++) {
+			GroundAtom ga = oldVarsByIndex.get(i);
+			if(vars.get(ga.toString()) != ga)
+				continue;
+			Block b = oldVar2Block.get(i);
+			ga.setIndex(newIndex);
+			varsByIndex.put(newIndex, ga);
+			if(b != null)
+				var2block.put(newIndex, b);
+			newIndex++;
+		}
+	}
+
 	/**
 	 * retrieves the variable (ground atom) that corresponds to the given string representation
 	 * @param gndAtom
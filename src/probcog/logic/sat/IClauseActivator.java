@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.logic.sat;
+
+import java.util.Collection;
+
+import probcog.logic.GroundAtom;
+import probcog.logic.PossibleWorld;
+
+/**
+ * Interface for providers of clauses that are added to a SAT problem lazily, i.e. only once a ground atom
+ * they contain is about to be flipped (or considered for a flip).
+ * @author agent
+ */
+public interface IClauseActivator {
+	/**
+	 * activates the clauses that are relevant when flipping the given ground atom, i.e. all clauses
+	 * that have not been activated before and that are unsatisfied in the given state or would become
+	 * unsatisfied if the ground atom were flipped
+	 * @param gndAtom the ground atom that is about to be flipped (or considered for a flip)
+	 * @param state the current state (before the flip)
+	 * @return the newly activated clauses that are to be added to the set of constraints
+	 * @throws Exception
+	 */
+	public Collection<? extends Clause> activate(GroundAtom gndAtom, PossibleWorld state) throws Exception;
+}
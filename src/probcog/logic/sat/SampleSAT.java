@@ -24,7 +24,9 @@ import java.util.LinkedList;
 import java.util.Random;
 import java.util.Vector;
 
+import probcog.inference.CancellationFlag;
 import probcog.inference.IParameterHandler;
+import probcog.inference.Metrics;
 import probcog.inference.ParameterHandler;
 import probcog.logic.GroundAtom;
 import probcog.logic.GroundLiteral;
@@ -70,6 +72,23 @@ public class SampleSAT implements IParameterHandler {
 	 */
 	protected double pWalkSAT = 0.5; // 0.5
 	
+	/**
+	 * provider of lazily activated clauses (null if the set of constraints is fixed)
+	 */
+	protected IClauseActivator clauseActivator = null;
+	/**
+	 * whether the constraint data has been initialized for the current state (newly activated constraints must then be initialized immediately)
+	 */
+	protected boolean constraintStateInitialized = false;
+	/**
+	 * the flag that is polled in order to determine whether to abort the search (null if the search cannot be aborted)
+	 */
+	protected CancellationFlag cancellation = null;
+	/**
+	 * the total number of flips performed by this sampler
+	 */
+	protected long numFlips = 0;
+	
 	
 	/**
 	 * @param kb a collection of clauses to satisfy (such as a ClausalKB)
@@ -109,7 +128,33 @@ public class SampleSAT implements IParameterHandler {
 	public void setDebugMode(boolean active) {
 		debug = active;
 	}
+	
+	/**
+	 * enables lazy activation of constraints: before a ground atom is flipped (or considered for a flip), the given activator
+	 * is asked for further clauses, which are then added to the set of constraints.
+	 * In lazy mode, random states are generated only for the ground atoms that are already part of the set of variables.   
+	 * @param activator
+	 */
+	public void setClauseActivator(IClauseActivator activator) {
+		this.clauseActivator = activator;
+	}
 
+	/**
+	 * sets a flag which, once raised, causes run() to return even if not all constraints have been satisfied 
+	 * (which callers must then check using isCancelled()) 
+	 * @param flag
+	 */
+	public void setCancellationFlag(CancellationFlag flag) {
+		this.cancellation = flag;
+	}
+	
+	/**
+	 * @return true if the search was asked to terminate (in which case the current state may not satisfy all constraints)
+	 */
+	public boolean isCancelled() {
+		return cancellation != null && cancellation.isRaised();
+	}
+	
 	/**
 	 * enables unit propagation when initializing the set of constraints
 	 */
@@ -235,6 +280,7 @@ public class SampleSAT implements IParameterHandler {
 			initConstraints(kb);
 
 		// gather constraint data
+		constraintStateInitialized = false;
 		bottlenecks.clear();
 		unsatisfiedConstraints.clear();
 		if(debug) System.out.println("setting random state...");
@@ -242,6 +288,29 @@ public class SampleSAT implements IParameterHandler {
 		if(debug) state.print();
 		for(Constraint c : constraints)
 			c.initState();
+		constraintStateInitialized = true;
+	}
+	
+	/**
+	 * lazily activates the constraints that are relevant to flipping the given ground atom (if a clause activator is set)
+	 * @param gndAtom the ground atom that is about to be flipped
+	 */
+	protected void activate(GroundAtom gndAtom) {
+		if(clauseActivator == null)
+			return;
+		java.util.Collection<? extends probcog.logic.sat.Clause> clauses;
+		try {
+			clauses = clauseActivator.activate(gndAtom, state);
+		}
+		catch(Exception e) {
+			throw new RuntimeException("Error while activating clauses for " + gndAtom, e);
+		}
+		for(probcog.logic.sat.Clause c : clauses) {
+			Constraint con = makeConstraint(c);
+			constraints.add(con);
+			if(constraintStateInitialized)
+				con.initState();
+		}
 	}
 	
 	/**
@@ -249,9 +318,12 @@ public class SampleSAT implements IParameterHandler {
 	 * @throws Exception 
 	 */
 	public void run() throws Exception {		
+		long startTime = System.nanoTime(), startFlips = numFlips;
 		initialize();		
 		int step = 1;
 		while(unsatisfiedConstraints.size() > 0) {
+			if(isCancelled())
+				break;
 			// debug code
 			if(debug) {				
 				System.out.println("SAT step " + step + ", " + unsatisfiedConstraints.size() + " constraints unsatisfied");
@@ -268,6 +340,21 @@ public class SampleSAT implements IParameterHandler {
 			makeMove();
 			step++;
 		}
+		reportMetrics(startTime, startFlips);
+	}
+	
+	/**
+	 * reports the flips performed (and the time taken) since the given point in time to the metrics registry
+	 * @param startTime the start time (as returned by System.nanoTime)
+	 * @param startFlips the number of flips at the start time
+	 */
+	protected void reportMetrics(long startTime, long startFlips) {
+		Metrics.add(Metrics.SAT_FLIPS, numFlips - startFlips);
+		Metrics.add(Metrics.SAT_TIME, System.nanoTime() - startTime);
+	}
+	
+	public long getNumFlips() {
+		return numFlips;
 	}
 	
 	/**
@@ -326,7 +413,23 @@ public class SampleSAT implements IParameterHandler {
 	 * @throws Exception 
 	 */
 	protected void setRandomState() throws Exception {
-		evidenceHandler.setRandomState(state);
+		if(clauseActivator == null) {
+			evidenceHandler.setRandomState(state);
+			return;
+		}
+		// lazy mode: randomize only the atoms that are already known, activating the constraints that are affected by each change
+		// (atoms that are added in the process retain their default value)
+		int numVars = vars.size();
+		for(int i = 0; i < numVars; i++) {
+			if(evidence.containsKey(i))
+				continue;
+			GroundAtom gndAtom = vars.get(i);
+			boolean value = rand.nextBoolean();
+			if(state.isTrue(gndAtom) != value) {
+				activate(gndAtom);
+				state.set(gndAtom, value);
+			}
+		}
 	}
 	
 	protected void makeMove() {
@@ -408,6 +511,7 @@ public class SampleSAT implements IParameterHandler {
 			if(evidence.containsKey(gndAtom.index))
 				continue;
 			// calculate delta-cost
+			activate(gndAtom);
 			double delta = deltaCost(gndAtom);
 			// - if the atom is in a block, we must consider the cost of flipping the second atom
 			Block block = vars.getBlock(gndAtom.index);
@@ -454,6 +558,9 @@ public class SampleSAT implements IParameterHandler {
 	
 	protected void flipGndAtom(GroundAtom gndAtom) {
 		if(debug) System.out.println("  flipping " + gndAtom);
+		numFlips++;
+		// activate constraints that may be affected (lazy mode)
+		activate(gndAtom);
 		// modify state
 		boolean value = state.isTrue(gndAtom);
 		state.set(gndAtom, !value);
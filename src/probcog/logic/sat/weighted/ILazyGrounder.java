@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.logic.sat.weighted;
+
+import java.util.Collection;
+
+import probcog.logic.GroundAtom;
+import probcog.logic.IPossibleWorld;
+
+/**
+ * Interface for lazily grounded models, which only instantiate the weighted ground formulas
+ * that are not satisfied in the current state or are affected by a flip (as in LazySAT, Singla and Domingos 2006).
+ * All ground formulas that have not been activated are assumed to be satisfied by the current state.
+ * @author agent
+ */
+public interface ILazyGrounder {
+	/**
+	 * activates the ground formulas containing the given ground atom that have not yet been activated and
+	 * that are false in the given state or would become false if the ground atom were flipped
+	 * @param gndAtom the ground atom that is about to be flipped
+	 * @param state the current state
+	 * @return the newly activated ground formulas (with positive weights)
+	 * @throws Exception
+	 */
+	public Collection<WeightedFormula> activate(GroundAtom gndAtom, IPossibleWorld state) throws Exception;
+}
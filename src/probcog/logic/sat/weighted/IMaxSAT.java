@@ -27,4 +27,9 @@ public interface IMaxSAT {
 	public void setMaxSteps(int steps);
 	public probcog.logic.PossibleWorld getBestState();
 	public String getAlgorithmName();
+	/**
+	 * sets a flag which, once raised, causes the search to terminate (such that the best state found so far is retained)
+	 * @param flag
+	 */
+	public void setCancellationFlag(probcog.inference.CancellationFlag flag);
 }
@@ -18,18 +18,24 @@
  ******************************************************************************/
 package probcog.logic.sat.weighted;
 
+import java.util.Collection;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Vector;
 
+import probcog.inference.CancellationFlag;
 import probcog.inference.IParameterHandler;
+import probcog.inference.Metrics;
 import probcog.inference.ParameterHandler;
 import probcog.logic.Formula;
 import probcog.logic.GroundAtom;
 import probcog.logic.GroundLiteral;
+import probcog.logic.LazyPossibleWorld;
 import probcog.logic.PossibleWorld;
 import probcog.logic.WorldVariables;
+import probcog.logic.sat.IClauseActivator;
 import probcog.logic.sat.SampleSAT;
+import probcog.srl.AbstractVariable;
 import probcog.srl.Database;
 
 
@@ -50,6 +56,11 @@ public class MCSAT implements IParameterHandler {
 	protected ParameterHandler paramHandler;
 	protected SampleSAT sat;
 	protected Vector<SoftEvidence> softEvidence;
+	/**
+	 * the grounder that provides further ground formulas in lazy mode (null if the KB is fully grounded)
+	 */
+	protected ILazyGrounder lazyGrounder = null;
+	protected LazyClauseSelector lazyClauseSelector = null;
 	
 	public class SoftEvidence {
 		public WeightedClause wc;
@@ -63,15 +74,36 @@ public class MCSAT implements IParameterHandler {
 	}
 	
 	public MCSAT(WeightedClausalKB kb, WorldVariables vars, Database db) throws Exception {
+		this(kb, vars, db.getEntries(), new PossibleWorld(vars));
+		this.db = db;
+	}
+	
+	/**
+	 * constructs an MC-SAT sampler for a lazily grounded model (lazy MC-SAT, Poon et al. 2008), where the given KB contains
+	 * only the initially active ground formulas and further ground formulas are obtained from the lazy grounder as needed.
+	 * Ground atoms that are not (yet) part of the set of variables retain their default value (false), which is accurate
+	 * for sparse models, where most atoms are false in most states.
+	 * @param kb the KB of initially active ground formulas 
+	 * @param vars the (initial) set of variables
+	 * @param evidence the evidence for the variables in vars
+	 * @param lazyGrounder the lazy grounder
+	 * @throws Exception
+	 */
+	public MCSAT(WeightedClausalKB kb, WorldVariables vars, Iterable<? extends AbstractVariable<?>> evidence, ILazyGrounder lazyGrounder) throws Exception {
+		this(kb, vars, evidence, new LazyPossibleWorld(vars));
+		this.lazyGrounder = lazyGrounder;
+		lazyClauseSelector = new LazyClauseSelector();
+		sat.setClauseActivator(lazyClauseSelector);
+	}
+	
+	protected MCSAT(WeightedClausalKB kb, WorldVariables vars, Iterable<? extends AbstractVariable<?>> evidence, PossibleWorld state) throws Exception {
 		this.kb = kb;
 		this.vars = vars;
-		this.db = db;
 		this.rand = new Random();
 		this.dist = new GroundAtomDistribution(vars);
 		this.paramHandler = new ParameterHandler(this);
 		this.softEvidence = new Vector<SoftEvidence>();
-		PossibleWorld state = new PossibleWorld(vars);
-		sat = new SampleSAT(state, vars, db.getEntries());				
+		sat = new SampleSAT(state, vars, evidence);				
 		paramHandler.addSubhandler(sat.getParameterHandler());
 		paramHandler.add("infoInterval", "setInfoInterval");
 		paramHandler.add("verbose", "setVerbose");
@@ -117,6 +149,13 @@ public class MCSAT implements IParameterHandler {
 		return kb;
 	}
 	
+	/**
+	 * @return the current state of the sampler, i.e. the last sample that was drawn
+	 */
+	public PossibleWorld getState() {
+		return sat.getState();
+	}
+	
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
@@ -128,6 +167,14 @@ public class MCSAT implements IParameterHandler {
 	public void setInfoInterval(int interval) {
 		this.infoInterval = interval;
 	}
+	
+	/**
+	 * sets a flag which, once raised, causes run() to return the distribution obtained from the samples taken so far
+	 * @param flag
+	 */
+	public void setCancellationFlag(CancellationFlag flag) {
+		sat.setCancellationFlag(flag);
+	}
 
 	public GroundAtomDistribution run(int steps) throws Exception {
 		if(debug) {
@@ -151,7 +198,11 @@ public class MCSAT implements IParameterHandler {
 		}		
 		sat.setDebugMode(debug);
 		sat.initConstraints(M);
+		if(lazyClauseSelector != null)
+			lazyClauseSelector.hardOnly = true;
 		sat.run();
+		if(lazyClauseSelector != null)
+			lazyClauseSelector.hardOnly = false;
 		
 		// actual MC-SAT sampling
 		for(int i = 0; i < steps; i++) {
@@ -184,8 +235,12 @@ public class MCSAT implements IParameterHandler {
 						System.out.println("    " + wc);
 				}
 			}
+			Metrics.add(Metrics.MCSAT_STEPS, 1);
+			Metrics.add(Metrics.MCSAT_CONSTRAINTS, M.size());
 			sat.initConstraints(M);
 			sat.run();
+			if(sat.isCancelled()) // the state may violate some of the constraints, so it is not a valid sample
+				break;
 			
 			synchronized(dist) {
 				dist.addSample(sat.getState(), 1.0);
@@ -202,6 +257,32 @@ public class MCSAT implements IParameterHandler {
 		sat.setPSampleSAT(p);
 	}
 	
+	/**
+	 * activates ground formulas in lazy mode and decides whether they are part of the current set of constraints M.
+	 * Inactive ground formulas are satisfied by the previous sample (every formula that was ever false has been activated), 
+	 * so MC-SAT would have to add each of them to M with the usual probability. As long as an inactive formula is not about
+	 * to become false, it does not influence SampleSAT, so the decision is deferred until it is activated, which is
+	 * equivalent to deciding upfront. All newly activated formulas are added to the KB and are treated like any other formula 
+	 * in subsequent steps. While the initial state is searched, only hard formulas are added.
+	 */
+	protected class LazyClauseSelector implements IClauseActivator {
+		public boolean hardOnly = false;
+		
+		public Collection<WeightedClause> activate(GroundAtom gndAtom, PossibleWorld state) throws Exception {
+			Vector<WeightedClause> ret = new Vector<WeightedClause>();
+			for(WeightedFormula wf : lazyGrounder.activate(gndAtom, state)) {
+				kb.addFormula(wf, true);
+				Vector<WeightedClause> clauses = kb.getClauses(wf);
+				if(clauses == null)
+					continue;
+				boolean satisfy = wf.isHard || (!hardOnly && rand.nextDouble() * Math.exp(wf.weight) > 1.0);
+				if(satisfy)
+					ret.addAll(clauses);
+			}
+			return ret;
+		}
+	}
+	
 	public static class GroundAtomDistribution implements Cloneable {
 		public double[] sums;
 		public double Z;
@@ -214,6 +295,12 @@ public class MCSAT implements IParameterHandler {
 		}
 		
 		public void addSample(PossibleWorld w, double weight){
+			// the set of variables may have grown (lazy inference)
+			if(w.getVariables().size() > sums.length) {
+				double[] newSums = new double[w.getVariables().size()];
+				System.arraycopy(sums, 0, newSums, 0, sums.length);
+				sums = newSums;
+			}
 			for(GroundAtom ga : w.getVariables()){
 				if(w.isTrue(ga)){
 					sums[ga.index] += weight;
@@ -233,11 +320,15 @@ public class MCSAT implements IParameterHandler {
 		}
 		
 		public double getResult(int indx){
+			if(indx >= sums.length)
+				return 0.0;
 			return sums[indx];
 		}
 		
 		public GroundAtomDistribution clone() throws CloneNotSupportedException {
-			return (GroundAtomDistribution)super.clone();
+			GroundAtomDistribution ret = (GroundAtomDistribution)super.clone();
+			ret.sums = sums.clone(); // the clone must be normalizable without affecting the original
+			return ret;
 		}
 	}
 
@@ -18,12 +18,15 @@
  ******************************************************************************/
 package probcog.logic.sat.weighted;
 
+import java.util.Collection;
 import java.util.Vector;
 
 import probcog.logic.GroundAtom;
 import probcog.logic.PossibleWorld;
 import probcog.logic.WorldVariables;
+import probcog.logic.sat.IClauseActivator;
 import probcog.logic.sat.SampleSAT;
+import probcog.srl.AbstractVariable;
 import probcog.srl.Database;
 
 
@@ -34,9 +37,42 @@ import probcog.srl.Database;
 public class MaxWalkSAT extends SampleSAT implements IMaxSAT {
 	protected int maxSteps = 1000;
 	protected PossibleWorld bestState = null;
+	protected WeightedClausalKB wckb;
 
 	public MaxWalkSAT(WeightedClausalKB kb, PossibleWorld state, WorldVariables vars, Database db) throws Exception {
-		super(kb, state, vars, db.getEntries());
+		this(kb, state, vars, db.getEntries());
+	}
+	
+	public MaxWalkSAT(WeightedClausalKB kb, PossibleWorld state, WorldVariables vars, Iterable<? extends AbstractVariable<?>> evidence) throws Exception {
+		super(kb, state, vars, evidence);
+		this.wckb = kb;
+	}
+	
+	/**
+	 * enables lazy inference (LazySAT, Singla and Domingos 2006): the KB initially contains only the ground formulas that
+	 * are unsatisfied in the initial state, and further ground formulas are obtained from the lazy grounder as needed.
+	 * The search starts from the given state (with all non-evidence atoms false) rather than a random state. 
+	 * @param lazyGrounder
+	 */
+	public void setLazyGrounder(final ILazyGrounder lazyGrounder) {
+		setClauseActivator(new IClauseActivator() {
+			public Collection<probcog.logic.sat.weighted.WeightedClause> activate(GroundAtom gndAtom, PossibleWorld state) throws Exception {
+				Vector<probcog.logic.sat.weighted.WeightedClause> ret = new Vector<probcog.logic.sat.weighted.WeightedClause>();
+				for(WeightedFormula wf : lazyGrounder.activate(gndAtom, state)) {
+					wckb.addFormula(wf, false);
+					Vector<probcog.logic.sat.weighted.WeightedClause> clauses = wckb.getClauses(wf);
+					if(clauses != null)
+						ret.addAll(clauses);
+				}
+				return ret;
+			}
+		});
+	}
+	
+	@Override
+	protected void setRandomState() throws Exception {
+		if(clauseActivator == null)
+			super.setRandomState();
 	}
 	
 	@Override
@@ -111,6 +147,7 @@ public class MaxWalkSAT extends SampleSAT implements IMaxSAT {
 	
 	@Override
 	public void run() throws Exception {		
+		long startTime = System.nanoTime(), startFlips = numFlips;
 		initialize();		
 		
 		double bestSum = Double.MAX_VALUE;
@@ -138,11 +175,12 @@ public class MaxWalkSAT extends SampleSAT implements IMaxSAT {
 			if(printStatus)
 				System.out.printf("  step %d: %d hard constraints unsatisfied, sum of unsatisfied weights: %f, best: %f (%d) %s\n", step, hardMissing, unsatisfiedSum, bestSum, bestHardMissing, newBest ? "[NEW BEST]" : "");
 			
-			if(unsatisfiedSum == 0)
+			if(unsatisfiedSum == 0 || isCancelled())
 				break;
 			
 			makeMove();
 		}
+		reportMetrics(startTime, startFlips);
 		System.out.printf("solution quality: sum of unsatisfied constraints: %f, hard constraints unsatisfied: %d\n", bestSum, bestHardMissing);
 		
 		PossibleWorld bestState = this.getBestState();
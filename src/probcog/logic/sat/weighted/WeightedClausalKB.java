@@ -153,4 +153,13 @@ public class WeightedClausalKB implements Iterable<WeightedClause> {
     public Set<Entry<WeightedFormula,Vector<WeightedClause>>> getFormulasAndClauses() {
         return formula2clauses.entrySet();
     }
+    
+    /**
+     * gets the clauses that the given formula (which was previously added to this KB) was converted to
+     * @param wf
+     * @return the list of clauses or null if the formula was reduced to no clauses at all
+     */
+    public Vector<WeightedClause> getClauses(WeightedFormula wf) {
+    	return formula2clauses.get(wf);
+    }
 }
@@ -22,10 +22,15 @@ package probcog.service;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 import java.util.Map.Entry;
 
+import probcog.bayesnets.inference.IResultsListener;
+import probcog.bayesnets.inference.SampledDistribution;
+import probcog.inference.BasicSampledDistribution.ConfidenceInterval;
 import probcog.logic.parser.ParseException;
 import probcog.srl.Database;
 import probcog.srl.Signature;
@@ -45,8 +50,6 @@ import edu.tum.cs.util.datastruct.Pair;
 public class BLNModel extends Model {
 
 	protected BayesianLogicNetwork bln;
-	protected GroundBLN gbln;
-	protected Database db;
 	protected String filenames;
 	
 	public BLNModel(String modelName, String blogFile, String networkFile, String logicFile) throws IOException, ParseException, Exception {
@@ -56,76 +59,184 @@ public class BLNModel extends Model {
 	}
 	
 	@Override
-	public void instantiate() throws Exception {
-		gbln = bln.ground(db);
-		paramHandler.addSubhandler(gbln);
-		gbln.instantiateGroundNetwork();
+	public ModelSession createSession(Map<String, Object> params) throws Exception {
+		return new Session(params);
 	}
 	
-	@Override
-	public void beginSession(Map<String, Object> params) throws Exception {
-		super.beginSession(params);
-		db = new Database(bln.rbn);
-		paramHandler.addSubhandler(db);
+	/**
+	 * gets the functions whose evidence affects the structure of the ground network, i.e. logical functions and
+	 * functions that are used in preconditions
+	 * @param params the session parameters
+	 * @return the set of function names or null if all evidence affects the ground network (because the 
+	 *         ground formulas are simplified using the evidence)
+	 */
+	protected Set<String> getStructuralFunctions(Map<String, Object> params) {
+		Object simplify = params.get("simplifyFormulas");
+		if(simplify != null && Boolean.parseBoolean(simplify.toString()))
+			return null;
+		HashSet<String> ret = new HashSet<String>();
+		for(Signature sig : bln.rbn.getSignatures())
+			if(sig.isLogical)
+				ret.add(sig.functionName);
+		for(RelationalNode node : bln.rbn.getRelationalNodes())
+			if(node.isPrecondition)
+				ret.add(node.getFunctionName());
+		return ret;
 	}
-
-	@Override
-	protected Vector<InferenceResult> _infer(Iterable<String> queries) throws Exception {		
-		BLNinfer inference = new BLNinfer(actualParams);
-		paramHandler.addSubhandler(inference);		
-		inference.setGroundBLN(gbln);
-		inference.setQueries(queries);
-		Collection<probcog.srl.directed.inference.InferenceResult> results = inference.run();
+	
+	/**
+	 * a session in which a request is processed using a ground BLN
+	 */
+	protected class Session extends ModelSession {
+		protected Database db;
+		protected GroundBLN gbln;
+		/**
+		 * the key under which the ground network is to be returned to the cache (null if it is not to be cached)
+		 */
+		protected String groundingKey;
 		
-		// store results in common InferenceResult format
-		Vector<InferenceResult> ret = new Vector<InferenceResult>();
-		for(probcog.srl.directed.inference.InferenceResult res : results) {
-			 Pair<String, String[]> var = RelationalNode.parse(res.varName);
-			 Signature sig = bln.rbn.getSignature(var.first);
-			 String[] params = var.second;
-			 boolean isBool = sig.isBoolean();
-			 if(!isBool) {
-				 String[] fullParams = new String[params.length+1];
-				 for(int i = 0; i < params.length; i++)
-					 fullParams[i] = params[i];
-				 params = fullParams;
-			 }
-			 for(int i = 0; i < res.domainElements.length; i++) {
-				 if(!isBool) 
-					 params[params.length-1] = res.domainElements[i];					 
-				 else
-					 if(!res.domainElements[i].equalsIgnoreCase("True"))
-						 continue;
-				 ret.add(new InferenceResult(var.first, params.clone(), res.probabilities[i]));
-			 }
+		public Session(Map<String, Object> params) throws Exception {
+			super(BLNModel.this, params);
+			db = new Database(bln.rbn);
+			paramHandler.addSubhandler(db);
 		}
-		return ret;
-	}
-
-	@Override
-	protected void _setEvidence(Iterable<String[]> evidence) throws Exception {
-		for(String[] tuple : evidence) {
-			String functionName = tuple[0];
-			Signature sig = bln.rbn.getSignature(functionName);
-			if(sig == null)
-				throw new Exception("Function '" + functionName + "' appearing in evidence not found in model " + name);
-			String value;
-			String[] params;
-			if(sig.argTypes.length == tuple.length-1) {
-				params = new String[tuple.length-1];
-				for(int i = 0; i < params.length; i++)
-					params[i] = tuple[i+1];
-				value = "True";
+		
+		@Override
+		public void instantiate() throws Exception {
+			releaseGroundModel();
+			// reuse a cached ground network if there is one for the same domains and structural evidence
+			groundingKey = getGroundingKey(db, params, getStructuralFunctions(params));
+			GroundBLN cached = null;
+			if(groundingKey != null)
+				cached = (GroundBLN)groundModelCache.get(groundingKey);
+			if(cached != null) {
+				gbln = cached;
+				gbln.setDatabase(db);
+				paramHandler.addSubhandler(gbln);
 			}
-			else {
-				if(tuple.length < sig.argTypes.length+2)
-					throw new Exception("Evidence entry has too few parameters: " + StringTool.join(", ", tuple));
-				params = new String[sig.argTypes.length];
-				for(int i = 0; i < params.length; i++)
-					params[i] = tuple[i+1];
-				value = tuple[params.length+1];
+			// otherwise update a cached ground network that was instantiated for different evidence (unless disabled via parameter "incrementalGrounding")
+			else if(groundingKey != null && isIncrementalGroundingEnabled()) {
+				gbln = (GroundBLN)groundModelCache.getByPrefix(getGroundingKeyPrefix(params));
+				if(gbln != null) {
+					paramHandler.addSubhandler(gbln);
+					try {
+						gbln.updateGroundNetwork(db);
+					}
+					catch(Exception e) { // the ground network may be inconsistent, so discard it and instantiate it from scratch
+						paramHandler.removeSubhandler(gbln);
+						gbln = null;
+					}
+				}
 			}
-			db.addVariable(new Variable(functionName, params, value, this.bln.rbn));
+			if(gbln == null) {
+				gbln = bln.ground(db);
+				paramHandler.addSubhandler(gbln);
+				gbln.instantiateGroundNetwork();
+			}
+		}
+		
+		protected boolean isIncrementalGroundingEnabled() {
+			Object incremental = params.get("incrementalGrounding");
+			return incremental == null || Boolean.parseBoolean(incremental.toString());
+		}
+		
+		protected void releaseGroundModel() {
+			if(gbln == null)
+				return;
+			paramHandler.removeSubhandler(gbln);
+			if(groundingKey != null)
+				groundModelCache.put(groundingKey, gbln, gbln.getEstimatedMemoryUsage());
+			gbln = null;
+		}
+		
+		@Override
+		public void close() {
+			releaseGroundModel();
+		}
+	
+		@Override
+		protected Vector<InferenceResult> _infer(Iterable<String> queries) throws Exception {		
+			// for partial results, compute confidence intervals unless a confidence level was explicitly given
+			if(partialResultsListener != null && !params.containsKey("confidenceLevel"))
+				params.put("confidenceLevel", 0.95);
+			final BLNinfer inference = new BLNinfer(params);
+			paramHandler.addSubhandler(inference);		
+			inference.setGroundBLN(gbln);
+			inference.setQueries(queries);
+			if(partialResultsListener != null) {
+				inference.addResultsListener(new IResultsListener() {
+					public void onResults(SampledDistribution dist, double elapsedTime) throws Exception {
+						Vector<InferenceResult> results = mapResults(convertResults(inference.getResults(dist)));
+						partialResultsListener.onPartialResults(results, dist.steps, elapsedTime);
+					}
+				});
+			}
+			return convertResults(inference.run());
+		}
+		
+		/**
+		 * converts BLN inference results to the common InferenceResult format
+		 * @param results
+		 * @return
+		 */
+		protected Vector<InferenceResult> convertResults(Collection<probcog.srl.directed.inference.InferenceResult> results) {
+			Vector<InferenceResult> ret = new Vector<InferenceResult>();
+			for(probcog.srl.directed.inference.InferenceResult res : results) {
+				 Pair<String, String[]> var = RelationalNode.parse(res.varName);
+				 Signature sig = bln.rbn.getSignature(var.first);
+				 String[] params = var.second;
+				 boolean isBool = sig.isBoolean();
+				 if(!isBool) {
+					 String[] fullParams = new String[params.length+1];
+					 for(int i = 0; i < params.length; i++)
+						 fullParams[i] = params[i];
+					 params = fullParams;
+				 }
+				 for(int i = 0; i < res.domainElements.length; i++) {
+					 if(!isBool) 
+						 params[params.length-1] = res.domainElements[i];					 
+					 else
+						 if(!res.domainElements[i].equalsIgnoreCase("True"))
+							 continue;
+					 InferenceResult r = new InferenceResult(var.first, params.clone(), res.probabilities[i]);
+					 if(res.additionalInfo != null && res.additionalInfo[i] instanceof ConfidenceInterval)
+						 r.confidenceIntervalWidth = ((ConfidenceInterval)res.additionalInfo[i]).getSize();
+					 ret.add(r);
+				 }
+			}
+			return ret;
+		}
+	
+		@Override
+		protected void _setEvidence(Iterable<String[]> evidence) throws Exception {
+			for(String[] tuple : evidence) {
+				String functionName = tuple[0];
+				Signature sig = bln.rbn.getSignature(functionName);
+				if(sig == null)
+					throw new Exception("Function '" + functionName + "' appearing in evidence not found in model " + name);
+				String value;
+				String[] params;
+				if(sig.argTypes.length == tuple.length-1) {
+					params = new String[tuple.length-1];
+					for(int i = 0; i < params.length; i++)
+						params[i] = tuple[i+1];
+					value = "True";
+				}
+				else {
+					if(tuple.length < sig.argTypes.length+2)
+						throw new Exception("Evidence entry has too few parameters: " + StringTool.join(", ", tuple));
+					params = new String[sig.argTypes.length];
+					for(int i = 0; i < params.length; i++)
+						params[i] = tuple[i+1];
+					value = tuple[params.length+1];
+				}
+				db.addVariable(new Variable(functionName, params, value, bln.rbn));
+			}
+		}
+	
+		@Override
+		public String getConstantType(String constant) {
+			return db.getConstantType(constant);
 		}
 	}
 
@@ -150,11 +261,6 @@ public class BLNModel extends Model {
 		}
 		return ret;
 	}
-
-	@Override
-	protected String _getConstantType(String constant) {
-		return db.getConstantType(constant);
-	}
     
     @Override
     public String toString() {
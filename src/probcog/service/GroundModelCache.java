@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of ground models, which is shared by the models of a model pool.
+ * Ground models are stored under a key that identifies everything the grounding depends on (the model, the domains and
+ * any evidence that determines the structure of the ground model), such that a cached ground model can be reused
+ * for a request by rebinding the evidence.
+ * Since ground models are not thread-safe, a ground model is removed from the cache while it is in use.
+ * Entries are evicted when the number of entries or their total estimated size exceeds the limits, or
+ * when the JVM's free memory falls below a given fraction of the maximum heap size.
+ * @author agent
+ */
+public class GroundModelCache {
+
+	protected LinkedHashMap<String, Entry> entries;
+	protected int maxEntries;
+	protected long maxSize;
+	/**
+	 * the minimum fraction of the maximum heap size that is to remain available; entries are evicted if less memory is available
+	 */
+	protected double minFreeMemory = 0.1;
+	protected long size = 0;
+	protected long hits = 0, misses = 0, evictions = 0, partialHits = 0;
+
+	/**
+	 * creates a cache with a maximum of 16 entries whose total estimated size may not exceed a quarter of the maximum heap size
+	 */
+	public GroundModelCache() {
+		this(16, Runtime.getRuntime().maxMemory() / 4);
+	}
+
+	/**
+	 * @param maxEntries the maximum number of ground models to keep (0 to disable caching)
+	 * @param maxSize the maximum total estimated size (in bytes) of the ground models to keep
+	 */
+	public GroundModelCache(int maxEntries, long maxSize) {
+		this.maxEntries = maxEntries;
+		this.maxSize = maxSize;
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * takes a ground model out of the cache, such that the caller has exclusive use of it;
+	 * once the caller is done with it, it should be returned to the cache using {@link #put(String, Object, long)}
+	 * @param key
+	 * @return the ground model or null if no model is cached under the given key
+	 */
+	public synchronized Object get(String key) {
+		Entry e = entries.remove(key);
+		if(e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		size -= e.size;
+		return e.groundModel;
+	}
+
+	/**
+	 * takes the most recently used ground model whose key starts with the given prefix out of the cache (like {@link #get(String)}), 
+	 * e.g. a ground model of the same model that was instantiated for different evidence, which can be updated rather than instantiated anew
+	 * @param keyPrefix
+	 * @return the ground model or null if there is no model whose key starts with the prefix
+	 */
+	public synchronized Object getByPrefix(String keyPrefix) {
+		String key = null;
+		for(String k : entries.keySet())
+			if(k.startsWith(keyPrefix))
+				key = k;
+		if(key == null)
+			return null;
+		partialHits++;
+		Entry e = entries.remove(key);
+		size -= e.size;
+		return e.groundModel;
+	}
+	
+	/**
+	 * adds a ground model to the cache, evicting the least recently used entries as necessary
+	 * @param key
+	 * @param groundModel
+	 * @param estimatedSize the estimated size of the ground model in bytes
+	 */
+	public synchronized void put(String key, Object groundModel, long estimatedSize) {
+		Entry prev = entries.remove(key);
+		if(prev != null)
+			size -= prev.size;
+		if(maxEntries <= 0 || estimatedSize > maxSize)
+			return;
+		entries.put(key, new Entry(groundModel, estimatedSize));
+		size += estimatedSize;
+		evict();
+	}
+
+	protected void evict() {
+		Iterator<Map.Entry<String, Entry>> i = entries.entrySet().iterator();
+		while(i.hasNext() && (entries.size() > maxEntries || size > maxSize || isMemoryLow())) {
+			size -= i.next().getValue().size;
+			i.remove();
+			evictions++;
+		}
+	}
+
+	protected boolean isMemoryLow() {
+		Runtime rt = Runtime.getRuntime();
+		long available = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+		return available < minFreeMemory * rt.maxMemory();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	public synchronized void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+		evict();
+	}
+
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	public synchronized void setMinFreeMemory(double fraction) {
+		this.minFreeMemory = fraction;
+	}
+
+	public synchronized int getNumEntries() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the total estimated size of the cached ground models in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	
+	/**
+	 * @return the number of ground models that were obtained via {@link #getByPrefix(String)}
+	 */
+	public synchronized long getPartialHits() {
+		return partialHits;
+	}
+
+	public synchronized String toString() {
+		return String.format("GroundModelCache[%d entries, ~%d KB, %d hits, %d partial hits, %d misses, %d evictions]", entries.size(), size / 1024, hits, partialHits, misses, evictions);
+	}
+
+	protected static class Entry {
+		public Object groundModel;
+		public long size;
+
+		public Entry(Object groundModel, long size) {
+			this.groundModel = groundModel;
+			this.size = size;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.service;
+
+import java.util.Vector;
+
+/**
+ * Interface for receivers of partial results, which are provided during time-limited (anytime) inference
+ * before the final results are available.
+ * @author agent
+ */
+public interface IPartialResultsListener {
+	/**
+	 * is called whenever new partial results are available
+	 * @param results the current results (with constants already mapped)
+	 * @param numSamples the number of samples the results are based on
+	 * @param elapsedTime the number of seconds since inference was started
+	 * @throws Exception
+	 */
+	public void onPartialResults(Vector<InferenceResult> results, int numSamples, double elapsedTime) throws Exception;
+}
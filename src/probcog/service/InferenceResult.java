@@ -31,6 +31,10 @@ public class InferenceResult implements Comparable<InferenceResult> {
 	public String functionName;
 	public String[] params;
 	public double probability;
+	/**
+	 * the size of the confidence interval for the probability (NaN if not available)
+	 */
+	public double confidenceIntervalWidth = Double.NaN;
 	
 	public InferenceResult(String functionName, String[] params, double p) {
 		this.functionName = functionName;
@@ -38,60 +38,15 @@ import probcog.srl.mln.inference.MCSAT;
 public class MLNModel extends Model {
 
 	protected MarkovLogicNetwork mln;
-	protected Database db;
-	protected MarkovRandomField mrf;
 	
 	public MLNModel(String name, String mln) throws Exception {
 		super(name);
 		this.mln = new MarkovLogicNetwork(mln);
 	}
-
-	@Override
-	protected String _getConstantType(String constant) {
-		return db.getConstantType(constant);
-	}
 	
 	@Override
-	public void beginSession(Map<String, Object> params) throws Exception {
-		super.beginSession(params);
-		db = new Database(mln);
-	}
-
-	@Override
-	protected Vector<InferenceResult> _infer(Iterable<String> queries) throws Exception {
-		InferenceAlgorithm ia = new MCSAT(mrf);
-		paramHandler.addSubhandler(ia);
-		Vector<InferenceResult> res = new Vector<InferenceResult>();
-		for(probcog.srl.mln.inference.InferenceResult r : ia.infer(queries)) {
-			InferenceResult r2 = new InferenceResult(r.ga.predicate, r.ga.args, r.value);
-			res.add(r2);
-		}
-		return res;
-	}
-
-	@Override
-	protected void _setEvidence(Iterable<String[]> evidence) throws Exception {
-		for(String[] tuple : evidence) {
-			String functionName = tuple[0];
-			Signature sig = mln.getSignature(functionName);
-			if(sig == null)
-				throw new Exception("Function '" + functionName + "' appearing in evidence not found in model " + name);
-			String value;
-			String[] params;
-			if(sig.argTypes.length == tuple.length-1) {
-				params = new String[tuple.length-1];
-				for(int i = 0; i < params.length; i++)
-					params[i] = tuple[i+1];
-				value = BooleanDomain.True;
-			}
-			else {
-				params = new String[tuple.length-2];
-				for(int i = 0; i < params.length; i++)
-					params[i] = tuple[i+1];
-				value = BooleanDomain.getStandardValue(tuple[tuple.length-1]);				
-			}
-			db.addVariable(new Variable(functionName, params, value, mln));
-		}
+	public ModelSession createSession(Map<String, Object> params) throws Exception {
+		return new Session(params);
 	}
 
 	@Override
@@ -103,9 +58,97 @@ public class MLNModel extends Model {
 	public Vector<String[]> getPredicates() {		
 		return getPredicatesFromSignatures(mln.getSignatures());
 	}
+	
+	/**
+	 * a session in which a request is processed using a ground MRF
+	 */
+	protected class Session extends ModelSession {
+		protected Database db;
+		protected MarkovRandomField mrf;
+		/**
+		 * the key under which the MRF is to be returned to the cache (null if it is not to be cached)
+		 */
+		protected String groundingKey;
+		
+		public Session(Map<String, Object> params) throws Exception {
+			super(MLNModel.this, params);
+			db = new Database(mln);
+		}
 
-	@Override
-	public void instantiate() throws Exception {
-		mrf = mln.ground(db);		
+		@Override
+		public String getConstantType(String constant) {
+			return db.getConstantType(constant);
+		}
+	
+		@Override
+		protected Vector<InferenceResult> _infer(Iterable<String> queries) throws Exception {
+			InferenceAlgorithm ia = new MCSAT(mrf);
+			paramHandler.addSubhandler(ia);
+			Vector<InferenceResult> res = new Vector<InferenceResult>();
+			for(probcog.srl.mln.inference.InferenceResult r : ia.infer(queries)) {
+				InferenceResult r2 = new InferenceResult(r.ga.predicate, r.ga.args, r.value);
+				res.add(r2);
+			}
+			return res;
+		}
+	
+		@Override
+		protected void _setEvidence(Iterable<String[]> evidence) throws Exception {
+			for(String[] tuple : evidence) {
+				String functionName = tuple[0];
+				Signature sig = mln.getSignature(functionName);
+				if(sig == null)
+					throw new Exception("Function '" + functionName + "' appearing in evidence not found in model " + name);
+				String value;
+				String[] params;
+				if(sig.argTypes.length == tuple.length-1) {
+					params = new String[tuple.length-1];
+					for(int i = 0; i < params.length; i++)
+						params[i] = tuple[i+1];
+					value = BooleanDomain.True;
+				}
+				else {
+					params = new String[tuple.length-2];
+					for(int i = 0; i < params.length; i++)
+						params[i] = tuple[i+1];
+					value = BooleanDomain.getStandardValue(tuple[tuple.length-1]);				
+				}
+				db.addVariable(new Variable(functionName, params, value, mln));
+			}
+		}
+	
+		@Override
+		public void instantiate() throws Exception {
+			instantiate(null);
+		}
+		
+		/**
+		 * instantiates the ground MRF, grounding only the part that is relevant to the queries (if any are given)
+		 */
+		@Override
+		public void instantiate(Iterable<String> queries) throws Exception {
+			close();
+			// ground formulas are simplified using the evidence, so a cached MRF can only be reused for the very same evidence (and queries)
+			groundingKey = getGroundingKey(db, params, null);
+			if(groundingKey != null && queries != null) {
+				StringBuilder key = new StringBuilder(groundingKey).append("|queries");
+				for(String query : queries)
+					key.append('|').append(query);
+				groundingKey = key.toString();
+			}
+			if(groundingKey != null)
+				mrf = (MarkovRandomField)groundModelCache.get(groundingKey);
+			if(mrf == null)
+				mrf = queries == null ? mln.ground(db) : mln.ground(db, queries);
+		}
+		
+		@Override
+		public void close() {
+			if(mrf == null)
+				return;
+			if(groundingKey != null)
+				groundModelCache.put(groundingKey, mrf, mrf.getEstimatedMemoryUsage());
+			mrf = null;
+		}
 	}
 }
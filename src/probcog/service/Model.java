@@ -18,21 +18,27 @@
  ******************************************************************************/
 package probcog.service;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.Vector;
 import java.util.Map.Entry;
 
-import probcog.inference.IParameterHandler;
-import probcog.inference.ParameterHandler;
+import probcog.srl.Database;
 import probcog.srl.Signature;
+import probcog.srl.Variable;
 
 /**
  * Abstract base class for models that can be used in the ProbCog service.
+ * A model is not modified by the processing of requests; all request-specific state is held by
+ * {@link ModelSession} objects, such that requests can be processed concurrently.
  * @author Dominik Jain
  */
-public abstract class Model implements IParameterHandler {
+public abstract class Model {
 	/**
 	 * default parameters to be used with this model
 	 */
@@ -49,27 +55,30 @@ public abstract class Model implements IParameterHandler {
 	 * name of the model
 	 */
 	protected String name;
-	protected ParameterHandler paramHandler;
-	protected HashMap<String, Object> actualParams;
+	/**
+	 * the session used by the single-session interface (beginSession, setEvidence, instantiate, infer)
+	 */
+	protected ModelSession session = null;
 	protected boolean haveSession = false;
+	/**
+	 * cache of ground models (null if ground models are not to be cached)
+	 */
+	protected GroundModelCache groundModelCache = null;
 	
 	public Model(String name) throws Exception {
 		defaultParameters = new HashMap<String,Object>();
 		this.name = name;
 		constantMapFromProbCog = null;
-		paramHandler = new ParameterHandler(this);
 	}
 	
-	protected abstract void _setEvidence(Iterable<String[]> evidence) throws Exception;
-	public abstract void instantiate() throws Exception;
-	
 	/**
-	 * runs the actual inference method, without mapping constants  
-	 * @param queries
+	 * creates a new session for the processing of a request; sessions are independent of each other and may be used concurrently
+	 * @param params parameters for the session, which override the model's default parameters (may be null)
 	 * @return
 	 * @throws Exception
 	 */
-	protected abstract java.util.Vector<InferenceResult> _infer(Iterable<String> queries) throws Exception;
+	public abstract ModelSession createSession(Map<String, Object> params) throws Exception;
+	
 	public abstract Vector<String[]> getDomains();
 
 	public abstract Vector<String[]> getPredicates();
@@ -93,49 +102,28 @@ public abstract class Model implements IParameterHandler {
 		return ret;
 	}
 	
-	public void beginSession(Map<String, Object> params) throws Exception {
-		actualParams = new HashMap<String, Object>(defaultParameters);
-		if(params != null)
-			actualParams.putAll(params);
-		paramHandler.handle(actualParams, false);
+	public synchronized void beginSession(Map<String, Object> params) throws Exception {
+		if(session != null)
+			session.close();
+		session = createSession(params);
 	}
 	
 	public void beginSession() throws Exception {
 		beginSession(null);
 	}
 	
-	public void setEvidence(Iterable<String[]> evidence) throws Exception {
+	public synchronized void setEvidence(Iterable<String[]> evidence) throws Exception {
 		if(haveSession == false)
 			beginSession();
-		// map constants, filtering evidence where constants are mapped to null
-		Vector<String[]> newEvidence = new Vector<String[]>();
-		for(String[] s : evidence) {
-			boolean keep = true;
-			for(int i = 1; i < s.length; i++) {
-				s[i] = this.mapConstantToProbCog(s[i]);
-				if(s[i] == null) {
-					keep = false;
-					break;
-				}
-			}
-			if(keep)
-				newEvidence.add(s);
-		}
-		// actually set the evidence
-		_setEvidence(newEvidence);
-	}
-	
-	public java.util.Vector<InferenceResult> infer(Iterable<String> queries) throws Exception {
-		// run inference
-		Vector<InferenceResult> actualResults = _infer(queries);
-		// map results and return
-		Vector<InferenceResult> mappedResults = new Vector<InferenceResult>(); 
-		for(InferenceResult r : actualResults) {
-			if(!r.mapConstants(this))
-				continue;
-			mappedResults.add(r);
-		}
-		return mappedResults;
+		session.setEvidence(evidence);
+	}
+	
+	public synchronized void instantiate() throws Exception {
+		session.instantiate();
+	}
+	
+	public synchronized java.util.Vector<InferenceResult> infer(Iterable<String> queries) throws Exception {
+		return session.infer(queries);
 	}
 	
 	/**
@@ -200,20 +188,69 @@ public abstract class Model implements IParameterHandler {
 	 * @param constant
 	 * @return the type name of the constant or null if the constant is unknown (or mapped to nothing in ProbCog)
 	 */
-	public String getConstantType(String constant) {
+	public synchronized String getConstantType(String constant) throws Exception {
 		constant = mapConstantToProbCog(constant);
 		if(constant == null)
 			return null;
-		return _getConstantType(constant);
+		if(session == null)
+			beginSession();
+		return session.getConstantType(constant);
+	}
+	
+	/**
+	 * sets the cache in which to store ground models for reuse in subsequent sessions
+	 * @param cache the cache or null to disable caching
+	 */
+	public void setGroundModelCache(GroundModelCache cache) {
+		this.groundModelCache = cache;
+	}
+	
+	/**
+	 * computes the key under which the ground model for the given database is cached, which comprises
+	 * the model name, the session parameters, the domains and the evidence that determines the structure of the ground model 
+	 * @param db the evidence database
+	 * @param params the session parameters
+	 * @param structuralFunctions the functions whose evidence affects the structure of the ground model (null if all evidence does) 
+	 * @return the key or null if the ground model cannot be cached
+	 * @throws Exception
+	 */
+	protected String getGroundingKey(Database db, Map<String, Object> params, Set<String> structuralFunctions) throws Exception {
+		if(groundModelCache == null)
+			return null;
+		db.finalize();
+		StringBuilder key = new StringBuilder(getGroundingKeyPrefix(params));
+		// domains of all argument types (taking into account sub-types)
+		TreeSet<String> types = new TreeSet<String>();
+		for(Signature sig : db.getModel().getSignatures())
+			for(String type : sig.argTypes)
+				types.add(type);
+		for(String type : types) {
+			TreeSet<String> elems = new TreeSet<String>();
+			Iterable<String> dom = db.getDomain(type);
+			if(dom != null)
+				for(String elem : dom)
+					elems.add(elem);
+			key.append(type).append(elems).append('|');
+		}
+		Vector<String> evidence = new Vector<String>();
+		for(Variable var : db.getEntries())
+			if(structuralFunctions == null || structuralFunctions.contains(var.functionName))
+				evidence.add(var.toString());
+		String[] ev = evidence.toArray(new String[evidence.size()]);
+		Arrays.sort(ev);
+		key.append(Arrays.toString(ev));
+		return key.toString();
 	}
 	
-	protected abstract String _getConstantType(String constant);
+	/**
+	 * @param params the session parameters
+	 * @return the prefix shared by the keys of all ground models of this model that were instantiated with the given parameters (see {@link #getGroundingKey(Database, Map, Set)})
+	 */
+	protected String getGroundingKeyPrefix(Map<String, Object> params) {
+		return name + '|' + new TreeMap<String, Object>(params) + '|';
+	}
 	
 	public String getName() {
 		return name;
 	}
-	
-	public ParameterHandler getParameterHandler() {
-		return paramHandler;
-	}
 }
@@ -39,9 +39,14 @@ import probcog.logic.parser.ParseException;
 public class ModelPool {
 	protected HashMap<String, Model> pool;
 	protected File poolPath;
+	/**
+	 * cache of ground models shared by all models in the pool
+	 */
+	protected GroundModelCache groundModelCache;
 	
 	public ModelPool(String poolFilename) throws IOException, ParseException, Exception {
 		pool = new HashMap<String, Model>();
+		groundModelCache = new GroundModelCache();
 		
 		File poolFile = new File(poolFilename);
 		poolPath = poolFile.getParentFile();
@@ -55,6 +60,13 @@ public class ModelPool {
 		return pool.get(name);
 	}
 	
+	/**
+	 * @return the cache of ground models that is used by the models in this pool
+	 */
+	public GroundModelCache getGroundModelCache() {
+		return groundModelCache;
+	}
+	
 	/**
 	 * Reader for XML-based format for pools of models 
 	 */
@@ -103,6 +115,7 @@ public class ModelPool {
 				else
 					throw new Exception(String.format("Unknown model type '%s'", type));
 				m.setConstantMap(constantMap);
+				m.setGroundModelCache(groundModelCache);
 				return m;
 			}
 		}
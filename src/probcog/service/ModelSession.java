@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import probcog.inference.IParameterHandler;
+import probcog.inference.ParameterHandler;
+
+/**
+ * A session in which a single request is processed using a model, i.e. evidence is set, the model is
+ * instantiated and inference is run. All request-specific state (parameters, evidence database, ground model)
+ * is held by the session, while the model itself is not modified, such that any number of sessions
+ * can be processed concurrently for the same model.
+ * @author agent
+ */
+public abstract class ModelSession implements IParameterHandler {
+	protected Model model;
+	/**
+	 * the parameters of this session (the model's default parameters, overridden by the parameters given for the session)
+	 */
+	protected HashMap<String, Object> params;
+	protected ParameterHandler paramHandler;
+	protected IPartialResultsListener partialResultsListener = null;
+
+	public ModelSession(Model model, Map<String, Object> params) throws Exception {
+		this.model = model;
+		this.params = new HashMap<String, Object>(model.defaultParameters);
+		if(params != null)
+			this.params.putAll(params);
+		paramHandler = new ParameterHandler(this);
+		paramHandler.handle(this.params, false);
+	}
+
+	/**
+	 * adds evidence, mapping external constants to ProbCog constants
+	 * @param evidence a collection of arrays, where each array contains a predicate/function name followed by some arguments and finally the value. For a Boolean function, the value can be omitted (True is default).
+	 * @throws Exception
+	 */
+	public void setEvidence(Iterable<String[]> evidence) throws Exception {
+		// map constants, filtering evidence where constants are mapped to null
+		Vector<String[]> newEvidence = new Vector<String[]>();
+		for(String[] s : evidence) {
+			String[] t = s.clone();
+			boolean keep = true;
+			for(int i = 1; i < t.length; i++) {
+				t[i] = model.mapConstantToProbCog(t[i]);
+				if(t[i] == null) {
+					keep = false;
+					break;
+				}
+			}
+			if(keep)
+				newEvidence.add(t);
+		}
+		// actually set the evidence
+		_setEvidence(newEvidence);
+	}
+
+	protected abstract void _setEvidence(Iterable<String[]> evidence) throws Exception;
+
+	/**
+	 * instantiates the ground model for the evidence that was set
+	 * @throws Exception
+	 */
+	public abstract void instantiate() throws Exception;
+
+	/**
+	 * instantiates the ground model for the evidence that was set, such that it is sufficient to answer the given queries;
+	 * models may instantiate only the part of the ground model that is relevant to the queries
+	 * @param queries
+	 * @throws Exception
+	 */
+	public void instantiate(Iterable<String> queries) throws Exception {
+		instantiate();
+	}
+
+	/**
+	 * runs inference on the ground model
+	 * @param queries
+	 * @return the inference results with constants already mapped
+	 * @throws Exception
+	 */
+	public Vector<InferenceResult> infer(Iterable<String> queries) throws Exception {
+		return mapResults(_infer(queries));
+	}
+
+	/**
+	 * sets a listener that is to receive partial results during time-limited inference (parameter "timeLimit");
+	 * partial results are provided after "firstResultsTime" seconds and every "resultsInterval" seconds thereafter.
+	 * Models that do not support anytime inference provide only the final results.
+	 * @param l
+	 */
+	public void setPartialResultsListener(IPartialResultsListener l) {
+		partialResultsListener = l;
+	}
+
+	/**
+	 * maps the constants in a set of results (that were computed by the actual inference method)
+	 * @param results
+	 * @return the results that do not contain any constants that are mapped to nothing
+	 */
+	protected Vector<InferenceResult> mapResults(Vector<InferenceResult> results) {
+		Vector<InferenceResult> mappedResults = new Vector<InferenceResult>();
+		for(InferenceResult r : results) {
+			if(!r.mapConstants(model))
+				continue;
+			mappedResults.add(r);
+		}
+		return mappedResults;
+	}
+
+	/**
+	 * runs the actual inference method, without mapping constants
+	 * @param queries
+	 * @return
+	 * @throws Exception
+	 */
+	protected abstract Vector<InferenceResult> _infer(Iterable<String> queries) throws Exception;
+
+	/**
+	 * gets the type of a given ProbCog constant
+	 * @param constant
+	 * @return the type name or null if the constant is unknown
+	 */
+	public abstract String getConstantType(String constant);
+
+	/**
+	 * ends the session, releasing the ground model (which is returned to the model's cache, if any)
+	 * @throws Exception
+	 */
+	public abstract void close() throws Exception;
+
+	public Model getModel() {
+		return model;
+	}
+
+	public Map<String, Object> getParameters() {
+		return params;
+	}
+
+	public ParameterHandler getParameterHandler() {
+		return paramHandler;
+	}
+}
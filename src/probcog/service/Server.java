@@ -24,24 +24,86 @@ import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import probcog.inference.Metrics;
 import probcog.logic.parser.ParseException;
 
 
 /**
  * Serves a pool of models (base class for specialized server interfaces);
- * the implementation here uses a dummy command pipe interface
+ * the implementation here uses a dummy command pipe interface.
+ * Queries are processed in independent model sessions and may be issued concurrently; the number of queries
+ * that are processed concurrently for any one model is limited. 
  * @author Dominik Jain
  */
 public class Server {
 	ModelPool modelPool; 
+	/**
+	 * executor for queries that are submitted asynchronously
+	 */
+	protected ThreadPoolExecutor executor;
+	/**
+	 * maps model names to the semaphores limiting the number of concurrent queries for the respective model
+	 */
+	protected HashMap<String, Semaphore> modelPermits = new HashMap<String, Semaphore>();
+	protected int maxConcurrentQueriesPerModel;
+	protected boolean verbose = true;
 	
 	public Server(String modelPoolFile) throws IOException, ParseException, Exception {
+		this(modelPoolFile, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * @param modelPoolFile
+	 * @param numThreads the number of threads with which to process asynchronously submitted queries (which is also the default limit for the number of concurrent queries per model)
+	 * @throws Exception
+	 */
+	public Server(String modelPoolFile, int numThreads) throws Exception {
 		modelPool = new ModelPool(modelPoolFile);
+		maxConcurrentQueriesPerModel = numThreads;
+		// bounded queue; if it is full, the submitting thread processes the query itself
+		executor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(16 * numThreads), new ThreadPoolExecutor.CallerRunsPolicy());
+		// make inference metrics available to monitoring tools
+		Metrics.registerMBean();
+	}
+	
+	/**
+	 * sets the maximum number of queries that are processed concurrently for any one model (applies to models that have not yet been queried)
+	 * @param n
+	 */
+	public synchronized void setMaxConcurrentQueriesPerModel(int n) {
+		maxConcurrentQueriesPerModel = n;
+	}
+	
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+	
+	protected synchronized Semaphore getPermits(String modelName) {
+		Semaphore s = modelPermits.get(modelName);
+		if(s == null)
+			modelPermits.put(modelName, s = new Semaphore(maxConcurrentQueriesPerModel, true));
+		return s;
+	}
+	
+	/**
+	 * stops the processing of asynchronously submitted queries (queries that were already submitted are still processed)
+	 */
+	public void shutdown() {
+		executor.shutdown();
 	}
 	
 	protected static Vector<String[]> readListOfLispTuples(String s) {
@@ -124,30 +186,136 @@ public class Server {
 	 * @throws Exception
 	 */
 	public Vector<InferenceResult> query(String modelName, Collection<String> queries, Collection<String[]> evidence) throws Exception {
+		return query(modelName, queries, evidence, null);
+	}
+	
+	/**
+	 * processes a query in a new session of the model; this method may be called concurrently
+	 * @param modelName the model to use
+	 * @param queries a collection of queries (see above)
+	 * @param evidence a collection of evidence arrays (see above)
+	 * @param params parameters for the session (may be null)
+	 * @return a vector of inference results with constants already mapped
+	 * @throws Exception
+	 */
+	public Vector<InferenceResult> query(String modelName, Collection<String> queries, Collection<String[]> evidence, Map<String, Object> params) throws Exception {
+		Vector<Collection<String>> queryBatch = new Vector<Collection<String>>();
+		queryBatch.add(queries);
+		Vector<Collection<String[]>> evidenceBatch = new Vector<Collection<String[]>>();
+		evidenceBatch.add(evidence);
+		return queryBatch(modelName, queryBatch, evidenceBatch, params).get(0);
+	}
+	
+	/**
+	 * processes a batch of queries for the same model; the items of the batch are processed one after the other, 
+	 * such that a ground model that was instantiated for one item can be reused for all subsequent items with 
+	 * the same domains and structural evidence (see {@link GroundModelCache}) 
+	 * @param modelName the model to use
+	 * @param queries for each item of the batch, a collection of queries (see above)
+	 * @param evidence for each item of the batch, a collection of evidence arrays (see above)
+	 * @param params parameters for the sessions (may be null)
+	 * @return for each item of the batch, a vector of inference results with constants already mapped
+	 * @throws Exception
+	 */
+	public Vector<Vector<InferenceResult>> queryBatch(String modelName, List<? extends Collection<String>> queries, List<? extends Collection<String[]>> evidence, Map<String, Object> params) throws Exception {
+		return queryBatch(modelName, queries, evidence, params, null);
+	}
+	
+	/**
+	 * processes a batch of queries for the same model (see above), providing partial results during time-limited inference
+	 * @param modelName the model to use
+	 * @param queries for each item of the batch, a collection of queries
+	 * @param evidence for each item of the batch, a collection of evidence arrays
+	 * @param params parameters for the sessions (may be null); for anytime inference, use the parameters "timeLimit", "firstResultsTime" and "resultsInterval" (in seconds)
+	 * @param listeners for each item of the batch, the listener to receive partial results (may be null)
+	 * @return for each item of the batch, a vector of inference results with constants already mapped
+	 * @throws Exception
+	 */
+	public Vector<Vector<InferenceResult>> queryBatch(String modelName, List<? extends Collection<String>> queries, List<? extends Collection<String[]>> evidence, Map<String, Object> params, IPartialResultsListener[] listeners) throws Exception {
+		if(queries.size() != evidence.size())
+			throw new IllegalArgumentException("The number of query sets and evidence sets in a batch must be the same");
 		// get model
-		Model model = modelPool.getModel(modelName);		
-		// set evidence		
-		model.setEvidence(evidence);
-		// instantiate model and perform inference
-		System.out.printf("instantiating model from %s\n", model.toString());
-		model.instantiate();
-		Vector<InferenceResult> results = model.infer(queries);
+		Model model = modelPool.getModel(modelName);
+		if(model == null)
+			throw new Exception("Unknown model '" + modelName + "'");
+		Vector<Vector<InferenceResult>> ret = new Vector<Vector<InferenceResult>>();
+		Semaphore permits = getPermits(modelName);
+		permits.acquire();
+		try {
+			for(int i = 0; i < queries.size(); i++)
+				ret.add(query(model, queries.get(i), evidence.get(i), params, listeners == null ? null : listeners[i]));
+		}
+		finally {
+			permits.release();
+		}
+		return ret;
+	}
+	
+	protected Vector<InferenceResult> query(Model model, Collection<String> queries, Collection<String[]> evidence, Map<String, Object> params, IPartialResultsListener listener) throws Exception {
+		Vector<InferenceResult> results;
+		ModelSession session = model.createSession(params);
+		session.setPartialResultsListener(listener);
+		try {
+			// set evidence		
+			session.setEvidence(evidence);
+			// instantiate model and perform inference
+			if(verbose) System.out.printf("instantiating model from %s\n", model.toString());
+			session.instantiate(queries);
+			results = session.infer(queries);
+		}
+		finally {
+			session.close();
+		}
 		// output evidence and results
-		boolean verbose = true;
 		if(verbose) {
-			System.out.println("\nEvidence:");
-			for(String[] e : evidence)
-				System.out.println(Arrays.toString(e));
-			System.out.println("\nResults:");
-			LinkedList<InferenceResult> sortedres = new LinkedList<InferenceResult>(results);
-			Collections.sort(sortedres);
-			for(InferenceResult r : sortedres)
-				r.print(System.out);
+			synchronized(System.out) {
+				System.out.println("\nEvidence:");
+				for(String[] e : evidence)
+					System.out.println(Arrays.toString(e));
+				System.out.println("\nResults:");
+				LinkedList<InferenceResult> sortedres = new LinkedList<InferenceResult>(results);
+				Collections.sort(sortedres);
+				for(InferenceResult r : sortedres)
+					r.print(System.out);
+			}
 		}
 		// return results
 		return results;
 	}
 	
+	/**
+	 * submits a query for asynchronous processing
+	 * @param modelName the model to use
+	 * @param queries a collection of queries (see above)
+	 * @param evidence a collection of evidence arrays (see above)
+	 * @param params parameters for the session (may be null)
+	 * @return a future for the inference results
+	 */
+	public Future<Vector<InferenceResult>> submitQuery(final String modelName, final Collection<String> queries, final Collection<String[]> evidence, final Map<String, Object> params) {
+		return executor.submit(new Callable<Vector<InferenceResult>>() {
+			public Vector<InferenceResult> call() throws Exception {
+				return query(modelName, queries, evidence, params);
+			}
+		});
+	}
+	
+	/**
+	 * submits a batch of queries for asynchronous processing (see {@link #queryBatch(String, List, List, Map, IPartialResultsListener[])})
+	 * @param modelName the model to use
+	 * @param queries for each item of the batch, a collection of queries
+	 * @param evidence for each item of the batch, a collection of evidence arrays
+	 * @param params parameters for the sessions (may be null)
+	 * @param listeners for each item of the batch, the listener to receive partial results (may be null)
+	 * @return a future for the inference results
+	 */
+	public Future<Vector<Vector<InferenceResult>>> submitBatch(final String modelName, final List<? extends Collection<String>> queries, final List<? extends Collection<String[]>> evidence, final Map<String, Object> params, final IPartialResultsListener[] listeners) {
+		return executor.submit(new Callable<Vector<Vector<InferenceResult>>>() {
+			public Vector<Vector<InferenceResult>> call() throws Exception {
+				return queryBatch(modelName, queries, evidence, params, listeners);
+			}
+		});
+	}
+	
 	/**
 	 * processes a query by setting the evidence, instantiating the model and running the inference procedure 
 	 * @param modelName
@@ -254,6 +422,7 @@ public class Server {
 				String line = br.readLine();
 				if(line.equals("close")) {
 					System.err.println("ProbCog Server closed");
+					server.shutdown();
 					break;
 				}
 				System.err.println("Received query: " + line);
@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.HashMap;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Makes a {@link Server} available to other processes via a local socket, such that the models of a pool
+ * are loaded only once rather than once per query.
+ * <p>
+ * The protocol is a simple length-prefixed binary protocol: Each request and each response is
+ * a frame consisting of the length of the payload (4-byte integer) followed by the payload.
+ * Integers are 4-byte big-endian, doubles are 8-byte IEEE 754 and strings are in modified UTF-8
+ * as written by java.io.DataOutputStream.writeUTF (2-byte length followed by the bytes).
+ * Any number of requests can be sent over a connection; requests on different connections are processed concurrently
+ * by the server's executor. The number of connections that are served at the same time is limited; further connections
+ * are accepted but wait until a connection is closed.
+ * Error messages longer than {@link #MAX_MESSAGE_LENGTH} characters are truncated.
+ * <p>
+ * A request payload is a batch of queries for one model:
+ * <pre>
+ *   string modelName
+ *   int numParams, followed by numParams pairs (string name, string value)
+ *   int numItems, followed by numItems items, each consisting of
+ *     int numQueries, followed by numQueries strings (e.g. "alarm", "friends(Anna,x)")
+ *     int numEvidence, followed by numEvidence evidence tuples, each consisting of
+ *       int tupleLength, followed by tupleLength strings (function name, arguments, [value])
+ * </pre>
+ * The items of a batch are processed one after the other (see {@link Server#queryBatch}).
+ * For anytime inference, the parameters "timeLimit", "firstResultsTime" and "resultsInterval" (in seconds) 
+ * can be given, e.g. 2, 0.2 and 0.05 to obtain a first answer after 200 ms and refinements every 50 ms until 2 s have passed.
+ * <p>
+ * The final response payload is
+ * <pre>
+ *   byte status (0 = ok, 1 = error)
+ *   if status is error: string message
+ *   otherwise: int numItems, followed by numItems result lists
+ * </pre>
+ * and it may be preceded by any number of partial results (during anytime inference), whose payload is
+ * <pre>
+ *   byte status (2 = partial results)
+ *   int itemIndex, int numSamples, double elapsedTime (in seconds), result list
+ * </pre>
+ * where a result list consists of
+ * <pre>
+ *   int numResults, followed by numResults results, each consisting of
+ *     string functionName, int numArgs, numArgs strings, double probability, 
+ *     double confidenceIntervalWidth (NaN if not available)
+ * </pre>
+ * @author agent
+ */
+public class SocketServer {
+
+	public static final int DEFAULT_PORT = 9876;
+	public static final byte STATUS_OK = 0;
+	public static final byte STATUS_ERROR = 1;
+	public static final byte STATUS_PARTIAL = 2;
+	/**
+	 * the maximum size of a request frame (in bytes)
+	 */
+	protected static final int MAX_FRAME_SIZE = 64 << 20;
+	/**
+	 * the maximum number of characters of an error message (such that it can always be written with writeUTF)
+	 */
+	public static final int MAX_MESSAGE_LENGTH = 65535 / 3;
+	public static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+	protected Server server;
+	protected ServerSocket serverSocket;
+	protected ExecutorService connections;
+	protected boolean verbose = true;
+
+	/**
+	 * creates a socket server that accepts connections from the local host only
+	 * @param server the server to process requests with
+	 * @param port the port to listen on
+	 * @throws IOException
+	 */
+	public SocketServer(Server server, int port) throws IOException {
+		this(server, port, DEFAULT_MAX_CONNECTIONS);
+	}
+
+	/**
+	 * creates a socket server that accepts connections from the local host only
+	 * @param server the server to process requests with
+	 * @param port the port to listen on
+	 * @param maxConnections the maximum number of connections that are served at the same time
+	 * @throws IOException
+	 */
+	public SocketServer(Server server, int port, int maxConnections) throws IOException {
+		this.server = server;
+		serverSocket = new ServerSocket(port, 50, InetAddress.getByName("localhost"));
+		connections = Executors.newFixedThreadPool(maxConnections);
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * accepts connections until the server is closed
+	 * @throws IOException
+	 */
+	public void run() throws IOException {
+		System.err.println("ProbCog socket server listening on " + serverSocket.getLocalSocketAddress());
+		try {
+			while(true) {
+				final Socket socket = serverSocket.accept();
+				connections.execute(new Runnable() {
+					public void run() {
+						handleConnection(socket);
+					}
+				});
+			}
+		}
+		catch(SocketException e) {
+			if(!serverSocket.isClosed())
+				throw e;
+		}
+		finally {
+			connections.shutdown();
+		}
+	}
+
+	/**
+	 * stops accepting connections
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		serverSocket.close();
+	}
+
+	protected void handleConnection(Socket socket) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			while(true) {
+				int length;
+				try {
+					length = in.readInt();
+				}
+				catch(EOFException e) { // client closed the connection
+					break;
+				}
+				if(length < 0 || length > MAX_FRAME_SIZE)
+					throw new IOException("Invalid frame size " + length);
+				byte[] request = new byte[length];
+				in.readFully(request);
+				processRequest(request, out);
+			}
+		}
+		catch(IOException e) {
+			if(verbose)
+				System.err.println("Connection error: " + e.getMessage());
+		}
+		finally {
+			try {
+				socket.close();
+			}
+			catch(IOException e) {}
+		}
+	}
+
+	/**
+	 * processes a request payload, writing the response frames
+	 * @param request
+	 * @param frameOut the stream to write response frames to
+	 * @throws IOException
+	 */
+	protected void processRequest(byte[] request, final DataOutputStream frameOut) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(request));
+			String modelName = in.readUTF();
+			HashMap<String, Object> params = new HashMap<String, Object>();
+			int numParams = in.readInt();
+			for(int i = 0; i < numParams; i++)
+				params.put(in.readUTF(), in.readUTF());
+			int numItems = in.readInt();
+			Vector<Vector<String>> queries = new Vector<Vector<String>>(numItems);
+			Vector<Vector<String[]>> evidence = new Vector<Vector<String[]>>(numItems);
+			for(int i = 0; i < numItems; i++) {
+				queries.add(readStrings(in));
+				int numEvidence = in.readInt();
+				Vector<String[]> ev = new Vector<String[]>(numEvidence);
+				for(int j = 0; j < numEvidence; j++) {
+					Vector<String> tuple = readStrings(in);
+					ev.add(tuple.toArray(new String[tuple.size()]));
+				}
+				evidence.add(ev);
+			}
+			// stream partial results if anytime inference is requested
+			IPartialResultsListener[] listeners = null;
+			if(params.containsKey("timeLimit")) {
+				listeners = new IPartialResultsListener[numItems];
+				for(int i = 0; i < numItems; i++) {
+					final int itemIndex = i;
+					listeners[i] = new IPartialResultsListener() {
+						public void onPartialResults(Vector<InferenceResult> results, int numSamples, double elapsedTime) throws Exception {
+							ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+							DataOutputStream out = new DataOutputStream(bytes);
+							out.writeByte(STATUS_PARTIAL);
+							out.writeInt(itemIndex);
+							out.writeInt(numSamples);
+							out.writeDouble(elapsedTime);
+							writeResults(out, results);
+							writeFrame(frameOut, bytes);
+						}
+					};
+				}
+			}
+			Vector<Vector<InferenceResult>> results;
+			try {
+				results = server.submitBatch(modelName, queries, evidence, params, listeners).get();
+			}
+			catch(ExecutionException e) {
+				if(e.getCause() instanceof Exception)
+					throw (Exception)e.getCause();
+				throw e;
+			}
+			out.writeByte(STATUS_OK);
+			out.writeInt(results.size());
+			for(Vector<InferenceResult> itemResults : results)
+				writeResults(out, itemResults);
+		}
+		catch(Exception e) {
+			if(verbose)
+				e.printStackTrace();
+			bytes.reset();
+			out.writeByte(STATUS_ERROR);
+			out.writeUTF(getErrorMessage(e));
+		}
+		writeFrame(frameOut, bytes);
+	}
+
+	/**
+	 * @param e
+	 * @return the message of the given exception, truncated to {@link #MAX_MESSAGE_LENGTH} characters
+	 */
+	protected static String getErrorMessage(Exception e) {
+		String message = e.getMessage() != null ? e.getMessage() : e.toString();
+		if(message.length() > MAX_MESSAGE_LENGTH)
+			message = message.substring(0, MAX_MESSAGE_LENGTH - 3) + "...";
+		return message;
+	}
+
+	protected static void writeResults(DataOutputStream out, Vector<InferenceResult> results) throws IOException {
+		out.writeInt(results.size());
+		for(InferenceResult r : results) {
+			out.writeUTF(r.functionName);
+			out.writeInt(r.params.length);
+			for(String arg : r.params)
+				out.writeUTF(arg);
+			out.writeDouble(r.probability);
+			out.writeDouble(r.confidenceIntervalWidth);
+		}
+	}
+
+	protected static void writeFrame(DataOutputStream frameOut, ByteArrayOutputStream payload) throws IOException {
+		frameOut.writeInt(payload.size());
+		payload.writeTo(frameOut);
+		frameOut.flush();
+	}
+
+	protected static Vector<String> readStrings(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		Vector<String> ret = new Vector<String>(n);
+		for(int i = 0; i < n; i++)
+			ret.add(in.readUTF());
+		return ret;
+	}
+
+	public static void main(String[] args) {
+		try {
+			String poolFile = null;
+			int port = DEFAULT_PORT;
+			int numThreads = Runtime.getRuntime().availableProcessors();
+			int maxConnections = DEFAULT_MAX_CONNECTIONS;
+			boolean verbose = false;
+			for(int i = 0; i < args.length; i++) {
+				if(args[i].equals("-port"))
+					port = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-threads"))
+					numThreads = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-connections"))
+					maxConnections = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-v"))
+					verbose = true;
+				else if(poolFile == null)
+					poolFile = args[i];
+				else {
+					System.err.println("unknown option: " + args[i]);
+					return;
+				}
+			}
+			if(poolFile == null) {
+				System.out.println("usage: SocketServer <model pool file> [options]");
+				System.out.println("  -port <n>     port to listen on (default: " + DEFAULT_PORT + ")");
+				System.out.println("  -threads <n>  number of threads processing queries, which is also the maximum number of concurrent queries per model (default: number of processors)");
+				System.out.println("  -connections <n>  maximum number of connections served at the same time (default: " + DEFAULT_MAX_CONNECTIONS + ")");
+				System.out.println("  -v            verbose mode (print evidence and results)");
+				return;
+			}
+			Server server = new Server(poolFile, numThreads);
+			server.setVerbose(verbose);
+			SocketServer socketServer = new SocketServer(server, port, maxConnections);
+			socketServer.setVerbose(verbose);
+			socketServer.run();
+		}
+		catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -18,14 +18,8 @@
  ******************************************************************************/
 package probcog.srl;
 
-import java.io.BufferedReader;
 import java.io.PrintStream;
-import java.io.StringReader;
 import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import edu.tum.cs.util.FileUtil;
 
 /**
  * Represents a standard relational database (that can be used as training or evidence data)
@@ -78,73 +72,58 @@ public class Database extends GenericDatabase<Variable, String> {
 
 	@Override
 	protected Variable readEntry(String line) {
-		Pattern re_entry = Pattern.compile("(\\w+)\\(([^\\)]+)\\)\\s*=\\s*([^;]*);?");
-		Matcher matcher = re_entry.matcher(line);
-		if(matcher.matches()) {
-			// String key = matcher.group(1) + "(" +
-			// matcher.group(2).replaceAll("\\s*", "") + ")";
-			Variable var = makeVar(matcher.group(1), matcher.group(2).split("\\s*,\\s*"), matcher.group(3)); // new Variable(matcher.group(1), matcher.group(2).split("\\s*,\\s*"), matcher.group(3), model);
-			// System.out.println(var.toString());
-			return var;
+		// entries are of the form "f(a, b) = value;"
+		int iEq = line.indexOf('=', line.indexOf(')'));
+		if(iEq == -1)
+			return null;
+		String[] atom = parseAtom(line.substring(0, iEq).trim());
+		if(atom == null)
+			return null;
+		String value = line.substring(iEq+1).trim();
+		int iSemicolon = value.indexOf(';');
+		if(iSemicolon != -1) {
+			if(iSemicolon != value.length()-1)
+				return null;
+			value = value.substring(0, iSemicolon).trim();
 		}
-		return null;
+		String[] args = new String[atom.length-1];
+		System.arraycopy(atom, 1, args, 0, args.length);
+		return makeVar(atom[0], args, value);
 	}
 	
 	/**
      * 
      * */
 	public void readMLNDB(String databaseFilename, boolean ignoreUndefinedNodes) throws Exception {
-		boolean verbose = false;
-
-		// read file content
-		if(verbose)
-			System.out.printf("reading contents of %s...\n", databaseFilename);
-		String dbContent = FileUtil.readTextFile(databaseFilename);
-
-		// remove comments
-		// if (verbose) System.out.println("  removing comments...");
-		Pattern comments = Pattern.compile("//.*?$|/\\*.*?\\*/", Pattern.MULTILINE | Pattern.DOTALL);
-		Matcher matcher = comments.matcher(dbContent);
-		dbContent = matcher.replaceAll("");
-
-		// read lines
-		// if (verbose) System.out.println("  reading items...");
-		String arg = "\\w+";
-		String argList = "\\s*" + arg + "\\s*(?:,\\s*" + arg + "\\s*)*";
-		Pattern re_entry = Pattern.compile("(!?\\w+)\\((" + argList + ")\\)");
-		Pattern re_domDecl = Pattern.compile("(\\w+)\\s*=\\s*\\{(" + argList + ")\\}");
-		BufferedReader br = new BufferedReader(new StringReader(dbContent));
-		String line;
-		Variable var;
-		while((line = br.readLine()) != null) {
-			line = line.trim();
-			// parse variable assignment
-			matcher = re_entry.matcher(line);
-			if(matcher.matches()) {
-				if(matcher.group(1).startsWith("!"))
-					var = new Variable(matcher.group(1).substring(1), matcher.group(2).trim().split("\\s*,\\s*"), "False", model);
-				else
-					var = new Variable(matcher.group(1), matcher.group(2).trim().split("\\s*,\\s*"), "True", model);
-
-				addVariable(var, ignoreUndefinedNodes, true);
-				// if (++numVars % 100 == 0 && verbose)
-				// System.out.println("    " + numVars + " vars read\r");
-				continue;
-			}
-
-			// parse domain extension
-			matcher = re_domDecl.matcher(line);
-			if(matcher.matches()) { // parse
-				String domNam = matcher.group(1);
-				String[] constants = matcher.group(2).trim().split("\\s*,\\s*");
-				for(String c : constants)
-					fillDomain(domNam, c);
-				continue;
-			}
-			// something else
-			if(line.length() != 0)
+		readDatabase(databaseFilename, new StatementParser() {
+			public Object parse(String line) throws Exception {
+				// parse variable assignment
+				boolean isTrue = true;
+				String atomString = line;
+				if(atomString.startsWith("!")) {
+					isTrue = false;
+					atomString = atomString.substring(1);
+				}
+				String[] atom = parseAtom(atomString);
+				if(atom != null) {
+					String[] args = new String[atom.length-1];
+					boolean valid = true;
+					for(int i = 0; i < args.length && valid; i++) {
+						args[i] = atom[i+1];
+						valid = isWord(args[i]);
+					}
+					if(valid)
+						return new Variable(atom[0], args, isTrue ? "True" : "False", model);
+				}
+				// parse domain extension
+				DomainDeclaration decl = parseDomainDeclaration(line, true);
+				if(decl != null)
+					return decl;
+				// something else
 				System.err.println("Line could not be read: " + line);
-		}
+				return null;
+			}
+		}, ignoreUndefinedNodes);
 	}
 
 	
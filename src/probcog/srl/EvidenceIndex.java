@@ -0,0 +1,493 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * An index of the evidence in a finalized database, which allows the truth value of a
+ * ground atom to be determined with a single probe.
+ * The ground atoms of each function are mapped to a dense index space (using the positions of
+ * the constants within the respective domains), and for each function, we record the sets of
+ * ground atoms that are known to be true and known to be false - either as bit sets or,
+ * for sparse relations, as sorted arrays of indices.
+ * For a non-Boolean function f, the ground atom f(a1,...,an,v) represents the assignment f(a1,...,an)=v.
+ * The index can be written to a file, which can later be memory-mapped (see {@link #map(File)}).
+ * @author agent
+ */
+public class EvidenceIndex {
+	/**
+	 * the ground atom is known to be false
+	 */
+	public static final int FALSE = 0;
+	/**
+	 * the ground atom is known to be true
+	 */
+	public static final int TRUE = 1;
+	/**
+	 * the database does not contain a value for the ground atom
+	 */
+	public static final int UNKNOWN = -1;
+	/**
+	 * the ground atom is not covered by the index (unknown function or constant),
+	 * i.e. the database has to be queried directly
+	 */
+	public static final int NOT_INDEXED = -2;
+
+	protected static final int MAGIC = 0x50434549; // "PCEI"
+	protected static final int VERSION = 1;
+
+	/**
+	 * maps type names to the constants of the type (in index order)
+	 */
+	protected HashMap<String, String[]> constants;
+	/**
+	 * maps type names to a mapping from constants to their positions within the domain
+	 */
+	protected HashMap<String, HashMap<String, Integer>> constantIndices;
+	/**
+	 * maps function names to the respective index
+	 */
+	protected HashMap<String, FunctionIndex> functions;
+
+	protected EvidenceIndex() {
+		constants = new HashMap<String, String[]>();
+		constantIndices = new HashMap<String, HashMap<String, Integer>>();
+		functions = new HashMap<String, FunctionIndex>();
+	}
+
+	/**
+	 * builds the evidence index for the given database, which should be finalized
+	 * @param db
+	 * @throws Exception
+	 */
+	public EvidenceIndex(GenericDatabase<?, ?> db) throws Exception {
+		this();
+		// index the functions
+		for(Signature sig : db.getModel().getSignatures()) {
+			boolean isBoolean = sig.isBoolean();
+			String[] types = sig.argTypes;
+			if(!isBoolean) {
+				types = Arrays.copyOf(sig.argTypes, sig.argTypes.length + 1);
+				types[types.length-1] = sig.returnType;
+			}
+			boolean complete = true;
+			for(String type : types)
+				complete = complete && addDomain(type, db.getDomain(type));
+			if(!complete) // cannot index functions with undefined domains
+				continue;
+			functions.put(sig.functionName, new FunctionIndex(sig.functionName, types, isBoolean, sig.isLogical));
+		}
+		// collect the indices of true/false atoms
+		HashMap<String, IndexCollector[]> collectors = new HashMap<String, IndexCollector[]>();
+		for(AbstractVariable<?> var : db.entries.values()) {
+			FunctionIndex fi = functions.get(var.functionName);
+			if(fi == null)
+				continue;
+			String value = db.getSingleVariableValue(var.getKeyString(), false);
+			if(value == null)
+				continue;
+			long idx = fi.getIndex(var.params, var.params.length);
+			if(idx < 0)
+				continue;
+			IndexCollector[] c = collectors.get(fi.functionName);
+			if(c == null)
+				collectors.put(fi.functionName, c = new IndexCollector[]{new IndexCollector(), new IndexCollector()});
+			if(fi.isBoolean) {
+				if(value.equals(BooleanDomain.True))
+					c[TRUE].add(idx);
+				else if(value.equals(BooleanDomain.False))
+					c[FALSE].add(idx);
+				else
+					throw new Exception("Database contains invalid boolean value '" + value + "' for atom " + var.getKeyString());
+			}
+			else {
+				// the set of false atoms is stored as the set of assigned variables,
+				// and the true atom is the one with the given value
+				Integer valueIdx = constantIndices.get(fi.types[fi.types.length-1]).get(value);
+				if(valueIdx == null)
+					throw new Exception("Database contains value '" + value + "' for " + var.getKeyString() + ", which is not in the domain " + fi.types[fi.types.length-1]);
+				c[FALSE].add(idx);
+				c[TRUE].add(idx * fi.sizes[fi.sizes.length-1] + valueIdx);
+			}
+		}
+		// build the atom sets
+		for(FunctionIndex fi : functions.values()) {
+			IndexCollector[] c = collectors.get(fi.functionName);
+			if(c == null)
+				c = new IndexCollector[]{new IndexCollector(), new IndexCollector()};
+			fi.trueAtoms = c[TRUE].toAtomSet(fi.size);
+			fi.falseAtoms = c[FALSE].toAtomSet(fi.numVariables);
+		}
+	}
+
+	protected boolean addDomain(String type, Iterable<String> domain) {
+		if(constants.containsKey(type))
+			return true;
+		if(domain == null)
+			return false;
+		Vector<String> elements = new Vector<String>();
+		for(String c : domain)
+			elements.add(c);
+		addDomain(type, elements.toArray(new String[elements.size()]));
+		return true;
+	}
+
+	protected void addDomain(String type, String[] elements) {
+		HashMap<String, Integer> indices = new HashMap<String, Integer>();
+		for(int i = 0; i < elements.length; i++)
+			indices.put(elements[i], i);
+		constants.put(type, elements);
+		constantIndices.put(type, indices);
+	}
+
+	/**
+	 * determines the truth value of a ground atom
+	 * @param functionName the name of the function/predicate
+	 * @param args the arguments of the ground atom (for non-Boolean functions, the last argument is the value)
+	 * @return one of {@link #TRUE}, {@link #FALSE}, {@link #UNKNOWN} or {@link #NOT_INDEXED}
+	 */
+	public int getTruthValue(String functionName, String[] args) {
+		FunctionIndex fi = functions.get(functionName);
+		if(fi == null || args.length != fi.types.length)
+			return NOT_INDEXED;
+		return fi.getTruthValue(args);
+	}
+
+	/**
+	 * @return the number of functions covered by the index
+	 */
+	public int getNumFunctions() {
+		return functions.size();
+	}
+
+	/**
+	 * writes the index to the given file, such that it can later be memory-mapped using {@link #map(File)}
+	 * @param f
+	 * @throws Exception
+	 */
+	public void write(File f) throws Exception {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(constants.size());
+			for(java.util.Map.Entry<String, String[]> e : constants.entrySet()) {
+				writeString(out, e.getKey());
+				out.writeInt(e.getValue().length);
+				for(String c : e.getValue())
+					writeString(out, c);
+			}
+			out.writeInt(functions.size());
+			for(FunctionIndex fi : functions.values()) {
+				writeString(out, fi.functionName);
+				out.writeBoolean(fi.isBoolean);
+				out.writeBoolean(fi.closedWorld);
+				out.writeInt(fi.types.length);
+				for(String type : fi.types)
+					writeString(out, type);
+				fi.trueAtoms.write(out);
+				fi.falseAtoms.write(out);
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * memory-maps an evidence index that was previously written with {@link #write(File)};
+	 * the atom sets are not copied to the heap but are accessed directly in the mapped file
+	 * @param f
+	 * @return the index
+	 * @throws Exception
+	 */
+	public static EvidenceIndex map(File f) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
+		ByteBuffer buf;
+		try {
+			FileChannel channel = raf.getChannel();
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			raf.close(); // the mapping remains valid
+		}
+		if(buf.getInt() != MAGIC)
+			throw new Exception("File " + f + " does not contain an evidence index");
+		int version = buf.getInt();
+		if(version != VERSION)
+			throw new Exception("Unsupported evidence index version " + version + " in " + f);
+		EvidenceIndex index = new EvidenceIndex();
+		int numDomains = buf.getInt();
+		for(int i = 0; i < numDomains; i++) {
+			String type = readString(buf);
+			String[] elements = new String[buf.getInt()];
+			for(int j = 0; j < elements.length; j++)
+				elements[j] = readString(buf);
+			index.addDomain(type, elements);
+		}
+		int numFunctions = buf.getInt();
+		for(int i = 0; i < numFunctions; i++) {
+			String functionName = readString(buf);
+			boolean isBoolean = buf.get() != 0;
+			boolean closedWorld = buf.get() != 0;
+			String[] types = new String[buf.getInt()];
+			for(int j = 0; j < types.length; j++)
+				types[j] = readString(buf);
+			FunctionIndex fi = index.new FunctionIndex(functionName, types, isBoolean, closedWorld);
+			fi.trueAtoms = AtomSet.read(buf);
+			fi.falseAtoms = AtomSet.read(buf);
+			index.functions.put(functionName, fi);
+		}
+		return index;
+	}
+
+	protected static void writeString(DataOutputStream out, String s) throws Exception {
+		byte[] b = s.getBytes("UTF-8");
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	protected static String readString(ByteBuffer buf) throws Exception {
+		byte[] b = new byte[buf.getInt()];
+		buf.get(b);
+		return new String(b, "UTF-8");
+	}
+
+	/**
+	 * index of the ground atoms of a single function
+	 */
+	protected class FunctionIndex {
+		public String functionName;
+		/**
+		 * the types of the arguments (including the return type for non-Boolean functions)
+		 */
+		public String[] types;
+		public long[] sizes;
+		/**
+		 * the size of the index space
+		 */
+		public long size;
+		/**
+		 * the number of ground variables, i.e. the size of the index space without the value argument
+		 */
+		public long numVariables;
+		public boolean isBoolean;
+		/**
+		 * whether atoms that are not known to be true are false (as is the case for logically determined
+		 * predicates once the database has been finalized)
+		 */
+		public boolean closedWorld;
+		public AtomSet trueAtoms;
+		/**
+		 * the set of false atoms; for non-Boolean functions, the set of assigned variables
+		 * (in the index space without the value argument)
+		 */
+		public AtomSet falseAtoms;
+
+		public FunctionIndex(String functionName, String[] types, boolean isBoolean, boolean closedWorld) {
+			this.functionName = functionName;
+			this.types = types;
+			this.isBoolean = isBoolean;
+			this.closedWorld = closedWorld && isBoolean;
+			sizes = new long[types.length];
+			size = 1;
+			for(int i = 0; i < types.length; i++) {
+				sizes[i] = constants.get(types[i]).length;
+				if(i == sizes.length-1 && !isBoolean)
+					numVariables = size;
+				size *= sizes[i];
+			}
+			if(isBoolean)
+				numVariables = size;
+		}
+
+		/**
+		 * computes the position of a ground atom within the index space
+		 * @param args the arguments
+		 * @param n the number of arguments to consider
+		 * @return the index or -1 if one of the constants is not covered by the index
+		 */
+		public long getIndex(String[] args, int n) {
+			long idx = 0;
+			for(int i = 0; i < n; i++) {
+				Integer c = constantIndices.get(types[i]).get(args[i]);
+				if(c == null)
+					return -1;
+				idx = idx * sizes[i] + c;
+			}
+			return idx;
+		}
+
+		public int getTruthValue(String[] args) {
+			if(isBoolean) {
+				long idx = getIndex(args, args.length);
+				if(idx < 0)
+					return NOT_INDEXED;
+				if(trueAtoms.contains(idx))
+					return TRUE;
+				if(closedWorld || falseAtoms.contains(idx))
+					return FALSE;
+				return UNKNOWN;
+			}
+			else {
+				long varIdx = getIndex(args, args.length-1);
+				if(varIdx < 0)
+					return NOT_INDEXED;
+				Integer valueIdx = constantIndices.get(types[types.length-1]).get(args[args.length-1]);
+				if(valueIdx == null)
+					return NOT_INDEXED;
+				if(!falseAtoms.contains(varIdx))
+					return UNKNOWN;
+				return trueAtoms.contains(varIdx * sizes[sizes.length-1] + valueIdx) ? TRUE : FALSE;
+			}
+		}
+	}
+
+	/**
+	 * collects the indices of a set of atoms prior to the construction of an atom set
+	 */
+	protected static class IndexCollector {
+		protected long[] indices = new long[16];
+		protected int size = 0;
+
+		public void add(long idx) {
+			if(size == indices.length)
+				indices = Arrays.copyOf(indices, size * 2);
+			indices[size++] = idx;
+		}
+
+		/**
+		 * creates the set representation that requires less memory
+		 * @param spaceSize the size of the index space
+		 * @return
+		 */
+		public AtomSet toAtomSet(long spaceSize) {
+			long[] a = Arrays.copyOf(indices, size);
+			Arrays.sort(a);
+			long numWords = (spaceSize + 63) / 64;
+			if(numWords <= size) {
+				long[] words = new long[(int)numWords];
+				for(long idx : a)
+					words[(int)(idx >>> 6)] |= 1L << (idx & 63);
+				return new BitAtomSet(LongBuffer.wrap(words));
+			}
+			return new SortedAtomSet(LongBuffer.wrap(a));
+		}
+	}
+
+	/**
+	 * a set of atom indices, which is backed by a (heap or memory-mapped) buffer
+	 */
+	protected static abstract class AtomSet {
+		protected static final byte TYPE_BITS = 0, TYPE_SORTED = 1;
+		protected LongBuffer data;
+
+		public AtomSet(LongBuffer data) {
+			this.data = data;
+		}
+
+		public abstract boolean contains(long idx);
+
+		protected abstract byte getType();
+
+		public void write(DataOutputStream out) throws Exception {
+			out.writeByte(getType());
+			out.writeInt(data.limit());
+			for(int i = 0; i < data.limit(); i++)
+				out.writeLong(data.get(i));
+		}
+
+		public static AtomSet read(ByteBuffer buf) throws Exception {
+			byte type = buf.get();
+			int length = buf.getInt();
+			ByteBuffer slice = buf.slice();
+			slice.limit(length * 8);
+			LongBuffer data = slice.asLongBuffer();
+			buf.position(buf.position() + length * 8);
+			switch(type) {
+			case TYPE_BITS:
+				return new BitAtomSet(data);
+			case TYPE_SORTED:
+				return new SortedAtomSet(data);
+			default:
+				throw new Exception("Unknown atom set type " + type);
+			}
+		}
+	}
+
+	/**
+	 * a dense set of atom indices, represented as a bit set
+	 */
+	protected static class BitAtomSet extends AtomSet {
+		public BitAtomSet(LongBuffer words) {
+			super(words);
+		}
+
+		@Override
+		public boolean contains(long idx) {
+			return (data.get((int)(idx >>> 6)) & (1L << (idx & 63))) != 0;
+		}
+
+		@Override
+		protected byte getType() {
+			return TYPE_BITS;
+		}
+	}
+
+	/**
+	 * a sparse set of atom indices, represented as a sorted array
+	 */
+	protected static class SortedAtomSet extends AtomSet {
+		public SortedAtomSet(LongBuffer sortedIndices) {
+			super(sortedIndices);
+		}
+
+		@Override
+		public boolean contains(long idx) {
+			int lo = 0, hi = data.limit() - 1;
+			while(lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				long v = data.get(mid);
+				if(v < idx)
+					lo = mid + 1;
+				else if(v > idx)
+					hi = mid - 1;
+				else
+					return true;
+			}
+			return false;
+		}
+
+		@Override
+		protected byte getType() {
+			return TYPE_SORTED;
+		}
+	}
+}
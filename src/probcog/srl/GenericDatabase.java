@@ -18,16 +18,19 @@
  ******************************************************************************/
 package probcog.srl;
 
-import java.io.BufferedReader;
 import java.io.PrintStream;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Vector;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import probcog.inference.IParameterHandler;
 import probcog.inference.ParameterHandler;
@@ -36,7 +39,6 @@ import probcog.srl.directed.ABLModel;
 import probcog.srl.taxonomy.Concept;
 import probcog.srl.taxonomy.Taxonomy;
 
-import edu.tum.cs.util.FileUtil;
 import edu.tum.cs.util.StringTool;
 import edu.tum.cs.util.datastruct.MultiIterator;
 
@@ -66,6 +68,10 @@ public abstract class GenericDatabase<VariableType extends AbstractVariable<?>,
 	 */
 	protected Boolean prologDatabaseExtended = false;
 	protected boolean immutable = false;
+	/**
+	 * index for fast truth value lookups, which is built when the database is finalized
+	 */
+	protected EvidenceIndex evidenceIndex = null;
 
 	// taxonomy-related variables
 
@@ -76,6 +82,12 @@ public abstract class GenericDatabase<VariableType extends AbstractVariable<?>,
 	protected boolean debug = false;
 	protected boolean verbose = false;
 	protected ParameterHandler paramHandler;
+	/**
+	 * the number of threads to use for parsing database files
+	 */
+	protected int numParserThreads = 1;
+	protected static final int PARSER_BATCH_SIZE = 10000;
+	protected int numVarsRead;
 
 	/**
 	 * constructs an empty database for the given model
@@ -92,6 +104,7 @@ public abstract class GenericDatabase<VariableType extends AbstractVariable<?>,
 		paramHandler = new ParameterHandler(this);
 		paramHandler.add("debug", "setDebug");
 		paramHandler.add("debug", "setVerbose");
+		paramHandler.add("parserThreads", "setNumParserThreads");
 		
 		// initialize domains
 		if(taxonomy != null) {
@@ -280,50 +293,223 @@ public abstract class GenericDatabase<VariableType extends AbstractVariable<?>,
 	}
 	
 	public void readBLOGDB(String databaseFilename, boolean ignoreUndefinedNodes) throws Exception {
-		// read file content
-		if(verbose)
-			System.out.printf("  reading contents of %s...\n", databaseFilename);
-		String dbContent = FileUtil.readTextFile(databaseFilename);
-
-		// remove comments
-		if(verbose)
-			System.out.println("  removing comments");
-		Pattern comments = Pattern.compile("//.*?$|/\\*.*?\\*/", Pattern.MULTILINE | Pattern.DOTALL);
-		Matcher matcher = comments.matcher(dbContent);
-		dbContent = matcher.replaceAll("");
-
-		// read lines
 		if(verbose)
-			System.out.println("  reading items");		
-		Pattern re_domDecl = Pattern.compile("(\\w+)\\s*=\\s*\\{(.*?)\\}");
-		BufferedReader br = new BufferedReader(new StringReader(dbContent));
-		String line;
-		int numVars = 0;
-		while((line = br.readLine()) != null) {
-			line = line.trim();
-			// parse domain decls
-			matcher = re_domDecl.matcher(line);
-			if(matcher.matches()) { // parse domain decls
-				String domName = matcher.group(1);
-				String[] constants = matcher.group(2).split("\\s*,\\s*");
-				constants = ABLModel.makeDomainElements(constants);
-				for(String c : constants)
-					fillDomain(domName, c);
-				continue;
+			System.out.printf("  reading items from %s...\n", databaseFilename);
+		readDatabase(databaseFilename, new StatementParser() {
+			public Object parse(String line) throws Exception {
+				// parse domain decls
+				DomainDeclaration decl = parseDomainDeclaration(line, false);
+				if(decl != null) {
+					decl.constants = ABLModel.makeDomainElements(decl.constants);
+					return decl;
+				}
+				// parse variable assignment
+				VariableType var = readEntry(line);
+				if(var != null)
+					return var;
+				// something else
+				throw new Exception("Database entry could not be read: " + line);
 			}
-			// parse variable assignment
-			VariableType var = readEntry(line);
-			if(var != null) {
-				addVariable(var, ignoreUndefinedNodes, true);
-				if(++numVars % 100 == 0 && verbose)
-					System.out.print("    " + numVars + " vars read\r");
-				continue;
+		}, ignoreUndefinedNodes);
+	}
+	
+	/**
+	 * reads a database file line by line (without loading the entire file), parsing each non-empty line with the given parser 
+	 * and adding the resulting domain declarations and variables to the database.
+	 * If more than one parser thread is configured, batches of lines are parsed concurrently, while the results are
+	 * still added to the database sequentially and in the order in which they appear in the file. 
+	 * @param databaseFilename
+	 * @param parser
+	 * @param ignoreUndefinedNodes
+	 * @throws Exception
+	 */
+	protected void readDatabase(String databaseFilename, final StatementParser parser, boolean ignoreUndefinedNodes) throws Exception {
+		StatementReader reader = new StatementReader(databaseFilename);
+		numVarsRead = 0;
+		try {
+			String line;
+			if(numParserThreads <= 1) {
+				while((line = reader.readLine()) != null)
+					if(line.length() != 0)
+						addStatement(parser.parse(line), ignoreUndefinedNodes);
+				return;
 			}
-			// something else
-			if(line.length() != 0) {
-				throw new Exception("Database entry could not be read: " + line);
+			ExecutorService pool = Executors.newFixedThreadPool(numParserThreads);
+			try {
+				LinkedList<Future<Vector<Object>>> pending = new LinkedList<Future<Vector<Object>>>();
+				Vector<String> batch = new Vector<String>(PARSER_BATCH_SIZE);
+				while(true) {
+					line = reader.readLine();
+					if(line != null && line.length() != 0)
+						batch.add(line);
+					if(batch.size() == PARSER_BATCH_SIZE || (line == null && !batch.isEmpty())) {
+						final Vector<String> lines = batch;
+						pending.add(pool.submit(new Callable<Vector<Object>>() {
+							public Vector<Object> call() throws Exception {
+								Vector<Object> ret = new Vector<Object>(lines.size());
+								for(String l : lines)
+									ret.add(parser.parse(l));
+								return ret;
+							}
+						}));
+						batch = new Vector<String>(PARSER_BATCH_SIZE);
+					}
+					// add parsed statements, keeping the number of pending batches bounded
+					while(!pending.isEmpty() && (line == null || pending.size() > 2 * numParserThreads)) {
+						Vector<Object> statements;
+						try {
+							statements = pending.removeFirst().get();
+						}
+						catch(ExecutionException e) {
+							if(e.getCause() instanceof Exception)
+								throw (Exception)e.getCause();
+							throw e;
+						}
+						for(Object statement : statements)
+							addStatement(statement, ignoreUndefinedNodes);
+					}
+					if(line == null)
+						break;
+				}
+			}
+			finally {
+				pool.shutdownNow();
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected void addStatement(Object statement, boolean ignoreUndefinedNodes) throws Exception {
+		if(statement == null)
+			return;
+		if(statement instanceof DomainDeclaration) {
+			DomainDeclaration decl = (DomainDeclaration)statement;
+			for(String c : decl.constants)
+				fillDomain(decl.domName, c);
+			return;
+		}
+		addVariable((VariableType)statement, ignoreUndefinedNodes, true);
+		if(++numVarsRead % 100 == 0 && verbose)
+			System.out.print("    " + numVarsRead + " vars read\r");
+	}
+	
+	/**
+	 * sets the number of threads to use for parsing database files
+	 * @param numThreads
+	 */
+	public void setNumParserThreads(int numThreads) {
+		numParserThreads = numThreads;
+	}
+	
+	/**
+	 * parser for single lines (statements) of a database file 
+	 */
+	protected static interface StatementParser {
+		/**
+		 * @param line a non-empty line without comments
+		 * @return a DomainDeclaration, a variable or null if the line is to be ignored
+		 * @throws Exception
+		 */
+		public Object parse(String line) throws Exception;
+	}
+	
+	/**
+	 * a declaration of domain elements, i.e. "domName = {a, b, c}"
+	 */
+	protected static class DomainDeclaration {
+		public String domName;
+		public String[] constants;
+		
+		public DomainDeclaration(String domName, String[] constants) {
+			this.domName = domName;
+			this.constants = constants;
+		}
+	}
+	
+	/**
+	 * parses a domain declaration of the form "domName = {a, b, c}"
+	 * @param line
+	 * @param wordsOnly whether the domain elements must be words (otherwise they can be arbitrary strings not containing commas)
+	 * @return the declaration or null if the line is not a domain declaration
+	 */
+	protected static DomainDeclaration parseDomainDeclaration(String line, boolean wordsOnly) {
+		int iEq = line.indexOf('=');
+		if(iEq <= 0 || line.charAt(line.length()-1) != '}')
+			return null;
+		String domName = line.substring(0, iEq).trim();
+		if(!isWord(domName))
+			return null;
+		String rest = line.substring(iEq+1, line.length()-1).trim();
+		if(rest.length() == 0 || rest.charAt(0) != '{')
+			return null;
+		String[] constants = splitArguments(rest.substring(1));
+		if(wordsOnly) {
+			for(String c : constants)
+				if(!isWord(c))
+					return null;
+		}
+		return new DomainDeclaration(domName, constants);
+	}
+	
+	/**
+	 * splits a comma-separated list of arguments, removing surrounding whitespace
+	 * @param args
+	 * @return
+	 */
+	protected static String[] splitArguments(String args) {
+		Vector<String> ret = new Vector<String>();
+		int start = 0;
+		while(true) {
+			int end = args.indexOf(',', start);
+			if(end == -1) {
+				ret.add(args.substring(start).trim());
+				break;
 			}
+			ret.add(args.substring(start, end).trim());
+			start = end + 1;
+		}
+		return ret.toArray(new String[ret.size()]);
+	}
+	
+	/**
+	 * @param s
+	 * @return true if the string is non-empty and consists only of word characters (letters, digits and underscores) 
+	 */
+	protected static boolean isWord(String s) {
+		if(s.length() == 0)
+			return false;
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(!(c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * parses an atom of the form "f(a, b)" 
+	 * @param s
+	 * @return an array containing the function name followed by the arguments or null if the string is not an atom
+	 */
+	protected static String[] parseAtom(String s) {
+		int iParen = s.indexOf('(');
+		if(iParen <= 0 || s.charAt(s.length()-1) != ')')
+			return null;
+		String functionName = s.substring(0, iParen);
+		if(!isWord(functionName))
+			return null;
+		String[] args = splitArguments(s.substring(iParen+1, s.length()-1));
+		String[] ret = new String[args.length+1];
+		ret[0] = functionName;
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].length() == 0 || args[i].indexOf(')') != -1)
+				return null;
+			ret[i+1] = args[i];
 		}
+		return ret;
 	}
 	
 	protected abstract VariableType readEntry(String line) throws Exception;
@@ -470,12 +656,22 @@ public abstract class GenericDatabase<VariableType extends AbstractVariable<?>,
 	public void finalize() throws Exception {
 		extendWithPrologValues();		
 		immutable = true;
+		if(evidenceIndex == null)
+			evidenceIndex = new EvidenceIndex(this);
 	}
 	
 	public boolean isFinalized() {
 		return immutable;
 	}
 	
+	/**
+	 * gets the index of the evidence that is built when the database is finalized
+	 * @return the evidence index or null if the database has not yet been finalized
+	 */
+	public EvidenceIndex getEvidenceIndex() {
+		return evidenceIndex;
+	}
+	
 	/**
 	 * computes the value of a variable via Prolog and adds it to the database
 	 * @param sig
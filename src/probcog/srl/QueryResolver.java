@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl;
+
+import java.util.HashMap;
+import java.util.Vector;
+
+import edu.tum.cs.util.StringTool;
+import edu.tum.cs.util.datastruct.Map2List;
+
+/**
+ * Resolves queries to the ground variables they refer to using an index of the variables by predicate and arguments.
+ * A query is a predicate name, optionally followed by a list of arguments, where arguments beginning with a lower-case
+ * letter are variables that match any constant, e.g. "Smokes", "Friends(Anna,x)" or "grade(s,CS101)".
+ * A query with n arguments matches variables whose first n arguments match (such that the value argument of
+ * non-boolean variables need not be given).
+ * The cost of resolving a query is proportional to the number of variables in the smallest index list that applies
+ * (all variables of the predicate if no argument is bound), which is usually close to the number of results.
+ * @author agent
+ */
+public class QueryResolver<T> {
+
+	protected HashMap<String, T> byName;
+	protected Map2List<String, Entry<T>> byPredicate;
+	protected Map2List<String, Entry<T>> byArgument;
+	protected int size = 0;
+
+	public QueryResolver() {
+		byName = new HashMap<String, T>();
+		byPredicate = new Map2List<String, Entry<T>>();
+		byArgument = new Map2List<String, Entry<T>>();
+	}
+
+	/**
+	 * adds a ground variable to the index
+	 * @param predicate the name of the variable's predicate/function
+	 * @param args the arguments
+	 * @param item the object to return for the variable when resolving queries
+	 */
+	public void add(String predicate, String[] args, T item) {
+		Entry<T> e = new Entry<T>(args, item);
+		byName.put(predicate + "(" + StringTool.join(",", args) + ")", item);
+		byPredicate.add(predicate, e);
+		for(int i = 0; i < args.length; i++)
+			byArgument.add(getArgumentKey(predicate, i, args[i]), e);
+		size++;
+	}
+
+	/**
+	 * adds a ground variable to the index, given its name
+	 * @param name the variable's name, e.g. "Friends(Anna,Bob)"
+	 * @param item the object to return for the variable when resolving queries
+	 * @return true if the name could be parsed and the variable was added
+	 */
+	public boolean add(String name, T item) {
+		Query q = Query.parse(name);
+		if(q.args == null)
+			return false;
+		add(q.predicate, q.args, item);
+		return true;
+	}
+
+	protected static String getArgumentKey(String predicate, int i, String arg) {
+		return predicate + "/" + i + "/" + arg;
+	}
+
+	/**
+	 * @return the number of variables in the index
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * gets the variables matching the given query
+	 * @param query
+	 * @return the list of matching items (in the order in which they were added)
+	 */
+	public Vector<T> resolve(String query) {
+		return resolve(Query.parse(query));
+	}
+
+	public Vector<T> resolve(Query query) {
+		Vector<T> ret = new Vector<T>();
+		// queries without arguments refer to all variables of the predicate
+		if(query.args == null) {
+			Vector<Entry<T>> entries = byPredicate.get(query.predicate);
+			if(entries != null)
+				for(Entry<T> e : entries)
+					ret.add(e.item);
+			return ret;
+		}
+		// fully ground queries
+		if(query.isGround()) {
+			T item = byName.get(query.predicate + "(" + StringTool.join(",", query.args) + ")");
+			if(item != null) {
+				ret.add(item);
+				return ret;
+			}
+		}
+		// otherwise use the most selective index list
+		Vector<Entry<T>> candidates = byPredicate.get(query.predicate);
+		for(int i = 0; i < query.args.length && candidates != null; i++) {
+			if(query.isVariable[i])
+				continue;
+			Vector<Entry<T>> l = byArgument.get(getArgumentKey(query.predicate, i, query.args[i]));
+			if(l == null || l.size() < candidates.size())
+				candidates = l;
+		}
+		if(candidates != null)
+			for(Entry<T> e : candidates)
+				if(query.matches(e.args))
+					ret.add(e.item);
+		return ret;
+	}
+
+	protected static class Entry<T> {
+		public String[] args;
+		public T item;
+
+		public Entry(String[] args, T item) {
+			this.args = args;
+			this.item = item;
+		}
+	}
+
+	/**
+	 * a parsed query
+	 */
+	public static class Query {
+		public String predicate;
+		/**
+		 * the arguments (null if the query consists only of a predicate name)
+		 */
+		public String[] args;
+		public boolean[] isVariable;
+
+		public Query(String predicate, String[] args) {
+			this.predicate = predicate;
+			this.args = args;
+			if(args != null) {
+				isVariable = new boolean[args.length];
+				for(int i = 0; i < args.length; i++) {
+					if(args[i].length() == 0)
+						throw new IllegalArgumentException("Query " + predicate + "(" + StringTool.join(",", args) + ") contains an empty argument");
+					isVariable[i] = Character.isLowerCase(args[i].charAt(0));
+				}
+			}
+		}
+
+		public static Query parse(String query) {
+			query = query.trim();
+			int iParen = query.indexOf('(');
+			if(iParen == -1)
+				return new Query(query, null);
+			String predicate = query.substring(0, iParen).trim();
+			int iEnd = query.lastIndexOf(')');
+			if(iEnd < iParen)
+				iEnd = query.length();
+			String argList = query.substring(iParen+1, iEnd).trim();
+			if(argList.length() == 0) // f() is equivalent to f
+				return new Query(predicate, null);
+			String[] args = argList.split("\\s*,\\s*", -1);
+			return new Query(predicate, args);
+		}
+
+		/**
+		 * @return true if none of the arguments are variables (and there is at least one argument)
+		 */
+		public boolean isGround() {
+			if(args == null)
+				return false;
+			for(boolean b : isVariable)
+				if(b)
+					return false;
+			return true;
+		}
+
+		/**
+		 * checks whether the given arguments of a variable of the query's predicate match the query
+		 * @param varArgs
+		 * @return
+		 */
+		public boolean matches(String[] varArgs) {
+			if(args == null)
+				return true;
+			if(varArgs.length < args.length)
+				return false;
+			for(int i = 0; i < args.length; i++)
+				if(!isVariable[i] && !args[i].equals(varArgs[i]))
+					return false;
+			return true;
+		}
+
+		public String toString() {
+			if(args == null)
+				return predicate;
+			return predicate + "(" + StringTool.join(",", args) + ")";
+		}
+	}
+}
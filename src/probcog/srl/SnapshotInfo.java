@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Describes the inputs a snapshot was created from, such that a snapshot can be recognized as outdated
+ * when it is to be reloaded. Files are identified by their absolute path, their size and a checksum of
+ * their contents; options (e.g. closed-world predicates or grounding parameters) by their values.
+ * The description is divided into a part concerning the model and a part concerning the evidence,
+ * because a ground model may be updated for new evidence without being instantiated anew.
+ * @author agent
+ */
+public class SnapshotInfo {
+
+	protected TreeMap<String, String> model = new TreeMap<String, String>();
+	protected TreeMap<String, String> evidence = new TreeMap<String, String>();
+
+	/**
+	 * adds a file the (template) model was read from
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void addModelFile(String filename) throws IOException {
+		addFile(model, filename);
+	}
+
+	/**
+	 * adds an option that influences the ground model
+	 * @param name
+	 * @param value the option's value; arrays are considered as sets, i.e. the order of their elements is irrelevant
+	 */
+	public void addModelOption(String name, Object value) {
+		model.put(name, toString(value));
+	}
+
+	/**
+	 * adds a file the evidence was read from
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void addEvidenceFile(String filename) throws IOException {
+		addFile(evidence, filename);
+	}
+
+	/**
+	 * adds an option that concerns the evidence
+	 * @param name
+	 * @param value the option's value; arrays are considered as sets, i.e. the order of their elements is irrelevant
+	 */
+	public void addEvidenceOption(String name, Object value) {
+		evidence.put(name, toString(value));
+	}
+
+	/**
+	 * @return true if the model parts of both descriptions agree
+	 */
+	public boolean modelMatches(SnapshotInfo other) {
+		return model.equals(other.model);
+	}
+
+	/**
+	 * @return true if the evidence parts of both descriptions agree
+	 */
+	public boolean evidenceMatches(SnapshotInfo other) {
+		return evidence.equals(other.evidence);
+	}
+
+	/**
+	 * @return true if both descriptions agree entirely
+	 */
+	public boolean matches(SnapshotInfo other) {
+		return modelMatches(other) && evidenceMatches(other);
+	}
+
+	/**
+	 * reads the description of the inputs from the header of a snapshot file
+	 * @param filename
+	 * @param kind the kind of model that is expected (SnapshotWriter.KIND_*)
+	 * @return the description or null if the file does not exist or is not a valid snapshot of the expected kind
+	 */
+	public static SnapshotInfo read(String filename, byte kind) {
+		if(!new File(filename).exists())
+			return null;
+		try {
+			return new SnapshotReader(filename, kind).getInfo();
+		}
+		catch(Exception e) {
+			return null;
+		}
+	}
+
+	protected void write(SnapshotWriter w) throws IOException {
+		for(TreeMap<String, String> part : Arrays.asList(model, evidence)) {
+			w.writeInt(part.size());
+			for(Entry<String, String> e : part.entrySet()) {
+				w.writeString(e.getKey());
+				w.writeString(e.getValue());
+			}
+		}
+	}
+
+	protected static SnapshotInfo read(SnapshotReader r) throws IOException {
+		SnapshotInfo info = new SnapshotInfo();
+		for(TreeMap<String, String> part : Arrays.asList(info.model, info.evidence)) {
+			int n = r.readInt();
+			for(int i = 0; i < n; i++)
+				part.put(r.readString(), r.readString());
+		}
+		return info;
+	}
+
+	protected static void addFile(TreeMap<String, String> part, String filename) throws IOException {
+		File f = new File(filename).getAbsoluteFile();
+		CRC32 crc = new CRC32();
+		InputStream is = new BufferedInputStream(new FileInputStream(f));
+		try {
+			byte[] buf = new byte[1 << 16];
+			int n;
+			while((n = is.read(buf)) != -1)
+				crc.update(buf, 0, n);
+		}
+		finally {
+			is.close();
+		}
+		part.put("file " + f.getPath(), String.format("%d bytes, crc %08x", f.length(), crc.getValue()));
+	}
+
+	protected static String toString(Object value) {
+		if(value instanceof Object[]) {
+			Object[] a = ((Object[])value).clone();
+			Arrays.sort(a);
+			return Arrays.toString(a);
+		}
+		return String.valueOf(value);
+	}
+
+	@Override
+	public String toString() {
+		return "model " + model + ", evidence " + evidence;
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Vector;
+
+import probcog.logic.Biimplication;
+import probcog.logic.Conjunction;
+import probcog.logic.Disjunction;
+import probcog.logic.Formula;
+import probcog.logic.GroundAtom;
+import probcog.logic.GroundLiteral;
+import probcog.logic.Implication;
+import probcog.logic.Negation;
+import probcog.logic.TrueFalse;
+import probcog.logic.WorldVariables;
+
+/**
+ * Reads binary snapshots of ground models that were written by {@link SnapshotWriter}.
+ * The snapshot file is memory-mapped, such that reading does not involve any parsing beyond
+ * the decoding of the binary data.
+ * @author agent
+ */
+public class SnapshotReader {
+
+	protected MappedByteBuffer buf;
+	protected Vector<String> strings = new Vector<String>();
+	protected SnapshotInfo info;
+
+	/**
+	 * opens a snapshot file and checks its header
+	 * @param filename
+	 * @param kind the kind of model that is expected (SnapshotWriter.KIND_*)
+	 * @throws Exception if the file is not a snapshot of the expected kind
+	 */
+	public SnapshotReader(String filename, byte kind) throws Exception {
+		FileInputStream is = new FileInputStream(new File(filename));
+		try {
+			FileChannel ch = is.getChannel();
+			buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		}
+		finally {
+			is.close();
+		}
+		if(buf.getInt() != SnapshotWriter.MAGIC)
+			throw new Exception(filename + " is not a snapshot file");
+		int version = buf.getInt();
+		if(version != SnapshotWriter.VERSION)
+			throw new Exception("Snapshot " + filename + " has unsupported version " + version);
+		if(buf.get() != kind)
+			throw new Exception("Snapshot " + filename + " does not contain the expected type of model");
+		info = SnapshotInfo.read(this);
+	}
+
+	/**
+	 * @return the description of the inputs the snapshot was created from
+	 */
+	public SnapshotInfo getInfo() {
+		return info;
+	}
+
+	public int readInt() {
+		return buf.getInt();
+	}
+
+	public double readDouble() {
+		return buf.getDouble();
+	}
+
+	public boolean readBoolean() {
+		return buf.get() != 0;
+	}
+
+	public String readString() throws IOException {
+		int id = buf.getInt();
+		if(id != -1)
+			return strings.get(id);
+		byte[] bytes = new byte[buf.getInt()];
+		buf.get(bytes);
+		String s = new String(bytes, "UTF-8");
+		strings.add(s);
+		return s;
+	}
+
+	public String[] readStrings() throws IOException {
+		String[] ret = new String[buf.getInt()];
+		for(int i = 0; i < ret.length; i++)
+			ret[i] = readString();
+		return ret;
+	}
+
+	public int[] readInts() {
+		int[] ret = new int[buf.getInt()];
+		buf.asIntBuffer().get(ret);
+		buf.position(buf.position() + ret.length * 4);
+		return ret;
+	}
+
+	public double[] readDoubles() {
+		double[] ret = new double[buf.getInt()];
+		buf.asDoubleBuffer().get(ret);
+		buf.position(buf.position() + ret.length * 8);
+		return ret;
+	}
+
+	/**
+	 * reads a database that was written with SnapshotWriter.writeDatabase
+	 * @param model the model the database is for
+	 * @return the (finalized) database
+	 * @throws Exception
+	 */
+	public Database readDatabase(RelationalModel model) throws Exception {
+		Database db = new Database(model);
+		int numDomains = buf.getInt();
+		for(int i = 0; i < numDomains; i++) {
+			String domName = readString();
+			for(String element : readStrings())
+				db.fillDomain(domName, element);
+		}
+		int numEntries = buf.getInt();
+		for(int i = 0; i < numEntries; i++) {
+			String functionName = readString();
+			String[] params = readStrings();
+			String value = readString();
+			db.addVariable(new Variable(functionName, params, value, model), false, false);
+		}
+		// the snapshot was taken after the database was finalized, so values derived via Prolog are already included
+		db.prologDatabaseExtended = true;
+		db.finalize();
+		return db;
+	}
+
+	/**
+	 * reads a set of world variables that was written with SnapshotWriter.writeWorldVariables
+	 * @return
+	 * @throws IOException
+	 */
+	public WorldVariables readWorldVariables() throws IOException {
+		WorldVariables vars = new WorldVariables();
+		readWorldVariables(vars);
+		return vars;
+	}
+
+	/**
+	 * reads world variables into the given (empty) set of variables
+	 * @param vars
+	 * @throws IOException
+	 */
+	public void readWorldVariables(WorldVariables vars) throws IOException {
+		int n = buf.getInt();
+		for(int i = 0; i < n; i++) {
+			String predicate = readString();
+			vars.add(new GroundAtom(predicate, readStrings()));
+		}
+		int size;
+		while((size = buf.getInt()) != -1) {
+			Vector<GroundAtom> block = new Vector<GroundAtom>(size);
+			for(int i = 0; i < size; i++)
+				block.add(vars.get(buf.getInt()));
+			vars.addBlock(block);
+		}
+	}
+
+	/**
+	 * reads a ground formula that was written with SnapshotWriter.writeFormula
+	 * @param vars the world variables that the formula's ground atoms refer to
+	 * @return
+	 * @throws Exception
+	 */
+	public Formula readFormula(WorldVariables vars) throws Exception {
+		byte type = buf.get();
+		switch(type) {
+		case SnapshotWriter.FORMULA_FALSE:
+			return TrueFalse.FALSE;
+		case SnapshotWriter.FORMULA_TRUE:
+			return TrueFalse.TRUE;
+		case SnapshotWriter.FORMULA_ATOM:
+			return vars.get(buf.getInt());
+		case SnapshotWriter.FORMULA_LITERAL:
+			boolean isPositive = readBoolean();
+			return new GroundLiteral(isPositive, vars.get(buf.getInt()));
+		}
+		Formula[] children = new Formula[buf.getInt()];
+		for(int i = 0; i < children.length; i++)
+			children[i] = readFormula(vars);
+		switch(type) {
+		case SnapshotWriter.FORMULA_NEGATION:
+			return new Negation(children[0]);
+		case SnapshotWriter.FORMULA_CONJUNCTION:
+			return new Conjunction(children);
+		case SnapshotWriter.FORMULA_DISJUNCTION:
+			return new Disjunction(children);
+		case SnapshotWriter.FORMULA_IMPLICATION:
+			return new Implication(children[0], children[1]);
+		case SnapshotWriter.FORMULA_BIIMPLICATION:
+			return new Biimplication(children[0], children[1]);
+		}
+		throw new Exception("Invalid formula type " + type + " in snapshot");
+	}
+}
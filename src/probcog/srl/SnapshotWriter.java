@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
+
+import probcog.logic.Biimplication;
+import probcog.logic.ComplexFormula;
+import probcog.logic.Conjunction;
+import probcog.logic.Disjunction;
+import probcog.logic.Formula;
+import probcog.logic.GroundAtom;
+import probcog.logic.GroundLiteral;
+import probcog.logic.Implication;
+import probcog.logic.Negation;
+import probcog.logic.TrueFalse;
+import probcog.logic.WorldVariables;
+import probcog.logic.WorldVariables.Block;
+
+/**
+ * Writes binary snapshots of ground models (see {@link SnapshotReader}).
+ * Strings are stored only once; subsequent occurrences are references into a string table.
+ * @author agent
+ */
+public class SnapshotWriter {
+
+	public static final int MAGIC = 0x50435350;
+	public static final int VERSION = 3;
+
+	public static final byte KIND_MRF = 1;
+	public static final byte KIND_GROUND_BLN = 2;
+
+	protected static final byte FORMULA_FALSE = 0;
+	protected static final byte FORMULA_TRUE = 1;
+	protected static final byte FORMULA_ATOM = 2;
+	protected static final byte FORMULA_LITERAL = 3;
+	protected static final byte FORMULA_NEGATION = 4;
+	protected static final byte FORMULA_CONJUNCTION = 5;
+	protected static final byte FORMULA_DISJUNCTION = 6;
+	protected static final byte FORMULA_IMPLICATION = 7;
+	protected static final byte FORMULA_BIIMPLICATION = 8;
+
+	protected DataOutputStream out;
+	protected HashMap<String, Integer> strings = new HashMap<String, Integer>();
+
+	/**
+	 * opens a snapshot file for writing and writes the header
+	 * @param filename
+	 * @param kind the kind of model that is stored (KIND_*)
+	 * @param info the description of the inputs the snapshot is created from
+	 * @throws IOException
+	 */
+	public SnapshotWriter(String filename, byte kind, SnapshotInfo info) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeByte(kind);
+		info.write(this);
+	}
+
+	public void writeInt(int i) throws IOException {
+		out.writeInt(i);
+	}
+
+	public void writeDouble(double d) throws IOException {
+		out.writeDouble(d);
+	}
+
+	public void writeBoolean(boolean b) throws IOException {
+		out.writeBoolean(b);
+	}
+
+	public void writeString(String s) throws IOException {
+		Integer id = strings.get(s);
+		if(id != null) {
+			out.writeInt(id);
+			return;
+		}
+		strings.put(s, strings.size());
+		out.writeInt(-1);
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	public void writeStrings(String[] a) throws IOException {
+		out.writeInt(a.length);
+		for(String s : a)
+			writeString(s);
+	}
+
+	public void writeInts(int[] a) throws IOException {
+		out.writeInt(a.length);
+		for(int i : a)
+			out.writeInt(i);
+	}
+
+	public void writeDoubles(double[] a) throws IOException {
+		out.writeInt(a.length);
+		for(double d : a)
+			out.writeDouble(d);
+	}
+
+	/**
+	 * writes the domains and entries of a database
+	 * @param db
+	 * @throws Exception
+	 */
+	public void writeDatabase(Database db) throws Exception {
+		db.finalize();
+		out.writeInt(db.domains.size());
+		for(Entry<String, HashSet<String>> e : db.domains.entrySet()) {
+			writeString(e.getKey());
+			writeStrings(e.getValue().toArray(new String[e.getValue().size()]));
+		}
+		out.writeInt(db.entries.size());
+		for(Variable var : db.entries.values()) {
+			writeString(var.functionName);
+			writeStrings(var.params);
+			writeString(var.value);
+		}
+	}
+
+	/**
+	 * writes a set of world variables, including the blocks of mutually exclusive ground atoms
+	 * @param vars
+	 * @throws IOException
+	 */
+	public void writeWorldVariables(WorldVariables vars) throws IOException {
+		int n = vars.size();
+		out.writeInt(n);
+		for(int i = 0; i < n; i++) {
+			GroundAtom ga = vars.get(i);
+			writeString(ga.predicate);
+			writeStrings(ga.args);
+		}
+		// blocks are written as lists of ground atom indices, each block being written once
+		HashSet<Block> blocks = new HashSet<Block>();
+		for(int i = 0; i < n; i++) {
+			Block b = vars.getBlock(i);
+			if(b == null || !blocks.add(b))
+				continue;
+			out.writeInt(b.size());
+			for(GroundAtom ga : b)
+				out.writeInt(ga.index);
+		}
+		out.writeInt(-1);
+	}
+
+	/**
+	 * writes a ground formula whose ground atoms are part of the set of world variables that was previously written
+	 * @param f
+	 * @throws Exception
+	 */
+	public void writeFormula(Formula f) throws Exception {
+		if(f instanceof TrueFalse)
+			out.writeByte(((TrueFalse)f).isTrue() ? FORMULA_TRUE : FORMULA_FALSE);
+		else if(f instanceof GroundAtom) {
+			out.writeByte(FORMULA_ATOM);
+			out.writeInt(((GroundAtom)f).index);
+		}
+		else if(f instanceof GroundLiteral) {
+			GroundLiteral lit = (GroundLiteral)f;
+			out.writeByte(FORMULA_LITERAL);
+			out.writeBoolean(lit.isPositive);
+			out.writeInt(lit.gndAtom.index);
+		}
+		else if(f instanceof ComplexFormula) {
+			if(f instanceof Negation)
+				out.writeByte(FORMULA_NEGATION);
+			else if(f instanceof Conjunction)
+				out.writeByte(FORMULA_CONJUNCTION);
+			else if(f instanceof Disjunction)
+				out.writeByte(FORMULA_DISJUNCTION);
+			else if(f instanceof Implication)
+				out.writeByte(FORMULA_IMPLICATION);
+			else if(f instanceof Biimplication)
+				out.writeByte(FORMULA_BIIMPLICATION);
+			else
+				throw new Exception("Formulas of type " + f.getClass().getSimpleName() + " cannot be written to a snapshot");
+			Formula[] children = ((ComplexFormula)f).children;
+			out.writeInt(children.length);
+			for(Formula child : children)
+				writeFormula(child);
+		}
+		else
+			throw new Exception("Formulas of type " + f.getClass().getSimpleName() + " cannot be written to a snapshot (formula is not ground)");
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+}
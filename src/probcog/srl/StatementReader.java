@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+/**
+ * Reads the lines of a (database) file one at a time, removing Java/C++-style comments on the fly,
+ * such that the file never needs to be held in memory as a whole.
+ * Block comments are removed entirely, i.e. the text before and after a block comment that spans several
+ * lines ends up in the same line.
+ * @author agent
+ */
+public class StatementReader {
+
+	protected static final int BUFFER_SIZE = 1 << 16;
+
+	protected Reader reader;
+	protected char[] buffer = new char[BUFFER_SIZE];
+	protected int bufferPos = 0, bufferLen = 0;
+	/**
+	 * a character that was read ahead and is to be returned next (-2 if none)
+	 */
+	protected int lookahead = -2;
+	protected StringBuilder line = new StringBuilder();
+
+	public StatementReader(File file) throws IOException {
+		FileInputStream is = new FileInputStream(file);
+		reader = Channels.newReader(is.getChannel(), Charset.defaultCharset().newDecoder(), BUFFER_SIZE);
+	}
+
+	public StatementReader(String filename) throws IOException {
+		this(new File(filename));
+	}
+
+	protected int read() throws IOException {
+		if(lookahead != -2) {
+			int c = lookahead;
+			lookahead = -2;
+			return c;
+		}
+		if(bufferPos == bufferLen) {
+			bufferLen = reader.read(buffer, 0, buffer.length);
+			bufferPos = 0;
+			if(bufferLen <= 0) {
+				bufferLen = 0;
+				return -1;
+			}
+		}
+		return buffer[bufferPos++];
+	}
+
+	/**
+	 * reads the next line
+	 * @return the next line with comments removed and surrounding whitespace trimmed (possibly empty) or null if the end of the file has been reached
+	 * @throws IOException
+	 */
+	public String readLine() throws IOException {
+		line.setLength(0);
+		int c = read();
+		if(c == -1)
+			return null;
+		for(; c != -1 && c != '\n'; c = read()) {
+			if(c == '/') {
+				int c2 = read();
+				if(c2 == '/') { // line comment: skip to the end of the line
+					while((c = read()) != -1 && c != '\n');
+					break;
+				}
+				if(c2 == '*') { // block comment: skip to its end
+					int prev = 0;
+					while((c = read()) != -1 && !(prev == '*' && c == '/'))
+						prev = c;
+					continue;
+				}
+				lookahead = c2;
+			}
+			if(c != '\r')
+				line.append((char)c);
+		}
+		return line.toString().trim();
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+}
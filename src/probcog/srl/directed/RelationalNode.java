@@ -512,6 +512,7 @@ public class RelationalNode extends ExtendedNode {
 			buf.append(StringTool.join(",", this.addParams));
 		}
 		this.node.setName(buf.toString());
+		bn.invalidateNodeIndex();
 	}
 	
 	public Discrete getDomain() {
@@ -23,19 +23,37 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import probcog.bayesnets.core.BeliefNetworkEx;
+import probcog.bayesnets.core.DeterministicCPT;
+import probcog.bayesnets.core.ImplicitCPT;
 import probcog.bayesnets.core.Discretized;
 import probcog.inference.IParameterHandler;
+import probcog.inference.Metrics;
 import probcog.inference.ParameterHandler;
 import probcog.srl.BooleanDomain;
 import probcog.srl.Database;
 import probcog.srl.ParameterGrounder;
+import probcog.srl.QueryResolver;
 import probcog.srl.Signature;
+import probcog.srl.SnapshotReader;
+import probcog.srl.SnapshotWriter;
+import probcog.srl.Variable;
 import probcog.srl.directed.CombiningRule;
 import probcog.srl.directed.ExtendedNode;
 import probcog.srl.directed.RelationalBeliefNetwork;
@@ -87,7 +105,11 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 	 * temporary storage of names of instantiated variables (to avoid duplicate instantiation during grounding)
 	 */
 	protected HashSet<String> instantiatedVariables;
-	protected HashMap<String, Value[]> cpfCache;
+	/**
+	 * temporary mapping of CPF equivalence classes to the (shared) arrays of values used by all the ground nodes in the class (used only during grounding).
+	 * Since the arrays are shared, the CPFs of ground nodes must not be modified in place.
+	 */
+	protected HashMap<CPFKey, Value[]> cpfCache;
 	protected boolean verbose = true;
 	protected boolean debug = false;	
 	protected ParameterHandler paramHandler;
@@ -99,6 +121,49 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 	 * maps a ground node (in the ground network) to the template node in the fragment network it was instantiated from 
 	 */
 	protected HashMap<BeliefNode, RelationalNode> groundNode2TemplateNode;
+	/**
+	 * the number of threads with which to check template applicability (and ground parents) during instantiation
+	 */
+	protected int numGroundingThreads = 1;
+	/**
+	 * the number of variables whose templates are checked concurrently before the corresponding nodes are added to the network
+	 */
+	protected static final int GROUNDING_BATCH_SIZE = 4096;
+	/**
+	 * the number of variables that are handled by a single task during the concurrent template check
+	 */
+	protected static final int GROUNDING_TASK_SIZE = 64;
+	/**
+	 * the maximum number of entries of a CPT that is obtained by applying a combining rule, which is to be stored as a full table;
+	 * larger CPTs are represented in factorized form (see {@link CombiningRuleCPT})
+	 */
+	protected long maxCombiningRuleCPTSize = 65536;
+	/**
+	 * the maximum number of inputs of an OR/AND aggregation node; aggregations over more inputs are decomposed into
+	 * a balanced binary tree of auxiliary nodes (0 to always use a single node with a full table)
+	 */
+	protected int maxAggregatorFanIn = 10;
+	/**
+	 * whether the ground network was instantiated only for a set of queries (see {@link #instantiateGroundNetwork(Iterable)}),
+	 * such that it need not contain all the variables that evidence is given for
+	 */
+	protected boolean queryDriven = false;
+	/**
+	 * temporary mapping of variable names to the templates that were found to be applicable to them (used only during query-driven grounding)
+	 */
+	protected HashMap<String, TemplateApplicability> templateApplicabilities;
+	/**
+	 * the queries for which the ground network was instantiated (if it was instantiated query-driven)
+	 */
+	protected Vector<String> queries;
+	/**
+	 * temporary mapping of variable names to existing nodes that are to be reused when instantiating the variables (used only while updating the network)
+	 */
+	protected HashMap<String, BeliefNode> reusableNodes;
+	/**
+	 * the log of the changes that were made to the ground network by updates
+	 */
+	protected GroundNetworkChangeLog changeLog;
 	
 	public AbstractGroundBLN(AbstractBayesianLogicNetwork bln, Database db) throws Exception {
 		init(bln, db);
@@ -115,11 +180,15 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 		paramHandler = new ParameterHandler(this);
 		paramHandler.add("verbose", "setVerbose");
 		paramHandler.add("debug", "setDebugMode");
+		paramHandler.add("groundingThreads", "setNumGroundingThreads");
+		paramHandler.add("maxCombiningRuleCPTSize", "setMaxCombiningRuleCPTSize");
+		paramHandler.add("maxAggregatorFanIn", "setMaxAggregatorFanIn");
 		this.bln = bln;
 		db.finalize(); // before we start grounding with the DB, make sure it's really finalized
 		this.db = db;		
 		cpfIDs = new HashMap<BeliefNode, String>();
 		groundNode2TemplateNode = new HashMap<BeliefNode, RelationalNode>();
+		changeLog = new GroundNetworkChangeLog();
 	}
 	
 	public AbstractBayesianLogicNetwork getBLN() {
@@ -140,17 +209,81 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 	 * @throws Exception
 	 */
 	public void instantiateGroundNetwork(boolean addAuxiliaryVars) throws Exception {
+		instantiateGroundNetwork(addAuxiliaryVars, null);
+	}
+	
+	/**
+	 * instantiates only the part of the ground network that is relevant to the given queries (knowledge-based model construction).
+	 * The dependencies of the query variables, the evidence variables and the variables coupled by formulaic constraints 
+	 * are determined by grounding the templates' parents (without adding any nodes); only the variables that are 
+	 * connected to a query variable in the resulting ancestral graph are then instantiated. 
+	 * All other variables are irrelevant to the queries: unobserved variables without observed descendants are barren, 
+	 * and the remaining ones are d-separated from the query variables. 
+	 * @param queries the queries (as understood by {@link QueryResolver}), e.g. "grade(s,CS101)" 
+	 * @throws Exception
+	 */
+	public void instantiateGroundNetwork(Iterable<String> queries) throws Exception {
+		instantiateGroundNetwork(true, queries);
+	}
+	
+	/**
+	 * instantiates the ground Bayesian network for this model
+	 * @param addAuxiliaryVars if true, also adds auxiliary nodes to the network that correspond to the hard logical constraints
+	 * @param queries the queries for which to instantiate the relevant part of the network (null to instantiate the full network)
+	 * @throws Exception
+	 */
+	protected void instantiateGroundNetwork(boolean addAuxiliaryVars, Iterable<String> queries) throws Exception {
 		Stopwatch sw = new Stopwatch();
 		sw.start();
+		long startTime = System.nanoTime();
 		
 		if(verbose) System.out.println("generating network...");
 		groundBN = new BeliefNetworkEx();
 		
 		// ground regular probabilistic nodes (i.e. ground atoms)
 		if(verbose) System.out.println("  regular nodes");
-		RelationalBeliefNetwork rbn = bln.rbn;
+		collectFunctionTemplates();
+		
+		instantiatedVariables = new HashSet<String>();
+		cpfCache = new HashMap<CPFKey, Value[]>();
+		queryDriven = queries != null;
+		if(queryDriven) {
+			this.queries = new Vector<String>();
+			for(String query : queries)
+				this.queries.add(query);
+			instantiateRelevantVariables(this.queries, addAuxiliaryVars);
+		}
+		else {
+			this.queries = null;
+			instantiateAllVariables();
+		}
+		
+		// clean up
+		instantiatedVariables = null;
+		functionTemplates = null;
+		cpfCache = null;
+		
+		// add auxiliary variables for formulaic constraints
+		if(addAuxiliaryVars) {
+			if(verbose) System.out.println("  formulaic nodes");
+			hardFormulaNodes = new Vector<BeliefNode>();
+			groundFormulaicNodes();
+		}
+		
+		changeLog.onReinstantiated();
+		reportMetrics(System.nanoTime() - startTime);
 		
-		// collect the RelationalNodes that can be used as templates to ground variables for the various functions		
+		if(verbose) {
+			System.out.println("network size: " + getGroundNetwork().bn.getNodes().length + " nodes");
+			System.out.println(String.format("construction time: %.4fs", sw.getElapsedTimeSecs()));
+		}
+	}
+	
+	/**
+	 * collects the relational nodes that can be used as templates to ground variables for the various functions
+	 */
+	protected void collectFunctionTemplates() {
+		RelationalBeliefNetwork rbn = bln.rbn;
 		functionTemplates = new HashMap<String, Vector<RelationalNode>>();
 		BeliefNode[] nodes = rbn.bn.getNodes();
 		for(int i = 0; i < nodes.length; i++) {
@@ -170,61 +303,382 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 			}
 			v.add(relNode);
 		}
-		
+	}
+	
+	/**
+	 * instantiates the variables for all groundings of all functions
+	 * @throws Exception
+	 */
+	protected void instantiateAllVariables() throws Exception {
 		// go through all function names and generate all groundings for each of them
-		instantiatedVariables = new HashSet<String>();
-		cpfCache = new HashMap<String, Value[]>();
 		Iterable<String> functionNames = this.bln.rbn.getFunctionNames(); // functionTemplates.keySet(); 
-		for(String functionName : functionNames) {
-			if(verbose) System.out.println("    " + functionName);
-			Collection<String[]> parameterSets = ParameterGrounder.generateGroundings(bln.rbn, functionName, db);
-			for(String[] params : parameterSets) 
-				instantiateVariable(functionName, params);
+		ExecutorService pool = null;
+		if(numGroundingThreads > 1) {
+			prepareConcurrentGrounding();
+			pool = Executors.newFixedThreadPool(numGroundingThreads);
+		}
+		try {
+			for(String functionName : functionNames) {
+				if(verbose) System.out.println("    " + functionName);
+				Collection<String[]> parameterSets = ParameterGrounder.generateGroundings(bln.rbn, functionName, db);
+				if(pool == null) {
+					for(String[] params : parameterSets) 
+						instantiateVariable(functionName, params);
+				}
+				else
+					instantiateVariables(functionName, parameterSets, pool);
+			}
+		}
+		finally {
+			if(pool != null)
+				pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * instantiates the variables that are relevant to the given queries (see {@link #instantiateGroundNetwork(Iterable)})
+	 * @param queries
+	 * @param addAuxiliaryVars whether the dependencies introduced by formulaic constraints are to be considered
+	 * @throws Exception
+	 */
+	protected void instantiateRelevantVariables(Iterable<String> queries, boolean addAuxiliaryVars) throws Exception {
+		DependencyStructure deps = new DependencyStructure();
+		// query variables
+		Vector<String> queryVars = new Vector<String>();
+		for(String query : queries) {
+			QueryResolver.Query q = QueryResolver.Query.parse(query);
+			if(bln.rbn.getSignature(q.predicate) == null) // queries that do not refer to a function simply have no results
+				continue;
+			for(String[] params : ParameterGrounder.generateGroundings(bln.rbn, q.predicate, db))
+				if(q.matches(params))
+					queryVars.add(addDependencies(q.predicate, params, deps));
 		}
+		// evidence variables
+		for(Variable var : db.getEntries())
+			if(!bln.rbn.isEvidenceFunction(var.functionName))
+				addDependencies(var.functionName, var.params, deps);
+		// variables that are coupled by formulaic constraints (which are evidence, too)
+		if(addAuxiliaryVars)
+			addFormulaicDependencies(deps);
 		
-		// clean up
-		instantiatedVariables = null;
-		functionTemplates = null;
-		cpfCache = null;
+		// instantiate the variables that are connected to a query variable
+		HashSet<String> relevantComponents = new HashSet<String>();
+		for(String var : queryVars)
+			relevantComponents.add(deps.find(var));
+		templateApplicabilities = deps.templateApplicabilities;
+		int numRelevant = 0;
+		for(Entry<String, Pair<String, String[]>> e : deps.vars.entrySet()) {
+			if(!relevantComponents.contains(deps.find(e.getKey())))
+				continue;
+			instantiateVariable(e.getValue().first, e.getValue().second);
+			numRelevant++;
+		}
+		templateApplicabilities = null;
+		if(verbose) System.out.printf("    %d of %d variables considered are relevant to the queries\n", numRelevant, deps.vars.size());
+	}
+	
+	/**
+	 * adds the given variable and (recursively) all of its ancestors to the dependency structure, 
+	 * determining the applicable templates but without instantiating any nodes
+	 * @param functionName
+	 * @param params
+	 * @param deps
+	 * @return the name of the variable
+	 */
+	protected String addDependencies(String functionName, String[] params, DependencyStructure deps) {
+		String varName = Signature.formatVarName(functionName, params);
+		if(!deps.add(varName, functionName, params))
+			return varName;
+		LinkedList<String> pending = new LinkedList<String>();
+		pending.add(varName);
+		while(!pending.isEmpty()) {
+			String child = pending.removeFirst();
+			Pair<String, String[]> var = deps.vars.get(child);
+			TemplateApplicability ta = checkTemplates(var.first, var.second);
+			deps.templateApplicabilities.put(child, ta);
+			for(Pair<RelationalNode, Vector<ParentGrounding>> template : ta.suitableTemplates) {
+				for(ParentGrounding grounding : template.second) {
+					for(Entry<Integer, String[]> entry : grounding.nodeArgs.entrySet()) {
+						RelationalNode relParent = bln.rbn.getRelationalNode(entry.getKey());
+						if(relParent == template.first || relParent.isConstant)
+							continue;
+						// preconditions are parents only if they are instantiated by a combining rule
+						if(relParent.isPrecondition && (!ta.combiningRuleNeeded || bln.rbn.isEvidenceFunction(relParent.getFunctionName())))
+							continue;
+						String parentName = Signature.formatVarName(relParent.getFunctionName(), entry.getValue());
+						if(deps.add(parentName, relParent.getFunctionName(), entry.getValue()))
+							pending.add(parentName);
+						deps.union(child, parentName);
+					}
+				}
+			}
+		}
+		return varName;
+	}
+	
+	/**
+	 * adds the dependencies that are introduced by formulaic constraints (if any) to the dependency structure, 
+	 * i.e. the variables that appear in a constraint are connected (and their ancestors are added)
+	 * @param deps
+	 * @throws Exception
+	 */
+	protected void addFormulaicDependencies(DependencyStructure deps) throws Exception {
+	}
+	
+	/**
+	 * the dependency structure of a set of ground variables as determined before instantiation: the variables are partitioned into 
+	 * sets of variables that are connected via dependencies (regardless of the direction of the dependencies) 
+	 */
+	protected static class DependencyStructure {
+		/**
+		 * maps the names of the variables to their function names and parameters (in the order in which they were added)
+		 */
+		public LinkedHashMap<String, Pair<String, String[]>> vars = new LinkedHashMap<String, Pair<String, String[]>>();
+		public HashMap<String, TemplateApplicability> templateApplicabilities = new HashMap<String, TemplateApplicability>();
+		/**
+		 * maps variables to another variable in the same set (union-find forest); the variables at the roots are not contained
+		 */
+		protected HashMap<String, String> links = new HashMap<String, String>();
 		
-		// add auxiliary variables for formulaic constraints
-		if(addAuxiliaryVars) {
-			if(verbose) System.out.println("  formulaic nodes");
-			hardFormulaNodes = new Vector<BeliefNode>();
-			groundFormulaicNodes();
+		/**
+		 * @return true if the variable was added, false if it was previously added
+		 */
+		public boolean add(String varName, String functionName, String[] params) {
+			if(vars.containsKey(varName))
+				return false;
+			vars.put(varName, new Pair<String, String[]>(functionName, params));
+			return true;
 		}
 		
-		if(verbose) {
-			System.out.println("network size: " + getGroundNetwork().bn.getNodes().length + " nodes");
-			System.out.println(String.format("construction time: %.4fs", sw.getElapsedTimeSecs()));
+		/**
+		 * @return the representative of the set of variables the given variable belongs to
+		 */
+		public String find(String varName) {
+			String root = varName;
+			String next;
+			while((next = links.get(root)) != null)
+				root = next;
+			// compress the path
+			while(!varName.equals(root)) {
+				next = links.put(varName, root);
+				varName = next;
+			}
+			return root;
+		}
+		
+		/**
+		 * merges the sets of the two given variables
+		 */
+		public void union(String var1, String var2) {
+			String root1 = find(var1), root2 = find(var2);
+			if(!root1.equals(root2))
+				links.put(root1, root2);
 		}
 	}
 	
 	/**
-	 * instantiates the variable that corresponds to the given function name and actual parameters
-	 * by looking for a template and applying it, or simply returns the variable if it was previously instantiated
+	 * reports the size of the ground network and the time taken to instantiate it to the metrics registry
+	 * @param groundingTime the time taken (in nanoseconds)
+	 */
+	protected void reportMetrics(long groundingTime) {
+		BeliefNode[] nodes = groundBN.bn.getNodes();
+		long numEdges = 0;
+		for(BeliefNode n : nodes)
+			numEdges += n.getCPF().getDomainProduct().length - 1;
+		Metrics.add(Metrics.GROUNDING_TIME, groundingTime);
+		Metrics.set(Metrics.GROUND_NETWORK_NODES, nodes.length);
+		Metrics.set(Metrics.GROUND_NETWORK_EDGES, numEdges);
+		Metrics.set(Metrics.GROUND_FORMULAS, hardFormulaNodes == null ? 0 : hardFormulaNodes.size());
+	}
+	
+	/**
+	 * makes sure that all the data that is lazily initialized while checking template applicability is available,
+	 * such that templates can subsequently be checked concurrently 
+	 * @throws Exception
+	 */
+	protected void prepareConcurrentGrounding() throws Exception {
+		for(Vector<RelationalNode> templates : functionTemplates.values())
+			for(RelationalNode relNode : templates)
+				relNode.getParentGrounder();
+		// the index of node names is built when the first node is looked up
+		groundBN.updateNodeIndex();
+		// domains are cached by the database when first requested
+		for(Signature sig : bln.rbn.getSignatures()) {
+			for(String argType : sig.argTypes) {
+				try {
+					db.getDomain(argType);
+				}
+				catch(Exception e) { // errors are reported when the domain is actually needed
+				}
+			}
+		}
+	}
+	
+	/**
+	 * instantiates the variables for the given function name and parameter sets in two phases:
+	 * First, the applicable templates (and the groundings of their parents) are determined concurrently for a batch of variables;
+	 * then the nodes are added to the network in the original order, such that the resulting network is the same as
+	 * the one obtained by instantiating the variables one after the other 
 	 * @param functionName
-	 * @param params
+	 * @param parameterSets
+	 * @param pool the thread pool with which to check the templates 
 	 * @throws Exception
 	 */
-	protected BeliefNode instantiateVariable(String functionName, String[] params) throws Exception {
-		// check if the variable was previously instantiated and return the node if so
-		String varName = Signature.formatVarName(functionName, params);		
+	protected void instantiateVariables(final String functionName, Collection<String[]> parameterSets, ExecutorService pool) throws Exception {
+		Iterator<String[]> iter = parameterSets.iterator();
+		while(iter.hasNext()) {
+			// phase 1: check templates concurrently
+			Vector<String[]> batch = new Vector<String[]>(GROUNDING_BATCH_SIZE);
+			Vector<Future<Vector<TemplateApplicability>>> pending = new Vector<Future<Vector<TemplateApplicability>>>();
+			while(iter.hasNext() && batch.size() < GROUNDING_BATCH_SIZE) {
+				final Vector<String[]> task = new Vector<String[]>(GROUNDING_TASK_SIZE);
+				while(iter.hasNext() && task.size() < GROUNDING_TASK_SIZE)
+					task.add(iter.next());
+				batch.addAll(task);
+				// variables that were already instantiated as parents of other variables need not be checked
+				// (determined here, because the set of instantiated variables is modified during phase 2)
+				final boolean[] instantiated = new boolean[task.size()];
+				for(int j = 0; j < instantiated.length; j++)
+					instantiated[j] = instantiatedVariables.contains(Signature.formatVarName(functionName, task.get(j)));
+				pending.add(pool.submit(new Callable<Vector<TemplateApplicability>>() {
+					public Vector<TemplateApplicability> call() throws Exception {
+						Vector<TemplateApplicability> ret = new Vector<TemplateApplicability>(task.size());
+						for(int j = 0; j < instantiated.length; j++)
+							ret.add(instantiated[j] ? null : checkTemplates(functionName, task.get(j)));
+						return ret;
+					}
+				}));
+			}
+			// phase 2: add the nodes sequentially
+			int i = 0;
+			for(Future<Vector<TemplateApplicability>> f : pending) {
+				Vector<TemplateApplicability> results;
+				try {
+					results = f.get();
+				}
+				catch(ExecutionException e) {
+					if(e.getCause() instanceof Exception)
+						throw (Exception)e.getCause();
+					throw e;
+				}
+				for(TemplateApplicability ta : results)
+					instantiateVariable(functionName, batch.get(i++), ta);
+			}
+		}
+	}
+	
+	/**
+	 * identifies a class of ground CPFs with the same values, which can thus share the same array of values
+	 */
+	protected static class CPFKey {
+		/**
+		 * identifies the template (or the function) from which the CPF is built
+		 */
+		protected String id;
+		/**
+		 * further integer data that distinguishes CPFs built from the same template (or null)
+		 */
+		protected int[] settings;
 		
-		if(instantiatedVariables.contains(varName))
-			return groundBN.getNode(varName);
+		public CPFKey(String id) {
+			this(id, null);
+		}
 		
-		if(debug) System.out.println("instantiating variable " + varName);
+		public CPFKey(String id, int[] settings) {
+			this.id = id;
+			this.settings = settings;
+		}
+		
+		@Override
+		public int hashCode() {
+			return id.hashCode() * 31 + Arrays.hashCode(settings);
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof CPFKey))
+				return false;
+			CPFKey k = (CPFKey)o;
+			return id.equals(k.id) && Arrays.equals(settings, k.settings);
+		}
+		
+		/**
+		 * @return the string representation, which serves as the CPF-id
+		 */
+		@Override
+		public String toString() {
+			if(settings == null)
+				return id;
+			return id + Arrays.toString(settings);
+		}
+	}
+	
+	/**
+	 * the result of checking which of the templates for a function are applicable to a particular variable 
+	 */
+	protected static class TemplateApplicability {
+		public Vector<Pair<RelationalNode, Vector<ParentGrounding>>> suitableTemplates = new Vector<Pair<RelationalNode, Vector<ParentGrounding>>>();
+		/**
+		 * the errors that occurred while checking templates (which are thus inapplicable)
+		 */
+		public LinkedList<Exception> exceptions = new LinkedList<Exception>();
+		public boolean combiningRuleNeeded = false;
+		
+		/**
+		 * @param other
+		 * @return true if the same templates are applicable with the same groundings of their parents, such that the variable is instantiated in the same way
+		 */
+		public boolean isEquivalentTo(TemplateApplicability other) {
+			if(combiningRuleNeeded != other.combiningRuleNeeded || suitableTemplates.size() != other.suitableTemplates.size())
+				return false;
+			for(int i = 0; i < suitableTemplates.size(); i++) {
+				Pair<RelationalNode, Vector<ParentGrounding>> t1 = suitableTemplates.get(i), t2 = other.suitableTemplates.get(i);
+				if(t1.first != t2.first || t1.second.size() != t2.second.size())
+					return false;
+				for(int j = 0; j < t1.second.size(); j++) {
+					Map<Integer, String[]> args1 = t1.second.get(j).nodeArgs, args2 = t2.second.get(j).nodeArgs;
+					if(!args1.keySet().equals(args2.keySet()))
+						return false;
+					for(Entry<Integer, String[]> e : args1.entrySet())
+						if(!Arrays.equals(e.getValue(), args2.get(e.getKey())))
+							return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * determines the templates that are applicable to the variable with the given function name and actual parameters.
+	 * This method does not modify the ground network and may be called concurrently (after {@link #prepareConcurrentGrounding()}).
+	 * @param functionName
+	 * @param params
+	 * @return
+	 */
+	protected TemplateApplicability checkTemplates(String functionName, String[] params) {
+		return checkTemplates(functionName, params, db);
+	}
+	
+	/**
+	 * determines the templates that are applicable to the variable with the given function name and actual parameters
+	 * with respect to the given database
+	 * @param functionName
+	 * @param params
+	 * @param db
+	 * @return
+	 */
+	protected TemplateApplicability checkTemplates(String functionName, String[] params, Database db) {
+		TemplateApplicability ret = new TemplateApplicability();
 		
 		// consider all the relational nodes that could be used to instantiate the variable		
 		Vector<RelationalNode> templates = functionTemplates.get(functionName);
 			
 		boolean combiningRuleNeeded = false;
 		
-		Vector<Pair<RelationalNode, Vector<ParentGrounding>>> suitableTemplates = new Vector<Pair<RelationalNode, Vector<ParentGrounding>>>(); 
+		Vector<Pair<RelationalNode, Vector<ParentGrounding>>> suitableTemplates = ret.suitableTemplates; 
 		
 		// check potentially applicable templates
-		LinkedList<Exception> exceptions = new LinkedList<Exception>();
+		LinkedList<Exception> exceptions = ret.exceptions;
 		if(templates != null) {
 			for(RelationalNode relNode : templates) {
 				
@@ -251,41 +705,73 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 				suitableTemplates.add(new Pair<RelationalNode, Vector<ParentGrounding>>(relNode, groundings));
 			}
 		}
+		ret.combiningRuleNeeded = combiningRuleNeeded;
+		return ret;
+	}
+	
+	/**
+	 * instantiates the variable that corresponds to the given function name and actual parameters
+	 * by looking for a template and applying it, or simply returns the variable if it was previously instantiated
+	 * @param functionName
+	 * @param params
+	 * @throws Exception
+	 */
+	protected BeliefNode instantiateVariable(String functionName, String[] params) throws Exception {
+		return instantiateVariable(functionName, params, null);
+	}
+	
+	/**
+	 * instantiates the variable that corresponds to the given function name and actual parameters
+	 * by applying a suitable template, or simply returns the variable if it was previously instantiated
+	 * @param functionName
+	 * @param params
+	 * @param templateApplicability the applicable templates for the variable (if previously determined, otherwise null)
+	 * @throws Exception
+	 */
+	protected BeliefNode instantiateVariable(String functionName, String[] params, TemplateApplicability templateApplicability) throws Exception {
+		// check if the variable was previously instantiated and return the node if so
+		String varName = Signature.formatVarName(functionName, params);		
+		
+		if(instantiatedVariables.contains(varName))
+			return groundBN.getNode(varName);
+		
+		if(debug) System.out.println("instantiating variable " + varName);
+		
+		if(templateApplicability == null && templateApplicabilities != null)
+			templateApplicability = templateApplicabilities.remove(varName);
+		if(templateApplicability == null)
+			templateApplicability = checkTemplates(functionName, params);
+		Vector<Pair<RelationalNode, Vector<ParentGrounding>>> suitableTemplates = templateApplicability.suitableTemplates;
+		LinkedList<Exception> exceptions = templateApplicability.exceptions;
+		boolean combiningRuleNeeded = templateApplicability.combiningRuleNeeded;
+		
+		// if the network is being updated, the variable's node may already exist (it is reused if the variable's domain is unchanged)
+		BeliefNode existingNode = reusableNodes == null ? null : reusableNodes.remove(varName);
 
 		// if there are no suitable template, we may have an error case
 		if(suitableTemplates.isEmpty()) {			
 		
 			// if a uniform default distribution was defined, construct it
 			if(this.bln.rbn.usesUniformDefault(functionName)) {
-				// TODO reuse data structures			
 				Signature sig = this.bln.rbn.getSignature(functionName);
-				String[] aOutcomes;
-				ValueDouble[] dist;
-				if(sig.isBoolean()) {
-					aOutcomes = new String[]{"True", "False"};
-					ValueDouble half = new ValueDouble(0.5);
-					dist = new ValueDouble[]{half, half};
+				String[] aOutcomes = getUniformDefaultOutcomes(sig);
+				// all uniform distributions over domains of the same size share the same values
+				CPFKey key = new CPFKey("uniform", new int[]{aOutcomes.length});
+				Value[] dist = cpfCache.get(key);
+				if(dist == null) {
+					ValueDouble p = new ValueDouble(1.0 / aOutcomes.length);
+					dist = new Value[aOutcomes.length];
+					Arrays.fill(dist, p);
+					cpfCache.put(key, dist);
 				}
-				else {
-					Iterable<String> outcomes = db.getDomain(sig.returnType);
-					int c = 0;
-					for(@SuppressWarnings("unused") String o : outcomes)
-						c++;
-					aOutcomes = new String[c];
-					int i = 0;
-					double p = 1.0 / c;
-					dist = new ValueDouble[c];
-					for(String o : outcomes) {
-						dist[i] = new ValueDouble(p);
-						aOutcomes[i++] = o;
-					}
-				}
-				Discrete domain = new Discrete(aOutcomes);
-				BeliefNode mainNode = this.groundBN.addNode(varName, domain);				
+				BeliefNode mainNode = existingNode;
+				if(mainNode == null)
+					mainNode = this.groundBN.addNode(varName, new Discrete(aOutcomes));				
 				CPT cpf = new CPT();
 				cpf.build(new BeliefNode[]{mainNode}, dist);
 				mainNode.setCPF(cpf);
-				onAddGroundAtomNode(mainNode, params, sig);
+				if(existingNode == null)
+					onAddGroundAtomNode(mainNode, params, sig);
 				instantiatedVariables.add(mainNode.getName());
 				return mainNode;
 			}	
@@ -334,8 +820,11 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 			System.out.println("      " + mainNodeName);
 
 		// add the node itself to the network				
-		BeliefNode mainNode = groundBN.addNode(mainNodeName, relNode.node.getDomain(), relNode.node.getType());		
-		onAddGroundAtomNode(mainNode, params, relNode.getSignature());
+		BeliefNode mainNode = existingNode;
+		if(mainNode == null) {
+			mainNode = groundBN.addNode(mainNodeName, relNode.node.getDomain(), relNode.node.getType());		
+			onAddGroundAtomNode(mainNode, params, relNode.getSignature());
+		}
 		
 		// we can now instantiate the variable based on the suitable templates
 		if(!combiningRuleNeeded) {	
@@ -354,6 +843,25 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 		return mainNode;
 	}
 	
+	/**
+	 * @param sig
+	 * @return the outcomes of the uniform default distribution of the given function
+	 * @throws Exception
+	 */
+	protected String[] getUniformDefaultOutcomes(Signature sig) throws Exception {
+		if(sig.isBoolean()) 
+			return new String[]{"True", "False"};
+		Iterable<String> outcomes = db.getDomain(sig.returnType);
+		int c = 0;
+		for(@SuppressWarnings("unused") String o : outcomes)
+			c++;
+		String[] aOutcomes = new String[c];
+		int i = 0;
+		for(String o : outcomes) 
+			aOutcomes[i++] = o;
+		return aOutcomes;
+	}
+	
 	/**
 	 * instantiates a variable from the given node template for the actual parameters
 	 * @param relNode		the node that is to serve as the template
@@ -434,11 +942,20 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 					cpfid += String.format("-AND(%d)", groundings.size());
 					break;
 				}
+				BeliefNode[] domprod_arr = domprod.toArray(new BeliefNode[domprod.size()]);
+				// if there are too many inputs, decompose the aggregation into a tree
+				int numInputs = domprod_arr.length - 1;
+				int groupSize = combFunc == Aggregator.FunctionalOr ? groundings.firstElement().nodeArgs.size()-1 : 1;
+				if(maxAggregatorFanIn > 0 && numInputs > maxAggregatorFanIn && groupSize > 0 && numInputs % groupSize == 0) {
+					if(debug) System.out.println("        decomposing aggregation over " + numInputs + " inputs");
+					instantiateAggregationTree(mainNode, domprod_arr, combFunc != Aggregator.FunctionalAnd, groupSize);
+					return;
+				}
 				// build the CPF
 				CPT cpf = (CPT)mainNode.getCPF();
-				BeliefNode[] domprod_arr = domprod.toArray(new BeliefNode[domprod.size()]);
 				// - check if we have a cached CPF that we can reuse
-				Value[] values = cpfCache.get(cpfid);
+				CPFKey key = new CPFKey(cpfid);
+				Value[] values = cpfCache.get(key);
 				if(values != null)
 					cpf.build(domprod_arr, values);
 				// - otherwise set and apply the filler
@@ -458,7 +975,7 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 					}
 					filler.fill();
 					// store the newly built CPF in the cache	
-					cpfCache.put(cpfid, cpf.getValues());
+					cpfCache.put(key, cpf.getValues());
 				}
 				// set the CPF-id
 				cpfIDs.put(mainNode, cpfid); 
@@ -472,7 +989,8 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 				String cpfid = combFunc.getFunctionSyntax() + String.format("-%d", groundings.size());
 				BeliefNode[] domprod_arr = domprod.toArray(new BeliefNode[domprod.size()]);
 				// - check if we have a cached CPF that we can reuse
-				Value[] values = cpfCache.get(cpfid);
+				CPFKey key = new CPFKey(cpfid);
+				Value[] values = cpfCache.get(key);
 				if(values != null)
 					cpf.build(domprod_arr, values);
 				// - otherwise set and apply the filler
@@ -481,7 +999,7 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 					CPFFiller filler = new CPFFiller_SUM(mainNode);
 					filler.fill();
 					// store the newly built CPF in the cache	
-					cpfCache.put(cpfid, cpf.getValues());
+					cpfCache.put(key, cpf.getValues());
 				}
 				// set the CPF-id
 				cpfIDs.put(mainNode, cpfid); 
@@ -492,6 +1010,87 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 		}
 	}
 	
+	/**
+	 * decomposes the aggregation of the parents of an OR/AND aggregation node into a balanced binary tree of auxiliary nodes,
+	 * which replaces the direct connections between the parents and the node
+	 * @param mainNode  the aggregation node
+	 * @param domprod  the flat domain product of the aggregation node (the node itself followed by the inputs)
+	 * @param isOr  whether the node computes the disjunction of (conjunctions of) the inputs; the conjunction otherwise 
+	 * @param groupSize  the number of consecutive inputs that make up a conjunction (if isOr), 1 for a simple disjunction 
+	 * @throws Exception
+	 */
+	protected void instantiateAggregationTree(BeliefNode mainNode, BeliefNode[] domprod, boolean isOr, int groupSize) throws Exception {
+		for(int i = 1; i < domprod.length; i++)
+			groundBN.disconnect(domprod[i], mainNode);
+		Vector<BeliefNode> auxNodes = new Vector<BeliefNode>();
+		Vector<BeliefNode> inputs = new Vector<BeliefNode>();
+		for(int i = 1; i < domprod.length; i += groupSize) {
+			// each group of inputs is first reduced to a conjunction (if necessary)
+			List<BeliefNode> group = Arrays.asList(domprod).subList(i, i + groupSize);
+			if(isOr && groupSize > 1)
+				inputs.add(getAggregationTreeNode(mainNode, group, false, auxNodes));
+			else
+				inputs.addAll(group);
+		}
+		instantiateAggregationTree(mainNode, mainNode, inputs, isOr, auxNodes);
+	}
+	
+	/**
+	 * connects the given inputs to the target node, where at most two inputs are connected directly 
+	 * and larger sets of inputs are split in half and aggregated in auxiliary nodes
+	 * @param mainNode  the aggregation node the tree belongs to
+	 * @param target  the node (the aggregation node or an auxiliary node) that is to compute the aggregate of the inputs
+	 * @param inputs  the Boolean nodes to aggregate
+	 * @param isOr  whether to compute the disjunction (conjunction otherwise)
+	 * @param auxNodes  the auxiliary nodes created for the tree so far
+	 * @throws Exception
+	 */
+	protected void instantiateAggregationTree(BeliefNode mainNode, BeliefNode target, List<BeliefNode> inputs, boolean isOr, Vector<BeliefNode> auxNodes) throws Exception {
+		BeliefNode[] domprod;
+		if(inputs.size() <= 2) {
+			domprod = new BeliefNode[1 + inputs.size()];
+			for(int i = 0; i < inputs.size(); i++)
+				domprod[i+1] = inputs.get(i);
+		}
+		else {
+			int mid = inputs.size() / 2;
+			domprod = new BeliefNode[3];
+			domprod[1] = getAggregationTreeNode(mainNode, inputs.subList(0, mid), isOr, auxNodes);
+			domprod[2] = getAggregationTreeNode(mainNode, inputs.subList(mid, inputs.size()), isOr, auxNodes);
+		}
+		domprod[0] = target;
+		for(int i = 1; i < domprod.length; i++)
+			groundBN.connect(domprod[i], target, false);
+		String cpfid = String.format("%s(%d)", isOr ? "OR" : "AND", domprod.length-1);
+		CPT cpf = (CPT)target.getCPF();
+		CPFKey key = new CPFKey(cpfid);
+		Value[] values = cpfCache.get(key);
+		if(values != null)
+			cpf.build(domprod, values);
+		else {
+			cpf.buildZero(domprod, false);
+			CPFFiller filler = isOr ? new CPFFiller_OR(target) : new CPFFiller_AND(target);
+			filler.fill();
+			cpfCache.put(key, cpf.getValues());
+		}
+		cpfIDs.put(target, cpfid);
+	}
+	
+	/**
+	 * @return the node that aggregates the given inputs: the input itself if there is only one, a new auxiliary node otherwise
+	 */
+	protected BeliefNode getAggregationTreeNode(BeliefNode mainNode, List<BeliefNode> inputs, boolean isOr, Vector<BeliefNode> auxNodes) throws Exception {
+		if(inputs.size() == 1)
+			return inputs.get(0);
+		String auxNodeName = String.format("AUX%s%d_%s", isOr ? "OR" : "AND", auxNodes.size(), mainNode.getName());
+		BeliefNode auxNode = groundBN.addNode(auxNodeName, mainNode.getDomain(), mainNode.getType());
+		auxNodes.add(auxNode);
+		Pair<String,String[]> p = RelationalNode.parse(auxNodeName);
+		this.onAddAuxiliaryNode(auxNode, true, p.first, p.second);
+		instantiateAggregationTree(mainNode, auxNode, inputs, isOr, auxNodes);
+		return auxNode;
+	}
+	
 	protected BeliefNode instantiateVariableWithCombiningRule(BeliefNode mainNode, Vector<Pair<RelationalNode, Vector<ParentGrounding>>> suitableTemplates, CombiningRule r) throws Exception {
 		// get the parent set
 		HashMap<BeliefNode, Integer> parentIndices = new HashMap<BeliefNode, Integer>();
@@ -532,19 +1131,52 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 			}
 		}
 		
-		// initialize CPF & connect parents
-		CPT cpf = (CPT)mainNode.getCPF();
+		// connect parents
 		BeliefNode[] domprod = new BeliefNode[1 + parentIndices.size()];
 		domprod[0] = mainNode;
 		for(Entry<BeliefNode, Integer> e : parentIndices.entrySet()) {
 			domprod[e.getValue()] = e.getKey();
 			this.groundBN.connect(e.getKey(), mainNode, false);
 		}
-		cpf.buildZero(domprod, false);
 		
-		// fill the CPF
+		// the values are determined by the templates and the positions of their parents in the combined domain product
+		Vector<Integer> settings = new Vector<Integer>();
+		settings.add(domprod.length);
+		for(Pair<RelationalNode, Map<BeliefNode,Integer>> m : templateDomprodMap) {
+			settings.add(m.first.index);
+			BeliefNode[] domprod2 = m.first.node.getCPF().getDomainProduct();
+			for(int i2 = 1; i2 < domprod2.length; i2++) {
+				Integer i1 = m.second.get(domprod2[i2]);
+				settings.add(i1 == null ? -1 : i1);
+			}
+		}
+		int[] aSettings = new int[settings.size()];
+		for(int i = 0; i < aSettings.length; i++)
+			aSettings[i] = settings.get(i);
+		CPFKey key = new CPFKey("CR-" + r, aSettings);
 		if(debug) System.out.println("        combined domain is " + StringTool.join(", ", domprod));
-		fillCPFCombiningRule(cpf, 1, new int[domprod.length], templateDomprodMap, r);
+		
+		// if the full table would be too large, use the factorized representation
+		long tableSize = 1;
+		for(int i = 0; i < domprod.length && tableSize <= maxCombiningRuleCPTSize; i++)
+			tableSize *= domprod[i].getDomain().getOrder();
+		if(tableSize > maxCombiningRuleCPTSize) {
+			if(debug) System.out.println("        using factorized CPF");
+			mainNode.setCPF(new CombiningRuleCPT(r, domprod, bln.rbn, aSettings));
+		}
+		// otherwise fill the CPF (or reuse the values of an equivalent one)
+		else {
+			CPT cpf = (CPT)mainNode.getCPF();
+			Value[] values = cpfCache.get(key);
+			if(values != null)
+				cpf.build(domprod, values);
+			else {
+				cpf.buildZero(domprod, false);
+				fillCPFCombiningRule(cpf, 1, new int[domprod.length], templateDomprodMap, r);
+				cpfCache.put(key, cpf.getValues());
+			}
+		}
+		cpfIDs.put(mainNode, key.toString());
 		
 		return mainNode;
 	}
@@ -615,10 +1247,415 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 	protected abstract void onAddGroundAtomNode(BeliefNode instance, String[] params, Signature sig);
 	
 	protected void onAddAuxiliaryNode(BeliefNode var, boolean isBoolean, String functionName, String[] params) {}
+	
+	/**
+	 * called after nodes were removed from the ground network (while updating it)
+	 * @param nodes
+	 */
+	protected void onRemoveNodes(Collection<BeliefNode> nodes) {}
 
 	public Database getDatabase() {
 		return db;
 	}
+
+	/**
+	 * rebinds the ground model to a different evidence database, such that the ground network can be reused for new evidence.
+	 * This is only valid if the new database has the same domains and the same evidence on logical/precondition functions
+	 * as the database the model was instantiated for (and no evidence was used to simplify the ground model).
+	 * @param db
+	 * @throws Exception
+	 */
+	public void setDatabase(Database db) throws Exception {
+		db.finalize();
+		this.db = db;
+		this.databaseFile = null;
+	}
+
+	/**
+	 * updates the ground network for a new evidence database, which may differ from the current one in the evidence 
+	 * (evidence added, retracted or changed) as well as in the domains (constants added or removed).
+	 * Only the parts of the network that depend on the changes are updated: The nodes of variables whose groundings 
+	 * no longer exist are removed, nodes are added for new groundings, and the variables whose applicable templates 
+	 * (and thus parents and CPFs) changed are instantiated anew (reusing their nodes), as are the children of removed nodes;
+	 * the auxiliary nodes of formulaic constraints are updated accordingly.
+	 * Changes in the evidence on regular (non-logical) functions merely rebind the evidence (see {@link #setDatabase(Database)}).
+	 * The resulting network is equivalent to the one obtained by instantiating the network for the new database from scratch,
+	 * except for the order and the names of the nodes. The changes are recorded in the change log (see {@link #getChangeLog()}).
+	 * If the network was instantiated for a set of queries, the relevant part of the network is instantiated anew.
+	 * @param db the new evidence database
+	 * @throws Exception
+	 */
+	public void updateGroundNetwork(Database db) throws Exception {
+		if(groundBN == null)
+			throw new Exception("The ground network has not been instantiated yet");
+		Stopwatch sw = new Stopwatch();
+		sw.start();
+		long startTime = System.nanoTime();
+		
+		// determine the changes in the evidence and the domains
+		db.finalize();
+		Database oldDB = this.db;
+		HashSet<String> changedFunctions = new HashSet<String>();
+		changeLog.onEvidenceChanged(getChangedEvidence(oldDB, db, changedFunctions));
+		HashSet<String> changedTypes = getChangedTypes(oldDB, db);
+		setDatabase(db);
+		if(changedFunctions.isEmpty() && changedTypes.isEmpty()) {
+			changeLog.nextRevision();
+			return;
+		}
+		
+		// if only the part of the network that is relevant to the queries was instantiated, the relevant part may have changed in any way
+		if(queryDriven) {
+			instantiateGroundNetwork(hardFormulaNodes != null, queries);
+			return;
+		}
+		
+		if(verbose) System.out.println("updating network...");
+		RelationalBeliefNetwork rbn = bln.rbn;
+		collectFunctionTemplates();
+		try {
+			// determine the variables whose nodes are to be removed, reinstantiated (reusing the node) or added
+			LinkedHashSet<BeliefNode> removed = new LinkedHashSet<BeliefNode>();
+			LinkedHashMap<BeliefNode, Pair<String, String[]>> reinstantiated = new LinkedHashMap<BeliefNode, Pair<String, String[]>>();
+			Vector<Pair<String, String[]>> added = new Vector<Pair<String, String[]>>();
+			for(String functionName : getAffectedFunctions(changedFunctions, changedTypes)) {
+				HashSet<String> varNames = new HashSet<String>();
+				for(String[] params : ParameterGrounder.generateGroundings(rbn, functionName, db)) {
+					String varName = Signature.formatVarName(functionName, params);
+					varNames.add(varName);
+					BeliefNode node = groundBN.getNode(varName);
+					if(node == null)
+						added.add(new Pair<String, String[]>(functionName, params));
+					else
+						checkUpdate(functionName, params, node, oldDB, false, removed, reinstantiated, added);
+				}
+				for(String[] params : ParameterGrounder.generateGroundings(rbn, functionName, oldDB)) {
+					String varName = Signature.formatVarName(functionName, params);
+					if(varNames.contains(varName))
+						continue;
+					BeliefNode node = groundBN.getNode(varName);
+					if(node != null)
+						removed.add(node);
+				}
+			}
+			// the children of removed nodes must be reinstantiated, as must the variables whose auxiliary nodes are children of removed nodes
+			// (formulaic nodes are handled separately)
+			HashSet<BeliefNode> formulaicNodes = new HashSet<BeliefNode>();
+			if(hardFormulaNodes != null)
+				formulaicNodes.addAll(hardFormulaNodes);
+			LinkedList<BeliefNode> queue = new LinkedList<BeliefNode>(removed);
+			while(!queue.isEmpty()) {
+				for(BeliefNode child : groundBN.bn.getChildren(queue.removeFirst())) {
+					if(formulaicNodes.contains(child))
+						continue;
+					String varName = child.getName();
+					if(varName.startsWith("AUX")) {
+						varName = varName.substring(varName.indexOf('_') + 1);
+						child = groundBN.getNode(varName);
+					}
+					if(child == null || removed.contains(child) || reinstantiated.containsKey(child))
+						continue;
+					Pair<String, String[]> var = Signature.parseVarName(varName);
+					if(checkUpdate(var.first, var.second, child, oldDB, true, removed, reinstantiated, added))
+						queue.add(child);
+				}
+			}
+			
+			// remove the nodes that are obsolete (along with their auxiliary nodes and the auxiliary nodes of the variables that are reinstantiated)
+			LinkedHashSet<BeliefNode> obsolete = new LinkedHashSet<BeliefNode>(removed);
+			for(BeliefNode node : removed)
+				collectAuxiliaryNodes(node, node.getName(), obsolete);
+			for(BeliefNode node : reinstantiated.keySet())
+				collectAuxiliaryNodes(node, node.getName(), obsolete);
+			reusableNodes = new HashMap<String, BeliefNode>();
+			for(BeliefNode node : reinstantiated.keySet()) {
+				for(BeliefNode parent : groundBN.bn.getParents(node))
+					groundBN.disconnect(parent, node);
+				node.setCPF(new CPT(new BeliefNode[]{node}));
+				cpfIDs.remove(node);
+				groundNode2TemplateNode.remove(node);
+				reusableNodes.put(node.getName(), node);
+			}
+			removeNodes(obsolete);
+			
+			// instantiate the variables
+			BeliefNode[] nodes = groundBN.bn.getNodes();
+			int numNodes = nodes.length;
+			instantiatedVariables = new HashSet<String>();
+			for(BeliefNode node : nodes)
+				if(!reusableNodes.containsKey(node.getName()))
+					instantiatedVariables.add(node.getName());
+			cpfCache = new HashMap<CPFKey, Value[]>();
+			for(Pair<String, String[]> var : reinstantiated.values())
+				instantiateVariable(var.first, var.second);
+			for(Pair<String, String[]> var : added)
+				instantiateVariable(var.first, var.second);
+			nodes = groundBN.bn.getNodes();
+			for(int i = numNodes; i < nodes.length; i++)
+				changeLog.onNodeAdded(nodes[i]);
+			for(BeliefNode node : reinstantiated.keySet())
+				changeLog.onNodeModified(node);
+			if(verbose) System.out.printf("  %d variables removed, %d reinstantiated, %d added\n", removed.size(), reinstantiated.size(), nodes.length - numNodes);
+			
+			// update the auxiliary nodes for formulaic constraints
+			if(hardFormulaNodes != null) {
+				if(verbose) System.out.println("  formulaic nodes");
+				updateFormulaicNodes(changedFunctions, !changedTypes.isEmpty() || !obsolete.isEmpty() || nodes.length > numNodes);
+			}
+		}
+		finally {
+			// clean up
+			instantiatedVariables = null;
+			functionTemplates = null;
+			cpfCache = null;
+			reusableNodes = null;
+		}
+		
+		changeLog.nextRevision();
+		reportMetrics(System.nanoTime() - startTime);
+		if(verbose) {
+			System.out.println("network size: " + getGroundNetwork().bn.getNodes().length + " nodes");
+			System.out.println(String.format("update time: %.4fs", sw.getElapsedTimeSecs()));
+		}
+	}
+	
+	/**
+	 * checks whether the existing node of a variable must be updated for the new database (which must already be set)
+	 * @param functionName
+	 * @param params
+	 * @param node the variable's node
+	 * @param oldDB the database the node was instantiated for
+	 * @param force whether the variable must be reinstantiated even if its applicable templates are unchanged
+	 * @param removed the set of nodes to be removed, to which the node is added if it cannot be reused (e.g. because its domain changed) 
+	 * @param reinstantiated the mapping of nodes to be reinstantiated to the corresponding variables, to which the node is added if it can be reused
+	 * @param added the variables to be instantiated anew, to which the variable is added if the node is removed
+	 * @return true if the node is to be removed
+	 * @throws Exception
+	 */
+	protected boolean checkUpdate(String functionName, String[] params, BeliefNode node, Database oldDB, boolean force, Set<BeliefNode> removed, Map<BeliefNode, Pair<String, String[]>> reinstantiated, Vector<Pair<String, String[]>> added) throws Exception {
+		TemplateApplicability ta = checkTemplates(functionName, params, db);
+		// determine whether the node could be reused, i.e. whether the variable's domain is unchanged
+		boolean reusable;
+		if(!ta.suitableTemplates.isEmpty()) {
+			BeliefNode template = ta.suitableTemplates.firstElement().first.node;
+			reusable = template.getType() == node.getType() && haveSameOutcomes(template.getDomain(), node.getDomain());
+		}
+		else if(bln.rbn.usesUniformDefault(functionName)) 
+			reusable = node.getType() == BeliefNode.NODE_CHANCE && haveSameOutcomes(new Discrete(getUniformDefaultOutcomes(bln.rbn.getSignature(functionName))), node.getDomain());
+		else // the variable is no longer instantiated (or instantiating it fails)
+			reusable = false;
+		Pair<String, String[]> var = new Pair<String, String[]>(functionName, params);
+		if(!reusable) {
+			removed.add(node);
+			added.add(var);
+			return true;
+		}
+		if(force || !ta.isEquivalentTo(checkTemplates(functionName, params, oldDB)))
+			reinstantiated.put(node, var);
+		return false;
+	}
+	
+	protected static boolean haveSameOutcomes(Domain d1, Domain d2) {
+		if(d1 == d2)
+			return true;
+		if(!(d1 instanceof Discrete) || !(d2 instanceof Discrete) || d1.getOrder() != d2.getOrder())
+			return false;
+		for(int i = 0; i < d1.getOrder(); i++)
+			if(!((Discrete)d1).getName(i).equals(((Discrete)d2).getName(i)))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * determines the functions whose variables may have to be updated because of the given changes, i.e. the functions 
+	 * whose groundings or whose applicable templates (including the groundings of the templates' parents) may have changed
+	 * @param changedFunctions the functions for which evidence was changed
+	 * @param changedTypes the types whose domains were changed
+	 * @return
+	 */
+	protected Vector<String> getAffectedFunctions(Set<String> changedFunctions, Set<String> changedTypes) {
+		RelationalBeliefNetwork rbn = bln.rbn;
+		Vector<String> ret = new Vector<String>();
+		for(String functionName : rbn.getFunctionNames()) {
+			Signature sig = rbn.getSignature(functionName);
+			boolean affected = refersToTypes(sig, changedTypes) || (rbn.usesUniformDefault(functionName) && changedTypes.contains(sig.returnType));
+			Vector<RelationalNode> templates = functionTemplates.get(functionName);
+			if(templates != null) {
+				for(RelationalNode relNode : templates) {
+					if(affected)
+						break;
+					// decision parents are evaluated on the evidence
+					if(!relNode.getDecisionParents().isEmpty()) {
+						affected = true;
+						break;
+					}
+					// parents may be grounded using the evidence (preconditions and functional lookups) and the domains (parameters not bound by the child)
+					for(RelationalNode parent : rbn.getRelationalParents(relNode)) {
+						if(parent.isConstant)
+							continue;
+						String f = parent.getFunctionName();
+						if((changedFunctions.contains(f) && (parent.isPrecondition || rbn.isEvidenceFunction(f) || rbn.getRelationKeys(f) != null)) || refersToTypes(parent.getSignature(), changedTypes)) {
+							affected = true;
+							break;
+						}
+					}
+				}
+			}
+			if(affected)
+				ret.add(functionName);
+		}
+		return ret;
+	}
+	
+	protected static boolean refersToTypes(Signature sig, Set<String> types) {
+		if(sig == null || types.isEmpty())
+			return false;
+		for(String argType : sig.argTypes)
+			if(types.contains(argType))
+				return true;
+		return false;
+	}
+	
+	/**
+	 * determines the variables whose evidence differs in the two databases
+	 * @param db1
+	 * @param db2
+	 * @param changedFunctions a set to which to add the functions of the variables whose evidence differs
+	 * @return the names of the variables whose evidence differs
+	 * @throws Exception
+	 */
+	protected static Vector<String> getChangedEvidence(Database db1, Database db2, Set<String> changedFunctions) throws Exception {
+		Vector<String> ret = new Vector<String>();
+		HashMap<String, Variable> vars1 = new HashMap<String, Variable>();
+		for(Variable var : db1.getEntries())
+			vars1.put(var.getName(), var);
+		for(Variable var : db2.getEntries()) {
+			Variable var1 = vars1.remove(var.getName());
+			if(var1 == null || !var1.value.equals(var.value)) {
+				ret.add(var.getName());
+				changedFunctions.add(var.functionName);
+			}
+		}
+		for(Variable var : vars1.values()) {
+			ret.add(var.getName());
+			changedFunctions.add(var.functionName);
+		}
+		return ret;
+	}
+	
+	/**
+	 * determines the types (used in the model's signatures) whose domains differ in the two databases
+	 * @param db1
+	 * @param db2
+	 * @return
+	 * @throws Exception
+	 */
+	protected HashSet<String> getChangedTypes(Database db1, Database db2) throws Exception {
+		HashSet<String> types = new HashSet<String>();
+		for(String functionName : bln.rbn.getFunctionNames()) {
+			Signature sig = bln.rbn.getSignature(functionName);
+			types.addAll(Arrays.asList(sig.argTypes));
+			if(!sig.isBoolean())
+				types.add(sig.returnType);
+		}
+		HashSet<String> ret = new HashSet<String>();
+		for(String type : types) {
+			Iterable<String> dom1 = db1.getDomain(type), dom2 = db2.getDomain(type);
+			if(dom1 == null || dom2 == null) {
+				if(dom1 != dom2)
+					ret.add(type);
+				continue;
+			}
+			HashSet<String> elements = new HashSet<String>();
+			for(String e : dom1)
+				elements.add(e);
+			int size = 0;
+			boolean changed = false;
+			for(String e : dom2) {
+				size++;
+				if(!elements.contains(e)) {
+					changed = true;
+					break;
+				}
+			}
+			if(changed || size != elements.size())
+				ret.add(type);
+		}
+		return ret;
+	}
+	
+	/**
+	 * adds to the given set the auxiliary nodes (for aggregation) that were created for the given variable among the ancestors of the given node
+	 * @param node
+	 * @param mainNodeName the name of the variable
+	 * @param ret
+	 */
+	protected void collectAuxiliaryNodes(BeliefNode node, String mainNodeName, Set<BeliefNode> ret) {
+		for(BeliefNode parent : groundBN.bn.getParents(node)) {
+			String name = parent.getName();
+			if(name.startsWith("AUX") && name.substring(name.indexOf('_') + 1).equals(mainNodeName) && ret.add(parent))
+				collectAuxiliaryNodes(parent, mainNodeName, ret);
+		}
+	}
+	
+	/**
+	 * removes the given nodes (along with all their incident edges) from the ground network, recording the removal in the change log
+	 * @param nodes
+	 */
+	protected void removeNodes(Collection<BeliefNode> nodes) {
+		// only the graph is altered; the CPFs of any remaining children are updated by the caller
+		groundBN.removeNodes(nodes);
+		for(BeliefNode node : nodes) {
+			cpfIDs.remove(node);
+			groundNode2TemplateNode.remove(node);
+			changeLog.onNodeRemoved(node);
+		}
+		onRemoveNodes(nodes);
+	}
+	
+	/**
+	 * updates the auxiliary nodes for the formulaic constraints after the regular variables were updated for a new database;
+	 * by default, they are instantiated anew
+	 * @param changedFunctions the functions for which evidence was changed
+	 * @param structureChanged whether domains were changed or variables were added or removed
+	 * @throws Exception
+	 */
+	protected void updateFormulaicNodes(Set<String> changedFunctions, boolean structureChanged) throws Exception {
+		removeNodes(hardFormulaNodes);
+		hardFormulaNodes = new Vector<BeliefNode>();
+		int numNodes = groundBN.bn.getNodes().length;
+		groundFormulaicNodes();
+		BeliefNode[] nodes = groundBN.bn.getNodes();
+		for(int i = numNodes; i < nodes.length; i++)
+			changeLog.onNodeAdded(nodes[i]);
+	}
+	
+	/**
+	 * gets the log of the changes that were made to the ground network by updates (see {@link #updateGroundNetwork(Database)}),
+	 * which inference methods can use to determine which of their data is outdated 
+	 * @return
+	 */
+	public GroundNetworkChangeLog getChangeLog() {
+		return changeLog;
+	}
+	
+	/**
+	 * @return a rough estimate of the memory used by the ground network (in bytes), where CPF value arrays that are shared between nodes are counted only once
+	 * and CPFs whose entries are computed on demand are not counted
+	 */
+	public long getEstimatedMemoryUsage() {
+		long size = 0;
+		IdentityHashMap<Value[], Boolean> seen = new IdentityHashMap<Value[], Boolean>();
+		for(BeliefNode node : groundBN.bn.getNodes()) {
+			size += 256 + 64 * node.getDomain().getOrder();
+			CPF cpf = node.getCPF();
+			if(cpf instanceof ImplicitCPT && !((ImplicitCPT)cpf).isMaterialized())
+				continue;
+			if(cpf instanceof CPT && seen.put(((CPT)cpf).getValues(), Boolean.TRUE) == null)
+				size += 24L * cpf.size();
+		}
+		return size;
+	}
 	
 	/**
 	 * connects the parents given by the grounding to the target node but does *not* initialize the CPF 
@@ -706,19 +1743,25 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 		// transfer the CPF values
 		String cpfID = Integer.toString(srcRelNode.index);
 		// - if the original relational node had exactly the same number of parents as the instance, 
-		//   we can safely transfer its CPT to the instantiated node
+		//   we can safely transfer its CPT to the instantiated node (sharing the template's values)
 		if(srcDomainProd.length == targetDomainProd.length) {			
 			targetCPF.build(targetDomainProd, ((CPT)srcRelNode.node.getCPF()).getValues());
 		}
 		// - otherwise we must extract the relevant columns that apply to the constant setting
 		else {
-			Value[] subCPF;						
+			// the sub-CPF is identified by the settings of the template's parents (-1 if not fixed)
+			int[] settings = new int[srcDomainProd.length - 1];
+			for(int i = 1; i < srcDomainProd.length; i++) {
+				Integer setting = constantSettings.get(srcDomainProd[i]);
+				settings[i-1] = setting == null ? -1 : setting;
+			}
+			CPFKey key = new CPFKey(cpfID, settings);
+			cpfID = key.toString();
 			// get the subpart from the cache if possible
-			cpfID += constantSettings.toString(); 
-			subCPF = cpfCache.get(cpfID);
+			Value[] subCPF = cpfCache.get(key);
 			if(subCPF == null) {
 				subCPF = getSubCPFValues(srcRelNode.node.getCPF(), constantSettings);
-				cpfCache.put(cpfID, subCPF);
+				cpfCache.put(key, subCPF);
 			}
 			
 			targetCPF.build(targetDomainProd, subCPF);
@@ -953,11 +1996,13 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 		for (String[] evidence: evidences) {
 			if(evidence == null || evidence.length != 2)
 				throw new IllegalArgumentException("Evidences not in the correct format: "+Arrays.toString(evidence)+"!");
-			int nodeIdx = bn.getNodeIndex(evidence[0]); // TODO inefficient linear search
+			int nodeIdx = bn.getNodeIndex(evidence[0]);
 			if (nodeIdx < 0) {
 				Pair<String,String[]> p = Signature.parseVarName(evidence[0]);
 				if(this.bln.isEvidenceFunction(p.first))
 					continue;
+				else if(queryDriven) // variables that are irrelevant to the queries were not instantiated
+					continue;
 				else {
 					String error = "Variable with the name "+ evidence[0]+" not found in model but mentioned in evidence!";
 					System.err.println("Warning: " + error);
@@ -1005,6 +2050,33 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 		this.debug = enabled;
 	}
 	
+	/**
+	 * sets the number of threads with which to check template applicability during instantiation;
+	 * the ground network is the same regardless of the number of threads
+	 * @param numThreads
+	 */
+	public void setNumGroundingThreads(int numThreads) {
+		this.numGroundingThreads = numThreads;
+	}
+	
+	/**
+	 * sets the maximum number of entries of CPTs obtained by applying a combining rule that are stored as full tables;
+	 * larger CPTs are represented in factorized form, i.e. their entries are computed on demand from the templates' CPFs
+	 * @param size
+	 */
+	public void setMaxCombiningRuleCPTSize(long size) {
+		this.maxCombiningRuleCPTSize = size;
+	}
+	
+	/**
+	 * sets the maximum number of inputs of OR/AND aggregation nodes; aggregations over more inputs are decomposed 
+	 * into a tree of auxiliary nodes, such that the size of the CPTs is linear rather than exponential in the number of inputs
+	 * @param fanIn the maximum number of inputs (0 to never decompose aggregations)
+	 */
+	public void setMaxAggregatorFanIn(int fanIn) {
+		this.maxAggregatorFanIn = fanIn;
+	}
+	
 	public RelationalBeliefNetwork getRBN() {
 		return bln.rbn;
 	}
@@ -1026,6 +2098,172 @@ public abstract class AbstractGroundBLN implements IParameterHandler {
 		return this.hardFormulaNodes;
 	}
 	
+	/**
+	 * writes the ground network to a snapshot, i.e. the nodes with their domains, the network structure and the CPFs,
+	 * as well as the CPF identifiers, the template of each node and the set of auxiliary nodes.
+	 * The values of deterministic CPFs that have not been materialized are not written; they must be restored by the subclass.
+	 * Factorized combining-rule CPFs are written in factorized form. 
+	 * @param w
+	 * @throws Exception
+	 */
+	protected void writeSnapshotData(SnapshotWriter w) throws Exception {
+		// domains of template nodes are referenced rather than copied, such that special domain types are retained
+		BeliefNode[] templateNodes = bln.rbn.bn.getNodes();
+		IdentityHashMap<Domain, Integer> templateDomains = new IdentityHashMap<Domain, Integer>();
+		for(int i = 0; i < templateNodes.length; i++)
+			templateDomains.put(templateNodes[i].getDomain(), i);
+		IdentityHashMap<Domain, Integer> domains = new IdentityHashMap<Domain, Integer>();
+		BeliefNode[] nodes = groundBN.getNodes();
+		IdentityHashMap<BeliefNode, Integer> nodeIndices = new IdentityHashMap<BeliefNode, Integer>();
+		w.writeInt(nodes.length);
+		for(int i = 0; i < nodes.length; i++) {
+			BeliefNode node = nodes[i];
+			nodeIndices.put(node, i);
+			w.writeString(node.getName());
+			w.writeInt(node.getType());
+			Domain dom = node.getDomain();
+			Integer domIdx = domains.get(dom);
+			if(domIdx != null) 
+				w.writeInt(domIdx);
+			else {
+				domains.put(dom, domains.size());
+				w.writeInt(-1);
+				Integer templateIdx = templateDomains.get(dom);
+				w.writeInt(templateIdx == null ? -1 : templateIdx);
+				if(templateIdx == null) 
+					w.writeStrings(BeliefNetworkEx.getDiscreteDomainAsArray(node));
+			}
+			RelationalNode template = groundNode2TemplateNode.get(node);
+			w.writeInt(template == null ? -1 : template.index);
+			String cpfID = cpfIDs.get(node);
+			w.writeBoolean(cpfID != null);
+			if(cpfID != null)
+				w.writeString(cpfID);
+		}
+		// structure and CPFs (value arrays with the same CPF ID are stored only once)
+		HashMap<String, Pair<Integer, double[]>> cpfValues = new HashMap<String, Pair<Integer, double[]>>();
+		int numValueArrays = 0;
+		for(BeliefNode node : nodes) {
+			BeliefNode[] parents = groundBN.bn.getParents(node);
+			int[] parentIndices = new int[parents.length];
+			for(int i = 0; i < parents.length; i++)
+				parentIndices[i] = nodeIndices.get(parents[i]);
+			w.writeInts(parentIndices);
+			CPF cpf = node.getCPF();
+			BeliefNode[] domprod = cpf.getDomainProduct();
+			int[] domprodIndices = new int[domprod.length];
+			for(int i = 0; i < domprod.length; i++)
+				domprodIndices[i] = nodeIndices.get(domprod[i]);
+			w.writeInts(domprodIndices);
+			if(cpf instanceof DeterministicCPT && !((DeterministicCPT)cpf).isMaterialized()) {
+				w.writeInt(-2);
+				continue;
+			}
+			if(cpf instanceof CombiningRuleCPT && !((CombiningRuleCPT)cpf).isMaterialized()) {
+				w.writeInt(-3);
+				w.writeString(((CombiningRuleCPT)cpf).getCombiningRule().stringRepresention);
+				w.writeInts(((CombiningRuleCPT)cpf).getSettings());
+				continue;
+			}
+			double[] values = new double[cpf.size()];
+			for(int i = 0; i < values.length; i++)
+				values[i] = cpf.getDouble(i);
+			String cpfID = cpfIDs.get(node);
+			Pair<Integer, double[]> prev = cpfID == null ? null : cpfValues.get(cpfID);
+			if(prev != null && Arrays.equals(prev.second, values))
+				w.writeInt(prev.first);
+			else {
+				w.writeInt(-1);
+				w.writeDoubles(values);
+				if(cpfID != null)
+					cpfValues.put(cpfID, new Pair<Integer, double[]>(numValueArrays, values));
+				numValueArrays++;
+			}
+		}
+		// auxiliary nodes
+		w.writeBoolean(hardFormulaNodes != null);
+		if(hardFormulaNodes != null) {
+			int[] indices = new int[hardFormulaNodes.size()];
+			for(int i = 0; i < indices.length; i++)
+				indices[i] = nodeIndices.get(hardFormulaNodes.get(i));
+			w.writeInts(indices);
+		}
+	}
+	
+	/**
+	 * restores the ground network from a snapshot written by writeSnapshotData
+	 * @param r
+	 * @throws Exception
+	 */
+	protected void readSnapshotData(SnapshotReader r) throws Exception {
+		groundBN = new BeliefNetworkEx();
+		BeliefNode[] templateNodes = bln.rbn.bn.getNodes();
+		Vector<Domain> domains = new Vector<Domain>();
+		BeliefNode[] nodes = new BeliefNode[r.readInt()];
+		for(int i = 0; i < nodes.length; i++) {
+			String name = r.readString();
+			int type = r.readInt();
+			int domIdx = r.readInt();
+			Domain dom;
+			if(domIdx != -1)
+				dom = domains.get(domIdx);
+			else {
+				int templateIdx = r.readInt();
+				dom = templateIdx != -1 ? templateNodes[templateIdx].getDomain() : new Discrete(r.readStrings());
+				domains.add(dom);
+			}
+			nodes[i] = groundBN.addNode(name, dom, type);
+			int templateIdx = r.readInt();
+			if(templateIdx != -1)
+				groundNode2TemplateNode.put(nodes[i], bln.rbn.getRelationalNode(templateIdx));
+			if(r.readBoolean())
+				cpfIDs.put(nodes[i], r.readString());
+		}
+		Vector<Value[]> valueArrays = new Vector<Value[]>();
+		for(BeliefNode node : nodes) {
+			for(int parentIdx : r.readInts())
+				groundBN.connect(nodes[parentIdx], node, false);
+			int[] domprodIndices = r.readInts();
+			BeliefNode[] domprod = new BeliefNode[domprodIndices.length];
+			for(int i = 0; i < domprod.length; i++)
+				domprod[i] = nodes[domprodIndices[i]];
+			int valuesIdx = r.readInt();
+			if(valuesIdx == -2) {
+				// deterministic CPF, which is restored by the subclass; until then, only the domain product is known
+				node.setCPF(new DeterministicCPT(domprod) {
+					@Override
+					public int getValueIndex(int[] addr) {
+						throw new IllegalStateException("Deterministic CPF was not restored from the snapshot");
+					}
+				});
+				continue;
+			}
+			if(valuesIdx == -3) {
+				CombiningRule rule = CombiningRule.fromString(r.readString());
+				node.setCPF(new CombiningRuleCPT(rule, domprod, bln.rbn, r.readInts()));
+				continue;
+			}
+			Value[] values;
+			if(valuesIdx != -1)
+				values = valueArrays.get(valuesIdx);
+			else {
+				double[] v = r.readDoubles();
+				values = new Value[v.length];
+				for(int i = 0; i < v.length; i++)
+					values[i] = new ValueDouble(v[i]);
+				valueArrays.add(values);
+			}
+			CPT cpt = new CPT();
+			cpt.build(domprod, values);
+			node.setCPF(cpt);
+		}
+		if(r.readBoolean()) {
+			hardFormulaNodes = new Vector<BeliefNode>();
+			for(int idx : r.readInts())
+				hardFormulaNodes.add(nodes[idx]);
+		}
+	}
+	
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl.directed.bln;
+
+import java.util.Vector;
+
+import probcog.bayesnets.core.ImplicitCPT;
+import probcog.srl.directed.CombiningRule;
+import probcog.srl.directed.RelationalBeliefNetwork;
+
+import edu.ksu.cis.bnj.ver3.core.BeliefNode;
+import edu.ksu.cis.bnj.ver3.core.CPF;
+
+/**
+ * The CPT of a node whose distribution is obtained by applying a combining rule to the distributions
+ * of several templates (or several groundings of a template). It is stored in factorized form, i.e. as the
+ * list of templates along with the positions of their parents in the node's domain product, such that
+ * an entry is computed in time linear in the number of templates rather than the full table being stored.
+ * @author agent
+ */
+public class CombiningRuleCPT extends ImplicitCPT {
+
+	protected CombiningRule rule;
+	/**
+	 * the CPFs of the templates that are combined (one per grounding)
+	 */
+	protected CPF[] templateCPFs;
+	/**
+	 * for each template CPF, the positions of its parents in the domain product of this CPT (-1 for parents that were not instantiated)
+	 */
+	protected int[][] parentPositions;
+	protected int[] settings;
+	
+	/**
+	 * @param rule the combining rule
+	 * @param domProd the domain product, i.e. the node followed by the union of the template groundings' parents
+	 * @param rbn the network containing the templates
+	 * @param settings the factorized representation: the length of the domain product followed by, for each grounding of a template, 
+	 *        the index of the template and the positions of its parents in the domain product (-1 for parents that were not instantiated)
+	 * @throws Exception
+	 */
+	public CombiningRuleCPT(CombiningRule rule, BeliefNode[] domProd, RelationalBeliefNetwork rbn, int[] settings) throws Exception {
+		super(domProd);
+		if(rule.booleanSemantics && _SizeBuffer[0] != 2)
+			throw new Exception("Cannot apply combining-rule " + rule + " with Boolean semantics to non-binary random variable " + domProd[0]);
+		if(settings[0] != domProd.length)
+			throw new Exception("Factorized combining-rule CPT does not match the domain product of " + domProd[0]);
+		this.rule = rule;
+		this.settings = settings;
+		Vector<CPF> cpfs = new Vector<CPF>();
+		Vector<int[]> positions = new Vector<int[]>();
+		int i = 1;
+		while(i < settings.length) {
+			CPF cpf = rbn.getRelationalNode(settings[i++]).node.getCPF();
+			int[] pos = new int[cpf.getDomainProduct().length];
+			for(int j = 1; j < pos.length; j++)
+				pos[j] = settings[i++];
+			cpfs.add(cpf);
+			positions.add(pos);
+		}
+		templateCPFs = cpfs.toArray(new CPF[cpfs.size()]);
+		parentPositions = positions.toArray(new int[positions.size()][]);
+	}
+	
+	public CombiningRule getCombiningRule() {
+		return rule;
+	}
+	
+	/**
+	 * @return the factorized representation of the CPT (see constructor)
+	 */
+	public int[] getSettings() {
+		return settings;
+	}
+
+	@Override
+	protected double computeDouble(int[] addr) {
+		if(rule.booleanSemantics) {
+			double trueCase = computeColumnEntry(0, addr);
+			return addr[0] == 0 ? trueCase : 1.0-trueCase;
+		}
+		// normalization semantics
+		double Z = 0.0, value = 0.0;
+		for(int j = 0; j < _SizeBuffer[0]; j++) {
+			double v = computeColumnEntry(j, addr);
+			Z += v;
+			if(j == addr[0])
+				value = v;
+		}
+		return value / Z;
+	}
+	
+	/**
+	 * applies the combining rule to the values of the template CPFs
+	 * @param idx0 the domain index of the node
+	 * @param addr the address containing the domain indices of the parents
+	 * @return the combined (unnormalized) value
+	 */
+	protected double computeColumnEntry(int idx0, int[] addr) {
+		Vector<Double> values = new Vector<Double>(templateCPFs.length);
+		for(int i = 0; i < templateCPFs.length; i++) {
+			int[] pos = parentPositions[i];
+			int[] addr2 = new int[pos.length];
+			addr2[0] = idx0;
+			for(int j = 1; j < pos.length; j++)
+				addr2[j] = pos[j] != -1 ? addr[pos[j]] : 0; // parents that were not instantiated (decision and precondition parents) are True
+			values.add(templateCPFs[i].getDouble(addr2));
+		}
+		return rule.compute(values);
+	}
+}
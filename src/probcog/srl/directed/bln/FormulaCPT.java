@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl.directed.bln;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+import probcog.bayesnets.core.DeterministicCPT;
+import probcog.logic.Formula;
+import probcog.logic.GroundAtom;
+import probcog.logic.GroundLiteral;
+import probcog.logic.IPossibleWorld;
+import probcog.srl.directed.bln.coupling.VariableLogicCoupling;
+
+import edu.ksu.cis.bnj.ver3.core.BeliefNode;
+
+/**
+ * The CPT of an auxiliary node that represents a ground formula: The node is true iff the formula 
+ * is satisfied by the values of the node's parents, which is determined by evaluating the formula 
+ * whenever an entry of the table is requested.
+ * @author agent
+ */
+public class FormulaCPT extends DeterministicCPT {
+	
+	protected Formula formula;
+	/**
+	 * maps each ground atom appearing in the formula to the position of the corresponding parent in the domain product
+	 * and the domain index of the parent's value for which the atom is true
+	 */
+	protected HashMap<GroundAtom, int[]> atomSettings;
+	
+	/**
+	 * @param formula the ground formula
+	 * @param domProd the domain product, i.e. the formulaic node followed by the nodes corresponding to the ground atoms in the formula
+	 * @param coupling the coupling between the parent nodes and ground atoms
+	 * @throws Exception if the formula refers to a ground atom that does not correspond to any of the parents
+	 */
+	public FormulaCPT(Formula formula, BeliefNode[] domProd, VariableLogicCoupling coupling) throws Exception {
+		super(domProd);
+		this.formula = formula;
+		atomSettings = new HashMap<GroundAtom, int[]>();
+		for(int i = 1; i < domProd.length; i++) {
+			int domSize = domProd[i].getDomain().getOrder();
+			for(int j = 0; j < domSize; j++) {
+				GroundLiteral lit = coupling.getGroundLiteral(domProd[i], j);
+				if(lit.isPositive)
+					atomSettings.put(lit.gndAtom, new int[]{i, j});
+			}
+		}
+		HashSet<GroundAtom> gas = new HashSet<GroundAtom>();
+		formula.getGroundAtoms(gas);
+		for(GroundAtom ga : gas)
+			if(!atomSettings.containsKey(ga))
+				throw new Exception("Ground atom " + ga + " of formula " + formula + " does not correspond to a parent of " + domProd[0].getName());
+	}
+	
+	public Formula getFormula() {
+		return formula;
+	}
+
+	@Override
+	public int getValueIndex(final int[] addr) {
+		IPossibleWorld w = new IPossibleWorld() {
+			public boolean isTrue(GroundAtom ga) {
+				int[] setting = atomSettings.get(ga);
+				return addr[setting[0]] == setting[1];
+			}
+		};
+		return formula.isTrue(w) ? 0 : 1;
+	}
+}
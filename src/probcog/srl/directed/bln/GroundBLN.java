@@ -18,27 +18,33 @@
  ******************************************************************************/
 package probcog.srl.directed.bln;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.Set;
+import java.util.Vector;
 
+import probcog.logic.ExtensibleWorldVariables;
 import probcog.logic.Formula;
 import probcog.logic.GroundAtom;
 import probcog.logic.GroundLiteral;
 import probcog.logic.KnowledgeBase;
 import probcog.logic.PossibleWorld;
 import probcog.logic.WorldVariables;
+import probcog.logic.WorldVariables.Block;
 import probcog.logic.Formula.FormulaSimplification;
 import probcog.srl.Database;
 import probcog.srl.Signature;
+import probcog.srl.SnapshotInfo;
+import probcog.srl.SnapshotReader;
+import probcog.srl.SnapshotWriter;
 import probcog.srl.directed.bln.coupling.VariableLogicCoupling;
 
 import edu.ksu.cis.bnj.ver3.core.BeliefNode;
 import edu.ksu.cis.bnj.ver3.core.CPF;
-import edu.ksu.cis.bnj.ver3.core.CPT;
 import edu.ksu.cis.bnj.ver3.core.Discrete;
-import edu.ksu.cis.bnj.ver3.core.Value;
-import edu.ksu.cis.bnj.ver3.core.values.ValueDouble;
 import edu.tum.cs.util.StringTool;
 import edu.tum.cs.util.datastruct.OrderedSet;
 
@@ -49,10 +55,6 @@ import edu.tum.cs.util.datastruct.OrderedSet;
 public class GroundBLN extends AbstractGroundBLN {
 	
 	protected VariableLogicCoupling coupling;	
-	/**
-	 * possible world (used only temporarily during instantiation)
-	 */
-	protected PossibleWorld state;
 	/**
 	 * grounded knowledge base of hard constraints
 	 */
@@ -104,32 +106,80 @@ public class GroundBLN extends AbstractGroundBLN {
 		}
 	}
 	
+	@Override
+	protected void onRemoveNodes(Collection<BeliefNode> nodes) {
+		coupling.removeVariables(nodes);
+	}
+	
 	public GroundLiteral getGroundLiteral(BeliefNode var, int domIdx) {
 		return coupling.getGroundLiteral(var, domIdx);
 	}
 	
 	@Override	
 	protected void groundFormulaicNodes() throws Exception {
+		groundKB();
+		instantiateFormulaicNodes(null);
+	}
+	
+	/**
+	 * grounds the knowledge base of hard constraints (for the variables that were instantiated)
+	 * @throws Exception
+	 */
+	protected void groundKB() throws Exception {
 		WorldVariables worldVars = coupling.getWorldVars();
-		state = new PossibleWorld(worldVars);
 		BayesianLogicNetwork bln = (BayesianLogicNetwork)this.bln;
-		gkb = bln.kb.ground(this.db, worldVars, useFormulaSimplification ? FormulaSimplification.OnDisallowFalse : FormulaSimplification.None); 
+		if(!queryDriven)
+			gkb = bln.kb.ground(this.db, worldVars, getFormulaSimplification());
+		else {
+			// only some of the variables were instantiated, so keep only the formulas that refer exclusively to them;
+			// the others do not touch any relevant variable (see addFormulaicDependencies)
+			ExtensibleWorldVariables groundingVars = new ExtensibleWorldVariables(worldVars);
+			KnowledgeBase fullGKB = bln.kb.ground(this.db, groundingVars, getFormulaSimplification());
+			gkb = new KnowledgeBase();
+			for(Formula gf : fullGKB)
+				if(!groundingVars.refersToExtension(gf))
+					gkb.addFormula(gf, fullGKB.getTemplateID(gf));
+		}
 		if(verbose) System.out.printf("    %d formulas resulted in %s ground formulas\n", bln.kb.size(), gkb.size());
-		HashMap<String, Value[]> cpfCache = new HashMap<String, Value[]>();
+	}
+	
+	/**
+	 * instantiates the auxiliary nodes for the ground formulas in the grounded knowledge base
+	 * @param reusableNodes a mapping from ground formula keys (see {@link #getFormulaKey(Formula)}) to existing nodes that are to be reused
+	 *        for the ground formulas with these keys (or null); the nodes that are reused are removed from the mapping
+	 * @throws Exception
+	 */
+	protected void instantiateFormulaicNodes(HashMap<String, LinkedList<BeliefNode>> reusableNodes) throws Exception {
+		BayesianLogicNetwork bln = (BayesianLogicNetwork)this.bln;
+		// new nodes are named after their position in the knowledge base, unless there are other nodes (which have arbitrary positions)
+		int nextNodeIndex = 0;
+		if(reusableNodes != null) {
+			for(LinkedList<BeliefNode> nodes : reusableNodes.values())
+				for(BeliefNode node : nodes)
+					nextNodeIndex = Math.max(nextNodeIndex, Integer.parseInt(node.getName().substring(2)) + 1);
+		}
 		int i = 0;
 		for(Formula gf : gkb) {			
 			// get the template from which the ground formula was instantiated (after simplification, we can't retrieve it)		
 			Integer templateID = gkb.getTemplateID(gf);
 			assert templateID != null : "Ground formula " + gf + " has no template ID";
 			
+			// check if there is a node for the formula that we can reuse
+			BeliefNode node = null;
+			if(reusableNodes != null) {
+				LinkedList<BeliefNode> nodes = reusableNodes.get(getFormulaKey(gf));
+				if(nodes != null && !nodes.isEmpty())
+					node = nodes.removeFirst();
+			}
+			
 			// if formulas weren't fully simplified, still apply basic simplification (i.e. without using the database)
 			// note: there may still be TrueFalse instances due to equalities, e.g. !(x=y))
 			if(!useFormulaSimplification)
 				gf = gf.simplify(null); 
 			
 			// add node and connections
-			String nodeName = "GF" + i;
-			if(verbose) System.out.printf("    %s: %s\n", nodeName, gf.toString());
+			String nodeName = node != null ? node.getName() : "GF" + (reusableNodes == null ? i : nextNodeIndex++);
+			if(verbose && node == null) System.out.printf("    %s: %s\n", nodeName, gf.toString());
 			// NOTE: we use an ordered set to guarantee that the ordering of nodes is the same 
 			//       across all instances of a formula template; such that (if formulas are not
 			//       simplified using the evidence) we could use the same CPF for all of the
@@ -151,7 +201,10 @@ public class GroundBLN extends AbstractGroundBLN {
 				}				
 				parents.add(parent);
 			}
-			BeliefNode node = addHardFormulaNode(nodeName, parents); // this establishes connections and initialises the CPF
+			if(node == null)
+				node = addHardFormulaNode(nodeName, gf, parents); // this establishes connections and sets the CPF
+			else
+				updateHardFormulaNode(node, gf, parents);
 			
 			// set CPF id (i.e. equivalence class id)
 			// TODO try string transform: Two formulas are equivalent if they are the same except for the universally quantified variables
@@ -163,33 +216,97 @@ public class GroundBLN extends AbstractGroundBLN {
 				cpfid = "F" + templateID; 
 			}
 			this.cpfIDs.put(node, cpfid);
-
-			// set CPF
-			Value[] values = cpfCache.get(cpfid);
-			if(values != null) {
-				// Note: A value from the cache can only be used if formula simplification is not applied,
-				//		 because the CPF ids are never equal otherwise.
-				// TODO Is this really 100% safe? What about the case where constants appear in the formula, e.g. in "(x=Const)"? The above-mentioned string transform might be safer. 
-				((CPT)node.getCPF()).setValues(values);
-			}
-			else {
-				fillFormulaCPF(gf, node.getCPF());
-			}
 			
 			++i;
 		}
-		// clean up
-		state = null;
 	}
 	
 	/**
-	 * adds a node corresponding to a hard constraint to the network - along with the necessary edges
+	 * updates the auxiliary nodes for the formulaic constraints by grounding the knowledge base anew and comparing 
+	 * the ground formulas: Nodes are reused for ground formulas that were previously instantiated (and reconnected
+	 * if the nodes of the ground atoms changed), nodes are added for new ground formulas and the nodes of 
+	 * ground formulas that no longer exist are removed.
+	 * Without formula simplification, the ground formulas do not depend on the evidence, so they need to be updated only 
+	 * if the set of variables changed.
+	 */
+	@Override
+	protected void updateFormulaicNodes(Set<String> changedFunctions, boolean structureChanged) throws Exception {
+		if(!structureChanged && !useFormulaSimplification)
+			return;
+		// index the existing nodes by their ground formulas
+		HashMap<String, LinkedList<BeliefNode>> formulaNodes = new HashMap<String, LinkedList<BeliefNode>>();
+		int i = 0;
+		for(Formula gf : gkb) {
+			String key = getFormulaKey(gf);
+			LinkedList<BeliefNode> nodes = formulaNodes.get(key);
+			if(nodes == null)
+				formulaNodes.put(key, nodes = new LinkedList<BeliefNode>());
+			nodes.add(hardFormulaNodes.get(i++));
+		}
+		// ground the knowledge base and instantiate the nodes
+		groundKB();
+		hardFormulaNodes = new Vector<BeliefNode>();
+		int numNodes = groundBN.bn.getNodes().length;
+		instantiateFormulaicNodes(formulaNodes);
+		BeliefNode[] nodes = groundBN.bn.getNodes();
+		for(i = numNodes; i < nodes.length; i++)
+			changeLog.onNodeAdded(nodes[i]);
+		// remove the nodes of ground formulas that no longer exist
+		Vector<BeliefNode> obsolete = new Vector<BeliefNode>();
+		for(LinkedList<BeliefNode> l : formulaNodes.values())
+			obsolete.addAll(l);
+		removeNodes(obsolete);
+	}
+	
+	/**
+	 * @param gf a formula of the grounded knowledge base 
+	 * @return a key that identifies the ground formula (and the formula it was instantiated from)
+	 */
+	protected String getFormulaKey(Formula gf) {
+		return gkb.getTemplateID(gf) + ":" + gf.toString();
+	}
+	
+	protected FormulaSimplification getFormulaSimplification() {
+		return useFormulaSimplification ? FormulaSimplification.OnDisallowFalse : FormulaSimplification.None;
+	}
+	
+	@Override
+	protected void addFormulaicDependencies(DependencyStructure deps) throws Exception {
+		// ground the formulas for all ground atoms (which need not have been instantiated) and connect the variables in each ground formula
+		BayesianLogicNetwork bln = (BayesianLogicNetwork)this.bln;
+		KnowledgeBase fullGKB = bln.kb.ground(this.db, new ExtensibleWorldVariables(new WorldVariables()), getFormulaSimplification());
+		for(Formula gf : fullGKB) {
+			Set<GroundAtom> gas = new OrderedSet<GroundAtom>();
+			gf.getGroundAtoms(gas);
+			String prevVar = null;
+			for(GroundAtom ga : gas) {
+				Signature sig = bln.rbn.getSignature(ga.predicate);
+				if(sig == null)
+					continue;
+				// for non-Boolean functions, the ground atom refers to one of the values of the variable, e.g. attr(X,Value) -> attr(X)
+				String[] params = ga.args;
+				if(!sig.isBoolean()) {
+					params = new String[ga.args.length-1];
+					System.arraycopy(ga.args, 0, params, 0, params.length);
+				}
+				String var = addDependencies(ga.predicate, params, deps);
+				if(prevVar != null)
+					deps.union(prevVar, var);
+				prevVar = var;
+			}
+		}
+	}
+	
+	/**
+	 * adds a node corresponding to a hard constraint to the network - along with the necessary edges;
+	 * the node's CPF is a {@link FormulaCPT}, i.e. the formula is evaluated on demand rather than tabulated 
 	 * @param nodeName  	name of the node to add for the constraint
-	 * @param parentGAs		collection of names of parent nodes/ground atoms 
+	 * @param gf			the ground formula
+	 * @param parents		the nodes corresponding to the ground atoms in the formula 
 	 * @return the node that was added
 	 * @throws Exception
 	 */
-	public BeliefNode addHardFormulaNode(String nodeName, Collection<BeliefNode> parents) throws Exception {
+	public BeliefNode addHardFormulaNode(String nodeName, Formula gf, Collection<BeliefNode> parents) throws Exception {
 		BeliefNode[] domprod = new BeliefNode[1+parents.size()];
 		BeliefNode node = groundBN.addNode(nodeName);
 		domprod[0] = node;
@@ -199,59 +316,178 @@ public class GroundBLN extends AbstractGroundBLN {
 			domprod[i++] = parent;
 			groundBN.connect(parent, node, false);
 		}
-		((CPT)node.getCPF()).buildZero(domprod, false); // ensure correct ordering in CPF
+		node.setCPF(createFormulaCPF(gf, domprod)); // ensure correct ordering in CPF
 		return node;
 	}
 	
 	/**
-	 * fills the CPF of a formulaic node
-	 * @param gf	the ground formula to evaluate for all possible settings
-	 * @param cpf	the CPF of the formulaic node to fill
-	 * @param parents	the parents of the formulaic node
-	 * @param parentGAs	the ground atom string names of the parents (in case the node names do not match them)
+	 * updates an existing node corresponding to a hard constraint for the given ground formula, 
+	 * reconnecting it (and recording the modification) if its parents changed 
+	 * @param node
+	 * @param gf
+	 * @param parents
 	 * @throws Exception
 	 */
-	protected void fillFormulaCPF(Formula gf, CPF cpf) throws Exception {
-		BeliefNode[] nodes = cpf.getDomainProduct();
-		int[] addr = new int[nodes.length];
-		fillFormulaCPF(gf, cpf, 1, addr);
+	protected void updateHardFormulaNode(BeliefNode node, Formula gf, Collection<BeliefNode> parents) throws Exception {
+		hardFormulaNodes.add(node);
+		BeliefNode[] domprod = new BeliefNode[1+parents.size()];
+		domprod[0] = node;
+		int i = 1;
+		for(BeliefNode parent : parents)
+			domprod[i++] = parent;
+		if(!Arrays.equals(domprod, node.getCPF().getDomainProduct())) {
+			for(BeliefNode parent : groundBN.bn.getParents(node))
+				groundBN.disconnect(parent, node);
+			for(i = 1; i < domprod.length; i++)
+				groundBN.connect(domprod[i], node, false);
+			changeLog.onNodeModified(node);
+		}
+		node.setCPF(createFormulaCPF(gf, domprod));
 	}
 	
-	protected void fillFormulaCPF(Formula gf, CPF cpf, int iDomProd, int[] addr) throws Exception {
-		BeliefNode[] domprod = cpf.getDomainProduct();
-		// if all parents have been set, determine the truth value of the formula and 
-		// fill the corresponding column of the CPT 
-		if(iDomProd == domprod.length) {
-			// get truth value of formula
-			double value = gf.isTrue(state) ? 1 : 0;
-			/*
-			for(String ga : parentGAs)
-				System.out.print(ga + " = " + state.get(ga) + ", ");
-			System.out.println(" -> " + value);
-			*/
-			// write to CPF
-			// - true
-			addr[0] = 0;
-			cpf.put(addr, new ValueDouble(value));
-			// - false
-			addr[0] = 1;
-			cpf.put(addr, new ValueDouble(1.0-value));
-			return;
+	/**
+	 * @param gf
+	 * @param domprod the domain product of the formulaic node (the node itself followed by its parents)
+	 * @return the CPF of a formulaic node
+	 * @throws Exception
+	 */
+	protected CPF createFormulaCPF(Formula gf, BeliefNode[] domprod) throws Exception {
+		return new FormulaCPT(gf, domprod, coupling);
+	}
+	
+	/**
+	 * writes a binary snapshot of this ground model (including the evidence database), which can be reloaded
+	 * with {@link #readSnapshot(BayesianLogicNetwork, String)} without instantiating the ground network again
+	 * @param filename
+	 * @param info the description of the inputs this ground model was created from, which is checked before the snapshot is reloaded
+	 * @throws Exception
+	 */
+	public void writeSnapshot(String filename, SnapshotInfo info) throws Exception {
+		SnapshotWriter w = new SnapshotWriter(filename, SnapshotWriter.KIND_GROUND_BLN, info);
+		try {
+			writeModelFingerprint(w, (BayesianLogicNetwork)bln);
+			w.writeDatabase(db);
+			writeSnapshotData(w);
+			// variable-logic coupling (in the order of the ground atoms, such that their indices are retained)
+			WorldVariables worldVars = coupling.getWorldVars();
+			IdentityHashMap<BeliefNode, Integer> nodeIndices = new IdentityHashMap<BeliefNode, Integer>();
+			BeliefNode[] nodes = groundBN.getNodes();
+			for(int i = 0; i < nodes.length; i++)
+				nodeIndices.put(nodes[i], i);
+			for(int i = 0; i < worldVars.size(); i++) {
+				GroundAtom ga = worldVars.get(i);
+				Block block = worldVars.getBlock(i);
+				if(block != null && block.get(0) != ga)
+					continue;
+				w.writeInt(nodeIndices.get(coupling.getVariable(ga)));
+				w.writeBoolean(block != null);
+				w.writeString(ga.predicate);
+				String[] params = ga.args;
+				if(block != null) {
+					params = new String[ga.args.length-1];
+					System.arraycopy(ga.args, 0, params, 0, params.length);
+				}
+				w.writeStrings(params);
+			}
+			w.writeInt(-1);
+			// ground knowledge base
+			w.writeBoolean(gkb != null);
+			if(gkb != null) {
+				w.writeInt(gkb.size());
+				for(Formula f : gkb) {
+					w.writeInt(gkb.getTemplateID(f));
+					w.writeFormula(f);
+				}
+			}
 		}
-		// otherwise get the next parent and consider all of its settings
-		BeliefNode parent = domprod[iDomProd];		
-		int domOrder = parent.getDomain().getOrder();
-		// - recursively consider all settings
-		for(int i = 0; i < domOrder; i++) {			
-			// set address 
-			addr[iDomProd] = i;
-			// set state for logical reasoner
-			coupling.setVariableValue(parent, i, state);
-			// recurse
-			fillFormulaCPF(gf, cpf, iDomProd+1, addr);
+		finally {
+			w.close();
 		}
 	}
 	
+	/**
+	 * reads a ground model from a snapshot that was written by {@link #writeSnapshot(String, SnapshotInfo)}
+	 * @param bln the BLN from which the ground model was instantiated
+	 * @param filename
+	 * @return
+	 * @throws Exception if the snapshot is invalid or was not created for the given BLN
+	 */
+	public static GroundBLN readSnapshot(BayesianLogicNetwork bln, String filename) throws Exception {
+		SnapshotReader r = new SnapshotReader(filename, SnapshotWriter.KIND_GROUND_BLN);
+		if(!readModelFingerprint(r, bln))
+			throw new Exception("Snapshot " + filename + " was created for a different BLN");
+		GroundBLN gbln = new GroundBLN(bln, r.readDatabase(bln.rbn));
+		gbln.readSnapshotData(r);
+		BeliefNode[] nodes = gbln.groundBN.getNodes();
+		int nodeIdx;
+		while((nodeIdx = r.readInt()) != -1) {
+			BeliefNode node = nodes[nodeIdx];
+			boolean isBlock = r.readBoolean();
+			String functionName = r.readString();
+			String[] params = r.readStrings();
+			if(isBlock)
+				gbln.coupling.addBlockVariable(node, (Discrete)node.getDomain(), functionName, params);
+			else
+				gbln.coupling.addBooleanVariable(node, functionName, params);
+		}
+		if(r.readBoolean()) {
+			gbln.gkb = new KnowledgeBase();
+			int numFormulas = r.readInt();
+			WorldVariables worldVars = gbln.coupling.getWorldVars();
+			for(int i = 0; i < numFormulas; i++) {
+				int templateID = r.readInt();
+				gbln.gkb.addFormula(r.readFormula(worldVars), templateID);
+			}
+			// restore the CPFs of the formulaic nodes (the i-th node corresponds to the i-th ground formula)
+			int i = 0;
+			for(Formula gf : gbln.gkb) {
+				BeliefNode node = gbln.hardFormulaNodes.get(i++);
+				node.setCPF(gbln.createFormulaCPF(gf.simplify(null), node.getCPF().getDomainProduct()));
+			}
+		}
+		return gbln;
+	}
+	
+	/**
+	 * writes information identifying the template model, which is checked when reading a snapshot
+	 */
+	protected static void writeModelFingerprint(SnapshotWriter w, BayesianLogicNetwork bln) throws Exception {
+		BeliefNode[] templateNodes = bln.rbn.bn.getNodes();
+		w.writeInt(templateNodes.length);
+		for(BeliefNode node : templateNodes) {
+			w.writeString(node.getName());
+			w.writeDouble(getCPFHash(node.getCPF()));
+		}
+		w.writeInt(bln.kb.size());
+		for(Formula f : bln.kb)
+			w.writeString(f.toString());
+	}
+	
+	protected static double getCPFHash(CPF cpf) {
+		double h = cpf.size();
+		for(int i = 0; i < cpf.size(); i++)
+			h = h * 31 + cpf.getDouble(i);
+		return h;
+	}
+	
+	/**
+	 * @return true if the snapshot was written for the given template model
+	 */
+	protected static boolean readModelFingerprint(SnapshotReader r, BayesianLogicNetwork bln) throws Exception {
+		BeliefNode[] templateNodes = bln.rbn.bn.getNodes();
+		if(r.readInt() != templateNodes.length)
+			return false;
+		for(BeliefNode node : templateNodes)
+			if(!r.readString().equals(node.getName()) || r.readDouble() != getCPFHash(node.getCPF()))
+				return false;
+		if(r.readInt() != bln.kb.size())
+			return false;
+		for(Formula f : bln.kb)
+			if(!r.readString().equals(f.toString()))
+				return false;
+		return true;
+	}
+	
 	/**
 	 * gets the knowledge base of grounded hard logical constraints
 	 * @return
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl.directed.bln;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import edu.ksu.cis.bnj.ver3.core.BeliefNode;
+
+/**
+ * Records the changes that were made to a ground network since the log was last cleared, such that 
+ * inference methods (and any caches they maintain) can determine which of their data is outdated after
+ * the ground model was updated for new evidence (see {@link AbstractGroundBLN#updateGroundNetwork(probcog.srl.Database)}).
+ * Changes accumulate: A node that was added and subsequently removed does not appear at all, and a node that was 
+ * modified and subsequently removed appears only as removed.
+ * @author agent
+ */
+public class GroundNetworkChangeLog {
+	/**
+	 * the number of updates that were applied to the ground network since it was instantiated
+	 */
+	protected int revision = 0;
+	/**
+	 * whether the ground network was instantiated from scratch, such that no previous data remains valid
+	 */
+	protected boolean reinstantiated = false;
+	protected LinkedHashSet<BeliefNode> addedNodes = new LinkedHashSet<BeliefNode>();
+	protected LinkedHashSet<BeliefNode> removedNodes = new LinkedHashSet<BeliefNode>();
+	/**
+	 * nodes whose parents or CPFs were changed
+	 */
+	protected LinkedHashSet<BeliefNode> modifiedNodes = new LinkedHashSet<BeliefNode>();
+	/**
+	 * the names of the variables whose evidence was added, retracted or changed
+	 */
+	protected LinkedHashSet<String> changedEvidence = new LinkedHashSet<String>();
+	
+	public void onNodeAdded(BeliefNode node) {
+		addedNodes.add(node);
+	}
+	
+	public void onNodeRemoved(BeliefNode node) {
+		modifiedNodes.remove(node);
+		if(!addedNodes.remove(node))
+			removedNodes.add(node);
+	}
+	
+	public void onNodeModified(BeliefNode node) {
+		if(!addedNodes.contains(node))
+			modifiedNodes.add(node);
+	}
+	
+	public void onEvidenceChanged(String varName) {
+		changedEvidence.add(varName);
+	}
+	
+	public void onEvidenceChanged(Collection<String> varNames) {
+		changedEvidence.addAll(varNames);
+	}
+	
+	/**
+	 * records that the ground network was instantiated anew, which invalidates all previous changes
+	 */
+	public void onReinstantiated() {
+		clear();
+		reinstantiated = true;
+		revision++;
+	}
+	
+	/**
+	 * marks the end of an update
+	 */
+	public void nextRevision() {
+		revision++;
+	}
+	
+	public int getRevision() {
+		return revision;
+	}
+	
+	public boolean isReinstantiated() {
+		return reinstantiated;
+	}
+	
+	public Set<BeliefNode> getAddedNodes() {
+		return addedNodes;
+	}
+	
+	public Set<BeliefNode> getRemovedNodes() {
+		return removedNodes;
+	}
+	
+	public Set<BeliefNode> getModifiedNodes() {
+		return modifiedNodes;
+	}
+	
+	public Set<String> getChangedEvidence() {
+		return changedEvidence;
+	}
+	
+	/**
+	 * @return true if nodes were added, removed or modified (or the network was instantiated anew), i.e. if data that depends on the structure or the CPFs of the network is outdated
+	 */
+	public boolean isStructureChanged() {
+		return reinstantiated || !addedNodes.isEmpty() || !removedNodes.isEmpty() || !modifiedNodes.isEmpty();
+	}
+	
+	public boolean isEmpty() {
+		return !isStructureChanged() && changedEvidence.isEmpty();
+	}
+	
+	/**
+	 * clears the log (e.g. after the changes have been processed), retaining the revision number
+	 */
+	public void clear() {
+		reinstantiated = false;
+		addedNodes.clear();
+		removedNodes.clear();
+		modifiedNodes.clear();
+		changedEvidence.clear();
+	}
+	
+	public String toString() {
+		return String.format("GroundNetworkChangeLog[revision %d%s, %d added, %d removed, %d modified, %d evidence changes]", revision, reinstantiated ? ", reinstantiated" : "", addedNodes.size(), removedNodes.size(), modifiedNodes.size(), changedEvidence.size());
+	}
+}
@@ -18,6 +18,7 @@
  ******************************************************************************/
 package probcog.srl.directed.bln.coupling;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.Vector;
@@ -73,6 +74,39 @@ public class VariableLogicCoupling {
 		variable2groundAtomLookup.put(var, new BlockVariable(b));
 	}
 	
+	/**
+	 * removes the coupling of the given variables (e.g. because they were removed from the ground network), 
+	 * removing the corresponding ground atoms from the world variables; 
+	 * note that the indices of the remaining ground atoms may change
+	 * @param vars
+	 */
+	public void removeVariables(Collection<BeliefNode> vars) {
+		Vector<GroundAtom> gndAtoms = new Vector<GroundAtom>();
+		for(BeliefNode var : vars) {
+			IVariableLogicCoupler vlc = variable2groundAtomLookup.remove(var);
+			if(vlc == null)
+				continue;
+			if(vlc instanceof BlockVariable) {
+				for(GroundAtom ga : ((BlockVariable)vlc).block)
+					gndAtoms.add(ga);
+			}
+			else
+				gndAtoms.add(((BooleanVariable)vlc).ga);
+		}
+		if(gndAtoms.isEmpty())
+			return;
+		// the ground atoms are hashed by index, so the mapping must be rebuilt after the indices were reassigned
+		HashMap<GroundAtom, BeliefNode> oldMapping = groundAtom2variable;
+		for(GroundAtom ga : gndAtoms)
+			oldMapping.remove(ga);
+		Vector<GroundAtom> remaining = new Vector<GroundAtom>(oldMapping.keySet());
+		Vector<BeliefNode> remainingVars = new Vector<BeliefNode>(oldMapping.values());
+		worldVars.removeAll(gndAtoms);
+		groundAtom2variable = new HashMap<GroundAtom, BeliefNode>();
+		for(int i = 0; i < remaining.size(); i++)
+			groundAtom2variable.put(remaining.get(i), remainingVars.get(i));
+	}
+	
 	public GroundLiteral getGroundLiteral(BeliefNode var, int domIdx) {
 		IVariableLogicCoupler vlc = variable2groundAtomLookup.get(var);
 		if(vlc == null)
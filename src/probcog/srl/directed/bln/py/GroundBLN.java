@@ -47,6 +47,11 @@ public class GroundBLN extends AbstractGroundBLN {
 		super(bln, db);
 	}
 	
+	@Override
+	protected void addFormulaicDependencies(DependencyStructure deps) throws Exception {
+		throw new Exception("Query-driven grounding is not supported for models whose formulas are grounded in Python");
+	}
+	
 	@Override
 	public void groundFormulaicNodes() throws Exception {
 		BayesianLogicNetworkPy bln = (BayesianLogicNetworkPy)this.bln;
@@ -19,6 +19,7 @@
 package probcog.srl.directed.inference;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -31,6 +32,7 @@ import java.util.Vector;
 import java.util.regex.Pattern;
 
 import probcog.bayesnets.core.BNDatabase;
+import probcog.bayesnets.inference.IResultsListener;
 import probcog.bayesnets.inference.ITimeLimitedInference;
 import probcog.bayesnets.inference.SampledDistribution;
 import probcog.inference.BasicSampledDistribution;
@@ -38,10 +40,13 @@ import probcog.inference.GeneralSampledDistribution;
 import probcog.inference.IParameterHandler;
 import probcog.inference.ParameterHandler;
 import probcog.srl.Database;
+import probcog.srl.SnapshotInfo;
+import probcog.srl.SnapshotWriter;
 import probcog.srl.directed.RelationalBeliefNetwork;
 import probcog.srl.directed.bln.AbstractBayesianLogicNetwork;
 import probcog.srl.directed.bln.AbstractGroundBLN;
 import probcog.srl.directed.bln.BayesianLogicNetwork;
+import probcog.srl.directed.bln.GroundBLN;
 import probcog.srl.directed.bln.py.BayesianLogicNetworkPy;
 import edu.ksu.cis.bnj.ver3.core.BeliefNode;
 import edu.ksu.cis.bnj.ver3.core.CPT;
@@ -65,14 +70,18 @@ public class BLNinfer implements IParameterHandler {
 	boolean usePython = false;
 	boolean verbose = true;
 	boolean saveInstance = false;
+	String snapshotFile = null;
 	boolean noInference = false;
 	boolean skipFailedSteps = false;
 	boolean removeDeterministicCPTEntries = false;
 	boolean resultsFilterEvidence = false;
 	double timeLimit = 10.0, infoIntervalTime = 1.0;
+	Double firstResultsTime = null;
+	Vector<IResultsListener> resultsListeners = new Vector<IResultsListener>();
 	boolean timeLimitedInference = false;
 	boolean samplerInitializationBeforeTimingStarts = true;
 	boolean allowPartialInst = false;
+	boolean queryDrivenGrounding = false;
 	String outputDistFile = null, referenceDistFile = null;
 	Map<String, Object> params;
 	AbstractBayesianLogicNetwork bln = null;
@@ -82,6 +91,10 @@ public class BLNinfer implements IParameterHandler {
 	ParameterHandler paramHandler;
 	Sampler sampler;
 	TimeLimitedInference tli;
+	/**
+	 * the parameters of the ground model that influence its structure, which are taken into account when checking snapshots
+	 */
+	protected static final String[] groundingParams = {"simplifyFormulas", "maxCombiningRuleCPTSize", "maxAggregatorFanIn"};
 
 	enum SortOrder implements Comparator<InferenceResult> {
 		Atom {
@@ -133,6 +146,9 @@ public class BLNinfer implements IParameterHandler {
 		paramHandler.add("numSamples", "setMaxSteps");
 		paramHandler.add("inferenceMethod", "setInferenceMethod");
 		paramHandler.add("timeLimit", "setTimeLimit");
+		paramHandler.add("resultsInterval", "setResultsInterval");
+		paramHandler.add("firstResultsTime", "setFirstResultsTime");
+		paramHandler.add("queryDrivenGrounding", "setQueryDrivenGrounding");
 		this.params = params;
 	}
 
@@ -159,6 +175,40 @@ public class BLNinfer implements IParameterHandler {
 		this.timeLimit = seconds;
 	}
 
+	/**
+	 * sets the interval at which intermediate results are polled during time-limited inference
+	 * @param seconds
+	 */
+	public void setResultsInterval(double seconds) {
+		this.infoIntervalTime = seconds;
+	}
+
+	/**
+	 * sets the time after which intermediate results are polled for the first time during time-limited inference
+	 * @param seconds
+	 */
+	public void setFirstResultsTime(double seconds) {
+		this.firstResultsTime = seconds;
+	}
+
+	/**
+	 * sets whether to instantiate only the part of the ground network that is relevant to the queries
+	 * (see {@link AbstractGroundBLN#instantiateGroundNetwork(Iterable)})
+	 * @param enabled
+	 */
+	public void setQueryDrivenGrounding(Boolean enabled) {
+		this.queryDrivenGrounding = enabled;
+	}
+
+	/**
+	 * adds a listener that receives the intermediate results of time-limited inference
+	 * (see {@link #getResults(SampledDistribution)})
+	 * @param l
+	 */
+	public void addResultsListener(IResultsListener l) {
+		resultsListeners.add(l);
+	}
+
 	public void readArgs(String[] args) throws Exception {
 		// read arguments
 		for(int i = 0; i < args.length; i++) {
@@ -197,6 +247,8 @@ public class BLNinfer implements IParameterHandler {
 				removeDeterministicCPTEntries = true;
 			else if(args[i].equals("-si"))
 				saveInstance = true;
+			else if(args[i].equals("-snapshot"))
+				snapshotFile = args[++i];
 			else if(args[i].equals("-ni"))
 				noInference = true;
 			else if(args[i].equals("-skipFailedSteps"))
@@ -212,6 +264,8 @@ public class BLNinfer implements IParameterHandler {
 			}
 			else if(args[i].equals("-allowPartialInst"))
 				allowPartialInst = true;
+			else if(args[i].equals("-kbmc"))
+				queryDrivenGrounding = true;
 			else if(args[i].equals("-maxTrials"))
 				params.put("maxTrials", args[++i]);
 			else if(args[i].equals("-ia"))
@@ -257,6 +311,31 @@ public class BLNinfer implements IParameterHandler {
 		}
 	}
 
+	/**
+	 * @return a description of the inputs the ground model is created from (model and evidence files, grounding options,
+	 * closed-world predicates and queries)
+	 * @throws IOException
+	 */
+	protected SnapshotInfo getSnapshotInfo() throws IOException {
+		SnapshotInfo info = new SnapshotInfo();
+		for(String filename : new String[]{declsFile, networkFile, logicFile})
+			if(filename != null)
+				info.addModelFile(filename);
+		info.addModelOption("allowPartialInst", allowPartialInst);
+		info.addModelOption("removeDeterministicCPTEntries", removeDeterministicCPTEntries);
+		for(String param : groundingParams)
+			if(params.containsKey(param))
+				info.addModelOption(param, params.get(param));
+		if(dbFile != null)
+			info.addEvidenceFile(dbFile);
+		info.addEvidenceOption("cw", cwPreds != null ? cwPreds : new String[0]);
+		Vector<String> queryList = new Vector<String>();
+		for(String query : queries)
+			queryList.add(query);
+		info.addEvidenceOption("queries", queryList.toArray(new String[queryList.size()]));
+		return info;
+	}
+
 	public void setBLN(AbstractBayesianLogicNetwork bln) {
 		this.bln = bln;
 	}
@@ -292,6 +371,8 @@ public class BLNinfer implements IParameterHandler {
 
 		// handle parameters
 		paramHandler.handle(params, false);
+		if(queryDrivenGrounding && snapshotFile != null)
+			throw new IllegalArgumentException("Snapshots cannot be used with query-driven grounding, as the ground model depends on the queries");
 
 		// load relational model
 		if(bln == null) {
@@ -314,15 +395,59 @@ public class BLNinfer implements IParameterHandler {
 			}
 		}
 
+		// (on request) reload the ground model and the evidence from a snapshot that was created from the same model;
+		// if the evidence differs from the one the snapshot was created for, the ground model is updated for the current evidence
+		boolean fromSnapshot = false, updateSnapshot = false;
+		SnapshotInfo snapshotInfo = null, storedSnapshotInfo = null;
+		if(gbln == null && snapshotFile != null) {
+			snapshotInfo = getSnapshotInfo();
+			storedSnapshotInfo = SnapshotInfo.read(snapshotFile, SnapshotWriter.KIND_GROUND_BLN);
+			if(storedSnapshotInfo != null && !storedSnapshotInfo.modelMatches(snapshotInfo) && verbose)
+				System.out.println("snapshot " + snapshotFile + " is outdated");
+		}
+		if(storedSnapshotInfo != null && storedSnapshotInfo.modelMatches(snapshotInfo)) {
+			if(!(bln instanceof BayesianLogicNetwork))
+				throw new Exception("Snapshots are supported only for models of type " + BayesianLogicNetwork.class.getSimpleName());
+			if(verbose)
+				System.out.println("reading ground model from snapshot " + snapshotFile + "...");
+			Stopwatch sw = new Stopwatch();
+			sw.start();
+			gbln = GroundBLN.readSnapshot((BayesianLogicNetwork)bln, snapshotFile);
+			paramHandler.addSubhandler(gbln);
+			this.groundingTime = sw.getElapsedTimeSecs();
+			// a database that was set directly cannot be compared to the snapshot's evidence
+			updateSnapshot = db != null || !storedSnapshotInfo.evidenceMatches(snapshotInfo);
+			if(!updateSnapshot) {
+				db = gbln.getDatabase();
+				fromSnapshot = true;
+			}
+		}
+
 		// read evidence database
-		if(db == null)
-			db = new Database(blog);
-		paramHandler.addSubhandler(db.getParameterHandler());
-		if(dbFile != null)
-			db.readBLOGDB(dbFile);
-		if(cwPreds != null) {
-			for(String predName : cwPreds)
-				db.setClosedWorldPred(predName);
+		if(!fromSnapshot) {
+			if(db == null)
+				db = new Database(blog);
+			paramHandler.addSubhandler(db.getParameterHandler());
+			if(dbFile != null)
+				db.readBLOGDB(dbFile);
+			if(cwPreds != null) {
+				for(String predName : cwPreds)
+					db.setClosedWorldPred(predName);
+			}
+		}
+
+		// update a ground model that was read from an outdated snapshot
+		if(updateSnapshot) {
+			if(verbose)
+				System.out.println("updating ground model for the current evidence...");
+			Stopwatch sw = new Stopwatch();
+			sw.start();
+			bln.setAllowPartialInstantiation(allowPartialInst);
+			gbln.updateGroundNetwork(db);
+			this.groundingTime += sw.getElapsedTimeSecs();
+			if(verbose)
+				System.out.println("writing snapshot " + snapshotFile + "...");
+			((GroundBLN)gbln).writeSnapshot(snapshotFile, snapshotInfo);
 		}
 
 		// instantiate ground model
@@ -332,8 +457,18 @@ public class BLNinfer implements IParameterHandler {
 			bln.setAllowPartialInstantiation(allowPartialInst);
 			gbln = bln.ground(db);
 			paramHandler.addSubhandler(gbln);
-			gbln.instantiateGroundNetwork();
+			if(queryDrivenGrounding)
+				gbln.instantiateGroundNetwork(queries);
+			else
+				gbln.instantiateGroundNetwork();
 			this.groundingTime = sw.getElapsedTimeSecs();
+			if(snapshotFile != null) {
+				if(!(gbln instanceof GroundBLN))
+					throw new Exception("Snapshots are supported only for models of type " + BayesianLogicNetwork.class.getSimpleName());
+				if(verbose)
+					System.out.println("writing snapshot " + snapshotFile + "...");
+				((GroundBLN)gbln).writeSnapshot(snapshotFile, snapshotInfo);
+			}
 		}
 		if(showBN) {
 			gbln.getGroundNetwork().show();
@@ -384,6 +519,10 @@ public class BLNinfer implements IParameterHandler {
 														// inference
 			tli = new TimeLimitedInference(tliSampler, timeLimit, infoIntervalTime);
 			paramHandler.addSubhandler(tli);
+			if(firstResultsTime != null)
+				tli.setFirstPollTime(firstResultsTime);
+			for(IResultsListener l : resultsListeners)
+				tli.addResultsListener(l);
 			tli.setReferenceDistribution(referenceDist);
 			tli.setEvidenceDomainIndices(evidenceDomainIndices);
 			if(samplerInitializationBeforeTimingStarts)
@@ -436,6 +575,15 @@ public class BLNinfer implements IParameterHandler {
 		return results;
 	}
 
+	/**
+	 * converts a distribution computed by the sampler (e.g. intermediate results) to inference results for the queries
+	 * @param dist
+	 * @return
+	 */
+	public Vector<InferenceResult> getResults(SampledDistribution dist) {
+		return sampler.getResults(dist);
+	}
+
 	/**
 	 * @return the results returned by the inference algorithm
 	 */
@@ -510,6 +658,7 @@ public class BLNinfer implements IParameterHandler {
 					"     -e <evidence db pattern>  an evidence database file or file mask\n" + 
 					"     -q <comma-sep. queries>   queries (predicate names or partially grounded terms with lower-case vars)\n\n" + 
 					"   options:\n\n" + "     -allowPartialInst  allow partial ground network instantiations (skip nodes with no applicable fragment)\n" + 
+					"     -kbmc              instantiate only the part of the ground network that is relevant to the queries\n" + 
 					"     -maxSteps #        the maximum number of steps to take (default: 1000 for non-time-limited inf.)\n" + 
 					"     -maxTrials #       the maximum number of trials per step for BN sampling algorithms (default: 5000)\n" + 
 					"     -infoInterval #    the number of steps after which to output a status message\n"			+ 
@@ -522,7 +671,8 @@ public class BLNinfer implements IParameterHandler {
 					"     --<key>=<value>    set algorithm-specific parameter\n" + 
 					"     -debug             debug mode with additional outputs\n" + 
 					"     -s                 show ground network in editor\n" + 
-					"     -si                save ground network instance in BIF format (.instance.xml) and evidence (.instance.bndb)\n" + 
+					"     -si                save ground network instance in BIF format (.instance.xml) and evidence (.instance.bndb)\n" +
+					"     -snapshot <file>   reload the ground model and evidence from a binary snapshot (written if missing or outdated; updated if only the evidence changed)\n" + 
 					"     -ni                do not actually run the inference method (only instantiate ground network)" + 
 					"     -rfe               filter evidence in results\n" + 
 					"     -nodetcpt          remove deterministic CPT columns by replacing 0s with low prob. values\n" + 
@@ -19,6 +19,7 @@
 package probcog.srl.directed.inference;
 
 import probcog.bayesnets.core.BeliefNetworkEx;
+import probcog.bayesnets.core.EvidenceAbsorption;
 import probcog.bayesnets.inference.ITimeLimitedInference;
 import probcog.bayesnets.inference.SampledDistribution;
 import probcog.srl.directed.bln.AbstractGroundBLN;
@@ -40,12 +41,18 @@ public class BNSampler extends Sampler implements ITimeLimitedInference {
 	 * the evidence we are working on
 	 */
 	protected int[] evidenceDomainIndices;
+	/**
+	 * whether to absorb the evidence into a reduced network, on which the sampler is run instead of the full ground network
+	 */
+	protected boolean absorbEvidence = false;
+	protected EvidenceAbsorption absorption = null;
 		
 	public BNSampler(AbstractGroundBLN gbln, Class<? extends probcog.bayesnets.inference.Sampler> samplerClass) throws Exception {
 		super(gbln);
 		maxTrials = 5000;
 		this.paramHandler.add("maxTrials", "setMaxTrials");
 		this.paramHandler.add("skipFailedSteps", "setSkipFailedSteps");
+		this.paramHandler.add("absorbEvidence", "setAbsorbEvidence");
 		this.samplerClass = samplerClass;
 	}
 	
@@ -57,22 +64,45 @@ public class BNSampler extends Sampler implements ITimeLimitedInference {
 		this.skipFailedSteps = canSkip;
 	}
 	
+	/**
+	 * sets whether the evidence is to be absorbed into a reduced network (see {@link EvidenceAbsorption}), 
+	 * which the sampler then operates on instead of the full ground network 
+	 * @param absorb
+	 */
+	public void setAbsorbEvidence(boolean absorb) throws Exception {
+		this.absorbEvidence = absorb;
+	}
+	
 	@Override
 	protected void _initialize() throws Exception {
 		// create full evidence
 		String[][] evidence = this.gbln.getDatabase().getEntriesAsArray();
 		evidenceDomainIndices = gbln.getFullEvidence(evidence);
+		
+		// (on request) absorb the evidence into a reduced network
+		absorption = null;
+		if(absorbEvidence) {
+			absorption = gbln.getGroundNetwork().absorbEvidence(evidenceDomainIndices);
+			if(verbose) System.out.println(absorption);
+		}
 	
 		// initialize sampler				
 		sampler = getSampler();
 		paramHandler.addSubhandler(sampler.getParameterHandler());
-		sampler.setEvidence(evidenceDomainIndices);
-		sampler.setQueryVars(queryVars);
+		if(absorption != null) {
+			sampler.setEvidence(absorption.getReducedEvidence());
+			sampler.setQueryVars(absorption.getReducedNodeIndices(queryVars));
+		}
+		else {
+			sampler.setEvidence(evidenceDomainIndices);
+			sampler.setQueryVars(queryVars);
+		}
 		sampler.setDebugMode(debug);
 		sampler.setNumSamples(numSamples);
 		sampler.setInfoInterval(infoInterval);
 		sampler.setMaxTrials(maxTrials);
 		sampler.setSkipFailedSteps(skipFailedSteps);
+		sampler.setCancellationFlag(cancellation);
 		sampler.initialize();
 	}
 	
@@ -81,11 +111,14 @@ public class BNSampler extends Sampler implements ITimeLimitedInference {
 		// run inference
 		if(verbose) System.out.printf("running %s...\n", sampler.getAlgorithmName());
 		SampledDistribution dist = sampler.infer();
+		if(absorption != null)
+			dist = dist.expandAbsorbedEvidence(absorption);
 		return dist;
 	}
 	
 	protected probcog.bayesnets.inference.Sampler getSampler() throws Exception {
-		return samplerClass.getConstructor(BeliefNetworkEx.class).newInstance(gbln.getGroundNetwork());	
+		BeliefNetworkEx bn = absorption != null ? absorption.getReducedNetwork() : gbln.getGroundNetwork();
+		return samplerClass.getConstructor(BeliefNetworkEx.class).newInstance(bn);	
 	}
 
 	@Override
@@ -96,6 +129,9 @@ public class BNSampler extends Sampler implements ITimeLimitedInference {
 	public SampledDistribution pollResults() throws Exception {
 		if(sampler == null)
 			return null;
-		return sampler.pollResults();
+		SampledDistribution dist = sampler.pollResults();
+		if(dist != null && absorption != null)
+			dist = dist.expandAbsorbedEvidence(absorption);
+		return dist;
 	}
 }
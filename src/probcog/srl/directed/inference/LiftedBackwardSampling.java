@@ -96,6 +96,7 @@ public class LiftedBackwardSampling extends Sampler {
 		sampler.setNumSamples(numSamples);
 		sampler.setInfoInterval(infoInterval);
 		sampler.setEvidence(evidenceDomainIndices);
+		sampler.setCancellationFlag(cancellation);
 		//sampler.setMaxTrials(maxTrials);
 		//sampler.setSkipFailedSteps(skipFailedSteps);
 		SampledDistribution dist = sampler.infer();
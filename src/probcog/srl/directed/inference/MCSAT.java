@@ -75,6 +75,7 @@ public class MCSAT extends Sampler implements ITimeLimitedInference {
 		hardConstraintsInCPTs = null;
 		// construct sampler
 		sampler = new probcog.logic.sat.weighted.MCSAT(kb, gbln.getWorldVars(), gbln.getDatabase());
+		sampler.setCancellationFlag(cancellation);
 		// pass on parameter handling
 		paramHandler.addSubhandler(sampler.getParameterHandler());
 	}
@@ -72,6 +72,13 @@ public class SATIS extends BNSampler {
 		unitPropagation = enabled;
 	}
 	
+	@Override
+	public void setAbsorbEvidence(boolean absorb) throws Exception {
+		// the SAT sampler is coupled to the variables of the full ground network
+		if(absorb)
+			throw new Exception(getAlgorithmName() + " does not support evidence absorption");
+	}
+	
 	protected void initSATSampler() throws Exception {
 		System.out.println("initializing SAT sampler...");
 				
@@ -20,12 +20,14 @@ package probcog.srl.directed.inference;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.TreeMap;
 import java.util.Vector;
-import java.util.regex.Pattern;
 
 import probcog.bayesnets.inference.SampledDistribution;
+import probcog.inference.CancellationFlag;
 import probcog.inference.IParameterHandler;
 import probcog.inference.ParameterHandler;
+import probcog.srl.QueryResolver;
 import probcog.srl.directed.bln.AbstractGroundBLN;
 
 import edu.ksu.cis.bnj.ver3.core.BeliefNode;
@@ -46,6 +48,10 @@ public abstract class Sampler implements IParameterHandler {
 	protected AbstractGroundBLN gbln;
 	double inferenceTime, initTime;
 	protected boolean initialized = false;
+	/**
+	 * the flag via which inference can be cancelled; it is passed on to the underlying inference method(s)
+	 */
+	protected CancellationFlag cancellation = new CancellationFlag();
 	
 	public Sampler(AbstractGroundBLN gbln) throws Exception {
 		this.gbln = gbln;
@@ -101,6 +107,21 @@ public abstract class Sampler implements IParameterHandler {
 		infoInterval = n;
 	}
 	
+	/**
+	 * asks the sampler to terminate as soon as possible; infer then returns the results obtained so far
+	 */
+	public void cancel() {
+		cancellation.raise();
+	}
+	
+	/**
+	 * sets a deadline after which inference terminates as if it had been cancelled
+	 * @param deadline the deadline in milliseconds (as returned by System.currentTimeMillis), or 0 for no deadline
+	 */
+	public void setDeadline(long deadline) {
+		cancellation.setDeadline(deadline);
+	}
+	
 	public final void initialize() throws Exception {
 		if(verbose) 
 			System.out.println("initializing...");
@@ -149,31 +170,22 @@ public abstract class Sampler implements IParameterHandler {
 	}
 	
 	public void setQueries(Iterable<String> queries) {
-		// generate patterns
-		Vector<Pattern> patterns = new Vector<Pattern>();
-		for(String query : queries) {
-			String p = query;
-			p = Pattern.compile("([,\\(])([a-z][^,\\)]*)").matcher(p).replaceAll("$1.*?");
-			p = p.replace("(", "\\(").replace(")", "\\)") + ".*";			
-			patterns.add(Pattern.compile(p));
-			//System.out.println("pattern: " + p);
-		}
-		
-		// check all ground variables for matches
-		// TODO This should be done more efficiently by explicitly grounding the requested nodes instead of using pattern matchers
+		// index the ground variables by predicate and arguments
 		BeliefNode[] nodes = gbln.getGroundNetwork().getNodes();
-		queryVars = new Vector<Integer>();
-		queryVarQueryIndices = new Vector<Integer>();
-		for(int i = 0; i < nodes.length; i++) {
-			int idxQuery = 0;
-			for(Pattern pattern : patterns)	{		
-				if(pattern.matcher(nodes[i].getName()).matches()) {
-					queryVars.add(i);
-					queryVarQueryIndices.add(idxQuery);
-					break;					
-				}
-				++idxQuery;
-			}
+		QueryResolver<Integer> resolver = new QueryResolver<Integer>();
+		for(int i = 0; i < nodes.length; i++)
+			resolver.add(nodes[i].getName(), i);
+		
+		// resolve the queries, associating each variable with the first query that matches it
+		TreeMap<Integer, Integer> var2query = new TreeMap<Integer, Integer>();
+		int idxQuery = 0;
+		for(String query : queries) {
+			for(Integer i : resolver.resolve(query))
+				if(!var2query.containsKey(i))
+					var2query.put(i, idxQuery);
+			++idxQuery;
 		}
+		queryVars = new Vector<Integer>(var2query.keySet());
+		queryVarQueryIndices = new Vector<Integer>(var2query.values());
 	}
 }
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl.mln;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import probcog.logic.Atom;
+import probcog.logic.ComplexFormula;
+import probcog.logic.Exist;
+import probcog.logic.ForAll;
+import probcog.logic.Formula;
+import probcog.logic.Literal;
+import probcog.logic.Negation;
+import probcog.logic.sat.weighted.WeightedFormula;
+import probcog.srl.GenericDatabase;
+
+import edu.tum.cs.util.datastruct.Map2List;
+
+/**
+ * An index of the formulas of an MLN (i.e. the templates of ground formulas) by the predicates that appear in them.
+ * It is used to find the ground formulas that a particular ground atom appears in without grounding the entire model.
+ * @author agent
+ */
+public class FormulaTemplateIndex {
+
+	protected Vector<Template> templates;
+	protected Map2List<String, Occurrence> pred2occurrences;
+
+	/**
+	 * @param mln the MLN whose formulas to index
+	 * @param db the database that determines the domains of the formulas' variables
+	 * @param makeWeightsPositive whether to negate formulas with negative weights (such that all templates have positive weights)
+	 * @throws Exception
+	 */
+	public FormulaTemplateIndex(MarkovLogicNetwork mln, GenericDatabase<?,?> db, boolean makeWeightsPositive) throws Exception {
+		templates = new Vector<Template>();
+		pred2occurrences = new Map2List<String, Occurrence>();
+		for(WeightedFormula wf : mln.getFormulas()) {
+			Formula f = wf.formula;
+			double weight = wf.weight;
+			if(makeWeightsPositive && weight < 0) {
+				f = new Negation(f);
+				weight = -weight;
+			}
+			Template t = new Template(templates.size(), f, weight, wf.isHard, db);
+			templates.add(t);
+			collectOccurrences(t, f, false);
+		}
+	}
+
+	protected void collectOccurrences(Template t, Formula f, boolean isQuantified) {
+		if(f instanceof Atom) {
+			Occurrence occ = new Occurrence(t, (Atom)f, isQuantified);
+			t.occurrences.add(occ);
+			pred2occurrences.add(occ.atom.predName, occ);
+		}
+		else if(f instanceof Literal)
+			collectOccurrences(t, ((Literal)f).atom, isQuantified);
+		else if(f instanceof ComplexFormula) {
+			for(Formula child : ((ComplexFormula)f).children)
+				collectOccurrences(t, child, isQuantified);
+		}
+		else if(f instanceof Exist)
+			collectOccurrences(t, ((Exist)f).f, true);
+		else if(f instanceof ForAll)
+			collectOccurrences(t, ((ForAll)f).f, true);
+	}
+
+	public Vector<Template> getTemplates() {
+		return templates;
+	}
+
+	/**
+	 * gets the occurrences of the given predicate in the formula templates
+	 * @param predName
+	 * @return a list of occurrences or null if the predicate does not appear in any formula
+	 */
+	public Vector<Occurrence> getOccurrences(String predName) {
+		return pred2occurrences.get(predName);
+	}
+
+	/**
+	 * a formula of the MLN along with the information that is required to ground it
+	 */
+	public static class Template {
+		public final int index;
+		public final Formula formula;
+		public final double weight;
+		public final boolean isHard;
+		/**
+		 * the (free) variables of the formula
+		 */
+		public final String[] varNames;
+		protected HashMap<String, String> var2domName;
+		protected Vector<Occurrence> occurrences;
+
+		public Template(int index, Formula formula, double weight, boolean isHard, GenericDatabase<?,?> db) throws Exception {
+			this.index = index;
+			this.formula = formula;
+			this.weight = weight;
+			this.isHard = isHard;
+			var2domName = new HashMap<String, String>();
+			formula.getVariables(db, var2domName);
+			varNames = var2domName.keySet().toArray(new String[var2domName.size()]);
+			occurrences = new Vector<Occurrence>();
+		}
+
+		public Vector<Occurrence> getOccurrences() {
+			return occurrences;
+		}
+
+		/**
+		 * calls the given handler for every complete binding of the template's variables that extends the given (partial) binding
+		 * @param binding the partial binding, which is extended in place
+		 * @param db the database providing the domains
+		 * @param handler
+		 * @throws Exception
+		 */
+		public void forEachBinding(Map<String, String> binding, GenericDatabase<?,?> db, BindingHandler handler) throws Exception {
+			forEachBinding(binding, 0, db, handler);
+		}
+
+		protected void forEachBinding(Map<String, String> binding, int i, GenericDatabase<?,?> db, BindingHandler handler) throws Exception {
+			if(i == varNames.length) {
+				handler.handle(this, binding);
+				return;
+			}
+			String varName = varNames[i];
+			if(binding.containsKey(varName)) {
+				forEachBinding(binding, i+1, db, handler);
+				return;
+			}
+			String domName = var2domName.get(varName);
+			Iterable<String> domain = db.getDomain(domName);
+			if(domain == null)
+				throw new Exception("Domain named '" + domName + "' (of variable " + varName + " in formula " + formula + ") not found in the database!");
+			for(String element : domain) {
+				binding.put(varName, element);
+				forEachBinding(binding, i+1, db, handler);
+			}
+			binding.remove(varName);
+		}
+
+		/**
+		 * gets a string that uniquely identifies the grounding of this template for the given (complete) binding
+		 * @param binding
+		 * @return
+		 */
+		public String getGroundingKey(Map<String, String> binding) {
+			StringBuffer sb = new StringBuffer();
+			sb.append(index);
+			for(String varName : varNames)
+				sb.append(',').append(binding.get(varName));
+			return sb.toString();
+		}
+
+		public String toString() {
+			return formula.toString();
+		}
+	}
+
+	/**
+	 * an occurrence of an atom within a formula template
+	 */
+	public static class Occurrence {
+		public final Template template;
+		public final Atom atom;
+		/**
+		 * whether the atom appears within the scope of a quantifier (in which case it may contain quantified variables)
+		 */
+		public final boolean isQuantified;
+
+		public Occurrence(Template template, Atom atom, boolean isQuantified) {
+			this.template = template;
+			this.atom = atom;
+			this.isQuantified = isQuantified;
+		}
+
+		/**
+		 * unifies the atom with the given arguments of a ground atom
+		 * @param args the arguments of a ground atom with the atom's predicate
+		 * @return the resulting partial binding of the template's variables or null if the ground atom cannot be unified with the atom
+		 */
+		public HashMap<String, String> unify(String[] args) {
+			HashMap<String, String> binding = new HashMap<String, String>();
+			int i = 0;
+			for(String param : atom.params) {
+				String arg = args[i++];
+				if(Atom.isVariable(param)) {
+					if(!template.var2domName.containsKey(param)) // quantified variable
+						continue;
+					String value = binding.put(param, arg);
+					if(value != null && !value.equals(arg))
+						return null;
+				}
+				else if(!param.equals(arg))
+					return null;
+			}
+			return binding;
+		}
+	}
+
+	/**
+	 * handler for bindings of formula templates
+	 */
+	public static interface BindingHandler {
+		public void handle(Template template, Map<String, String> binding) throws Exception;
+	}
+}
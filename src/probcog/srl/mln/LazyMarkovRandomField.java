@@ -0,0 +1,453 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl.mln;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import probcog.logic.Biimplication;
+import probcog.logic.Conjunction;
+import probcog.logic.Disjunction;
+import probcog.logic.Formula;
+import probcog.logic.GroundAtom;
+import probcog.logic.GroundLiteral;
+import probcog.logic.IPossibleWorld;
+import probcog.logic.Implication;
+import probcog.logic.Atom;
+import probcog.logic.Literal;
+import probcog.logic.Negation;
+import probcog.logic.TrueFalse;
+import probcog.logic.WorldVariables;
+import probcog.logic.sat.weighted.ILazyGrounder;
+import probcog.logic.sat.weighted.WeightedFormula;
+import probcog.srl.Database;
+import probcog.srl.QueryResolver;
+import probcog.srl.Signature;
+import probcog.srl.Variable;
+import probcog.srl.mln.FormulaTemplateIndex.BindingHandler;
+import probcog.srl.mln.FormulaTemplateIndex.Occurrence;
+import probcog.srl.mln.FormulaTemplateIndex.Template;
+
+import edu.tum.cs.util.datastruct.Map2List;
+
+/**
+ * A lazily grounded Markov random field (as used by LazySAT, Singla and Domingos 2006, and lazy MC-SAT, Poon et al. 2008).
+ * Only the ground formulas that are false in the evidence-implied default state (where all non-evidence atoms are false)
+ * are instantiated initially; further ground formulas are activated by inference algorithms as ground atoms are
+ * flipped (see {@link ILazyGrounder}). The set of world variables contains only the ground atoms that appear in
+ * active ground formulas and the (explicitly requested) query atoms; all other ground atoms retain their default value (false).
+ * <p>
+ * All weights of the ground formulas are positive (formulas with negative weights are negated).
+ * Functional predicates are not supported.
+ * @author agent
+ */
+public class LazyMarkovRandomField extends MarkovRandomField implements ILazyGrounder {
+
+	protected FormulaTemplateIndex templateIndex;
+	/**
+	 * the set of keys of active ground formulas (see {@link Template#getGroundingKey(Map)})
+	 */
+	protected HashSet<String> activeGroundings;
+	/**
+	 * the set of world variables that is used for the grounding of individual formulas, which returns ground atoms that
+	 * are not (yet) part of the set of world variables as pending ground atoms
+	 */
+	protected GroundingVariables groundingVars;
+	/**
+	 * maps predicate names to the arguments of true evidence atoms
+	 */
+	protected Map2List<String, String[]> trueEvidence;
+	/**
+	 * evidence for ground atoms in the set of world variables
+	 */
+	protected Vector<Variable> evidence;
+	/**
+	 * maps the indices of ground atoms to the inactive ground formulas they appear in that could become false, which are enumerated
+	 * only the first time the ground atom is passed to {@link #activate(GroundAtom, IPossibleWorld)}.
+	 * Ground formulas that are satisfied by inactive ground atoms alone are not cached, so the cache is valid only as long as
+	 * the set of world variables does not change.
+	 */
+	protected HashMap<Integer, Vector<Candidate>> candidates;
+	/**
+	 * whether ground atoms were added to the set of world variables since the candidates were last cleared
+	 */
+	protected boolean varsExtended = false;
+	protected int numGroundingsConsidered = 0;
+	protected boolean verbose = true;
+
+	/**
+	 * @param mln a Markov logic network
+	 * @param db an evidence database containing the set of objects for which to ground the MLN
+	 * @param queries queries (ground or partially ground atoms, e.g. "Cancer" or "Friends(Anna,x)") whose ground atoms are to be included in the set of world variables
+	 * @throws Exception
+	 */
+	public LazyMarkovRandomField(MarkovLogicNetwork mln, Database db, Iterable<String> queries) throws Exception {
+		super(mln, db, new WorldVariables());
+		if(!mln.getFunctionalPreds().isEmpty())
+			throw new Exception("Lazy grounding does not support functional predicates (" + mln.getFunctionalPreds() + ")");
+		db.finalize();
+		activeGroundings = new HashSet<String>();
+		groundingVars = new GroundingVariables();
+		evidence = new Vector<Variable>();
+		candidates = new HashMap<Integer, Vector<Candidate>>();
+		templateIndex = new FormulaTemplateIndex(mln, db, true);
+		// collect true evidence atoms
+		trueEvidence = new Map2List<String, String[]>();
+		for(Variable var : db.getEntries())
+			if(var.isBoolean() && var.isTrue())
+				trueEvidence.add(var.functionName, var.params);
+		// add query atoms
+		for(String query : queries)
+			addQueryAtoms(query);
+		// activate the ground formulas that are false in the default state
+		activateInitialGroundings();
+		if(verbose)
+			System.out.printf("lazy grounding: %d ground formulas initially active (%d groundings considered), %d ground atoms\n", weightedFormulas.size(), numGroundingsConsidered, vars.size());
+	}
+
+	/**
+	 * adds all ground atoms matching the given query to the set of world variables
+	 * @param query
+	 * @throws Exception
+	 */
+	protected void addQueryAtoms(String query) throws Exception {
+		QueryResolver.Query q = QueryResolver.Query.parse(query);
+		Signature sig = mln.getSignature(q.predicate);
+		if(sig == null)
+			throw new Exception("Unknown predicate '" + q.predicate + "' in query " + query);
+		String[] params = q.args;
+		if(params == null) {
+			params = new String[sig.argTypes.length];
+			for(int i = 0; i < params.length; i++)
+				params[i] = "a" + i;
+		}
+		else if(params.length != sig.argTypes.length)
+			throw new Exception("Query " + query + " has the wrong number of arguments");
+		addQueryAtoms(sig, params, new String[params.length], 0);
+	}
+
+	protected void addQueryAtoms(Signature sig, String[] params, String[] args, int i) throws Exception {
+		if(i == args.length) {
+			String strGA = sig.functionName + "(" + edu.tum.cs.util.StringTool.join(",", args) + ")";
+			if(vars.get(strGA) != null)
+				return;
+			GroundAtom ga = new GroundAtom(sig.functionName, args.clone());
+			vars.add(ga);
+			// if the atom is an evidence atom, remember its value
+			Formula value = ga.simplify(db);
+			if(value instanceof TrueFalse)
+				evidence.add(new Variable(sig.functionName, ga.args, ((TrueFalse)value).isTrue() ? "True" : "False", mln));
+			return;
+		}
+		if(!Atom.isVariable(params[i])) {
+			args[i] = params[i];
+			addQueryAtoms(sig, params, args, i+1);
+			return;
+		}
+		Iterable<String> dom = db.getDomain(sig.argTypes[i]);
+		if(dom == null)
+			throw new Exception("Domain '" + sig.argTypes[i] + "' not found in the database");
+		for(String value : dom) {
+			args[i] = value;
+			addQueryAtoms(sig, params, args, i+1);
+		}
+	}
+
+	/**
+	 * activates all ground formulas that are false in the default state, where all non-evidence atoms are false
+	 * @throws Exception
+	 */
+	protected void activateInitialGroundings() throws Exception {
+		final IPossibleWorld defaultState = new IPossibleWorld() {
+			public boolean isTrue(GroundAtom ga) {
+				return false;
+			}
+		};
+		BindingHandler handler = new BindingHandler() {
+			public void handle(Template template, Map<String, String> binding) throws Exception {
+				String key = template.getGroundingKey(binding);
+				if(activeGroundings.contains(key))
+					return;
+				Formula f = ground(template, binding);
+				if(f != null && !f.isTrue(new ActivationState(defaultState, null)))
+					activate(key, f, template, weightedFormulas);
+			}
+		};
+		for(Template template : templateIndex.getTemplates()) {
+			Boolean value = getPartialValue(template.formula);
+			if(value != null && value) {
+				// the formula is true if all atoms are false, so only groundings that contain a true evidence atom can be false
+				for(Occurrence occ : template.getOccurrences()) {
+					Vector<String[]> trueArgs = trueEvidence.get(occ.atom.predName);
+					if(trueArgs == null)
+						continue;
+					for(String[] args : trueArgs) {
+						HashMap<String, String> binding = occ.unify(args);
+						if(binding != null)
+							template.forEachBinding(binding, db, handler);
+					}
+				}
+			}
+			else
+				template.forEachBinding(new HashMap<String, String>(), db, handler);
+		}
+		groundingVars.clearPending();
+	}
+
+	public Vector<WeightedFormula> activate(GroundAtom gndAtom, IPossibleWorld state) throws Exception {
+		Vector<WeightedFormula> ret = new Vector<WeightedFormula>();
+		Vector<Candidate> cands = getCandidates(gndAtom);
+		ActivationState current = new ActivationState(state, null), flipped = new ActivationState(state, gndAtom);
+		// check the candidates, removing the ones that are (or become) active
+		int n = 0;
+		for(Candidate c : cands) {
+			if(activeGroundings.contains(c.key))
+				continue;
+			if(!c.formula.isTrue(current) || !c.formula.isTrue(flipped)) {
+				activate(c.key, c.formula, c.template, ret);
+				continue;
+			}
+			cands.set(n++, c);
+		}
+		cands.setSize(n);
+		weightedFormulas.addAll(ret);
+		// the candidates of other ground atoms may have been pruned based on ground atoms that have become world variables
+		if(varsExtended) {
+			candidates.clear();
+			varsExtended = false;
+		}
+		return ret;
+	}
+
+	/**
+	 * gets the inactive ground formulas the given ground atom appears in, enumerating the groundings of the
+	 * respective formula templates if this has not been done before. Ground formulas that are satisfied regardless of 
+	 * the values of the world variables are omitted, as they cannot become false until one of their inactive 
+	 * ground atoms is added to the set of world variables (which invalidates the cache).
+	 * @param gndAtom
+	 * @return the list of candidate ground formulas (which may contain formulas that were activated in the meantime)
+	 * @throws Exception
+	 */
+	protected Vector<Candidate> getCandidates(GroundAtom gndAtom) throws Exception {
+		Vector<Candidate> cands = candidates.get(gndAtom.index);
+		if(cands != null)
+			return cands;
+		final Vector<Candidate> ret = new Vector<Candidate>();
+		final HashSet<String> keys = new HashSet<String>();
+		Vector<Occurrence> occs = templateIndex.getOccurrences(gndAtom.predicate);
+		if(occs != null) {
+			BindingHandler handler = new BindingHandler() {
+				public void handle(Template template, Map<String, String> binding) throws Exception {
+					String key = template.getGroundingKey(binding);
+					if(activeGroundings.contains(key) || !keys.add(key))
+						return;
+					Formula f = ground(template, binding);
+					if(f != null && getPartialValue(f) != Boolean.TRUE)
+						ret.add(new Candidate(key, template, f));
+				}
+			};
+			for(Occurrence occ : occs) {
+				HashMap<String, String> binding = occ.unify(gndAtom.args);
+				if(binding != null)
+					occ.template.forEachBinding(binding, db, handler);
+			}
+			// pending ground atoms need only be shared among the candidates of the same ground atom, because 
+			// the cache is cleared as soon as any of them is added to the set of world variables
+			groundingVars.clearPending();
+		}
+		candidates.put(gndAtom.index, ret);
+		return ret;
+	}
+
+	/**
+	 * grounds a formula template and simplifies the ground formula based on the evidence
+	 * @param template the formula template
+	 * @param binding a complete binding of the template's variables
+	 * @return the simplified ground formula or null if it is true given the evidence
+	 * @throws Exception if the ground formula is hard and false given the evidence
+	 */
+	protected Formula ground(Template template, Map<String, String> binding) throws Exception {
+		numGroundingsConsidered++;
+		Formula f = template.formula.ground(binding, groundingVars, db).simplify(db);
+		if(f instanceof TrueFalse) {
+			if(!((TrueFalse)f).isTrue() && template.isHard)
+				throw new Exception("Unsatisfiable hard formula encountered: " + template.formula + " with binding " + binding + " cannot be satisfied (given the evidence).");
+			return null;
+		}
+		return f;
+	}
+
+	/**
+	 * activates a ground formula, adding its pending ground atoms to the set of world variables
+	 * @param key the grounding key
+	 * @param f the ground formula
+	 * @param template the formula template
+	 * @param ret the collection to which to add the weighted ground formula
+	 */
+	protected void activate(String key, Formula f, Template template, Vector<WeightedFormula> ret) {
+		Set<GroundAtom> gndAtoms = Collections.newSetFromMap(new IdentityHashMap<GroundAtom, Boolean>());
+		f.getGroundAtoms(gndAtoms);
+		for(GroundAtom ga : gndAtoms)
+			if(ga.index == -1) {
+				vars.add(ga);
+				varsExtended = true;
+			}
+		activeGroundings.add(key);
+		ret.add(new WeightedFormula(f, template.weight, template.isHard));
+	}
+
+	/**
+	 * evaluates a formula in the partial world in which the atoms of formula templates and the ground atoms that are not
+	 * world variables are false, while the values of world variables are unknown
+	 * @param f a formula template or a ground formula
+	 * @return the truth value or null if it depends on the values of world variables (or on the grounding of the formula)
+	 */
+	protected static Boolean getPartialValue(Formula f) {
+		if(f instanceof Atom)
+			return false;
+		if(f instanceof Literal)
+			return !((Literal)f).isPositive;
+		if(f instanceof GroundAtom)
+			return ((GroundAtom)f).index == -1 ? false : null;
+		if(f instanceof GroundLiteral) {
+			GroundLiteral lit = (GroundLiteral)f;
+			return lit.gndAtom.index == -1 ? !lit.isPositive : null;
+		}
+		if(f instanceof TrueFalse)
+			return ((TrueFalse)f).isTrue();
+		if(f instanceof Negation) {
+			Boolean v = getPartialValue(((Negation)f).children[0]);
+			return v == null ? null : !v;
+		}
+		if(f instanceof Conjunction || f instanceof Disjunction) {
+			boolean isConjunction = f instanceof Conjunction;
+			boolean unknown = false;
+			for(Formula child : ((probcog.logic.ComplexFormula)f).children) {
+				Boolean v = getPartialValue(child);
+				if(v == null)
+					unknown = true;
+				else if(v != isConjunction)
+					return v;
+			}
+			return unknown ? null : isConjunction;
+		}
+		if(f instanceof Implication) {
+			Formula[] c = ((Implication)f).children;
+			Boolean a = getPartialValue(c[0]), b = getPartialValue(c[1]);
+			if((a != null && !a) || (b != null && b))
+				return true;
+			return a == null || b == null ? null : false;
+		}
+		if(f instanceof Biimplication) {
+			Formula[] c = ((Biimplication)f).children;
+			Boolean a = getPartialValue(c[0]), b = getPartialValue(c[1]);
+			return a == null || b == null ? null : a.equals(b);
+		}
+		// quantifiers and equality
+		return null;
+	}
+
+	/**
+	 * @return the evidence for the ground atoms in the set of world variables
+	 */
+	public Vector<Variable> getEvidence() {
+		return evidence;
+	}
+
+	/**
+	 * @return the number of currently active ground formulas
+	 */
+	public int getNumActiveGroundings() {
+		return activeGroundings.size();
+	}
+
+	/**
+	 * @return the number of groundings that were considered for activation so far
+	 */
+	public int getNumGroundingsConsidered() {
+		return numGroundingsConsidered;
+	}
+
+	/**
+	 * a view on a state in which ground atoms that are not part of the set of world variables are false and, optionally, one ground atom is flipped
+	 */
+	protected static class ActivationState implements IPossibleWorld {
+		protected IPossibleWorld state;
+		protected GroundAtom flipped;
+
+		public ActivationState(IPossibleWorld state, GroundAtom flipped) {
+			this.state = state;
+			this.flipped = flipped;
+		}
+
+		public boolean isTrue(GroundAtom ga) {
+			if(ga.index == -1)
+				return false;
+			boolean value = state.isTrue(ga);
+			return ga == flipped ? !value : value;
+		}
+	}
+
+	/**
+	 * an inactive ground formula that is cached for the ground atoms it contains
+	 */
+	protected static class Candidate {
+		public String key;
+		public Template template;
+		public Formula formula;
+
+		public Candidate(String key, Template template, Formula formula) {
+			this.key = key;
+			this.template = template;
+			this.formula = formula;
+		}
+	}
+
+	/**
+	 * world variables used while grounding formulas, which return the variables of the MRF and pending (not yet indexed) ground atoms for all other strings.
+	 * Pending ground atoms are shared by all ground formulas that are grounded until the pending atoms are cleared, such that they become
+	 * world variables for all of them once they are added.
+	 */
+	protected class GroundingVariables extends WorldVariables {
+		protected HashMap<String, GroundAtom> pending = new HashMap<String, GroundAtom>();
+
+		@Override
+		public GroundAtom get(String gndAtom) {
+			GroundAtom ga = LazyMarkovRandomField.this.vars.get(gndAtom);
+			if(ga != null)
+				return ga;
+			ga = pending.get(gndAtom);
+			if(ga == null) {
+				int iParen = gndAtom.indexOf('(');
+				ga = new GroundAtom(gndAtom.substring(0, iParen), gndAtom.substring(iParen+1, gndAtom.length()-1).split(","));
+				pending.put(gndAtom, ga);
+			}
+			return ga;
+		}
+
+		public void clearPending() {
+			pending.clear();
+		}
+	}
+}
@@ -171,6 +171,29 @@ public class MarkovLogicNetwork implements RelationalModel {
     public MarkovRandomField ground(Database db, boolean storeFormulasInMRF, GroundingCallback gc) throws Exception {
         return new MarkovRandomField(this, db, storeFormulasInMRF, gc);
     }
+    
+    /**
+     * grounds only the part of the MLN that is relevant to the given queries (see {@link QueryDrivenMarkovRandomField})
+     * @param db the evidence database
+     * @param queries the queries
+     * @return an MRF containing the ground formulas that are connected to the query atoms
+     * @throws Exception
+     */
+    public MarkovRandomField ground(Database db, Iterable<String> queries) throws Exception {
+    	return new QueryDrivenMarkovRandomField(this, db, queries);
+    }
+    
+    /**
+     * grounds the MLN lazily, instantiating only the ground formulas that are unsatisfied in the evidence-implied default state
+     * (further ground formulas are instantiated during inference as needed; supported by MC-SAT and MaxWalkSAT)
+     * @param db the evidence database
+     * @param queries the queries, whose ground atoms are to be included in the model
+     * @return a lazily grounded MRF
+     * @throws Exception
+     */
+    public LazyMarkovRandomField groundLazily(Database db, Iterable<String> queries) throws Exception {
+    	return new LazyMarkovRandomField(this, db, queries);
+    }
 
     /**
      * reads the contents of an MLN file
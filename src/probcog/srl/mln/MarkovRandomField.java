@@ -23,6 +23,7 @@ import java.io.PrintStream;
 import java.util.Iterator;
 import java.util.Vector;
 
+import probcog.inference.Metrics;
 import probcog.logic.Formula;
 import probcog.logic.GroundAtom;
 import probcog.logic.IPossibleWorld;
@@ -31,6 +32,9 @@ import probcog.logic.Formula.FormulaSimplification;
 import probcog.logic.sat.weighted.WeightedFormula;
 import probcog.srl.Database;
 import probcog.srl.Signature;
+import probcog.srl.SnapshotInfo;
+import probcog.srl.SnapshotReader;
+import probcog.srl.SnapshotWriter;
 import probcog.srl.Variable;
 
 
@@ -61,14 +65,34 @@ public class MarkovRandomField implements Iterable<WeightedFormula> {
         this.db = db;
         this.vars = new WorldVariables();
         this.mln = mln;        
+        long startTime = System.nanoTime();
         groundVariables();
+        // the evidence is now complete; finalizing the database builds the evidence index that is used for simplification
+        db.finalize();
         groundFormulas(storeFormulas, gc);
+        Metrics.add(Metrics.GROUNDING_TIME, System.nanoTime() - startTime);
+        Metrics.set(Metrics.GROUND_NETWORK_NODES, vars.size());
+        if(storeFormulas)
+        	Metrics.set(Metrics.GROUND_FORMULAS, weightedFormulas.size());
     }
     
     public MarkovRandomField(MarkovLogicNetwork mln, Database db) throws Exception {
     	this(mln, db, true, null);
     }
     
+    /**
+     * constructs an MRF without any ground formulas (for subclasses that perform grounding themselves)
+     * @param mln a Markov logic network
+     * @param db an evidence database containing the set of objects for which to ground the MLN
+     * @param vars the set of world variables
+     */
+    protected MarkovRandomField(MarkovLogicNetwork mln, Database db, WorldVariables vars) {
+    	this.db = db;
+    	this.vars = vars;
+    	this.mln = mln;
+    	this.weightedFormulas = new Vector<WeightedFormula>();
+    }
+    
     /**
      * Method that returns worldVariables of the given MLN
      * @return
@@ -144,11 +168,13 @@ public class MarkovRandomField implements Iterable<WeightedFormula> {
      */
     protected void groundFormulas(boolean makelist, GroundingCallback gc) throws Exception {
         weightedFormulas = new Vector<WeightedFormula>();
+        int formulaID = 0;
         for(WeightedFormula wf : mln.getFormulas()) {
         	double weight = wf.weight;
         	boolean isHard = wf.isHard;
         	FormulaSimplification simplification = simplifyGroundedFormulas ? (isHard ? FormulaSimplification.OnDisallowFalse : FormulaSimplification.On) : FormulaSimplification.None;
         	Vector<Formula> groundings;
+        	long startTime = System.nanoTime();
         	try {
         		groundings = wf.formula.getAllGroundings(db, vars, simplification);
         	}
@@ -163,6 +189,7 @@ public class MarkovRandomField implements Iterable<WeightedFormula> {
                 if(gc != null)
                     gc.onGroundedFormula(gwf, this);
             }
+            Metrics.add(Metrics.FORMULA_GROUNDING_TIME + formulaID++, System.nanoTime() - startTime);
         }
     }
     
@@ -211,4 +238,75 @@ public class MarkovRandomField implements Iterable<WeightedFormula> {
 	public int getNumFormulas() {
 		return this.weightedFormulas.size();
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * @return a rough estimate of the memory used by the ground atoms and ground formulas of this MRF (in bytes)
+	 */
+	public long getEstimatedMemoryUsage() {
+		return 128L * vars.size() + 256L * weightedFormulas.size();
+	}
+	
+	/**
+	 * writes a binary snapshot of this MRF (world variables, ground formulas and evidence), which can be
+	 * reloaded with {@link #readSnapshot(MarkovLogicNetwork, String)} without grounding the model again
+	 * @param filename
+	 * @param info the description of the inputs this MRF was created from, which is checked before the snapshot is reloaded
+	 * @throws Exception
+	 */
+	public void writeSnapshot(String filename, SnapshotInfo info) throws Exception {
+		SnapshotWriter w = new SnapshotWriter(filename, SnapshotWriter.KIND_MRF, info);
+		try {
+			writeModelFingerprint(w, mln);
+			w.writeDatabase(db);
+			w.writeWorldVariables(vars);
+			w.writeInt(weightedFormulas.size());
+			for(WeightedFormula wf : weightedFormulas) {
+				w.writeDouble(wf.weight);
+				w.writeBoolean(wf.isHard);
+				w.writeFormula(wf.formula);
+			}
+		}
+		finally {
+			w.close();
+		}
+	}
+	
+	/**
+	 * reads an MRF from a snapshot that was written by {@link #writeSnapshot(String, SnapshotInfo)}
+	 * @param mln the MLN from which the MRF was grounded
+	 * @param filename
+	 * @return
+	 * @throws Exception if the snapshot is invalid or was not created for the given MLN
+	 */
+	public static MarkovRandomField readSnapshot(MarkovLogicNetwork mln, String filename) throws Exception {
+		SnapshotReader r = new SnapshotReader(filename, SnapshotWriter.KIND_MRF);
+		if(!readModelFingerprint(r, mln))
+			throw new Exception("Snapshot " + filename + " was created for a different MLN");
+		Database db = r.readDatabase(mln);
+		MarkovRandomField mrf = new MarkovRandomField(mln, db, r.readWorldVariables());
+		int numFormulas = r.readInt();
+		mrf.weightedFormulas.ensureCapacity(numFormulas);
+		for(int i = 0; i < numFormulas; i++) {
+			double weight = r.readDouble();
+			boolean isHard = r.readBoolean();
+			mrf.weightedFormulas.add(new WeightedFormula(r.readFormula(mrf.vars), weight, isHard));
+		}
+		return mrf;
+	}
+	
+	protected static void writeModelFingerprint(SnapshotWriter w, MarkovLogicNetwork mln) throws Exception {
+		w.writeInt(mln.getFormulas().size());
+		for(WeightedFormula wf : mln.getFormulas()) {
+			w.writeString(wf.formula.toString());
+			w.writeDouble(wf.weight);
+		}
+	}
+	
+	protected static boolean readModelFingerprint(SnapshotReader r, MarkovLogicNetwork mln) throws Exception {
+		Vector<WeightedFormula> formulas = mln.getFormulas();
+		boolean matches = r.readInt() == formulas.size();
+		for(int i = 0; matches && i < formulas.size(); i++)
+			matches = r.readString().equals(formulas.get(i).formula.toString()) && r.readDouble() == formulas.get(i).weight;
+		return matches;
+	}
+}
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl.mln;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import probcog.inference.Metrics;
+import probcog.logic.Formula;
+import probcog.logic.GroundAtom;
+import probcog.logic.TrueFalse;
+import probcog.logic.WorldVariables;
+import probcog.logic.sat.weighted.WeightedFormula;
+import probcog.srl.BooleanDomain;
+import probcog.srl.Database;
+import probcog.srl.ParameterGrounder;
+import probcog.srl.QueryResolver;
+import probcog.srl.Signature;
+import probcog.srl.Variable;
+import probcog.srl.mln.FormulaTemplateIndex.BindingHandler;
+import probcog.srl.mln.FormulaTemplateIndex.Occurrence;
+import probcog.srl.mln.FormulaTemplateIndex.Template;
+
+/**
+ * A Markov random field that contains only the part of the ground model that is relevant to a set of queries.
+ * Starting from the query atoms, the ground formulas that a ground atom appears in are instantiated (via the 
+ * formula templates it appears in) and the ground atoms therein are expanded in turn. Since ground formulas are 
+ * simplified using the evidence, the expansion stops at evidence atoms, i.e. the result is the connected component 
+ * of the query atoms in the ground Markov network conditioned on the evidence; all other ground formulas do not
+ * affect the queries' posterior distribution.
+ * <p>
+ * The explicitly given evidence atoms are part of the set of world variables (without any ground formulas), 
+ * such that inference algorithms can handle the evidence as usual.
+ * @author agent
+ */
+public class QueryDrivenMarkovRandomField extends MarkovRandomField {
+
+	protected FormulaTemplateIndex templateIndex;
+	/**
+	 * the set of keys of the groundings that were instantiated (see {@link Template#getGroundingKey(Map)})
+	 */
+	protected HashSet<String> groundings;
+	/**
+	 * the set of world variables that is used for the grounding of individual formulas, which returns ground atoms that
+	 * are not (yet) part of the set of world variables as pending ground atoms
+	 */
+	protected GroundingVariables groundingVars;
+	/**
+	 * the non-evidence ground atoms whose ground formulas are yet to be instantiated
+	 */
+	protected LinkedList<GroundAtom> unexpanded;
+	protected int numRelevantAtoms = 0;
+	protected boolean verbose = true;
+
+	/**
+	 * @param mln a Markov logic network
+	 * @param db an evidence database containing the set of objects for which to ground the MLN
+	 * @param queries queries (ground or partially ground atoms, e.g. "Cancer" or "Friends(Anna,x)")
+	 * @throws Exception
+	 */
+	public QueryDrivenMarkovRandomField(MarkovLogicNetwork mln, Database db, Iterable<String> queries) throws Exception {
+		super(mln, db, new WorldVariables());
+		long startTime = System.nanoTime();
+		extendBlockEvidence();
+		db.finalize();
+		templateIndex = new FormulaTemplateIndex(mln, db, false);
+		groundings = new HashSet<String>();
+		groundingVars = new GroundingVariables();
+		unexpanded = new LinkedList<GroundAtom>();
+		// add the evidence atoms and the query atoms
+		for(Variable var : db.getEntries())
+			if(!var.pertainsToEvidenceFunction())
+				addAtom(groundingVars.get(var.getPredicate()));
+		for(String query : queries)
+			addQueryAtoms(query);
+		groundingVars.clearPending();
+		// expand the non-evidence atoms
+		BindingHandler handler = new BindingHandler() {
+			public void handle(Template template, Map<String, String> binding) throws Exception {
+				ground(template, binding);
+			}
+		};
+		while(!unexpanded.isEmpty()) {
+			GroundAtom ga = unexpanded.removeFirst();
+			Vector<Occurrence> occs = templateIndex.getOccurrences(ga.predicate);
+			if(occs == null)
+				continue;
+			for(Occurrence occ : occs) {
+				HashMap<String, String> binding = occ.unify(ga.args);
+				if(binding != null)
+					occ.template.forEachBinding(binding, db, handler);
+			}
+		}
+		Metrics.add(Metrics.GROUNDING_TIME, System.nanoTime() - startTime);
+		Metrics.set(Metrics.GROUND_NETWORK_NODES, vars.size());
+		Metrics.set(Metrics.GROUND_FORMULAS, weightedFormulas.size());
+		if(verbose)
+			System.out.printf("query-driven grounding: %d ground formulas, %d ground atoms (%d relevant non-evidence atoms)\n", weightedFormulas.size(), vars.size(), numRelevantAtoms);
+	}
+
+	/**
+	 * for blocks of functional predicates that contain a true evidence atom, explicitly sets the other atoms of the block to false 
+	 * in the database (as is done when grounding the full model, see {@link MarkovRandomField#groundVariables()})
+	 * @throws Exception
+	 */
+	protected void extendBlockEvidence() throws Exception {
+		// the blocks are enumerated via the domains, because retrieving the database entries would finalize the database
+		Vector<Variable> falseAtoms = new Vector<Variable>();
+		for(Signature sig : mln.getSignatures()) {
+			Integer functionallyDeterminedArg = mln.getFunctionallyDeterminedArgument(sig.functionName);
+			if(functionallyDeterminedArg == null)
+				continue;
+			String[] blockArgTypes = new String[sig.argTypes.length-1];
+			for(int i = 0, j = 0; i < sig.argTypes.length; i++)
+				if(i != functionallyDeterminedArg)
+					blockArgTypes[j++] = sig.argTypes[i];
+			for(String[] blockArgs : ParameterGrounder.generateGroundings(db, blockArgTypes)) {
+				String[] args = new String[sig.argTypes.length];
+				for(int i = 0, j = 0; i < args.length; i++)
+					if(i != functionallyDeterminedArg)
+						args[i] = blockArgs[j++];
+				Vector<String[]> block = getBlock(sig.functionName, args, functionallyDeterminedArg);
+				String trueOne = null;
+				for(String[] atomArgs : block) {
+					String varName = Signature.formatVarName(sig.functionName, atomArgs);
+					if(db.contains(varName) && BooleanDomain.True.equals(db.getVariableValue(varName, false))) {
+						if(trueOne != null)
+							throw new Exception(String.format("The block the variable '%s' is in contains more than one true ground atom", varName));
+						trueOne = varName;
+					}
+				}
+				if(trueOne == null)
+					continue;
+				for(String[] atomArgs : block) {
+					String varName = Signature.formatVarName(sig.functionName, atomArgs);
+					if(!varName.equals(trueOne) && !db.contains(varName))
+						falseAtoms.add(new Variable(sig.functionName, atomArgs, "False", mln));
+				}
+			}
+		}
+		for(Variable var : falseAtoms)
+			db.addVariable(var);
+	}
+	
+	/**
+	 * @return the arguments of the ground atoms in the block of the ground atom with the given arguments
+	 * @throws Exception
+	 */
+	protected Vector<String[]> getBlock(String predicate, String[] args, int functionallyDeterminedArg) throws Exception {
+		Signature sig = mln.getSignature(predicate);
+		Iterable<String> dom = db.getDomain(sig.argTypes[functionallyDeterminedArg]);
+		if(dom == null)
+			throw new Exception("Domain " + sig.argTypes[functionallyDeterminedArg] + " not in database");
+		Vector<String[]> ret = new Vector<String[]>();
+		for(String value : dom) {
+			String[] blockArgs = args.clone();
+			blockArgs[functionallyDeterminedArg] = value;
+			ret.add(blockArgs);
+		}
+		return ret;
+	}
+
+	/**
+	 * adds all ground atoms matching the given query to the set of world variables
+	 * @param query
+	 * @throws Exception
+	 */
+	protected void addQueryAtoms(String query) throws Exception {
+		QueryResolver.Query q = QueryResolver.Query.parse(query);
+		Signature sig = mln.getSignature(q.predicate);
+		if(sig == null)
+			throw new Exception("Unknown predicate '" + q.predicate + "' in query " + query);
+		for(String[] args : ParameterGrounder.generateGroundings(sig, db))
+			if(q.matches(args))
+				addAtom(groundingVars.get(Signature.formatVarName(sig.functionName, args)));
+	}
+
+	/**
+	 * adds a ground atom (along with the other atoms in its block, if any) to the set of world variables,
+	 * scheduling the expansion of the atoms that are not evidence  
+	 * @param ga a pending ground atom (see {@link GroundingVariables}) or a ground atom that is already part of the set of world variables
+	 * @throws Exception
+	 */
+	protected void addAtom(GroundAtom ga) throws Exception {
+		if(ga.index != -1)
+			return;
+		Integer functionallyDeterminedArg = mln.getFunctionallyDeterminedArgument(ga.predicate);
+		Vector<GroundAtom> added = new Vector<GroundAtom>();
+		if(functionallyDeterminedArg == null) {
+			vars.add(ga);
+			added.add(ga);
+		}
+		else {
+			for(String[] args : getBlock(ga.predicate, ga.args, functionallyDeterminedArg))
+				added.add(groundingVars.get(Signature.formatVarName(ga.predicate, args)));
+			vars.addBlock(added);
+		}
+		for(GroundAtom atom : added) {
+			if(atom.simplify(db) instanceof TrueFalse) // evidence atom
+				continue;
+			unexpanded.add(atom);
+			numRelevantAtoms++;
+		}
+	}
+
+	/**
+	 * instantiates the grounding of a template (if it was not previously instantiated), adding its ground atoms
+	 * @param template the formula template
+	 * @param binding a complete binding of the template's variables
+	 * @throws Exception
+	 */
+	protected void ground(Template template, Map<String, String> binding) throws Exception {
+		if(!groundings.add(template.getGroundingKey(binding)))
+			return;
+		try {
+			Formula f = template.formula.ground(binding, groundingVars, db).simplify(db);
+			if(f instanceof TrueFalse) {
+				if(!((TrueFalse)f).isTrue() && template.isHard)
+					throw new Exception("Unsatisfiable hard formula encountered: " + template.formula + " with binding " + binding + " cannot be satisfied (given the evidence).");
+				return;
+			}
+			Set<GroundAtom> gndAtoms = Collections.newSetFromMap(new IdentityHashMap<GroundAtom, Boolean>());
+			f.getGroundAtoms(gndAtoms);
+			for(GroundAtom ga : gndAtoms)
+				addAtom(ga);
+			weightedFormulas.add(new WeightedFormula(f, template.weight, template.isHard));
+		}
+		finally {
+			groundingVars.clearPending();
+		}
+	}
+
+	/**
+	 * world variables used while grounding, which return the variables of the MRF and pending (not yet indexed) ground atoms for all other strings
+	 */
+	protected class GroundingVariables extends WorldVariables {
+		protected HashMap<String, GroundAtom> pending = new HashMap<String, GroundAtom>();
+
+		@Override
+		public GroundAtom get(String gndAtom) {
+			GroundAtom ga = QueryDrivenMarkovRandomField.this.vars.get(gndAtom);
+			if(ga != null)
+				return ga;
+			ga = pending.get(gndAtom);
+			if(ga == null) {
+				int iParen = gndAtom.indexOf('(');
+				ga = new GroundAtom(gndAtom.substring(0, iParen), gndAtom.substring(iParen+1, gndAtom.length()-1).split(","));
+				pending.put(gndAtom, ga);
+			}
+			return ga;
+		}
+
+		public void clearPending() {
+			pending.clear();
+		}
+	}
+}
@@ -19,12 +19,14 @@
 package probcog.srl.mln.inference;
 
 import java.util.ArrayList;
-import java.util.Vector;
-import java.util.regex.Pattern;
+import java.util.HashSet;
 
+import probcog.inference.CancellationFlag;
 import probcog.inference.IParameterHandler;
 import probcog.inference.ParameterHandler;
 import probcog.logic.GroundAtom;
+import probcog.logic.WorldVariables;
+import probcog.srl.QueryResolver;
 import probcog.srl.mln.MarkovRandomField;
 
 
@@ -39,6 +41,11 @@ public abstract class InferenceAlgorithm implements IParameterHandler {
 	protected boolean debug = false;	
 	protected boolean verbose = true;
 	protected int maxSteps = 5000;
+	protected QueryResolver<GroundAtom> queryResolver = null;
+	/**
+	 * the flag via which inference can be cancelled; it is passed on to the underlying solver/sampler
+	 */
+	protected CancellationFlag cancellation = new CancellationFlag();
 	
 	public InferenceAlgorithm(MarkovRandomField mrf) throws Exception {
 		this.mrf = mrf;
@@ -46,6 +53,7 @@ public abstract class InferenceAlgorithm implements IParameterHandler {
 		paramHandler.add("debug", "setDebugMode");
 		paramHandler.add("verbose", "setVerbose");
 		paramHandler.add("maxSteps", "setMaxSteps");
+		paramHandler.add("timeLimit", "setTimeLimit");
 	}
 	
 	public void setDebugMode(boolean active) {
@@ -60,34 +68,60 @@ public abstract class InferenceAlgorithm implements IParameterHandler {
 		this.maxSteps = maxSteps;
 	}
 	
+	/**
+	 * asks the inference method to terminate as soon as possible, retaining the results obtained so far
+	 */
+	public void cancel() {
+		cancellation.raise();
+	}
+	
+	/**
+	 * sets a deadline after which inference terminates as if it had been cancelled
+	 * @param deadline the deadline in milliseconds (as returned by System.currentTimeMillis), or 0 for no deadline
+	 */
+	public void setDeadline(long deadline) {
+		cancellation.setDeadline(deadline);
+	}
+	
+	/**
+	 * limits the time available for inference (measured from the time this method is called)
+	 * @param seconds
+	 */
+	public void setTimeLimit(double seconds) {
+		cancellation.setTimeLimit(seconds);
+	}
+	
 	public abstract double getResult(GroundAtom ga);	
 	
 	public ArrayList<InferenceResult> getResults(Iterable<String> queries) {
-		// generate patterns
-		Vector<Pattern> patterns = new Vector<Pattern>();
-		for(String query : queries) {
-			String p = query;
-			p = Pattern.compile("([,\\(])([a-z][^,\\)]*)").matcher(p).replaceAll("$1.*?");
-			p = p.replace("(", "\\(").replace(")", "\\)") + ".*";			
-			patterns.add(Pattern.compile(p));
-			//System.out.println("pattern: " + p);
-		}
-		// check all ground variables for matches
-		// TODO This should be done more efficiently by explicitly grounding the requested nodes instead of using pattern matchers
+		QueryResolver<GroundAtom> resolver = getQueryResolver();
+		// resolve the queries using the index of ground atoms
 		ArrayList<InferenceResult> results = new ArrayList<InferenceResult>();
-		int numRes = 0;
-		for(GroundAtom ga : mrf.getWorldVariables())
-			for(Pattern pattern : patterns)				
-				if(pattern.matcher(ga.toString()).matches()) {
+		HashSet<GroundAtom> handled = new HashSet<GroundAtom>();
+		for(String query : queries)
+			for(GroundAtom ga : resolver.resolve(query))
+				if(handled.add(ga))
 					results.add(new InferenceResult(ga, getResult(ga)));
-					numRes++;
-					break;
-				}
-		if(numRes == 0)
+		if(results.isEmpty())
 			System.err.println("Warning: None of the queries could be matched to a variable.");
 		return results;
 	}
 	
+	/**
+	 * gets the index of the MRF's ground atoms that is used to resolve queries
+	 * (it is rebuilt if ground atoms were added since it was created, as is the case for lazily grounded MRFs)
+	 * @return
+	 */
+	protected QueryResolver<GroundAtom> getQueryResolver() {
+		WorldVariables vars = mrf.getWorldVariables();
+		if(queryResolver == null || queryResolver.size() != vars.size()) {
+			queryResolver = new QueryResolver<GroundAtom>();
+			for(GroundAtom ga : vars)
+				queryResolver.add(ga.predicate, ga.args, ga);
+		}
+		return queryResolver;
+	}
+	
 	public abstract ArrayList<InferenceResult> infer(Iterable<String> queries) throws Exception;
 	
 	public String getAlgorithmName() {
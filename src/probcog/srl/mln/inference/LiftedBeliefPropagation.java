@@ -0,0 +1,549 @@
+/*******************************************************************************
+ * Copyright (C) 2026 agent.
+ *
+ * This file is part of ProbCog.
+ *
+ * ProbCog is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ProbCog is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ProbCog. If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package probcog.srl.mln.inference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Vector;
+
+import probcog.logic.ComplexFormula;
+import probcog.logic.Formula;
+import probcog.logic.GroundAtom;
+import probcog.logic.GroundLiteral;
+import probcog.logic.IPossibleWorld;
+import probcog.logic.TrueFalse;
+import probcog.logic.WorldVariables;
+import probcog.logic.WorldVariables.Block;
+import probcog.logic.sat.weighted.WeightedFormula;
+import probcog.srl.mln.MarkovRandomField;
+
+/**
+ * Lifted belief propagation (Singla and Domingos 2008, Kersting et al. 2009).
+ * The ground factor graph of the MRF is compressed by color passing into supernodes (sets of ground atoms
+ * that send and receive the same messages) and superfactors; belief propagation is then run on the
+ * compressed graph, and the resulting marginals are shared by all ground atoms of a supernode.
+ * Blocks of mutually exclusive ground atoms (functional predicates) are represented by exactly-one factors.
+ * @author agent
+ */
+public class LiftedBeliefPropagation extends InferenceAlgorithm {
+
+	/**
+	 * the smallest value a message entry can take (messages are processed in log space)
+	 */
+	protected static final double MIN_MESSAGE = 1e-300;
+
+	/**
+	 * the maximum number of atoms of a (non-block) factor, whose potential is stored as a full table
+	 */
+	protected static final int MAX_FACTOR_SIZE = 20;
+
+	protected double convergenceThreshold = 1e-6;
+	protected double damping = 0.0;
+	protected int infoInterval = 100;
+
+	/**
+	 * the factor shapes (distinct potential functions)
+	 */
+	protected Vector<Shape> shapes;
+	/**
+	 * ground factors: the indices of the ground atoms they are defined on and their shape
+	 */
+	protected int[][] factorAtoms;
+	protected int[] factorShape;
+	/**
+	 * maps the indices of ground atoms in the MRF to the variables of the ground factor graph (-1 if the atom is not part of any factor)
+	 */
+	protected int[] atom2var;
+	/**
+	 * for each variable of the ground factor graph, the factors it is part of (pairs of factor index and position)
+	 */
+	protected int[][] varFactors, varPositions;
+	protected int numVars;
+	/**
+	 * the color (supernode/superfactor index) of each ground variable and factor
+	 */
+	protected int[] varColor, factorColor;
+	protected int numSupernodes, numSuperfactors;
+	/**
+	 * for each superfactor, the representative ground factor
+	 */
+	protected int[] superfactorRep;
+	/**
+	 * for each supernode, the superfactor incidences (superfactor, position) and the number of ground factors in the incidence
+	 */
+	protected int[][] supernodeFactors, supernodePositions, supernodeCounts;
+	/**
+	 * the marginal probability of each supernode being true
+	 */
+	protected double[] beliefs = null;
+
+	public LiftedBeliefPropagation(MarkovRandomField mrf) throws Exception {
+		super(mrf);
+		paramHandler.add("convergenceThreshold", "setConvergenceThreshold");
+		paramHandler.add("damping", "setDamping");
+		paramHandler.add("infoInterval", "setInfoInterval");
+		buildFactorGraph();
+		compress();
+	}
+
+	public void setConvergenceThreshold(double threshold) {
+		this.convergenceThreshold = threshold;
+	}
+
+	/**
+	 * sets the damping factor for message updates (0 = no damping)
+	 * @param damping
+	 */
+	public void setDamping(double damping) {
+		this.damping = damping;
+	}
+
+	/**
+	 * sets the number of iterations after which progress is reported (in verbose mode)
+	 * @param interval
+	 */
+	public void setInfoInterval(int interval) {
+		this.infoInterval = interval;
+	}
+
+	/**
+	 * a potential function for factors over a particular number of binary variables
+	 */
+	protected static class Shape {
+		public int size;
+		/**
+		 * the potential table, indexed by assignments (where bit i is the value of the variable at position i), or null for exactly-one constraints
+		 */
+		public double[] table;
+
+		public Shape(int size, double[] table) {
+			this.size = size;
+			this.table = table;
+		}
+	}
+
+	/**
+	 * builds the ground factor graph from the MRF's weighted formulas and blocks
+	 * @throws Exception
+	 */
+	protected void buildFactorGraph() throws Exception {
+		WorldVariables worldVars = mrf.getWorldVariables();
+		shapes = new Vector<Shape>();
+		HashMap<String, Integer> shapeIndices = new HashMap<String, Integer>();
+		Vector<int[]> factors = new Vector<int[]>();
+		Vector<Integer> shapeOfFactor = new Vector<Integer>();
+		// formula factors
+		for(WeightedFormula wf : mrf) {
+			IdentityHashMap<GroundAtom, Integer> positions = new IdentityHashMap<GroundAtom, Integer>();
+			Vector<GroundAtom> atoms = new Vector<GroundAtom>();
+			StringBuffer key = new StringBuffer();
+			key.append(wf.isHard ? "hard" : Double.toString(wf.weight)).append('|');
+			describe(wf.formula, positions, atoms, key);
+			if(atoms.size() > MAX_FACTOR_SIZE)
+				throw new Exception("Ground formula " + wf.formula + " contains too many ground atoms for belief propagation");
+			Integer shape = shapeIndices.get(key.toString());
+			if(shape == null) {
+				shape = shapes.size();
+				shapes.add(new Shape(atoms.size(), computePotentialTable(wf, atoms)));
+				shapeIndices.put(key.toString(), shape);
+			}
+			int[] factor = new int[atoms.size()];
+			for(int i = 0; i < factor.length; i++)
+				factor[i] = atoms.get(i).index;
+			factors.add(factor);
+			shapeOfFactor.add(shape);
+		}
+		// exactly-one factors for blocks
+		IdentityHashMap<Block, Boolean> handledBlocks = new IdentityHashMap<Block, Boolean>();
+		for(int i = 0; i < worldVars.size(); i++) {
+			Block block = worldVars.getBlock(i);
+			if(block == null || handledBlocks.containsKey(block))
+				continue;
+			handledBlocks.put(block, true);
+			Vector<Integer> open = new Vector<Integer>();
+			boolean haveTrueOne = false;
+			for(GroundAtom ga : block) {
+				Formula value = ga.simplify(mrf.getDb());
+				if(value == TrueFalse.TRUE)
+					haveTrueOne = true;
+				else if(value != TrueFalse.FALSE)
+					open.add(ga.index);
+			}
+			if(haveTrueOne || open.isEmpty())
+				continue;
+			String key = "block|" + open.size();
+			Integer shape = shapeIndices.get(key);
+			if(shape == null) {
+				shape = shapes.size();
+				shapes.add(new Shape(open.size(), null));
+				shapeIndices.put(key, shape);
+			}
+			int[] factor = new int[open.size()];
+			for(int j = 0; j < factor.length; j++)
+				factor[j] = open.get(j);
+			factors.add(factor);
+			shapeOfFactor.add(shape);
+		}
+		// index the variables
+		factorAtoms = factors.toArray(new int[factors.size()][]);
+		factorShape = new int[factorAtoms.length];
+		atom2var = new int[worldVars.size()];
+		Arrays.fill(atom2var, -1);
+		int[] numIncidences = new int[worldVars.size()];
+		numVars = 0;
+		for(int f = 0; f < factorAtoms.length; f++) {
+			factorShape[f] = shapeOfFactor.get(f);
+			for(int idxAtom : factorAtoms[f]) {
+				if(atom2var[idxAtom] == -1)
+					atom2var[idxAtom] = numVars++;
+				numIncidences[atom2var[idxAtom]]++;
+			}
+		}
+		varFactors = new int[numVars][];
+		varPositions = new int[numVars][];
+		for(int v = 0; v < numVars; v++) {
+			varFactors[v] = new int[numIncidences[v]];
+			varPositions[v] = new int[numIncidences[v]];
+			numIncidences[v] = 0;
+		}
+		for(int f = 0; f < factorAtoms.length; f++) {
+			for(int pos = 0; pos < factorAtoms[f].length; pos++) {
+				int v = atom2var[factorAtoms[f][pos]];
+				varFactors[v][numIncidences[v]] = f;
+				varPositions[v][numIncidences[v]] = pos;
+				numIncidences[v]++;
+			}
+		}
+	}
+
+	/**
+	 * writes a description of the structure of a ground formula in which ground atoms are replaced by their position
+	 * (in order of first appearance), such that formulas with the same description and weight have the same potential
+	 */
+	protected static void describe(Formula f, IdentityHashMap<GroundAtom, Integer> positions, Vector<GroundAtom> atoms, StringBuffer sb) throws Exception {
+		if(f instanceof GroundAtom) {
+			GroundAtom ga = (GroundAtom)f;
+			Integer pos = positions.get(ga);
+			if(pos == null) {
+				pos = atoms.size();
+				positions.put(ga, pos);
+				atoms.add(ga);
+			}
+			sb.append('#').append(pos);
+		}
+		else if(f instanceof GroundLiteral) {
+			GroundLiteral lit = (GroundLiteral)f;
+			if(!lit.isPositive)
+				sb.append('!');
+			describe(lit.gndAtom, positions, atoms, sb);
+		}
+		else if(f instanceof ComplexFormula) {
+			sb.append(f.getClass().getSimpleName()).append('(');
+			for(Formula child : ((ComplexFormula)f).children) {
+				describe(child, positions, atoms, sb);
+				sb.append(',');
+			}
+			sb.append(')');
+		}
+		else if(f instanceof TrueFalse)
+			sb.append(((TrueFalse)f).isTrue() ? 'T' : 'F');
+		else
+			throw new Exception("Unsupported formula type in ground formula: " + f.getClass().getSimpleName());
+	}
+
+	protected static double[] computePotentialTable(WeightedFormula wf, final Vector<GroundAtom> atoms) {
+		final IdentityHashMap<GroundAtom, Integer> positions = new IdentityHashMap<GroundAtom, Integer>();
+		for(int i = 0; i < atoms.size(); i++)
+			positions.put(atoms.get(i), i);
+		double[] table = new double[1 << atoms.size()];
+		// potentials are scaled such that the larger value is 1
+		double valueTrue = wf.isHard || wf.weight >= 0 ? 1.0 : Math.exp(wf.weight);
+		double valueFalse = wf.isHard ? 0.0 : (wf.weight >= 0 ? Math.exp(-wf.weight) : 1.0);
+		for(int a = 0; a < table.length; a++) {
+			final int assignment = a;
+			boolean isTrue = wf.formula.isTrue(new IPossibleWorld() {
+				public boolean isTrue(GroundAtom ga) {
+					return (assignment & (1 << positions.get(ga))) != 0;
+				}
+			});
+			table[a] = isTrue ? valueTrue : valueFalse;
+		}
+		return table;
+	}
+
+	/**
+	 * compresses the ground factor graph by color passing
+	 */
+	protected void compress() {
+		varColor = new int[numVars];
+		factorColor = factorShape.clone();
+		int numVarColors = 1, numFactorColors = shapes.size();
+		while(true) {
+			// recolor variables based on their colors and the colors of their factors (and their positions therein)
+			HashMap<Signature, Integer> colors = new HashMap<Signature, Integer>();
+			int[] newVarColor = new int[numVars];
+			for(int v = 0; v < numVars; v++) {
+				long[] sig = new long[varFactors[v].length+1];
+				for(int i = 0; i < varFactors[v].length; i++)
+					sig[i] = ((long)factorColor[varFactors[v][i]] << 20) | varPositions[v][i];
+				Arrays.sort(sig, 0, sig.length-1);
+				sig[sig.length-1] = varColor[v];
+				newVarColor[v] = getColor(colors, new Signature(sig));
+			}
+			int newNumVarColors = colors.size();
+			// recolor factors based on their colors and the colors of their variables
+			colors = new HashMap<Signature, Integer>();
+			int[] newFactorColor = new int[factorAtoms.length];
+			for(int f = 0; f < factorAtoms.length; f++) {
+				long[] sig = new long[factorAtoms[f].length+1];
+				for(int pos = 0; pos < factorAtoms[f].length; pos++)
+					sig[pos] = newVarColor[atom2var[factorAtoms[f][pos]]];
+				sig[sig.length-1] = factorColor[f];
+				newFactorColor[f] = getColor(colors, new Signature(sig));
+			}
+			int newNumFactorColors = colors.size();
+			varColor = newVarColor;
+			factorColor = newFactorColor;
+			if(newNumVarColors == numVarColors && newNumFactorColors == numFactorColors)
+				break;
+			numVarColors = newNumVarColors;
+			numFactorColors = newNumFactorColors;
+		}
+		numSupernodes = numVars == 0 ? 0 : numVarColors;
+		numSuperfactors = factorAtoms.length == 0 ? 0 : numFactorColors;
+		// representatives of superfactors
+		superfactorRep = new int[numSuperfactors];
+		for(int f = 0; f < factorAtoms.length; f++)
+			superfactorRep[factorColor[f]] = f;
+		// superfactor incidences of supernodes (counted for a representative variable)
+		supernodeFactors = new int[numSupernodes][];
+		supernodePositions = new int[numSupernodes][];
+		supernodeCounts = new int[numSupernodes][];
+		for(int v = 0; v < numVars; v++) {
+			int X = varColor[v];
+			if(supernodeFactors[X] != null)
+				continue;
+			HashMap<Long, Integer> counts = new HashMap<Long, Integer>();
+			for(int i = 0; i < varFactors[v].length; i++) {
+				long key = ((long)factorColor[varFactors[v][i]] << 20) | varPositions[v][i];
+				Integer c = counts.get(key);
+				counts.put(key, c == null ? 1 : c+1);
+			}
+			supernodeFactors[X] = new int[counts.size()];
+			supernodePositions[X] = new int[counts.size()];
+			supernodeCounts[X] = new int[counts.size()];
+			int i = 0;
+			for(java.util.Map.Entry<Long, Integer> e : counts.entrySet()) {
+				supernodeFactors[X][i] = (int)(e.getKey() >> 20);
+				supernodePositions[X][i] = (int)(e.getKey() & 0xFFFFF);
+				supernodeCounts[X][i] = e.getValue();
+				i++;
+			}
+		}
+		if(verbose)
+			System.out.printf("lifted BP: compressed %d ground atoms and %d ground factors into %d supernodes and %d superfactors (compression ratio %.2f)\n", numVars, factorAtoms.length, numSupernodes, numSuperfactors, getCompressionRatio());
+	}
+
+	protected static int getColor(HashMap<Signature, Integer> colors, Signature sig) {
+		Integer color = colors.get(sig);
+		if(color == null) {
+			color = colors.size();
+			colors.put(sig, color);
+		}
+		return color;
+	}
+
+	protected static class Signature {
+		protected long[] values;
+		protected int hashCode;
+
+		public Signature(long[] values) {
+			this.values = values;
+			this.hashCode = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Signature && Arrays.equals(values, ((Signature)o).values);
+		}
+	}
+
+	/**
+	 * @return the ratio of the size of the ground factor graph (number of variables and factors) to the size of the compressed graph
+	 */
+	public double getCompressionRatio() {
+		int compressed = numSupernodes + numSuperfactors;
+		if(compressed == 0)
+			return 1.0;
+		return (double)(numVars + factorAtoms.length) / compressed;
+	}
+
+	public int getNumSupernodes() {
+		return numSupernodes;
+	}
+
+	public int getNumSuperfactors() {
+		return numSuperfactors;
+	}
+
+	/**
+	 * runs belief propagation on the compressed factor graph
+	 */
+	protected void runBP() {
+		// messages from superfactors to supernodes and vice versa, indexed by superfactor, position and value
+		double[][][] fv = new double[numSuperfactors][][], vf = new double[numSuperfactors][][];
+		for(int F = 0; F < numSuperfactors; F++) {
+			int size = factorAtoms[superfactorRep[F]].length;
+			fv[F] = new double[size][];
+			vf[F] = new double[size][];
+			for(int pos = 0; pos < size; pos++) {
+				fv[F][pos] = new double[]{0.5, 0.5};
+				vf[F][pos] = new double[]{0.5, 0.5};
+			}
+		}
+		double[][] logProducts = new double[numSupernodes][2];
+		int step;
+		for(step = 1; step <= maxSteps; step++) {
+			// supernode to superfactor messages
+			computeLogProducts(fv, logProducts);
+			for(int F = 0; F < numSuperfactors; F++) {
+				int[] rep = factorAtoms[superfactorRep[F]];
+				for(int pos = 0; pos < rep.length; pos++) {
+					double[] lp = logProducts[varColor[atom2var[rep[pos]]]];
+					double l0 = lp[0] - Math.log(fv[F][pos][0]), l1 = lp[1] - Math.log(fv[F][pos][1]);
+					setNormalized(vf[F][pos], l0, l1);
+				}
+			}
+			// superfactor to supernode messages
+			double maxDelta = 0;
+			for(int F = 0; F < numSuperfactors; F++) {
+				Shape shape = shapes.get(factorShape[superfactorRep[F]]);
+				for(int pos = 0; pos < shape.size; pos++) {
+					double[] msg = computeFactorMessage(shape, vf[F], pos);
+					double[] old = fv[F][pos];
+					for(int x = 0; x < 2; x++) {
+						double value = Math.max(MIN_MESSAGE, (1-damping) * msg[x] + damping * old[x]);
+						maxDelta = Math.max(maxDelta, Math.abs(value - old[x]));
+						old[x] = value;
+					}
+				}
+			}
+			if(debug || (verbose && step % infoInterval == 0))
+				System.out.printf("lifted BP step %d: max. message change %g\n", step, maxDelta);
+			if(maxDelta < convergenceThreshold)
+				break;
+		}
+		if(verbose)
+			System.out.printf("lifted BP: %s after %d iterations\n", step <= maxSteps ? "converged" : "stopped", Math.min(step, maxSteps));
+		// compute beliefs
+		computeLogProducts(fv, logProducts);
+		beliefs = new double[numSupernodes];
+		for(int X = 0; X < numSupernodes; X++) {
+			double[] b = new double[2];
+			setNormalized(b, logProducts[X][0], logProducts[X][1]);
+			beliefs[X] = b[1];
+		}
+	}
+
+	/**
+	 * computes, for each supernode, the logarithm of the product of all incoming messages
+	 */
+	protected void computeLogProducts(double[][][] fv, double[][] logProducts) {
+		for(int X = 0; X < numSupernodes; X++) {
+			logProducts[X][0] = logProducts[X][1] = 0;
+			for(int i = 0; i < supernodeFactors[X].length; i++) {
+				double[] msg = fv[supernodeFactors[X][i]][supernodePositions[X][i]];
+				int count = supernodeCounts[X][i];
+				logProducts[X][0] += count * Math.log(msg[0]);
+				logProducts[X][1] += count * Math.log(msg[1]);
+			}
+		}
+	}
+
+	protected static void setNormalized(double[] msg, double l0, double l1) {
+		double max = Math.max(l0, l1);
+		double p0 = Math.exp(l0 - max), p1 = Math.exp(l1 - max);
+		msg[0] = Math.max(MIN_MESSAGE, p0 / (p0 + p1));
+		msg[1] = Math.max(MIN_MESSAGE, p1 / (p0 + p1));
+	}
+
+	/**
+	 * computes the (normalized) message from a factor to the variable at the given position
+	 * @param shape the factor's potential function
+	 * @param incoming the incoming messages of all positions
+	 * @param pos
+	 * @return
+	 */
+	protected static double[] computeFactorMessage(Shape shape, double[][] incoming, int pos) {
+		double[] msg = new double[2];
+		if(shape.table == null) { // exactly-one constraint
+			double s = 0;
+			for(int i = 0; i < shape.size; i++)
+				if(i != pos)
+					s += incoming[i][1] / incoming[i][0];
+			msg[0] = s / (1 + s);
+			msg[1] = 1 / (1 + s);
+			return msg;
+		}
+		double[] table = shape.table;
+		for(int a = 0; a < table.length; a++) {
+			if(table[a] == 0)
+				continue;
+			double p = table[a];
+			for(int i = 0; i < shape.size; i++)
+				if(i != pos)
+					p *= incoming[i][(a >> i) & 1];
+			msg[(a >> pos) & 1] += p;
+		}
+		double z = msg[0] + msg[1];
+		if(z == 0)
+			msg[0] = msg[1] = 0.5;
+		else {
+			msg[0] /= z;
+			msg[1] /= z;
+		}
+		return msg;
+	}
+
+	@Override
+	public double getResult(GroundAtom ga) {
+		// evidence
+		Formula value = ga.simplify(mrf.getDb());
+		if(value instanceof TrueFalse)
+			return ((TrueFalse)value).isTrue() ? 1.0 : 0.0;
+		// atoms that are not part of any factor are unconstrained
+		int v = ga.index < atom2var.length ? atom2var[ga.index] : -1;
+		if(v == -1)
+			return 0.5;
+		return beliefs[varColor[v]];
+	}
+
+	@Override
+	public ArrayList<InferenceResult> infer(Iterable<String> queries) throws Exception {
+		runBP();
+		return getResults(queries);
+	}
+}
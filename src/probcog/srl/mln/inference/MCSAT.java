@@ -22,6 +22,7 @@ import java.util.ArrayList;
 
 import probcog.logic.GroundAtom;
 import probcog.logic.sat.weighted.WeightedClausalKB;
+import probcog.srl.mln.LazyMarkovRandomField;
 import probcog.srl.mln.MarkovRandomField;
 
 /**
@@ -35,7 +36,13 @@ public class MCSAT extends InferenceAlgorithm {
 	public MCSAT(MarkovRandomField mrf) throws Exception {
 		super(mrf);
 		WeightedClausalKB wckb = new WeightedClausalKB(mrf, true);
-		sampler = new probcog.logic.sat.weighted.MCSAT(wckb, mrf.getWorldVariables(), mrf.getDb());
+		if(mrf instanceof LazyMarkovRandomField) {
+			LazyMarkovRandomField lmrf = (LazyMarkovRandomField)mrf;
+			sampler = new probcog.logic.sat.weighted.MCSAT(wckb, mrf.getWorldVariables(), lmrf.getEvidence(), lmrf);
+		}
+		else
+			sampler = new probcog.logic.sat.weighted.MCSAT(wckb, mrf.getWorldVariables(), mrf.getDb());
+		sampler.setCancellationFlag(cancellation);
 		paramHandler.addSubhandler(sampler.getParameterHandler());
 	}
 
@@ -48,6 +55,10 @@ public class MCSAT extends InferenceAlgorithm {
 	public ArrayList<InferenceResult> infer(Iterable<String> queries) throws Exception {
 		sampler.setDebugMode(debug);
 		sampler.run(maxSteps);
+		if(verbose && mrf instanceof LazyMarkovRandomField) {
+			LazyMarkovRandomField lmrf = (LazyMarkovRandomField)mrf;
+			System.out.printf("lazy grounding: %d ground formulas active (%d groundings considered), %d ground atoms\n", lmrf.getNumActiveGroundings(), lmrf.getNumGroundingsConsidered(), mrf.getWorldVariables().size());
+		}
 		return getResults(queries);
 	}
 	
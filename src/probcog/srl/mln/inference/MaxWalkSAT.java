@@ -21,9 +21,11 @@ package probcog.srl.mln.inference;
 import java.util.ArrayList;
 
 import probcog.logic.GroundAtom;
+import probcog.logic.LazyPossibleWorld;
 import probcog.logic.PossibleWorld;
 import probcog.logic.sat.weighted.IMaxSAT;
 import probcog.logic.sat.weighted.WeightedClausalKB;
+import probcog.srl.mln.LazyMarkovRandomField;
 import probcog.srl.mln.MarkovRandomField;
 
 /**
@@ -41,6 +43,15 @@ public class MaxWalkSAT extends MAPInferenceAlgorithm {
 	public MaxWalkSAT(MarkovRandomField mrf, Class<? extends IMaxSAT> mwsClass) throws Exception {
 		super(mrf);
         WeightedClausalKB wckb = new WeightedClausalKB(mrf, false);
+        if(mrf instanceof LazyMarkovRandomField) { // LazySAT
+        	if(mwsClass != probcog.logic.sat.weighted.MaxWalkSAT.class)
+        		throw new Exception("Lazy inference is not supported by " + mwsClass.getSimpleName());
+        	LazyMarkovRandomField lmrf = (LazyMarkovRandomField)mrf;
+        	probcog.logic.sat.weighted.MaxWalkSAT mws = new probcog.logic.sat.weighted.MaxWalkSAT(wckb, new LazyPossibleWorld(mrf.getWorldVariables()), mrf.getWorldVariables(), lmrf.getEvidence());
+        	mws.setLazyGrounder(lmrf);
+        	sat = mws;
+        	return;
+        }
         PossibleWorld state = new PossibleWorld(mrf.getWorldVariables());
         sat = mwsClass.getConstructor(WeightedClausalKB.class, PossibleWorld.class, probcog.logic.WorldVariables.class, probcog.srl.Database.class).newInstance(wckb, state, mrf.getWorldVariables(), mrf.getDb());
         //sat = new edu.tum.cs.logic.sat.weighted.MaxWalkSAT(wckb, state, mrf.getWorldVariables(), mrf.getDb());
@@ -54,6 +65,7 @@ public class MaxWalkSAT extends MAPInferenceAlgorithm {
 	@Override
 	public ArrayList<InferenceResult> infer(Iterable<String> queries) throws Exception {
         sat.setMaxSteps(maxSteps);
+        sat.setCancellationFlag(cancellation);
         sat.run();	        
 		return getResults(queries);
 	}